@@ -0,0 +1,118 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2009, Red Hat Middleware LLC, and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.tattletale.bench;
+
+import org.jboss.tattletale.core.Archive;
+import org.jboss.tattletale.profiles.Profile;
+import org.jboss.tattletale.reporting.classloader.ClassLoaderStructure;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Benchmarks of the visibility between archives in a classloader structure. The archives are spread over
+ * the directories of a JBoss Application Server 5 installation.
+ *
+ * @author Jesper Pedersen <jesper.pedersen@jboss.org>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ClassLoaderStructureBenchmark
+{
+   /** The directories of the archives */
+   private static final String[] DIRS = {"lib", "common/lib", "server/default/lib", "server/default/deployers",
+                                         "server/default/deploy", "server/default/deploy/app", "client"};
+
+   /** The classloader structure */
+   @Param({ "org.jboss.tattletale.reporting.classloader.JBossAS5ClassLoaderStructure",
+             "org.jboss.tattletale.reporting.classloader.NoopClassLoaderStructure" })
+   public String structure;
+
+   /** The number of archives */
+   @Param({ "200" })
+   public int archives;
+
+   /** The directory */
+   private File dir;
+
+   /** The archives */
+   private List<Archive> archiveList;
+
+   /**
+    * Setup
+    *
+    * @throws Exception If the archives can't be created
+    */
+   @Setup
+   public void setup() throws Exception
+   {
+      dir = Corpus.createDirectory();
+      Corpus.create(dir, DIRS, archives, 10);
+      archiveList = new ArrayList<Archive>(Corpus.scan(dir, new ArrayList<Profile>()));
+   }
+
+   /** Tear down */
+   @TearDown
+   public void tearDown()
+   {
+      Corpus.delete(dir);
+   }
+
+   /**
+    * Ask a new classloader structure for the visibility between all pairs of archives
+    *
+    * @return The number of visible pairs
+    * @throws Exception If the structure can't be created
+    */
+   @Benchmark
+   public int isVisible() throws Exception
+   {
+      ClassLoaderStructure cls = (ClassLoaderStructure) Class.forName(structure).newInstance();
+      int result = 0;
+
+      for (Archive from : archiveList)
+      {
+         for (Archive to : archiveList)
+         {
+            if (cls.isVisible(from, to))
+            {
+               result++;
+            }
+         }
+      }
+
+      return result;
+   }
+}
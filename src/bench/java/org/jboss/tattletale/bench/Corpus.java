@@ -0,0 +1,195 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2009, Red Hat Middleware LLC, and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.tattletale.bench;
+
+import org.jboss.tattletale.analyzers.Analyzer;
+import org.jboss.tattletale.analyzers.ArchiveModel;
+import org.jboss.tattletale.analyzers.DirectoryScanner;
+import org.jboss.tattletale.core.Archive;
+import org.jboss.tattletale.profiles.Profile;
+import org.jboss.tattletale.tools.corpus.ClassFileWriter;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+/**
+ * Synthetic archives for the benchmarks.
+ *
+ * Archive i holds the classes of the package org.example.lib&lt;i&gt;. Each class refers to the next class of
+ * its archive, to a class of archive i + 1, which makes the archives one dependency cycle, to a class of
+ * archive i / 2, which makes the archives a layered tree, and to a couple of JDK classes.
+ *
+ * @author Jesper Pedersen <jesper.pedersen@jboss.org>
+ */
+public class Corpus
+{
+   /** The JDK classes that each class refers to */
+   private static final String[] JDK = {"java/lang/Object", "java/lang/String", "java/util/List"};
+
+   /** Constructor */
+   private Corpus()
+   {
+   }
+
+   /**
+    * Create the archives of a corpus
+    *
+    * @param root     The root directory
+    * @param dirs     The directories below the root that the archives are spread over
+    * @param archives The number of archives
+    * @param classes  The number of classes of each archive
+    * @return The archive files
+    * @throws IOException If an archive can't be written
+    */
+   public static List<File> create(File root, String[] dirs, int archives, int classes) throws IOException
+   {
+      List<File> result = new ArrayList<File>(archives);
+
+      for (int i = 0; i < archives; i++)
+      {
+         File dir = new File(root, dirs[i % dirs.length]);
+         dir.mkdirs();
+
+         String[] refs = {getClassName((i + 1) % archives, 0), getClassName(i / 2, 0)};
+
+         File file = new File(dir, "lib" + i + ".jar");
+         createJar(file, i, classes, refs);
+         result.add(file);
+      }
+
+      return result;
+   }
+
+   /**
+    * Create an archive
+    *
+    * @param file    The file
+    * @param archive The number of the archive
+    * @param classes The number of classes
+    * @param refs    The classes of other archives that each class refers to
+    * @throws IOException If the archive can't be written
+    */
+   public static void createJar(File file, int archive, int classes, String[] refs) throws IOException
+   {
+      JarOutputStream jos = new JarOutputStream(new FileOutputStream(file));
+      try
+      {
+         for (int c = 0; c < classes; c++)
+         {
+            String name = getClassName(archive, c);
+
+            List<String> classRefs = new ArrayList<String>();
+            classRefs.add(getClassName(archive, (c + 1) % classes));
+            for (String ref : refs)
+            {
+               classRefs.add(ref);
+            }
+            for (String ref : JDK)
+            {
+               classRefs.add(ref);
+            }
+
+            jos.putNextEntry(new JarEntry(name + ".class"));
+            jos.write(ClassFileWriter.write(name, classRefs));
+            jos.closeEntry();
+         }
+      }
+      finally
+      {
+         jos.close();
+      }
+   }
+
+   /**
+    * Scan the archives below a directory
+    *
+    * @param root  The directory
+    * @param known The known profiles
+    * @return The archives
+    * @throws Exception If an archive can't be scanned
+    */
+   public static SortedSet<Archive> scan(File root, List<Profile> known) throws Exception
+   {
+      DirectoryScanner.setArchives(".jar");
+
+      ArchiveModel model = new ArchiveModel(new Analyzer(), known, null);
+      model.update(DirectoryScanner.scan(root));
+
+      return model.getArchives();
+   }
+
+   /**
+    * Delete a file or a directory
+    *
+    * @param file The file
+    */
+   public static void delete(File file)
+   {
+      File[] files = file.listFiles();
+      if (files != null)
+      {
+         for (File f : files)
+         {
+            delete(f);
+         }
+      }
+
+      file.delete();
+   }
+
+   /**
+    * Create a temporary directory
+    *
+    * @return The directory
+    * @throws IOException If the directory can't be created
+    */
+   public static File createDirectory() throws IOException
+   {
+      File dir = File.createTempFile("corpus", "");
+      dir.delete();
+
+      if (!dir.mkdirs())
+      {
+         throw new IOException("Unable to create " + dir);
+      }
+
+      return dir;
+   }
+
+   /**
+    * Get the internal name of a class
+    *
+    * @param archive The number of the archive
+    * @param clz     The number of the class
+    * @return The name
+    */
+   private static String getClassName(int archive, int clz)
+   {
+      return "org/example/lib" + archive + "/C" + clz;
+   }
+}
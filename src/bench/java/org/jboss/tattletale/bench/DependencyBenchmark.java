@@ -0,0 +1,150 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2009, Red Hat Middleware LLC, and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.tattletale.bench;
+
+import org.jboss.tattletale.core.Archive;
+import org.jboss.tattletale.profiles.Profile;
+import org.jboss.tattletale.profiles.SunJava6;
+import org.jboss.tattletale.reporting.CLSReport;
+import org.jboss.tattletale.reporting.CircularDependencyReport;
+import org.jboss.tattletale.reporting.TransitiveDependantsReport;
+import org.jboss.tattletale.reporting.TransitiveDependsOnReport;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Benchmarks of the transitive and circular dependency computation. The archives form one dependency cycle
+ * as well as a layered tree.
+ *
+ * @author Jesper Pedersen <jesper.pedersen@jboss.org>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class DependencyBenchmark
+{
+   /** The classloader structure of the reports */
+   private static final String CLS = "org.jboss.tattletale.reporting.classloader.NoopClassLoaderStructure";
+
+   /** The number of archives */
+   @Param({ "100", "500" })
+   public int archives;
+
+   /** The number of classes of each archive */
+   @Param({ "20" })
+   public int classes;
+
+   /** The directory */
+   private File dir;
+
+   /** The archives */
+   private SortedSet<Archive> archiveSet;
+
+   /** The known profiles */
+   private List<Profile> known;
+
+   /**
+    * Setup
+    *
+    * @throws Exception If the archives can't be created
+    */
+   @Setup
+   public void setup() throws Exception
+   {
+      known = new ArrayList<Profile>();
+      known.add(new SunJava6());
+
+      dir = Corpus.createDirectory();
+      Corpus.create(dir, new String[] {"lib"}, archives, classes);
+      archiveSet = Corpus.scan(dir, known);
+   }
+
+   /** Tear down */
+   @TearDown
+   public void tearDown()
+   {
+      Corpus.delete(dir);
+   }
+
+   /**
+    * Compute the transitive dependencies
+    *
+    * @return The status of the report
+    */
+   @Benchmark
+   public int transitiveDependsOn()
+   {
+      return evaluate(new TransitiveDependsOnReport());
+   }
+
+   /**
+    * Compute the transitive dependants
+    *
+    * @return The status of the report
+    */
+   @Benchmark
+   public int transitiveDependants()
+   {
+      return evaluate(new TransitiveDependantsReport());
+   }
+
+   /**
+    * Compute the circular dependencies
+    *
+    * @return The status of the report
+    */
+   @Benchmark
+   public int circularDependency()
+   {
+      return evaluate(new CircularDependencyReport());
+   }
+
+   /**
+    * Evaluate a report without writing it
+    *
+    * @param report The report
+    * @return The status
+    */
+   private int evaluate(CLSReport report)
+   {
+      report.setCLS(CLS);
+      report.setKnown(known);
+      report.setArchives(archiveSet);
+      report.evaluate();
+
+      return report.getStatus();
+   }
+}
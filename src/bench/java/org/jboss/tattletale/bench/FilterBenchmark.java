@@ -0,0 +1,154 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2009, Red Hat Middleware LLC, and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.tattletale.bench;
+
+import org.jboss.tattletale.reporting.KeyValueFilter;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Benchmarks of the key value filter
+ *
+ * @author Jesper Pedersen <jesper.pedersen@jboss.org>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FilterBenchmark
+{
+   /** The number of archives of the filter */
+   @Param({ "50" })
+   public int archives;
+
+   /** The number of values of each archive */
+   @Param({ "20" })
+   public int values;
+
+   /** The filter definition */
+   private String definition;
+
+   /** The filter */
+   private KeyValueFilter filter;
+
+   /** The queries; every other query matches a value */
+   private String[] queries;
+
+   /** Setup */
+   @Setup
+   public void setup()
+   {
+      StringBuffer sb = new StringBuffer();
+
+      for (int a = 0; a < archives; a++)
+      {
+         if (a > 0)
+         {
+            sb.append(";");
+         }
+
+         sb.append("lib").append(a).append(".jar=");
+
+         for (int v = 0; v < values; v++)
+         {
+            if (v > 0)
+            {
+               sb.append(",");
+            }
+
+            sb.append("org.example.p").append(v).append(".*");
+         }
+      }
+
+      definition = sb.toString();
+
+      filter = new KeyValueFilter();
+      filter.init(definition);
+
+      queries = new String[1000];
+      for (int i = 0; i < queries.length; i++)
+      {
+         if (i % 2 == 0)
+         {
+            queries[i] = "org.example.p" + (i % values) + ".C" + i;
+         }
+         else
+         {
+            queries[i] = "org.other.p" + (i % values) + ".C" + i;
+         }
+      }
+   }
+
+   /**
+    * Query a filter whose results are cached already
+    *
+    * @return The number of filtered queries
+    */
+   @Benchmark
+   public int isFiltered()
+   {
+      return query(filter);
+   }
+
+   /**
+    * Define a filter and query it
+    *
+    * @return The number of filtered queries
+    */
+   @Benchmark
+   public int isFilteredCold()
+   {
+      KeyValueFilter cold = new KeyValueFilter();
+      cold.init(definition);
+
+      return query(cold);
+   }
+
+   /**
+    * Query a filter
+    *
+    * @param f The filter
+    * @return The number of filtered queries
+    */
+   private int query(KeyValueFilter f)
+   {
+      int result = 0;
+
+      for (int i = 0; i < queries.length; i++)
+      {
+         if (f.isFiltered("lib" + (i % archives) + ".jar", queries[i]))
+         {
+            result++;
+         }
+      }
+
+      return result;
+   }
+}
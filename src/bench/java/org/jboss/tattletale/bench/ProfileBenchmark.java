@@ -0,0 +1,104 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2009, Red Hat Middleware LLC, and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.tattletale.bench;
+
+import org.jboss.tattletale.profiles.AbstractProfile;
+import org.jboss.tattletale.profiles.JavaEE6;
+import org.jboss.tattletale.profiles.SunJava6;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Benchmarks of the profile lookups
+ *
+ * @author Jesper Pedersen <jesper.pedersen@jboss.org>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ProfileBenchmark
+{
+   /** Classes of the profiles */
+   private static final String[] PROVIDED = {"java.lang.String", "java.util.List", "java.util.concurrent.Future",
+                                             "javax.swing.JFrame", "javax.servlet.http.HttpServlet",
+                                             "javax.persistence.Entity", "javax.ejb.Stateless"};
+
+   /** The profile */
+   @Param({ "java6", "ee6" })
+   public String profile;
+
+   /** The profile instance */
+   private AbstractProfile instance;
+
+   /** The queries; every other query is a class of a profile */
+   private String[] queries;
+
+   /** Setup */
+   @Setup
+   public void setup()
+   {
+      instance = "ee6".equals(profile) ? new JavaEE6() : new SunJava6();
+
+      queries = new String[1000];
+      for (int i = 0; i < queries.length; i++)
+      {
+         if (i % 2 == 0)
+         {
+            queries[i] = PROVIDED[i % PROVIDED.length];
+         }
+         else
+         {
+            queries[i] = "org.example.lib" + (i % 10) + ".C" + i;
+         }
+      }
+   }
+
+   /**
+    * Look up the classes
+    *
+    * @return The number of provided classes
+    */
+   @Benchmark
+   public int doesProvide()
+   {
+      int result = 0;
+
+      for (String query : queries)
+      {
+         if (instance.doesProvide(query))
+         {
+            result++;
+         }
+      }
+
+      return result;
+   }
+}
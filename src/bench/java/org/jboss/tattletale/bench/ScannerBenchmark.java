@@ -0,0 +1,255 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2009, Red Hat Middleware LLC, and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.tattletale.bench;
+
+import org.jboss.tattletale.analyzers.JarScanner;
+import org.jboss.tattletale.core.Archive;
+import org.jboss.tattletale.profiles.Profile;
+import org.jboss.tattletale.profiles.SunJava6;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+import javassist.ClassPool;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Benchmarks of the class and archive scanning
+ *
+ * @author Jesper Pedersen <jesper.pedersen@jboss.org>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ScannerBenchmark
+{
+   /**
+    * A real archive; the Javassist archive unless another one is given
+    */
+   @State(Scope.Benchmark)
+   public static class RealJar
+   {
+      /** The archive */
+      @Param({ "" })
+      public String jar;
+
+      /** The file */
+      File file;
+
+      /** The class files of the archive */
+      List<byte[]> classes;
+
+      /** The known profiles */
+      List<Profile> known;
+
+      /**
+       * Setup
+       *
+       * @throws Exception If the archive can't be read
+       */
+      @Setup
+      public void setup() throws Exception
+      {
+         if (jar == null || jar.trim().equals(""))
+         {
+            file = new File(ClassPool.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+         }
+         else
+         {
+            file = new File(jar.trim());
+         }
+
+         if (!file.isFile())
+         {
+            throw new IllegalStateException("Not an archive: " + file + "; use -p jar=<file>");
+         }
+
+         classes = new ArrayList<byte[]>();
+
+         JarFile jarFile = new JarFile(file);
+         try
+         {
+            Enumeration<JarEntry> entries = jarFile.entries();
+            while (entries.hasMoreElements())
+            {
+               JarEntry entry = entries.nextElement();
+               if (entry.getName().endsWith(".class"))
+               {
+                  classes.add(read(jarFile.getInputStream(entry)));
+               }
+            }
+         }
+         finally
+         {
+            jarFile.close();
+         }
+
+         known = new ArrayList<Profile>();
+         known.add(new SunJava6());
+      }
+   }
+
+   /**
+    * A synthetic archive
+    */
+   @State(Scope.Benchmark)
+   public static class SyntheticJar
+   {
+      /** The number of classes */
+      @Param({ "100", "1000" })
+      public int classes;
+
+      /** The directory */
+      File dir;
+
+      /** The file */
+      File file;
+
+      /** The known profiles */
+      List<Profile> known;
+
+      /**
+       * Setup
+       *
+       * @throws Exception If the archive can't be written
+       */
+      @Setup
+      public void setup() throws Exception
+      {
+         dir = Corpus.createDirectory();
+         file = new File(dir, "synthetic.jar");
+         Corpus.createJar(file, 0, classes, new String[0]);
+
+         known = new ArrayList<Profile>();
+         known.add(new SunJava6());
+      }
+
+      /** Tear down */
+      @TearDown
+      public void tearDown()
+      {
+         Corpus.delete(dir);
+      }
+   }
+
+   /**
+    * Scan the classes of the real archive
+    *
+    * @param state The state
+    * @return The class version
+    * @throws Exception If a class can't be scanned
+    */
+   @Benchmark
+   public Integer scanClasses(RealJar state) throws Exception
+   {
+      JarScanner scanner = new JarScanner();
+
+      Integer classVersion = null;
+      SortedMap<String, Long> provides = new TreeMap<String, Long>();
+      SortedSet<String> requires = new TreeSet<String>();
+      SortedSet<String> profiles = new TreeSet<String>();
+      SortedMap<String, SortedSet<String>> classDependencies = new TreeMap<String, SortedSet<String>>();
+      SortedMap<String, SortedSet<String>> packageDependencies = new TreeMap<String, SortedSet<String>>();
+      SortedMap<String, SortedSet<String>> blacklistedDependencies = new TreeMap<String, SortedSet<String>>();
+
+      for (byte[] clz : state.classes)
+      {
+         classVersion = scanner.scanClasses(new ByteArrayInputStream(clz), null, state.known, classVersion,
+                                            provides, requires, profiles, classDependencies,
+                                            packageDependencies, blacklistedDependencies);
+      }
+
+      return classVersion;
+   }
+
+   /**
+    * Scan the real archive
+    *
+    * @param state The state
+    * @return The archive
+    */
+   @Benchmark
+   public Archive scanRealJar(RealJar state)
+   {
+      return new JarScanner().scan(state.file, null, state.known, null);
+   }
+
+   /**
+    * Scan the synthetic archive
+    *
+    * @param state The state
+    * @return The archive
+    */
+   @Benchmark
+   public Archive scanSyntheticJar(SyntheticJar state)
+   {
+      return new JarScanner().scan(state.file, null, state.known, null);
+   }
+
+   /**
+    * Read a stream
+    *
+    * @param is The stream
+    * @return The bytes
+    * @throws Exception If the stream can't be read
+    */
+   private static byte[] read(InputStream is) throws Exception
+   {
+      try
+      {
+         ByteArrayOutputStream baos = new ByteArrayOutputStream();
+         byte[] buffer = new byte[8192];
+         int n;
+
+         while ((n = is.read(buffer)) != -1)
+         {
+            baos.write(buffer, 0, n);
+         }
+
+         return baos.toByteArray();
+      }
+      finally
+      {
+         is.close();
+      }
+   }
+}
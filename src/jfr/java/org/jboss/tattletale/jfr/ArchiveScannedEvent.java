@@ -0,0 +1,107 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2009, Red Hat Middleware LLC, and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.tattletale.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * An archive was scanned
+ *
+ * @author Jesper Pedersen <jesper.pedersen@jboss.org>
+ */
+@Name("org.jboss.tattletale.ArchiveScanned")
+@Label("Archive Scanned")
+@Category("Tattletale")
+@Description("An archive was scanned")
+@Enabled(false)
+public class ArchiveScannedEvent extends Event
+{
+   /** The path */
+   @Label("Path")
+   private String path;
+
+   /** The size */
+   @Label("Size")
+   @DataAmount
+   private long size;
+
+   /** The number of classes parsed */
+   @Label("Classes")
+   private long classes;
+
+   /** The duration of the scan */
+   @Label("Scan Duration")
+   @Timespan(Timespan.NANOSECONDS)
+   private long scanDuration;
+
+   /** Constructor */
+   public ArchiveScannedEvent()
+   {
+   }
+
+   /**
+    * Set the path
+    *
+    * @param path The value
+    */
+   public void setPath(String path)
+   {
+      this.path = path;
+   }
+
+   /**
+    * Set the size
+    *
+    * @param size The value in bytes
+    */
+   public void setSize(long size)
+   {
+      this.size = size;
+   }
+
+   /**
+    * Set the number of classes parsed
+    *
+    * @param classes The value
+    */
+   public void setClasses(long classes)
+   {
+      this.classes = classes;
+   }
+
+   /**
+    * Set the duration of the scan
+    *
+    * @param scanDuration The value in nanoseconds
+    */
+   public void setScanDuration(long scanDuration)
+   {
+      this.scanDuration = scanDuration;
+   }
+}
@@ -0,0 +1,89 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2009, Red Hat Middleware LLC, and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.tattletale.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A class of an archive couldn't be parsed
+ *
+ * @author Jesper Pedersen <jesper.pedersen@jboss.org>
+ */
+@Name("org.jboss.tattletale.ClassParseFailed")
+@Label("Class Parse Failed")
+@Category("Tattletale")
+@Description("A class of an archive couldn't be parsed")
+@Enabled(false)
+public class ClassParseFailedEvent extends Event
+{
+   /** The path of the archive */
+   @Label("Path")
+   private String path;
+
+   /** The entry of the class */
+   @Label("Entry")
+   private String entry;
+
+   /** The cause */
+   @Label("Cause")
+   private String cause;
+
+   /** Constructor */
+   public ClassParseFailedEvent()
+   {
+   }
+
+   /**
+    * Set the path of the archive
+    *
+    * @param path The value
+    */
+   public void setPath(String path)
+   {
+      this.path = path;
+   }
+
+   /**
+    * Set the entry of the class
+    *
+    * @param entry The value
+    */
+   public void setEntry(String entry)
+   {
+      this.entry = entry;
+   }
+
+   /**
+    * Set the cause
+    *
+    * @param cause The value
+    */
+   public void setCause(String cause)
+   {
+      this.cause = cause;
+   }
+}
@@ -0,0 +1,91 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2009, Red Hat Middleware LLC, and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.tattletale.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * The dot application was invoked
+ *
+ * @author Jesper Pedersen <jesper.pedersen@jboss.org>
+ */
+@Name("org.jboss.tattletale.DotInvoked")
+@Label("Dot Invoked")
+@Category("Tattletale")
+@Description("The dot application was invoked")
+@Enabled(false)
+public class DotInvokedEvent extends Event
+{
+   /** The .dot file name */
+   @Label("File")
+   private String file;
+
+   /** The exit value; -1 if it couldn't be run */
+   @Label("Exit Value")
+   private int exitValue;
+
+   /** The duration of the invocation */
+   @Label("Dot Duration")
+   @Timespan(Timespan.NANOSECONDS)
+   private long dotDuration;
+
+   /** Constructor */
+   public DotInvokedEvent()
+   {
+   }
+
+   /**
+    * Set the .dot file name
+    *
+    * @param file The value
+    */
+   public void setFile(String file)
+   {
+      this.file = file;
+   }
+
+   /**
+    * Set the exit value
+    *
+    * @param exitValue The value; -1 if it couldn't be run
+    */
+   public void setExitValue(int exitValue)
+   {
+      this.exitValue = exitValue;
+   }
+
+   /**
+    * Set the duration of the invocation
+    *
+    * @param dotDuration The value in nanoseconds
+    */
+   public void setDotDuration(long dotDuration)
+   {
+      this.dotDuration = dotDuration;
+   }
+}
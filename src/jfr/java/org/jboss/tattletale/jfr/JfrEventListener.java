@@ -0,0 +1,155 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2009, Red Hat Middleware LLC, and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.tattletale.jfr;
+
+import org.jboss.tattletale.utils.EventListener;
+
+import java.io.File;
+
+/**
+ * An event listener that emits the events as Java Flight Recorder events.
+ *
+ * The events are disabled by default, so a recording has to enable them, f.ex. with
+ * -XX:StartFlightRecording:settings=tattletale.jfc. The fields of an event are only filled in when
+ * the event is enabled, and the event is only committed when it passes the threshold of the recording.
+ *
+ * @author Jesper Pedersen <jesper.pedersen@jboss.org>
+ */
+public class JfrEventListener implements EventListener
+{
+   /** Constructor */
+   public JfrEventListener()
+   {
+   }
+
+   /**
+    * An archive was scanned
+    *
+    * @param file     The file
+    * @param size     The size in bytes
+    * @param classes  The number of classes parsed
+    * @param duration The duration
+    */
+   public void archiveScanned(File file, long size, long classes, long duration)
+   {
+      ArchiveScannedEvent event = new ArchiveScannedEvent();
+
+      if (event.isEnabled())
+      {
+         event.setPath(file.getPath());
+         event.setSize(size);
+         event.setClasses(classes);
+         event.setScanDuration(duration);
+
+         if (event.shouldCommit())
+            event.commit();
+      }
+   }
+
+   /**
+    * A class of an archive couldn't be parsed
+    *
+    * @param file  The file of the archive
+    * @param entry The entry of the class
+    * @param cause The cause
+    */
+   public void classParseFailed(File file, String entry, Exception cause)
+   {
+      ClassParseFailedEvent event = new ClassParseFailedEvent();
+
+      if (event.isEnabled())
+      {
+         event.setPath(file.getPath());
+         event.setEntry(entry);
+         event.setCause(String.valueOf(cause));
+
+         if (event.shouldCommit())
+            event.commit();
+      }
+   }
+
+   /**
+    * The archives that an archive can see were computed from the classloader structure
+    *
+    * @param structure The classloader structure
+    * @param archive   The archive name
+    * @param visible   The number of archives it can see
+    * @param duration  The duration
+    */
+   public void visibilityComputed(String structure, String archive, int visible, long duration)
+   {
+      VisibilityComputedEvent event = new VisibilityComputedEvent();
+
+      if (event.isEnabled())
+      {
+         event.setStructure(structure);
+         event.setArchive(archive);
+         event.setVisible(visible);
+         event.setComputeDuration(duration);
+
+         if (event.shouldCommit())
+            event.commit();
+      }
+   }
+
+   /**
+    * A report was generated
+    *
+    * @param id       The report id
+    * @param duration The duration
+    */
+   public void reportGenerated(String id, long duration)
+   {
+      ReportGeneratedEvent event = new ReportGeneratedEvent();
+
+      if (event.isEnabled())
+      {
+         event.setId(id);
+         event.setGenerateDuration(duration);
+
+         if (event.shouldCommit())
+            event.commit();
+      }
+   }
+
+   /**
+    * The dot application was invoked
+    *
+    * @param dotName   The .dot file name
+    * @param exitValue The exit value; -1 if it couldn't be run
+    * @param duration  The duration
+    */
+   public void dotInvoked(String dotName, int exitValue, long duration)
+   {
+      DotInvokedEvent event = new DotInvokedEvent();
+
+      if (event.isEnabled())
+      {
+         event.setFile(dotName);
+         event.setExitValue(exitValue);
+         event.setDotDuration(duration);
+
+         if (event.shouldCommit())
+            event.commit();
+      }
+   }
+}
@@ -0,0 +1,77 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2009, Red Hat Middleware LLC, and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.tattletale.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * A report was generated
+ *
+ * @author Jesper Pedersen <jesper.pedersen@jboss.org>
+ */
+@Name("org.jboss.tattletale.ReportGenerated")
+@Label("Report Generated")
+@Category("Tattletale")
+@Description("A report was generated")
+@Enabled(false)
+public class ReportGeneratedEvent extends Event
+{
+   /** The report id */
+   @Label("Id")
+   private String id;
+
+   /** The duration of the generation */
+   @Label("Generate Duration")
+   @Timespan(Timespan.NANOSECONDS)
+   private long generateDuration;
+
+   /** Constructor */
+   public ReportGeneratedEvent()
+   {
+   }
+
+   /**
+    * Set the report id
+    *
+    * @param id The value
+    */
+   public void setId(String id)
+   {
+      this.id = id;
+   }
+
+   /**
+    * Set the duration of the generation
+    *
+    * @param generateDuration The value in nanoseconds
+    */
+   public void setGenerateDuration(long generateDuration)
+   {
+      this.generateDuration = generateDuration;
+   }
+}
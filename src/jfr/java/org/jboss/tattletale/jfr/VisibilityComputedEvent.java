@@ -0,0 +1,105 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2009, Red Hat Middleware LLC, and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.tattletale.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * The archives that an archive can see were computed from the classloader structure
+ *
+ * @author Jesper Pedersen <jesper.pedersen@jboss.org>
+ */
+@Name("org.jboss.tattletale.VisibilityComputed")
+@Label("Visibility Computed")
+@Category("Tattletale")
+@Description("The archives that an archive can see were computed from the classloader structure")
+@Enabled(false)
+public class VisibilityComputedEvent extends Event
+{
+   /** The classloader structure */
+   @Label("Structure")
+   private String structure;
+
+   /** The archive name */
+   @Label("Archive")
+   private String archive;
+
+   /** The number of archives it can see */
+   @Label("Visible")
+   private int visible;
+
+   /** The duration of the computation */
+   @Label("Compute Duration")
+   @Timespan(Timespan.NANOSECONDS)
+   private long computeDuration;
+
+   /** Constructor */
+   public VisibilityComputedEvent()
+   {
+   }
+
+   /**
+    * Set the classloader structure
+    *
+    * @param structure The value
+    */
+   public void setStructure(String structure)
+   {
+      this.structure = structure;
+   }
+
+   /**
+    * Set the archive name
+    *
+    * @param archive The value
+    */
+   public void setArchive(String archive)
+   {
+      this.archive = archive;
+   }
+
+   /**
+    * Set the number of archives it can see
+    *
+    * @param visible The value
+    */
+   public void setVisible(int visible)
+   {
+      this.visible = visible;
+   }
+
+   /**
+    * Set the duration of the computation
+    *
+    * @param computeDuration The value in nanoseconds
+    */
+   public void setComputeDuration(long computeDuration)
+   {
+      this.computeDuration = computeDuration;
+   }
+}
@@ -0,0 +1,210 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2009, Red Hat Middleware LLC, and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.tattletale;
+
+import org.jboss.tattletale.core.Archive;
+import org.jboss.tattletale.core.ClassDependencyIndex;
+import org.jboss.tattletale.core.DependencyStore;
+import org.jboss.tattletale.reporting.Report;
+import org.jboss.tattletale.reporting.ReportSeverity;
+import org.jboss.tattletale.reporting.ReportStatus;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * The result of an analysis, as returned by {@link AnalysisBuilder}.
+ * <p/>
+ * The collections of the result can't be modified. The archives are the ones of the model, and
+ * should be treated as read-only.
+ * <p/>
+ * An analysis with a memory budget holds the dependencies that were spilled to disk, so it must be
+ * closed once the archives aren't used anymore
+ *
+ * @author Jesper Pedersen <jesper.pedersen@jboss.org>
+ */
+public class Analysis
+{
+   /** The archives */
+   private SortedSet<Archive> archives;
+
+   /** The global provides map */
+   private SortedMap<String, SortedSet<String>> globalProvides;
+
+   /** The class dependency index */
+   private ClassDependencyIndex classDependencyIndex;
+
+   /** The status of each report by report id */
+   private SortedMap<String, Integer> reportStatus;
+
+   /** The severity of each report by report id */
+   private SortedMap<String, Integer> reportSeverity;
+
+   /** The store that the dependencies of the archives are spilled to */
+   private DependencyStore dependencyStore;
+
+   /**
+    * Constructor
+    *
+    * @param archives             The archives
+    * @param globalProvides       The global provides map
+    * @param classDependencyIndex The class dependency index
+    * @param reports              The evaluated reports
+    * @param dependencyStore      The store that the dependencies are spilled to; <code>null</code> if none
+    */
+   Analysis(SortedSet<Archive> archives, SortedMap<String, SortedSet<String>> globalProvides,
+            ClassDependencyIndex classDependencyIndex, SortedSet<Report> reports, DependencyStore dependencyStore)
+   {
+      this.dependencyStore = dependencyStore;
+
+      this.archives = Collections.unmodifiableSortedSet(new TreeSet<Archive>(archives));
+
+      SortedMap<String, SortedSet<String>> provides = new TreeMap<String, SortedSet<String>>();
+      for (Map.Entry<String, SortedSet<String>> entry : globalProvides.entrySet())
+      {
+         provides.put(entry.getKey(), Collections.unmodifiableSortedSet(new TreeSet<String>(entry.getValue())));
+      }
+      this.globalProvides = Collections.unmodifiableSortedMap(provides);
+
+      this.classDependencyIndex = classDependencyIndex;
+
+      SortedMap<String, Integer> status = new TreeMap<String, Integer>();
+      SortedMap<String, Integer> severity = new TreeMap<String, Integer>();
+      for (Report report : reports)
+      {
+         status.put(report.getId(), Integer.valueOf(report.getStatus()));
+         severity.put(report.getId(), Integer.valueOf(report.getSeverity()));
+      }
+      this.reportStatus = Collections.unmodifiableSortedMap(status);
+      this.reportSeverity = Collections.unmodifiableSortedMap(severity);
+   }
+
+   /**
+    * Get the archives
+    *
+    * @return The value
+    */
+   public SortedSet<Archive> getArchives()
+   {
+      return archives;
+   }
+
+   /**
+    * Get the global provides map, which maps a class name to the names of the archives that provide it
+    *
+    * @return The value
+    */
+   public SortedMap<String, SortedSet<String>> getGlobalProvides()
+   {
+      return globalProvides;
+   }
+
+   /**
+    * Get the class dependency index
+    *
+    * @return The value
+    */
+   public ClassDependencyIndex getClassDependencyIndex()
+   {
+      return classDependencyIndex;
+   }
+
+   /**
+    * Get the ids of the evaluated reports
+    *
+    * @return The value
+    */
+   public SortedSet<String> getReportIds()
+   {
+      return Collections.unmodifiableSortedSet(new TreeSet<String>(reportStatus.keySet()));
+   }
+
+   /**
+    * Get the status of a report, see {@link ReportStatus}
+    *
+    * @param id The report id
+    * @return The status; -1 if the report wasn't evaluated
+    */
+   public int getReportStatus(String id)
+   {
+      Integer status = reportStatus.get(id);
+      return status != null ? status.intValue() : -1;
+   }
+
+   /**
+    * Get the severity of a report, see {@link ReportSeverity}
+    *
+    * @param id The report id
+    * @return The severity; -1 if the report wasn't evaluated
+    */
+   public int getReportSeverity(String id)
+   {
+      Integer severity = reportSeverity.get(id);
+      return severity != null ? severity.intValue() : -1;
+   }
+
+   /**
+    * Close the analysis, and delete the dependencies that were spilled to disk. The dependencies of the
+    * spilled archives can't be read afterwards
+    */
+   public synchronized void close()
+   {
+      if (dependencyStore != null)
+      {
+         dependencyStore.close();
+         dependencyStore = null;
+      }
+   }
+
+   /**
+    * Get the reports that fail, as the fail settings of an execution define it
+    *
+    * @param failOnInfo  Fail on reports of severity INFO
+    * @param failOnWarn  Fail on reports of severity WARNING
+    * @param failOnError Fail on reports of severity ERROR
+    * @return The ids of the reports with a YELLOW or RED status
+    */
+   public SortedSet<String> getFailures(boolean failOnInfo, boolean failOnWarn, boolean failOnError)
+   {
+      SortedSet<String> result = new TreeSet<String>();
+
+      for (Map.Entry<String, Integer> entry : reportStatus.entrySet())
+      {
+         int status = entry.getValue().intValue();
+         int severity = reportSeverity.get(entry.getKey()).intValue();
+
+         if ((ReportStatus.YELLOW == status || ReportStatus.RED == status)
+               && ((ReportSeverity.INFO == severity && failOnInfo) ||
+                  (ReportSeverity.WARNING == severity && failOnWarn) ||
+                  (ReportSeverity.ERROR == severity && failOnError)))
+         {
+            result.add(entry.getKey());
+         }
+      }
+
+      return result;
+   }
+}
@@ -0,0 +1,355 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2009, Red Hat Middleware LLC, and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.tattletale;
+
+import org.jboss.tattletale.analyzers.ScanCache;
+import org.jboss.tattletale.utils.EventListener;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builds an analysis of a set of sources for applications that embed JBoss Tattletale. The analysis
+ * returns the model and the status of the reports, and doesn't write any output.
+ * <p/>
+ * <pre>
+ * Analysis analysis = new AnalysisBuilder().addSource("/deployments").setProfiles("java6, ee6").build();
+ * </pre>
+ * <p/>
+ * With a memory budget the analysis holds a temporary file with the dependencies that were spilled to
+ * disk, so it must be closed with {@link Analysis#close()} once its archives aren't used anymore.
+ *
+ * @author Jesper Pedersen <jesper.pedersen@jboss.org>
+ */
+public class AnalysisBuilder
+{
+   /** The sources */
+   private StringBuffer source;
+
+   /** Configuration */
+   private String configuration;
+
+   /** Filter */
+   private String filter;
+
+   /** Class loader structure */
+   private String classloaderStructure;
+
+   /** Profiles */
+   private String profiles;
+
+   /** Excludes */
+   private String excludes;
+
+   /** Blacklisted */
+   private String blacklisted;
+
+   /** Reports */
+   private String reports;
+
+   /** Scan */
+   private String scan;
+
+   /** Library catalog */
+   private String catalog;
+
+   /** Memory budget of the dependencies */
+   private String memoryBudget;
+
+   /** Worker processes */
+   private String workers;
+
+   /** Options of the worker processes */
+   private String workerOptions;
+
+   /** The cache of scanned archives */
+   private ScanCache scanCache;
+
+   /** The event listener */
+   private EventListener eventListener;
+
+   /** Custom reports */
+   private List<Class> customReports;
+
+   /** Constructor */
+   public AnalysisBuilder()
+   {
+      this.source = new StringBuffer();
+      this.configuration = null;
+      this.filter = null;
+      this.classloaderStructure = null;
+      this.profiles = null;
+      this.excludes = null;
+      this.blacklisted = null;
+      this.reports = null;
+      this.scan = null;
+      this.catalog = null;
+      this.memoryBudget = null;
+      this.workers = null;
+      this.workerOptions = null;
+      this.scanCache = null;
+      this.eventListener = null;
+      this.customReports = new ArrayList<Class>();
+   }
+
+   /**
+    * Add a source; a directory or an archive
+    *
+    * @param source The value
+    * @return The builder
+    */
+   public AnalysisBuilder addSource(String source)
+   {
+      if (this.source.length() > 0)
+      {
+         this.source.append('#');
+      }
+      this.source.append(source);
+      return this;
+   }
+
+   /**
+    * Set the configuration file
+    *
+    * @param configuration The value
+    * @return The builder
+    */
+   public AnalysisBuilder setConfiguration(String configuration)
+   {
+      this.configuration = configuration;
+      return this;
+   }
+
+   /**
+    * Set the filter file
+    *
+    * @param filter The value
+    * @return The builder
+    */
+   public AnalysisBuilder setFilter(String filter)
+   {
+      this.filter = filter;
+      return this;
+   }
+
+   /**
+    * Set the class loader structure
+    *
+    * @param cls The value
+    * @return The builder
+    */
+   public AnalysisBuilder setClassLoaderStructure(String cls)
+   {
+      this.classloaderStructure = cls;
+      return this;
+   }
+
+   /**
+    * Set the profiles
+    *
+    * @param profiles The value
+    * @return The builder
+    */
+   public AnalysisBuilder setProfiles(String profiles)
+   {
+      this.profiles = profiles;
+      return this;
+   }
+
+   /**
+    * Set the excludes
+    *
+    * @param excludes The value
+    * @return The builder
+    */
+   public AnalysisBuilder setExcludes(String excludes)
+   {
+      this.excludes = excludes;
+      return this;
+   }
+
+   /**
+    * Set the blacklisted packages
+    *
+    * @param blacklisted The value
+    * @return The builder
+    */
+   public AnalysisBuilder setBlacklisted(String blacklisted)
+   {
+      this.blacklisted = blacklisted;
+      return this;
+   }
+
+   /**
+    * Set the reports to evaluate
+    *
+    * @param reports The value
+    * @return The builder
+    */
+   public AnalysisBuilder setReports(String reports)
+   {
+      this.reports = reports;
+      return this;
+   }
+
+   /**
+    * Set the archive types to scan; .jar, .war and .ear by default
+    *
+    * @param scan The value
+    * @return The builder
+    */
+   public AnalysisBuilder setScan(String scan)
+   {
+      this.scan = scan;
+      return this;
+   }
+
+   /**
+    * Set the library catalog
+    *
+    * @param catalog The value
+    * @return The builder
+    */
+   public AnalysisBuilder setCatalog(String catalog)
+   {
+      this.catalog = catalog;
+      return this;
+   }
+
+   /**
+    * Set the memory budget of the dependencies. The dependencies that don't fit are spilled to disk, until
+    * the analysis is closed
+    *
+    * @param memoryBudget The value in megabytes
+    * @return The builder
+    */
+   public AnalysisBuilder setMemoryBudget(String memoryBudget)
+   {
+      this.memoryBudget = memoryBudget;
+      return this;
+   }
+
+   /**
+    * Set the number of worker processes that scan the archives
+    *
+    * @param workers The value
+    * @return The builder
+    */
+   public AnalysisBuilder setWorkers(String workers)
+   {
+      this.workers = workers;
+      return this;
+   }
+
+   /**
+    * Set the options of the Java virtual machines of the worker processes
+    *
+    * @param workerOptions The value
+    * @return The builder
+    */
+   public AnalysisBuilder setWorkerOptions(String workerOptions)
+   {
+      this.workerOptions = workerOptions;
+      return this;
+   }
+
+   /**
+    * Set the cache of scanned archives, which can be shared between analyses
+    *
+    * @param scanCache The value
+    * @return The builder
+    */
+   public AnalysisBuilder setScanCache(ScanCache scanCache)
+   {
+      this.scanCache = scanCache;
+      return this;
+   }
+
+   /**
+    * Set the listener for the events of the analysis
+    *
+    * @param eventListener The value
+    * @return The builder
+    */
+   public AnalysisBuilder setEventListener(EventListener eventListener)
+   {
+      this.eventListener = eventListener;
+      return this;
+   }
+
+   /**
+    * Add a custom report
+    *
+    * @param clazz The class of the report
+    * @return The builder
+    */
+   public AnalysisBuilder addCustomReport(Class clazz)
+   {
+      customReports.add(clazz);
+      return this;
+   }
+
+   /**
+    * Run the analysis
+    *
+    * @return The analysis, which must be closed if a memory budget is set
+    * @throws Exception Thrown if an error occurs
+    */
+   public Analysis build() throws Exception
+   {
+      if (source.length() == 0)
+      {
+         throw new IllegalStateException("No source");
+      }
+
+      Main main = new Main();
+
+      main.setSource(source.toString());
+      main.setConfiguration(configuration);
+      main.setFilter(filter);
+      main.setClassLoaderStructure(classloaderStructure);
+      main.setProfiles(profiles);
+      main.setExcludes(excludes);
+      main.setBlacklisted(blacklisted);
+      main.setReports(reports);
+
+      // Scan the same archive types as the command line by default
+      if (scan != null)
+      {
+         main.setScan(scan);
+      }
+
+      main.setCatalog(catalog);
+      main.setMemoryBudget(memoryBudget);
+      main.setWorkers(workers);
+      main.setWorkerOptions(workerOptions);
+      main.setScanCache(scanCache);
+      main.setEventListener(eventListener);
+
+      for (Class clazz : customReports)
+      {
+         main.addCustomReport(clazz);
+      }
+
+      return main.analyze();
+   }
+}
@@ -22,12 +22,18 @@
 package org.jboss.tattletale;
 
 import org.jboss.tattletale.analyzers.Analyzer;
-import org.jboss.tattletale.analyzers.ArchiveScanner;
+import org.jboss.tattletale.analyzers.ArchiveModel;
 import org.jboss.tattletale.analyzers.DirectoryScanner;
+import org.jboss.tattletale.analyzers.PartialModel;
+import org.jboss.tattletale.analyzers.ScanCache;
 import org.jboss.tattletale.core.Archive;
+import org.jboss.tattletale.core.ArchiveFacets;
 import org.jboss.tattletale.core.ArchiveTypes;
-import org.jboss.tattletale.core.Location;
+import org.jboss.tattletale.core.ClassDependencyIndex;
+import org.jboss.tattletale.core.DependencyStore;
+import org.jboss.tattletale.core.LibraryCatalog;
 import org.jboss.tattletale.core.NestableArchive;
+import org.jboss.tattletale.daemon.DaemonClient;
 import org.jboss.tattletale.profiles.AbstractProfile;
 import org.jboss.tattletale.profiles.CDI10;
 import org.jboss.tattletale.profiles.JBossAS7Profile;
@@ -40,6 +46,8 @@ import org.jboss.tattletale.profiles.Spring30;
 import org.jboss.tattletale.profiles.SunJava5;
 import org.jboss.tattletale.profiles.SunJava6;
 import org.jboss.tattletale.reporting.AS7Report;
+import org.jboss.tattletale.reporting.AbstractReport;
+import org.jboss.tattletale.reporting.ArchiveReport;
 import org.jboss.tattletale.reporting.BlackListedReport;
 import org.jboss.tattletale.reporting.CircularDependencyReport;
 import org.jboss.tattletale.reporting.ClassDependantsReport;
@@ -60,23 +68,35 @@ import org.jboss.tattletale.reporting.OSGiReport;
 import org.jboss.tattletale.reporting.PackageDependantsReport;
 import org.jboss.tattletale.reporting.PackageDependsOnReport;
 import org.jboss.tattletale.reporting.PackageMultipleJarsReport;
+import org.jboss.tattletale.reporting.ReachabilityReport;
 import org.jboss.tattletale.reporting.Report;
 import org.jboss.tattletale.reporting.ReportSeverity;
 import org.jboss.tattletale.reporting.ReportStatus;
 import org.jboss.tattletale.reporting.SealedReport;
+import org.jboss.tattletale.reporting.ShadedLibrariesReport;
+import org.jboss.tattletale.reporting.ShadowedClassesReport;
 import org.jboss.tattletale.reporting.SignReport;
 import org.jboss.tattletale.reporting.TransitiveDependantsReport;
 import org.jboss.tattletale.reporting.TransitiveDependsOnReport;
 import org.jboss.tattletale.reporting.UnusedJarReport;
 import org.jboss.tattletale.reporting.WarReport;
+import org.jboss.tattletale.reporting.classloader.ClassLoaderStructure;
+import org.jboss.tattletale.reporting.classloader.DomainClassLoaderStructure;
+import org.jboss.tattletale.reporting.classloader.NoopClassLoaderStructure;
+import org.jboss.tattletale.reporting.classloader.VisibilityIndex;
+import org.jboss.tattletale.shard.ShardCoordinator;
 import org.jboss.tattletale.utils.Configuration;
+import org.jboss.tattletale.utils.EventListener;
+import org.jboss.tattletale.utils.Metrics;
 
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -89,6 +109,10 @@ import java.util.SortedSet;
 import java.util.StringTokenizer;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Main
@@ -100,12 +124,24 @@ import java.util.TreeSet;
  */
 public class Main
 {
+   /** The ids of the archive reports, which are created for each archive once it has been scanned */
+   private static final String[] ARCHIVE_REPORTS = new String[] {"jar", "war", "ear"};
+
+   /** The default interval in seconds between the checks for changed archives */
+   private static final int DEFAULT_WATCH_INTERVAL = 2;
+
+   /** The file that marks an output directory as written by Tattletale */
+   public static final String OUTPUT_MARKER = ".tattletale-output";
+
    /** Source */
    private String source;
 
    /** Destination */
    private String destination;
 
+   /** The working directory, which is never deleted as the destination */
+   private String workingDirectory;
+
    /** Configuration */
    private String configuration;
 
@@ -142,6 +178,48 @@ public class Main
    /** Scan */
    private String scan;
 
+   /** Library catalog */
+   private String catalog;
+
+   /** The memory budget of the dependencies in megabytes */
+   private String memoryBudget;
+
+   /** The store that the dependencies are spilled to */
+   private DependencyStore dependencyStore;
+
+   /** The number of worker processes that scan the archives */
+   private String workers;
+
+   /** The options of the Java virtual machines of the worker processes */
+   private String workerOptions;
+
+   /** The files of the shard that a worker process scans */
+   private List<File> shard;
+
+   /** The file that a worker process writes the archives of its shard to */
+   private File shardOutput;
+
+   /** The address of the daemon the execution is forwarded to */
+   private String daemon;
+
+   /** The cache of scanned archives */
+   private ScanCache scanCache;
+
+   /** The profiles to select from */
+   private AbstractProfile[] availableProfiles;
+
+   /** The interval in seconds between the checks for changed archives; 0 if not watching */
+   private int watch;
+
+   /** The archive reports by archive name */
+   private SortedMap<String, Report> archiveReports;
+
+   /** The metrics of the run */
+   private Metrics metrics;
+
+   /** The event listener */
+   private EventListener eventListener;
+
    /** A List of the Constructors used to create dependency reports */
    private final List<Class> dependencyReports;
 
@@ -158,6 +236,7 @@ public class Main
    {
       this.source = ".";
       this.destination = ".";
+      this.workingDirectory = ".";
       this.configuration = null;
       this.filter = null;
       this.classloaderStructure = null;
@@ -170,6 +249,20 @@ public class Main
       this.deleteOutputDirectory = true;
       this.reports = null;
       this.scan = ".jar,.war,.ear";
+      this.catalog = null;
+      this.memoryBudget = null;
+      this.dependencyStore = null;
+      this.workers = null;
+      this.workerOptions = null;
+      this.shard = null;
+      this.shardOutput = null;
+      this.daemon = null;
+      this.scanCache = null;
+      this.availableProfiles = null;
+      this.watch = 0;
+      this.archiveReports = new TreeMap<String, Report>();
+      this.metrics = null;
+      this.eventListener = null;
 
       this.dependencyReports = new ArrayList<Class>();
       addDependencyReport(ClassDependsOnReport.class);
@@ -187,7 +280,9 @@ public class Main
       addGeneralReport(AS7Report.class);
       addGeneralReport(MultipleJarsReport.class);
       addGeneralReport(MultipleLocationsReport.class);
+      addGeneralReport(ShadowedClassesReport.class);
       addGeneralReport(PackageMultipleJarsReport.class);
+      addGeneralReport(ShadedLibrariesReport.class);
       addGeneralReport(EliminateJarsReport.class);
       addGeneralReport(NoVersionReport.class);
       addGeneralReport(ClassLocationReport.class);
@@ -197,6 +292,7 @@ public class Main
       addGeneralReport(InvalidVersionReport.class);
       addGeneralReport(BlackListedReport.class);
       addGeneralReport(UnusedJarReport.class);
+      addGeneralReport(ReachabilityReport.class);
 
       this.customReports = new ArrayList<Class>();
    }
@@ -221,6 +317,17 @@ public class Main
       this.destination = destination;
    }
 
+   /**
+    * Set the working directory of the execution. A destination that is the working directory is written
+    * into without being deleted first
+    *
+    * @param workingDirectory The value
+    */
+   public void setWorkingDirectory(String workingDirectory)
+   {
+      this.workingDirectory = workingDirectory != null ? workingDirectory : ".";
+   }
+
    /**
     * Set configuration
     *
@@ -372,6 +479,135 @@ public class Main
       this.scan = scan;
    }
 
+   /**
+    * Set the library catalog
+    *
+    * @param catalog The value
+    */
+   public void setCatalog(String catalog)
+   {
+      this.catalog = catalog;
+   }
+
+   /**
+    * Set the memory budget of the class, package and blacklisted dependencies of the archives. The
+    * dependencies that don't fit in the budget are spilled to disk
+    *
+    * @param memoryBudget The value in megabytes
+    */
+   public void setMemoryBudget(String memoryBudget)
+   {
+      this.memoryBudget = memoryBudget;
+   }
+
+   /**
+    * Set the number of worker processes that scan the archives. The archives are split into shards, which
+    * are scanned in parallel by the worker processes, and the partial models of the shards are merged
+    *
+    * @param workers The value; 1 or less to scan in process
+    */
+   public void setWorkers(String workers)
+   {
+      this.workers = workers;
+   }
+
+   /**
+    * Set the options of the Java virtual machines of the worker processes, f.ex. "-Xmx256m". Without a
+    * maximum heap size the heap of the execution is divided between the worker processes
+    *
+    * @param workerOptions The value; the options are separated by spaces
+    */
+   public void setWorkerOptions(String workerOptions)
+   {
+      this.workerOptions = workerOptions;
+   }
+
+   /**
+    * Set the shard that the execution scans as a worker process. The archives of the shard are written as a
+    * partial model instead of the reports
+    *
+    * @param shard  The files of the shard
+    * @param output The file that the partial model is written to
+    */
+   public void setShard(List<File> shard, File output)
+   {
+      this.shard = shard;
+      this.shardOutput = output;
+   }
+
+   /**
+    * Set the daemon the execution is forwarded to
+    *
+    * @param daemon The value; the port, or host:port, of the daemon
+    */
+   public void setDaemon(String daemon)
+   {
+      this.daemon = daemon;
+   }
+
+   /**
+    * Set the interval between the checks for changed archives. When set, the execution keeps running and
+    * updates the reports when archives are added, changed or removed
+    *
+    * @param watch The value in seconds; 0 to not watch
+    */
+   public void setWatch(int watch)
+   {
+      this.watch = watch;
+   }
+
+   /**
+    * Get the metrics of the last run
+    *
+    * @return The value; <code>null</code> if the run was forwarded to a daemon
+    */
+   public Metrics getMetrics()
+   {
+      return metrics;
+   }
+
+   /**
+    * Set the listener for the events of the runs. The "eventlistener" property of the configuration
+    * names a listener class otherwise
+    *
+    * @param eventListener The value; <code>null</code> to not fire events
+    */
+   public void setEventListener(EventListener eventListener)
+   {
+      this.eventListener = eventListener;
+   }
+
+   /**
+    * Set the cache of scanned archives
+    *
+    * @param scanCache The value
+    */
+   public void setScanCache(ScanCache scanCache)
+   {
+      this.scanCache = scanCache;
+   }
+
+   /**
+    * Set the profiles to select from
+    *
+    * @param availableProfiles The value
+    */
+   public void setAvailableProfiles(AbstractProfile[] availableProfiles)
+   {
+      this.availableProfiles = availableProfiles;
+   }
+
+   /**
+    * Create the profiles to select from
+    *
+    * @return The profiles
+    */
+   public static AbstractProfile[] createProfiles()
+   {
+      return new AbstractProfile[]{new SunJava5(), new SunJava6(), new JavaEE5(), new JavaEE6(),
+         new CDI10(), new Seam22(), new Spring25(), new Spring30(), new JBossAS7Profile()};
+   }
+
    /**
     * Execute
     *
@@ -379,6 +615,62 @@ public class Main
     */
    public void execute() throws Exception
    {
+      // A watching execution keeps its own model, so it isn't forwarded
+      if (daemon != null && !daemon.trim().equals("") && watch <= 0)
+      {
+         DaemonClient.execute(daemon.trim(), getDaemonRequest());
+         return;
+      }
+
+      try
+      {
+         run(true);
+      }
+      finally
+      {
+         if (dependencyStore != null)
+         {
+            dependencyStore.close();
+            dependencyStore = null;
+         }
+      }
+   }
+
+   /**
+    * Analyze the sources, without writing any output. The destination, the fail settings, the watch
+    * interval and the daemon aren't used. The analysis owns the dependencies spilled to disk, and must
+    * be closed to release them
+    *
+    * @return The analysis
+    * @throws Exception Thrown if an error occurs
+    */
+   public Analysis analyze() throws Exception
+   {
+      try
+      {
+         return run(false);
+      }
+      finally
+      {
+         // Only left if the analysis failed
+         if (dependencyStore != null)
+         {
+            dependencyStore.close();
+            dependencyStore = null;
+         }
+      }
+   }
+
+   /**
+    * Run the analysis
+    *
+    * @param render Should the reports be written
+    * @return The analysis if the reports aren't written; otherwise <code>null</code>
+    * @throws Exception Thrown if an error occurs
+    */
+   private Analysis run(boolean render) throws Exception
+   {
+      metrics = new Metrics();
 
       Properties config = null;
       Properties filters = null;
@@ -557,101 +849,565 @@ public class Main
       {
          classloaderStructure = "org.jboss.tattletale.reporting.classloader.NoopClassLoaderStructure";
       }
-
-      if (scan != null)
+
+      if (scan != null)
+      {
+         DirectoryScanner.setArchives(scan);
+      }
+      else
+      {
+         DirectoryScanner.setArchives(".jar, .war, .ear");
+      }
+
+      // Load up selected profiles
+      List<Profile> known = new ArrayList<Profile>();
+
+      AbstractProfile[] profiles = availableProfiles != null ? availableProfiles : createProfiles();
+
+      for (AbstractProfile p : profiles)
+      {
+         if (p.included(allProfiles, profileSet))
+         {
+            known.add(p);
+         }
+      }
+
+      loadCustomReports(config);
+
+      metrics.setListener(eventListener != null ? eventListener : loadEventListener(config));
+
+      if (catalog == null)
+      {
+         catalog = config.getProperty("catalog");
+      }
+
+      LibraryCatalog libraryCatalog = null;
+      int facets = getRequiredFacets(allReports, reportSet);
+
+      if (catalog != null && !catalog.trim().equals(""))
+      {
+         try
+         {
+            libraryCatalog = LibraryCatalog.load(new File(catalog.trim()));
+
+            // The archives are identified by the digests of their classes
+            facets |= ArchiveFacets.CLASS_DIGESTS;
+         }
+         catch (IOException ioe)
+         {
+            System.err.println("Unable to open " + catalog);
+         }
+      }
+
+      Analyzer analyzer = new Analyzer(facets);
+      analyzer.setCatalog(libraryCatalog);
+      analyzer.setMetrics(metrics);
+
+      ArchiveModel model = new ArchiveModel(analyzer, known, blacklistedSet);
+      model.setMetrics(metrics);
+
+      if (memoryBudget == null)
+      {
+         memoryBudget = config.getProperty("memorybudget");
+      }
+
+      if (memoryBudget != null && !memoryBudget.trim().equals(""))
+      {
+         try
+         {
+            long budget = Long.parseLong(memoryBudget.trim()) * 1024L * 1024L;
+
+            dependencyStore = new DependencyStore();
+            model.setMemoryBudget(dependencyStore, budget);
+         }
+         catch (NumberFormatException nfe)
+         {
+            System.err.println("Invalid memory budget: " + memoryBudget);
+         }
+      }
+
+      String catalogFile = libraryCatalog != null ? catalog.trim() : null;
+      model.setScanContext(getScanContext(facets, known, blacklistedSet, catalogFile));
+
+      if (scanCache != null)
+      {
+         model.setScanCache(scanCache);
+      }
+
+      if (shard != null)
+      {
+         long start = metrics.start();
+
+         model.update(shard);
+         metrics.stop(Metrics.SHARD, start);
+
+         model.getPartialModel().write(shardOutput);
+         return null;
+      }
+
+      if (workers == null)
+      {
+         workers = config.getProperty("workers");
+      }
+
+      if (workerOptions == null)
+      {
+         workerOptions = config.getProperty("workeroptions");
+      }
+
+      int shards = 1;
+
+      if (workers != null && !workers.trim().equals(""))
+      {
+         try
+         {
+            shards = Integer.parseInt(workers.trim());
+         }
+         catch (NumberFormatException nfe)
+         {
+            System.err.println("Invalid number of workers: " + workers);
+         }
+      }
+
+      update(model, getFiles(excludeSet), shards);
+
+      ReportSetBuilder reportSetBuilder = null;
+      SortedSet<String> changed = null;
+
+      while (true)
+      {
+         SortedSet<Archive> archives = model.getArchives();
+         ClassDependencyIndex classDependencyIndex = new ClassDependencyIndex(archives);
+
+         metrics.set(Metrics.ARCHIVES, archives.size());
+
+         flatten(archives);
+
+         // Write out report
+         if (archives.size() > 0 || !render)
+         {
+            if (reportSetBuilder == null)
+            {
+               reportSetBuilder = new ReportSetBuilder(render ? destination : null, allReports, reportSet, filters);
+            }
+
+            reportSetBuilder.addReportParameter("setCLS", classloaderStructure);
+            reportSetBuilder.addReportParameter("setKnown", known);
+            reportSetBuilder.addReportParameter("setArchives", archives);
+            reportSetBuilder.addReportParameter("setConfig", config);
+            reportSetBuilder.addReportParameter("setGlobalProvides", model.getGlobalProvides());
+            reportSetBuilder.addReportParameter("setClassDependencyIndex", classDependencyIndex);
+            reportSetBuilder.addReportParameter("setVisibilityIndex",
+                                                new VisibilityIndex(archives, createClassLoaderStructure(),
+                                                                    metrics.getListener()));
+            reportSetBuilder.addReportParameter("setMetrics", metrics);
+
+            if (!render)
+            {
+               Analysis analysis = new Analysis(archives, model.getGlobalProvides(), classDependencyIndex,
+                                                evaluateReports(reportSetBuilder), dependencyStore);
+
+               // The analysis owns the store, as its archives page their dependencies in from it
+               dependencyStore = null;
+
+               return analysis;
+            }
+
+            try
+            {
+               outputReport(reportSetBuilder, archives, changed);
+            }
+            catch (Exception e)
+            {
+               if (watch <= 0)
+               {
+                  throw e;
+               }
+
+               System.err.println(e.getMessage());
+            }
+            finally
+            {
+               writeMetrics(reportSetBuilder.getOutputDir(), classDependencyIndex);
+            }
+         }
+
+         if (watch <= 0)
+         {
+            return null;
+         }
+
+         do
+         {
+            Thread.sleep(watch * 1000L);
+            metrics.reset();
+            changed = update(model, getFiles(excludeSet), shards);
+         }
+         while (changed.size() == 0);
+
+         System.out.println("Changed: " + changed);
+      }
+   }
+
+   /**
+    * Update the model to a list of files. The files that need to be scanned are split into shards, which are
+    * scanned by worker processes, if more than one worker is asked for
+    *
+    * @param model  The model
+    * @param files  The files
+    * @param shards The number of worker processes
+    * @return The names of the archives that were added, changed or removed
+    * @throws Exception If a file can't be scanned
+    */
+   private SortedSet<String> update(ArchiveModel model, List<File> files, int shards) throws Exception
+   {
+      List<File> unscanned = shards > 1 ? model.getUnscanned(files) : null;
+
+      if (unscanned != null && unscanned.size() > 1)
+      {
+         ShardCoordinator coordinator = new ShardCoordinator(shards, workerOptions);
+
+         for (PartialModel partialModel : coordinator.scan(unscanned, getDaemonRequest()))
+         {
+            if (model.merge(partialModel))
+            {
+               if (partialModel.getMetrics() != null)
+               {
+                  metrics.merge(partialModel.getMetrics());
+               }
+            }
+            else
+            {
+               System.err.println("A shard was scanned with other settings, so it is scanned again");
+            }
+         }
+      }
+
+      return model.update(files);
+   }
+
+   /**
+    * Get the files of the source
+    *
+    * @param excludeSet The excludes
+    * @return The files
+    */
+   private List<File> getFiles(Set<String> excludeSet)
+   {
+      long start = metrics.start();
+      List<File> fileList = new ArrayList<File>();
+      StringTokenizer st = new StringTokenizer(source, "#");
+
+      while (st.hasMoreTokens())
+      {
+         File f = new File(st.nextToken());
+         if (f.isDirectory())
+         {
+            fileList.addAll(DirectoryScanner.scan(f, excludeSet));
+         }
+         else
+         {
+            fileList.add(f);
+         }
+      }
+
+      metrics.stop(Metrics.DISCOVERY, start);
+
+      return fileList;
+   }
+
+   /**
+    * Get the settings a scan depends on besides the file itself
+    *
+    * @param facets      The facets
+    * @param known       The selected profiles
+    * @param blacklisted The black listed packages
+    * @param catalog     The library catalog file
+    * @return The value
+    */
+   private String getScanContext(int facets, List<Profile> known, Set<String> blacklisted, String catalog)
+   {
+      StringBuffer sb = new StringBuffer();
+
+      sb.append(facets);
+      sb.append('|');
+      for (Profile p : known)
+      {
+         sb.append(p.getName());
+         sb.append(',');
+      }
+      sb.append('|');
+      if (blacklisted != null)
+      {
+         sb.append(new TreeSet<String>(blacklisted));
+      }
+      sb.append('|');
+      if (catalog != null)
+      {
+         File f = new File(catalog);
+         sb.append(f.getAbsolutePath());
+         sb.append(',');
+         sb.append(f.lastModified());
+      }
+
+      return sb.toString();
+   }
+
+   /**
+    * Get the request which forwards the execution to the daemon, or the scan to the worker processes.
+    * Paths are made absolute, as the daemon doesn't share the working directory of the caller
+    *
+    * @return The request
+    */
+   private Properties getDaemonRequest()
+   {
+      Properties request = new Properties();
+
+      StringBuffer sources = new StringBuffer();
+      StringTokenizer st = new StringTokenizer(source, "#");
+      while (st.hasMoreTokens())
+      {
+         sources.append(new File(st.nextToken()).getAbsolutePath());
+         if (st.hasMoreTokens())
+         {
+            sources.append('#');
+         }
+      }
+
+      request.setProperty("source", sources.toString());
+      if (destination != null)
+      {
+         request.setProperty("destination", new File(destination).getAbsolutePath());
+      }
+      request.setProperty("workingdirectory", new File(workingDirectory).getAbsolutePath());
+
+      String configurationFile = configuration != null ? configuration :
+         getDefaultFile("jboss-tattletale.properties");
+      if (configurationFile != null)
+      {
+         request.setProperty("configuration", new File(configurationFile).getAbsolutePath());
+      }
+
+      String filterFile = filter != null ? filter : getDefaultFile("jboss-tattletale-filter.properties");
+      if (filterFile != null)
+      {
+         request.setProperty("filter", new File(filterFile).getAbsolutePath());
+      }
+
+      if (catalog != null && !catalog.trim().equals(""))
+      {
+         request.setProperty("catalog", new File(catalog.trim()).getAbsolutePath());
+      }
+
+      if (classloaderStructure != null)
+      {
+         request.setProperty("classloader", classloaderStructure);
+      }
+      if (profiles != null)
+      {
+         request.setProperty("profiles", profiles);
+      }
+      if (excludes != null)
+      {
+         request.setProperty("excludes", excludes);
+      }
+      if (blacklisted != null)
+      {
+         request.setProperty("blacklisted", blacklisted);
+      }
+      if (reports != null)
+      {
+         request.setProperty("reports", reports);
+      }
+      if (scan != null)
+      {
+         request.setProperty("scan", scan);
+      }
+      if (memoryBudget != null)
+      {
+         request.setProperty("memorybudget", memoryBudget);
+      }
+      if (workers != null)
       {
-         DirectoryScanner.setArchives(scan);
+         request.setProperty("workers", workers);
       }
-      else
+      if (workerOptions != null)
       {
-         DirectoryScanner.setArchives(".jar, .war, .ear");
+         request.setProperty("workeroptions", workerOptions);
       }
 
-      Map<String, SortedSet<Location>> locationsMap = new HashMap<String, SortedSet<Location>>();
-      SortedSet<Archive> archives = new TreeSet<Archive>();
-      SortedMap<String, SortedSet<String>> gProvides = new TreeMap<String, SortedSet<String>>();
+      request.setProperty("failOnInfo", Boolean.toString(failOnInfo));
+      request.setProperty("failOnWarn", Boolean.toString(failOnWarn));
+      request.setProperty("failOnError", Boolean.toString(failOnError));
+      request.setProperty("deleteOutputDirectory", Boolean.toString(deleteOutputDirectory));
 
-      // Load up selected profiles
-      List<Profile> known = new ArrayList<Profile>();
+      return request;
+   }
 
-      AbstractProfile[] profiles = new AbstractProfile[]{new SunJava5(), new SunJava6(), new JavaEE5(), new JavaEE6(),
-         new CDI10(), new Seam22(), new Spring25(), new Spring30(), new JBossAS7Profile()};
+   /**
+    * Get a default file, as found by the system property of the same name or in the working directory
+    *
+    * @param key The name of the file
+    * @return The file; <code>null</code> if it doesn't exist
+    */
+   private String getDefaultFile(String key)
+   {
+      String file = System.getProperty(key);
 
-      for (AbstractProfile p : profiles)
+      if (file == null && new File(key).exists())
       {
-         if (p.included(allProfiles, profileSet))
-         {
-            known.add(p);
-         }
+         file = key;
       }
 
-      StringTokenizer st = new StringTokenizer(source, "#");
+      return file;
+   }
 
-      List<File> fileList = new ArrayList<File>();
-      Analyzer analyzer = new Analyzer();
+   /**
+    * Flatten the nestable archives, in parallel for each archive
+    *
+    * @param archives The archives
+    * @throws Exception If an archive can't be flattened
+    */
+   private void flatten(SortedSet<Archive> archives) throws Exception
+   {
+      List<Callable<Object>> tasks = new ArrayList<Callable<Object>>();
 
-      while (st.hasMoreTokens())
+      for (Archive a : archives)
       {
-         File f = new File(st.nextToken());
-         if (f.isDirectory())
+         if (a instanceof NestableArchive)
          {
-            fileList.addAll(DirectoryScanner.scan(f, excludeSet));
+            final NestableArchive na = (NestableArchive) a;
+
+            tasks.add(Executors.callable(new Runnable()
+            {
+               public void run()
+               {
+                  na.flatten();
+               }
+            }));
          }
-         else
+      }
+
+      if (tasks.size() > 0)
+      {
+         int threads = Math.min(tasks.size(), Runtime.getRuntime().availableProcessors());
+         ExecutorService executor = Executors.newFixedThreadPool(threads);
+         try
          {
-            fileList.add(f);
+            for (Future<Object> future : executor.invokeAll(tasks))
+            {
+               future.get();
+            }
+         }
+         finally
+         {
+            executor.shutdown();
          }
       }
+   }
 
-      for (File file : fileList)
-      {
-         ArchiveScanner scanner = analyzer.getScanner(file);
+   /**
+    * Get the facets of the archive model that the selected reports read
+    *
+    * @param allReports Should all reports be generated ?
+    * @param reportSet  The set of reports that should be generated
+    * @return The facets, see {@link ArchiveFacets}
+    */
+   private int getRequiredFacets(boolean allReports, Set<String> reportSet)
+   {
+      int facets = ArchiveFacets.NONE;
+
+      List<Class> reportDefs = new ArrayList<Class>();
+      reportDefs.addAll(dependencyReports);
+      reportDefs.addAll(generalReports);
+      reportDefs.addAll(customReports);
 
-         if (scanner != null)
+      for (Class reportDef : reportDefs)
+      {
+         try
          {
-            Archive archive = scanner.scan(file, gProvides, known, blacklistedSet);
-            if (archive != null)
+            Report report = (Report) reportDef.getConstructor(new Class[0]).newInstance(new Object[0]);
+
+            if (allReports || reportSet.contains(report.getId()))
             {
-               SortedSet<Location> locations = locationsMap.get(archive.getName());
-               if (locations == null)
+               // Reports that don't extend AbstractReport can't declare their facets
+               if (report instanceof AbstractReport)
                {
-                  locations = new TreeSet<Location>();
+                  facets |= ((AbstractReport) report).getRequiredFacets();
                }
-               locations.addAll(archive.getLocations());
-               locationsMap.put(archive.getName(), locations);
-
-               if (!archives.contains(archive))
+               else
                {
-                  archives.add(archive);
+                  facets = ArchiveFacets.ALL;
                }
             }
          }
+         catch (Exception e)
+         {
+            // The report can't be inspected, so collect everything
+            facets = ArchiveFacets.ALL;
+         }
       }
 
-      for (Archive a : archives)
+      for (String id : ARCHIVE_REPORTS)
       {
-         SortedSet<Location> locations = locationsMap.get(a.getName());
-
-         for (Location l : locations)
+         if (allReports || reportSet.contains(id))
          {
-            a.addLocation(l);
+            facets |= ArchiveFacets.MANIFEST | ArchiveFacets.SIGN;
          }
       }
 
-      // Write out report
-      if (archives != null && archives.size() > 0)
+      facets |= getClassLoaderStructureFacets();
+
+      return facets;
+   }
+
+   /**
+    * Get the facets of the archive model that the classloader structure reads
+    *
+    * @return The facets, see {@link ArchiveFacets}
+    */
+   private int getClassLoaderStructureFacets()
+   {
+      ClassLoaderStructure cls = createClassLoaderStructure();
+
+      if (cls == null || cls instanceof NoopClassLoaderStructure)
+      {
+         // Without a classloader structure the reports don't read any facet for it
+         return ArchiveFacets.NONE;
+      }
+      else if (cls instanceof DomainClassLoaderStructure)
       {
-         ReportSetBuilder reportSetBuilder = new ReportSetBuilder(destination, allReports, reportSet, filters);
+         return ((DomainClassLoaderStructure) cls).getRequiredFacets();
+      }
 
-         reportSetBuilder.addReportParameter("setCLS", classloaderStructure);
-         reportSetBuilder.addReportParameter("setKnown", known);
-         reportSetBuilder.addReportParameter("setArchives", archives);
-         reportSetBuilder.addReportParameter("setConfig", config);
-         reportSetBuilder.addReportParameter("setGlobalProvides", gProvides);
+      // The classloader structure can't declare its facets, so collect everything
+      return ArchiveFacets.ALL;
+   }
+
+   /**
+    * Create the classloader structure of the execution, in the same way as the reports do
+    *
+    * @return The classloader structure; <code>null</code> if it can't be loaded
+    */
+   private ClassLoaderStructure createClassLoaderStructure()
+   {
+      ClassLoader[] loaders = new ClassLoader[] {Thread.currentThread().getContextClassLoader(),
+                                                 Main.class.getClassLoader()};
 
-         loadCustomReports(config);
-         outputReport(reportSetBuilder, archives);
+      for (ClassLoader cl : loaders)
+      {
+         try
+         {
+            Class clazz = cl.loadClass(classloaderStructure.trim());
+            return (ClassLoaderStructure) clazz.getDeclaredConstructor(new Class[0]).newInstance(new Object[0]);
+         }
+         catch (Exception e)
+         {
+            // Try the next class loader
+         }
       }
+
+      return null;
    }
 
    /**
@@ -840,6 +1596,40 @@ public class Main
    }
 
 
+   /**
+    * Load the event listener named by the configuration
+    *
+    * @param config The configuration
+    * @return The listener; <code>null</code> if none is named
+    */
+   private EventListener loadEventListener(Properties config)
+   {
+      String listenerName = config.getProperty("eventlistener");
+
+      if (listenerName == null || listenerName.trim().equals(""))
+      {
+         return null;
+      }
+
+      try
+      {
+         ClassLoader cl = Main.class.getClassLoader();
+         Class listenerClass = Class.forName(listenerName.trim(), true, cl);
+         return (EventListener) listenerClass.getDeclaredConstructor(new Class[0]).newInstance(new Object[0]);
+      }
+      catch (InvocationTargetException ite)
+      {
+         System.err.println("Unable to create event listener " + listenerName + ": " + ite.getCause());
+         ite.getCause().printStackTrace(System.err);
+         return null;
+      }
+      catch (Exception e)
+      {
+         System.err.println("Unable to load event listener " + listenerName + ": " + e);
+         return null;
+      }
+   }
+
    /**
     * Load filters
     *
@@ -948,17 +1738,95 @@ public class Main
       return properties;
    }
 
+   /**
+    * Evaluate the dependency, general and custom reports without writing any output
+    *
+    * @param reportSetBuilder Defines which reports to evaluate
+    * @return The reports
+    * @throws Exception If a report can't be created
+    */
+   private SortedSet<Report> evaluateReports(ReportSetBuilder reportSetBuilder) throws Exception
+   {
+      reportSetBuilder.clear();
+
+      List<Class> reportDefs = new ArrayList<Class>();
+      reportDefs.addAll(dependencyReports);
+      reportDefs.addAll(generalReports);
+      reportDefs.addAll(customReports);
+
+      for (Class reportDef : reportDefs)
+      {
+         reportSetBuilder.addReport(reportDef);
+      }
+
+      return reportSetBuilder.getReportSet();
+   }
+
    /**
     * Generate the basic reports to the output directory
     *
     * @param reportSetBuilder Defines the output directory and which
     *                         reports to build
     * @param archives         The archives
+    * @param changed          The names of the changed archives; <code>null</code> if all of them are
     *
     * @throws Exception In case of fail on settings
     */
-   private void outputReport(ReportSetBuilder reportSetBuilder, SortedSet<Archive> archives) throws Exception
+   private void outputReport(ReportSetBuilder reportSetBuilder, SortedSet<Archive> archives, Set<String> changed)
+      throws Exception
    {
+      Set<String> regenerate = null;
+
+      if (changed == null)
+      {
+         archiveReports.clear();
+      }
+      else
+      {
+         // Only the reports of the changed archives are generated again. The pages of the nested archives
+         // are shared between the web and enterprise archives, so those are generated again as a group
+         boolean nested = false;
+
+         for (String name : changed)
+         {
+            Report report = archiveReports.remove(name);
+            if (report != null && !ARCHIVE_REPORTS[0].equals(report.getDirectory()))
+            {
+               nested = true;
+            }
+         }
+
+         for (Archive a : archives)
+         {
+            if (changed.contains(a.getName()) && a.getType() != ArchiveTypes.JAR)
+            {
+               nested = true;
+            }
+         }
+
+         regenerate = new HashSet<String>(changed);
+         Set<String> keep = new HashSet<String>();
+         keep.add(ARCHIVE_REPORTS[0]);
+
+         if (nested)
+         {
+            for (Archive a : archives)
+            {
+               if (a.getType() != ArchiveTypes.JAR)
+               {
+                  regenerate.add(a.getName());
+                  archiveReports.remove(a.getName());
+               }
+            }
+         }
+         else
+         {
+            keep.addAll(Arrays.asList(ARCHIVE_REPORTS));
+         }
+
+         reportSetBuilder.removeOutput(keep, changed);
+      }
+
       reportSetBuilder.clear();
       for (Class reportDef : dependencyReports)
       {
@@ -981,13 +1849,21 @@ public class Main
       SortedSet<Report> customReportSet = reportSetBuilder.getReportSet();
       reportSetBuilder.clear();
 
-      addJarReports(archives, reportSetBuilder);
+      String outputDir = reportSetBuilder.getOutputDir();
+
+      addJarReports(archives, regenerate, reportSetBuilder);
 
-      SortedSet<Report> archiveReports = reportSetBuilder.getReportSet();
+      for (Report report : reportSetBuilder.getReportSet())
+      {
+         archiveReports.put(report.getName(), report);
+      }
 
+      SortedSet<Report> archiveReports = new TreeSet<Report>(this.archiveReports.values());
 
-      String outputDir = reportSetBuilder.getOutputDir();
+      long start = metrics.start();
       Dump.generateIndex(dependencyReportSet, generalReportSet, archiveReports, customReportSet, outputDir);
+      metrics.stop(Metrics.INDEX, start);
+
       Dump.generateCSS(outputDir);
 
       if (failOnInfo || failOnWarn || failOnError)
@@ -1005,6 +1881,31 @@ public class Main
       }
    }
 
+   /**
+    * Write the metrics of the run next to the index
+    *
+    * @param outputDir            The output directory
+    * @param classDependencyIndex The class dependency index
+    */
+   private void writeMetrics(String outputDir, ClassDependencyIndex classDependencyIndex)
+   {
+      if (classDependencyIndex.isBuilt())
+      {
+         metrics.set(Metrics.EDGES, classDependencyIndex.getEdgeCount());
+      }
+
+      metrics.stop(Metrics.TOTAL, metrics.getStart());
+
+      try
+      {
+         metrics.write(new File(outputDir, "metrics.json"));
+      }
+      catch (IOException ioe)
+      {
+         System.err.println("Unable to write " + outputDir + "metrics.json");
+      }
+   }
+
    /**
     * Parse excludes
     *
@@ -1040,19 +1941,26 @@ public class Main
    /** The usage method */
    private static void usage()
    {
-      System.out.println("Usage: Tattletale [-exclude=<excludes>]" + " <source>[#<source>]* [output-directory]");
+      System.out.println("Usage: Tattletale [-daemon=[<host>:]<port>] [-exclude=<excludes>] [-watch[=<seconds>]]" +
+                         " [-workers=<workers>] [-workeroptions=<options>] <source>[#<source>]* [output-directory]");
    }
 
    /**
     * Add the reports based on the archive that we have.
     * @param archives - the collection of Archives.
+    * @param names - the names of the archives to add reports for; <code>null</code> for all of them.
     * @param reportSetBuilder - the Report Set Builder required to add a new JarReport if there is a JarArchive found.
     */
 
-   private void addJarReports(Collection<Archive> archives, ReportSetBuilder reportSetBuilder)
+   private void addJarReports(Collection<Archive> archives, Set<String> names, ReportSetBuilder reportSetBuilder)
    {
       for (Archive a : archives)
       {
+         if (names != null && !names.contains(a.getName()))
+         {
+            continue;
+         }
+
          if (a.getType() == ArchiveTypes.WAR)
          {
             NestableArchive na = (NestableArchive) a;
@@ -1084,9 +1992,37 @@ public class Main
             int arg = 0;
             Main main = new Main();
 
-            if (args[arg].startsWith("-exclude="))
+            while (arg < args.length - 1 && args[arg].startsWith("-"))
             {
-               main.setExcludes(args[arg].substring(args[arg].indexOf("=") + 1));
+               if (args[arg].startsWith("-daemon="))
+               {
+                  main.setDaemon(args[arg].substring(args[arg].indexOf("=") + 1));
+               }
+               else if (args[arg].startsWith("-exclude="))
+               {
+                  main.setExcludes(args[arg].substring(args[arg].indexOf("=") + 1));
+               }
+               else if (args[arg].startsWith("-watch="))
+               {
+                  main.setWatch(Integer.parseInt(args[arg].substring(args[arg].indexOf("=") + 1)));
+               }
+               else if (args[arg].equals("-watch"))
+               {
+                  main.setWatch(DEFAULT_WATCH_INTERVAL);
+               }
+               else if (args[arg].startsWith("-workers="))
+               {
+                  main.setWorkers(args[arg].substring(args[arg].indexOf("=") + 1));
+               }
+               else if (args[arg].startsWith("-workeroptions="))
+               {
+                  main.setWorkerOptions(args[arg].substring(args[arg].indexOf("=") + 1));
+               }
+               else
+               {
+                  usage();
+                  return;
+               }
                arg++;
             }
             main.setSource(args[arg]);
@@ -1208,13 +2144,15 @@ public class Main
 
       private final boolean allReports;
       private final String outputDir;
+      private boolean dedicatedOutputDir;
+      private final Set<String> directories = new HashSet<String>();
       private final Properties filters;
       private Set<String> reportSet;
       private SortedSet<Report> returnReportSet = new TreeSet<Report>();
       private final Map<String, Object> reportParameters = new HashMap<String, Object>();
 
       /**
-       * @param destination Where the reports go
+       * @param destination Where the reports go; <code>null</code> if the reports are only evaluated
        * @param allReports  Should all reports be generated ?
        * @param reportSet   The set of reports that should be generated
        * @param filters     The filters
@@ -1224,7 +2162,7 @@ public class Main
       ReportSetBuilder(String destination, boolean allReports, Set<String> reportSet, Properties filters)
          throws Exception
       {
-         this.outputDir = setupOutputDir(destination);
+         this.outputDir = destination != null ? setupOutputDir(destination) : null;
          this.allReports = allReports;
          this.reportSet = reportSet;
          this.filters = filters;
@@ -1254,7 +2192,7 @@ public class Main
 
       /**
        * Generates the report from the definition, output goes to the output
-       * directory.
+       * directory. Without an output directory the report is only evaluated.
        *
        * @param report the definition of the report to generate
        */
@@ -1266,7 +2204,41 @@ public class Main
             {
                report.setFilter(filters.getProperty(report.getId()));
             }
-            report.generate(outputDir);
+
+            long start = metrics.start();
+            if (outputDir != null)
+            {
+               // Only a plain directory below the output directory is ever removed again
+               String directory = report.getDirectory();
+               if (directory != null && !directory.equals("") && !directory.equals(".") && !directory.equals("..")
+                   && directory.indexOf('/') == -1 && directory.indexOf(File.separatorChar) == -1)
+               {
+                  directories.add(directory);
+               }
+               report.generate(outputDir);
+            }
+            else
+            {
+               evaluate(report);
+            }
+
+            // The archive reports are measured together by type
+            long duration;
+            if (report instanceof ArchiveReport)
+            {
+               duration = metrics.stop(Metrics.REPORT + report.getDirectory(), start);
+            }
+            else
+            {
+               duration = metrics.stop(Metrics.REPORT + report.getId(), start);
+            }
+
+            EventListener listener = metrics.getListener();
+            if (listener != null)
+            {
+               listener.reportGenerated(report.getId(), duration);
+            }
+
             returnReportSet.add(report);
          }
       }
@@ -1308,6 +2280,44 @@ public class Main
          return outputDir;
       }
 
+      /**
+       * Remove the output of the reports that are generated again, so no page of an archive
+       * that is gone is left behind. Only the report directories written by this builder are
+       * removed, and nothing is removed unless the output directory was created for the reports
+       *
+       * @param keep     The report directories to keep
+       * @param archives The names of the archives whose pages are removed from the kept directories
+       *
+       * @throws IOException If the output can't be deleted
+       */
+      void removeOutput(Set<String> keep, Set<String> archives) throws IOException
+      {
+         if (!dedicatedOutputDir)
+         {
+            return;
+         }
+
+         for (String directory : directories)
+         {
+            File dir = new File(outputDir, directory);
+
+            if (dir.isDirectory())
+            {
+               if (keep.contains(directory))
+               {
+                  for (String name : archives)
+                  {
+                     recursiveDelete(new File(dir, name + ".html"));
+                  }
+               }
+               else
+               {
+                  recursiveDelete(dir);
+               }
+            }
+         }
+      }
+
       /**
        * Validate and create the outputDir if needed.
        *
@@ -1325,11 +2335,14 @@ public class Main
          // Verify output directory exists & create if it does not
          File outputDirFile = new File(outputDir);
 
+         // The working directory holds the files of the user, so it is never deleted or cleaned up
+         boolean workingDir = outputDirFile.getCanonicalFile().equals(new File(workingDirectory).getCanonicalFile());
+
          if (outputDirFile.exists())
          {
             if (deleteOutputDirectory)
             {
-               if (!outputDirFile.equals(new File(".")))
+               if (!workingDir)
                {
                   recursiveDelete(outputDirFile);
                }
@@ -1340,14 +2353,62 @@ public class Main
             }
          }
 
-         if (!outputDirFile.equals(new File(".")) && !outputDirFile.mkdirs())
+         if (!workingDir)
          {
-            throw new IOException("Cannot create directory: " + outputDir);
+            if (!outputDirFile.mkdirs())
+            {
+               throw new IOException("Cannot create directory: " + outputDir);
+            }
+
+            // Marks the directory as output, which a daemon may delete again
+            if (!new File(outputDirFile, OUTPUT_MARKER).createNewFile())
+            {
+               throw new IOException("Cannot create " + OUTPUT_MARKER + " in directory: " + outputDir);
+            }
          }
 
+         dedicatedOutputDir = !workingDir;
+
          return outputDir;
       }
 
+      /**
+       * Evaluate a report without an output directory. Reports that don't extend
+       * AbstractReport are generated into a temporary directory that is removed again
+       *
+       * @param report The report
+       */
+      private void evaluate(Report report)
+      {
+         if (report instanceof AbstractReport)
+         {
+            ((AbstractReport) report).evaluate();
+            return;
+         }
+
+         try
+         {
+            File directory = File.createTempFile("tattletale", ".report");
+            if (!directory.delete() || !directory.mkdirs())
+            {
+               throw new IOException("Could not create " + directory);
+            }
+
+            try
+            {
+               report.generate(directory.getAbsolutePath() + File.separator);
+            }
+            finally
+            {
+               recursiveDelete(directory);
+            }
+         }
+         catch (IOException ioe)
+         {
+            System.err.println(report.getName() + " Report: " + ioe.getMessage());
+         }
+      }
+
       /**
        * Recursive delete
        *
@@ -23,14 +23,23 @@
 package org.jboss.tattletale.analyzers;
 
 import org.jboss.tattletale.core.Archive;
+import org.jboss.tattletale.core.ArchiveFacets;
+import org.jboss.tattletale.core.LibraryCatalog;
+import org.jboss.tattletale.core.Location;
 import org.jboss.tattletale.profiles.Profile;
+import org.jboss.tattletale.utils.EventListener;
+import org.jboss.tattletale.utils.Metrics;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.LineNumberReader;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
@@ -55,6 +64,162 @@ import javassist.NotFoundException;
  * */
 public abstract class AbstractScanner implements ArchiveScanner
 {
+   /** The algorithm of the class digests */
+   private static final String DIGEST_ALGORITHM = "SHA-1";
+
+   /** Hex digits */
+   private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+   /** The facets to collect */
+   private int facets;
+
+   /** The library catalog */
+   private LibraryCatalog catalog;
+
+   /** The metrics */
+   private Metrics metrics;
+
+   /** Constructor */
+   public AbstractScanner()
+   {
+      this(ArchiveFacets.ALL);
+   }
+
+   /**
+    * Constructor
+    *
+    * @param facets The facets to collect, see {@link ArchiveFacets}
+    */
+   public AbstractScanner(int facets)
+   {
+      this.facets = facets;
+      this.catalog = null;
+      this.metrics = null;
+   }
+
+   /**
+    * Get the facets to collect
+    *
+    * @return The value
+    */
+   public int getFacets()
+   {
+      return facets;
+   }
+
+   /**
+    * Get the library catalog
+    *
+    * @return The value; <code>null</code> if archives aren't identified
+    */
+   public LibraryCatalog getCatalog()
+   {
+      return catalog;
+   }
+
+   /**
+    * Set the library catalog used to identify the archives
+    *
+    * @param catalog The value
+    */
+   public void setCatalog(LibraryCatalog catalog)
+   {
+      this.catalog = catalog;
+   }
+
+   /**
+    * Get the metrics
+    *
+    * @return The value; <code>null</code> if the scan isn't measured
+    */
+   public Metrics getMetrics()
+   {
+      return metrics;
+   }
+
+   /**
+    * Set the metrics which count the classes parsed and the profile lookups
+    *
+    * @param metrics The value
+    */
+   public void setMetrics(Metrics metrics)
+   {
+      this.metrics = metrics;
+   }
+
+   /**
+    * Fire the event of a class that couldn't be parsed
+    *
+    * @param file  The file of the archive
+    * @param entry The entry of the class
+    * @param cause The cause
+    */
+   protected void classParseFailed(File file, String entry, Exception cause)
+   {
+      EventListener listener = metrics != null ? metrics.getListener() : null;
+
+      if (listener != null)
+      {
+         listener.classParseFailed(file, entry, cause);
+      }
+   }
+
+   /**
+    * Create the location of an archive. If a library catalog is set the archive is looked up
+    * by its class set, and then by its file, and the coordinate of the library is attached to
+    * the location. The version of the library is used if the manifest doesn't have one
+    *
+    * @param canonicalPath The canonical path of the archive
+    * @param version       The version from the manifest
+    * @param file          The archive file
+    * @param digests       The digests of the classes of the archive
+    * @return The location
+    */
+   protected Location createLocation(String canonicalPath, String version, File file,
+                                     SortedMap<String, String> digests)
+   {
+      String coordinate = null;
+
+      if (catalog != null)
+      {
+         long fingerprint = LibraryCatalog.getClassSetFingerprint(digests);
+         if (fingerprint != 0L)
+         {
+            coordinate = catalog.lookup(fingerprint);
+         }
+
+         if (coordinate == null)
+         {
+            try
+            {
+               coordinate = catalog.lookup(LibraryCatalog.getFileFingerprint(file));
+            }
+            catch (IOException ioe)
+            {
+               // Ignore
+            }
+         }
+      }
+
+      if (coordinate != null && version == null)
+      {
+         version = LibraryCatalog.getVersion(coordinate);
+      }
+
+      return new Location(canonicalPath, version, coordinate);
+   }
+
+   /**
+    * Should a facet be collected
+    *
+    * @param facet The facet
+    * @return True if the facet should be collected; otherwise false
+    */
+   protected boolean isCollected(int facet)
+   {
+      return ArchiveFacets.isIncluded(facets, facet);
+   }
+
    /**
     * Read the manifest
     *
@@ -63,6 +228,11 @@ public abstract class AbstractScanner implements ArchiveScanner
     */
    protected List<String> readManifest(Manifest manifest)
    {
+      if (!isCollected(ArchiveFacets.MANIFEST))
+      {
+         return null;
+      }
+
       List<String> result = new ArrayList<String>();
 
       try
@@ -150,7 +320,7 @@ public abstract class AbstractScanner implements ArchiveScanner
 
 /**
     * Static method called to scan class files within an input stream and populate the data structure parameters.
-    *
+    * The dependency maps are only populated for the facets that this scanner collects.
     *
     * @param is - input stream
     * @param blacklisted The set of black listed packages
@@ -175,6 +345,54 @@ public abstract class AbstractScanner implements ArchiveScanner
                            SortedMap<String, SortedSet<String>> blacklistedDependencies)
       throws IOException
    {
+      return scanClasses(is, blacklisted, known, classVersion, provides, requires, profiles, classDependencies,
+                         packageDependencies, blacklistedDependencies, null);
+   }
+
+   /**
+    * Static method called to scan class files within an input stream and populate the data structure parameters.
+    * The dependency maps are only populated for the facets that this scanner collects. The digest of the
+    * class is computed while the class is read.
+    *
+    * @param is - input stream
+    * @param blacklisted The set of black listed packages
+    * @param known       The set of known archives
+    * @param classVersion - the version of the class file
+    * @param provides - the map of provides
+    * @param requires - the set of requires
+    * @param profiles - the set of profiles
+    * @param classDependencies - the map of class dependencies
+    * @param packageDependencies - the map of package dependencies
+    * @param blacklistedDependencies - the map of blacklisted dependencies
+    * @param digests - the map of class digests; <code>null</code> if the digests shouldn't be computed
+    *
+    * @return An {@link Integer} representing the class version.
+    *
+    * @throws IOException - if the Javassist ClassPool cannot make the CtClass based on the input stream.
+    */
+   public Integer scanClasses(InputStream is, Set<String> blacklisted, List<Profile> known, Integer classVersion,
+                           SortedMap<String, Long> provides, SortedSet<String> requires,
+                           SortedSet<String> profiles, SortedMap<String, SortedSet<String>> classDependencies,
+                           SortedMap<String, SortedSet<String>> packageDependencies,
+                           SortedMap<String, SortedSet<String>> blacklistedDependencies,
+                           SortedMap<String, String> digests)
+      throws IOException
+   {
+      DigestInputStream dis = null;
+
+      if (digests != null && isCollected(ArchiveFacets.CLASS_DIGESTS))
+      {
+         try
+         {
+            dis = new DigestInputStream(is, MessageDigest.getInstance(DIGEST_ALGORITHM));
+            is = dis;
+         }
+         catch (NoSuchAlgorithmException nsae)
+         {
+            // No digests
+         }
+      }
+
       ClassPool classPool = new ClassPool();
       CtClass ctClz = classPool.makeClass(is);
 
@@ -196,6 +414,18 @@ public abstract class AbstractScanner implements ArchiveScanner
 
       provides.put(ctClz.getName(), serialVersionUID);
 
+      if (dis != null)
+      {
+         // Include any bytes after the class structure
+         byte[] buffer = new byte[512];
+         while (dis.read(buffer) != -1)
+         {
+            // Nothing to do
+         }
+
+         digests.put(ctClz.getName(), toHex(dis.getMessageDigest().digest()));
+      }
+
       int pkgIdx = ctClz.getName().lastIndexOf(".");
       String pkg = null;
 
@@ -204,22 +434,30 @@ public abstract class AbstractScanner implements ArchiveScanner
          pkg = ctClz.getName().substring(0, pkgIdx);
       }
 
+      boolean collectClassDependencies = isCollected(ArchiveFacets.CLASS_DEPENDENCIES);
+      boolean collectPackageDependencies = isCollected(ArchiveFacets.PACKAGE_DEPENDENCIES);
+      boolean collectBlacklistedDependencies = isCollected(ArchiveFacets.BLACKLISTED_DEPENDENCIES);
+
       Collection c = ctClz.getRefClasses();
       Iterator it = c.iterator();
+      long profileLookups = 0;
 
       while (it.hasNext())
       {
          String s = (String) it.next();
          requires.add(s);
 
-         SortedSet<String> cd = classDependencies.get(ctClz.getName());
-         if (cd == null)
+         if (collectClassDependencies)
          {
-            cd = new TreeSet<String>();
-         }
+            SortedSet<String> cd = classDependencies.get(ctClz.getName());
+            if (cd == null)
+            {
+               cd = new TreeSet<String>();
+            }
 
-         cd.add(s);
-         classDependencies.put(ctClz.getName(), cd);
+            cd.add(s);
+            classDependencies.put(ctClz.getName(), cd);
+         }
 
          int rPkgIdx = s.lastIndexOf(".");
          String rPkg = null;
@@ -237,6 +475,7 @@ public abstract class AbstractScanner implements ArchiveScanner
             while (include && kit.hasNext())
             {
                Profile p = kit.next();
+               profileLookups++;
                if (p.doesProvide(s))
                {
                   profiles.add(p.getName());
@@ -245,7 +484,7 @@ public abstract class AbstractScanner implements ArchiveScanner
             }
          }
 
-         if (pkg != null && rPkg != null && !pkg.equals(rPkg) && include)
+         if (collectPackageDependencies && pkg != null && rPkg != null && !pkg.equals(rPkg) && include)
          {
             SortedSet<String> pd = packageDependencies.get(pkg);
             if (pd == null)
@@ -257,7 +496,7 @@ public abstract class AbstractScanner implements ArchiveScanner
             packageDependencies.put(pkg, pd);
          }
 
-         if (blacklisted != null)
+         if (collectBlacklistedDependencies && blacklisted != null)
          {
             boolean bl = false;
 
@@ -291,7 +530,32 @@ public abstract class AbstractScanner implements ArchiveScanner
             }
          }
       }
+
+      if (metrics != null)
+      {
+         metrics.add(Metrics.CLASSES, 1);
+         metrics.add(Metrics.PROFILE_LOOKUPS, profileLookups);
+      }
+
       return classVersion;
    }
 
+   /**
+    * Convert bytes to a hex string
+    *
+    * @param bytes The bytes
+    * @return The hex string
+    */
+   private static String toHex(byte[] bytes)
+   {
+      StringBuffer sb = new StringBuffer(2 * bytes.length);
+
+      for (byte b : bytes)
+      {
+         sb.append(HEX[(b >> 4) & 0xf]);
+         sb.append(HEX[b & 0xf]);
+      }
+
+      return sb.toString();
+   }
 }
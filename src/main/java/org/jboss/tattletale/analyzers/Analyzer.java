@@ -22,6 +22,10 @@
 
 package org.jboss.tattletale.analyzers;
 
+import org.jboss.tattletale.core.ArchiveFacets;
+import org.jboss.tattletale.core.LibraryCatalog;
+import org.jboss.tattletale.utils.Metrics;
+
 import java.io.File;
 
 /**
@@ -32,6 +36,53 @@ import java.io.File;
  * */
 public class Analyzer
 {
+   /** The facets the scanners should collect */
+   private int facets;
+
+   /** The library catalog */
+   private LibraryCatalog catalog;
+
+   /** The metrics */
+   private Metrics metrics;
+
+   /** Constructor */
+   public Analyzer()
+   {
+      this(ArchiveFacets.ALL);
+   }
+
+   /**
+    * Constructor
+    *
+    * @param facets The facets the scanners should collect, see {@link ArchiveFacets}
+    */
+   public Analyzer(int facets)
+   {
+      this.facets = facets;
+      this.catalog = null;
+      this.metrics = null;
+   }
+
+   /**
+    * Set the library catalog that the scanners use to identify the archives
+    *
+    * @param catalog The value
+    */
+   public void setCatalog(LibraryCatalog catalog)
+   {
+      this.catalog = catalog;
+   }
+
+   /**
+    * Set the metrics that the scanners count the classes parsed in
+    *
+    * @param metrics The value
+    */
+   public void setMetrics(Metrics metrics)
+   {
+      this.metrics = metrics;
+   }
+
    /**
     * Returns the appropriate scanner implementation based on the type of file that is passed as a parameter.
     * @param file - the .jar, .war file etc.
@@ -40,20 +91,27 @@ public class Analyzer
    public ArchiveScanner getScanner(File file)
    {
       String fileName = file.getName();
+      AbstractScanner scanner = null;
       if (fileName.contains(".jar"))
       {
-         return new JarScanner();
+         scanner = new JarScanner(facets);
       }
       else if (fileName.contains(".war"))
       {
-         return new WarScanner();
+         scanner = new WarScanner(facets);
       }
       else if (fileName.contains(".ear"))
       {
-         return new EarScanner();
+         scanner = new EarScanner(facets);
+      }
+
+      if (scanner != null)
+      {
+         scanner.setCatalog(catalog);
+         scanner.setMetrics(metrics);
       }
 
-      return null;
+      return scanner;
    }
 
 }
@@ -0,0 +1,708 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2009, Red Hat Middleware LLC, and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.tattletale.analyzers;
+
+import org.jboss.tattletale.core.Archive;
+import org.jboss.tattletale.core.ArchiveTypes;
+import org.jboss.tattletale.core.DependencyStore;
+import org.jboss.tattletale.core.Location;
+import org.jboss.tattletale.core.NestableArchive;
+import org.jboss.tattletale.profiles.Profile;
+import org.jboss.tattletale.utils.EventListener;
+import org.jboss.tattletale.utils.Metrics;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * The archives of a list of files, together with the global provides map and the locations of the archives.
+ * <p/>
+ * The model can be updated with a new list of files, in which case only the files that were added or changed
+ * are scanned, and the global provides map and the locations are updated in place for the archives involved.
+ * <p/>
+ * The files can be scanned by other processes as well, in which case their partial models are merged into the
+ * model before the update, and the files they hold aren't scanned again.
+ *
+ * @author Jesper Pedersen <jesper.pedersen@jboss.org>
+ */
+public class ArchiveModel
+{
+   /** The analyzer */
+   private Analyzer analyzer;
+
+   /** The known profiles */
+   private List<Profile> known;
+
+   /** The black listed packages */
+   private Set<String> blacklisted;
+
+   /** The cache of scanned archives */
+   private ScanCache scanCache;
+
+   /** The settings the scan depends on besides the file itself */
+   private String scanContext;
+
+   /** The metrics */
+   private Metrics metrics;
+
+   /** The partial models that are merged by the next update */
+   private List<PartialModel> partialModels;
+
+   /** The store that the dependencies are spilled to */
+   private DependencyStore dependencyStore;
+
+   /** The number of bytes of dependencies that are kept in the heap before they are spilled */
+   private long memoryBudget;
+
+   /** The estimated number of bytes of dependencies that are kept in the heap */
+   private long dependencySize;
+
+   /** The scanned files in scan order */
+   private LinkedHashMap<File, Entry> entries;
+
+   /** The files that contain an archive of a given name */
+   private Map<String, List<Entry>> providers;
+
+   /** The global provides map */
+   private SortedMap<String, SortedSet<String>> gProvides;
+
+   /** The archives */
+   private SortedSet<Archive> archives;
+
+   /**
+    * Constructor
+    *
+    * @param analyzer    The analyzer
+    * @param known       The known profiles
+    * @param blacklisted The black listed packages
+    */
+   public ArchiveModel(Analyzer analyzer, List<Profile> known, Set<String> blacklisted)
+   {
+      this.analyzer = analyzer;
+      this.known = known;
+      this.blacklisted = blacklisted;
+      this.scanCache = null;
+      this.scanContext = null;
+      this.metrics = null;
+      this.partialModels = new ArrayList<PartialModel>();
+      this.dependencyStore = null;
+      this.memoryBudget = 0L;
+      this.dependencySize = 0L;
+      this.entries = new LinkedHashMap<File, Entry>();
+      this.providers = new HashMap<String, List<Entry>>();
+      this.gProvides = new TreeMap<String, SortedSet<String>>();
+      this.archives = new TreeSet<Archive>();
+   }
+
+   /**
+    * Set the settings the scan depends on besides the file itself. The settings key the cache of scanned
+    * archives, and only the partial models scanned with the same settings are merged
+    *
+    * @param scanContext The value
+    */
+   public void setScanContext(String scanContext)
+   {
+      this.scanContext = scanContext;
+   }
+
+   /**
+    * Set the cache of scanned archives
+    *
+    * @param scanCache The cache
+    */
+   public void setScanCache(ScanCache scanCache)
+   {
+      this.scanCache = scanCache;
+   }
+
+   /**
+    * Set the metrics that the scans are measured in
+    *
+    * @param metrics The value
+    */
+   public void setMetrics(Metrics metrics)
+   {
+      this.metrics = metrics;
+   }
+
+   /**
+    * Set the memory budget of the dependencies. Once the class, package and blacklisted dependencies of the
+    * scanned archives exceed the budget, the dependencies of the following archives are spilled to the store
+    *
+    * @param dependencyStore The store
+    * @param memoryBudget    The number of bytes of dependencies that are kept in the heap
+    */
+   public void setMemoryBudget(DependencyStore dependencyStore, long memoryBudget)
+   {
+      this.dependencyStore = dependencyStore;
+      this.memoryBudget = memoryBudget;
+   }
+
+   /**
+    * Get the archives; the first archive of a given name in scan order holds the locations of all of them
+    *
+    * @return The value
+    */
+   public SortedSet<Archive> getArchives()
+   {
+      return archives;
+   }
+
+   /**
+    * Get the global provides map
+    *
+    * @return The value
+    */
+   public SortedMap<String, SortedSet<String>> getGlobalProvides()
+   {
+      return gProvides;
+   }
+
+   /**
+    * Get the files of a list that the next update would scan; the files that weren't scanned before, or have
+    * changed since
+    *
+    * @param files The files
+    * @return The files in list order, without duplicates
+    */
+   public List<File> getUnscanned(List<File> files)
+   {
+      List<File> result = new ArrayList<File>();
+      Set<File> seen = new HashSet<File>();
+
+      for (File file : files)
+      {
+         if (seen.add(file))
+         {
+            Entry entry = entries.get(file);
+
+            if (entry == null || entry.lastModified != file.lastModified() || entry.length != file.length())
+            {
+               result.add(file);
+            }
+         }
+      }
+
+      return result;
+   }
+
+   /**
+    * Merge a partial model, which was scanned by another process. The archives of the partial model are
+    * used by the next update instead of scanning the files again, and the global provides map and the
+    * locations are built from them as for the archives scanned by the model itself
+    *
+    * @param partialModel The partial model
+    * @return True if merged; false if it was scanned with other settings, and can't be used
+    */
+   public boolean merge(PartialModel partialModel)
+   {
+      String context = partialModel.getScanContext();
+
+      if (context == null ? scanContext != null : !context.equals(scanContext))
+      {
+         return false;
+      }
+
+      partialModels.add(partialModel);
+      return true;
+   }
+
+   /**
+    * Get the archives of the model as a partial model, which can be merged into the model of another process
+    *
+    * @return The value
+    */
+   public PartialModel getPartialModel()
+   {
+      PartialModel result = new PartialModel(scanContext, metrics);
+
+      for (Entry entry : entries.values())
+      {
+         result.add(entry.file, entry.lastModified, entry.length, entry.archive);
+      }
+
+      return result;
+   }
+
+   /**
+    * Update the model to a list of files. Files that weren't scanned before, or have changed since, are scanned
+    *
+    * @param files The files
+    * @return The names of the archives that were added, changed or removed
+    * @throws Exception If a file can't be scanned
+    */
+   public SortedSet<String> update(List<File> files) throws Exception
+   {
+      SortedSet<String> changed = new TreeSet<String>();
+      LinkedHashMap<File, Entry> current = new LinkedHashMap<File, Entry>();
+      List<Entry> added = new ArrayList<Entry>();
+      List<Entry> removed = new ArrayList<Entry>();
+
+      for (File file : files)
+      {
+         if (!current.containsKey(file))
+         {
+            Entry entry = entries.get(file);
+
+            if (entry == null || entry.lastModified != file.lastModified() || entry.length != file.length())
+            {
+               entry = scan(file);
+               added.add(entry);
+            }
+
+            current.put(file, entry);
+         }
+      }
+
+      for (Entry entry : entries.values())
+      {
+         if (current.get(entry.file) != entry)
+         {
+            removed.add(entry);
+         }
+      }
+
+      // Unregister all the removed files first, so a class stays provided only by the files that remain
+      for (Entry entry : removed)
+      {
+         unregister(entry);
+      }
+
+      for (Entry entry : removed)
+      {
+         removeProvides(entry);
+         dependencySize -= entry.dependencySize;
+
+         if (entry.archive != null)
+         {
+            changed.add(entry.archive.getName());
+         }
+      }
+
+      for (Entry entry : added)
+      {
+         register(entry);
+         addProvides(entry);
+
+         if (entry.archive != null)
+         {
+            changed.add(entry.archive.getName());
+         }
+      }
+
+      entries = current;
+      partialModels.clear();
+
+      if (added.size() > 0 || removed.size() > 0)
+      {
+         updateArchives(changed);
+      }
+
+      return changed;
+   }
+
+   /**
+    * Scan a file
+    *
+    * @param file The file
+    * @return The entry
+    * @throws Exception If the file can't be scanned
+    */
+   private Entry scan(File file) throws Exception
+   {
+      Entry entry = new Entry(file);
+      ArchiveScanner scanner = analyzer.getScanner(file);
+
+      if (scanner != null)
+      {
+         String key = null;
+
+         if (scanCache != null)
+         {
+            key = ScanCache.getKey(file, scanContext);
+            entry.archive = scanCache.get(key);
+
+            if (metrics != null)
+            {
+               metrics.add(entry.archive != null ? Metrics.CACHE_HITS : Metrics.CACHE_MISSES, 1);
+            }
+         }
+
+         if (entry.archive == null)
+         {
+            PartialModel partialModel = getPartialModel(entry);
+
+            if (partialModel != null)
+            {
+               entry.archive = partialModel.getArchive(file);
+            }
+            else
+            {
+               long start = metrics != null ? metrics.start() : 0;
+               long classes = metrics != null ? metrics.getCounter(Metrics.CLASSES) : 0;
+
+               entry.archive = scanner.scan(file, null, known, blacklisted);
+
+               if (metrics != null)
+               {
+                  long duration = metrics.stop(Metrics.SCAN, start);
+                  metrics.add(Metrics.BYTES, file.length());
+
+                  EventListener listener = metrics.getListener();
+                  if (listener != null)
+                  {
+                     listener.archiveScanned(file, file.length(), metrics.getCounter(Metrics.CLASSES) - classes,
+                                             duration);
+                  }
+               }
+            }
+
+            if (entry.archive != null && key != null)
+            {
+               scanCache.put(key, entry.archive);
+            }
+         }
+      }
+
+      if (entry.archive != null)
+      {
+         entry.locations = new TreeSet<Location>(entry.archive.getLocations());
+         addNamedArchives(entry.archive, entry.namedArchives);
+
+         if (dependencyStore != null)
+         {
+            spill(entry);
+         }
+      }
+
+      return entry;
+   }
+
+   /**
+    * Get the merged partial model that holds a file as it is now
+    *
+    * @param entry The file
+    * @return The partial model; <code>null</code> if the file wasn't scanned by another process
+    */
+   private PartialModel getPartialModel(Entry entry)
+   {
+      for (PartialModel partialModel : partialModels)
+      {
+         if (partialModel.contains(entry.file, entry.lastModified, entry.length))
+         {
+            return partialModel;
+         }
+      }
+
+      return null;
+   }
+
+   /**
+    * Keep the dependencies of a scanned file in the heap if they fit in the memory budget; otherwise
+    * spill them to the store
+    *
+    * @param entry The file
+    * @throws IOException If the dependencies can't be spilled
+    */
+   private void spill(Entry entry) throws IOException
+   {
+      long size = entry.archive.getDependencySize();
+
+      if (dependencySize + size <= memoryBudget)
+      {
+         entry.dependencySize = size;
+         dependencySize += size;
+      }
+      else
+      {
+         entry.archive.spill(dependencyStore);
+
+         if (metrics != null)
+         {
+            metrics.add(Metrics.SPILLED, 1);
+            metrics.set(Metrics.SPILLED_BYTES, dependencyStore.getSize());
+         }
+      }
+   }
+
+   /**
+    * Add an archive and its nested archives by name
+    *
+    * @param archive       The archive
+    * @param namedArchives The archives by name
+    */
+   private void addNamedArchives(Archive archive, Map<String, List<Archive>> namedArchives)
+   {
+      List<Archive> l = namedArchives.get(archive.getName());
+      if (l == null)
+      {
+         l = new ArrayList<Archive>(1);
+         namedArchives.put(archive.getName(), l);
+      }
+      l.add(archive);
+
+      if (archive instanceof NestableArchive)
+      {
+         for (Archive subArchive : ((NestableArchive) archive).getSubArchives())
+         {
+            // The classes of a web archive are provided under the name of the web archive
+            if (subArchive.getType() != ArchiveTypes.CLASS)
+            {
+               addNamedArchives(subArchive, namedArchives);
+            }
+         }
+      }
+   }
+
+   /**
+    * Register the archive names of a file
+    *
+    * @param entry The file
+    */
+   private void register(Entry entry)
+   {
+      for (String name : entry.namedArchives.keySet())
+      {
+         List<Entry> l = providers.get(name);
+         if (l == null)
+         {
+            l = new ArrayList<Entry>(1);
+            providers.put(name, l);
+         }
+         l.add(entry);
+      }
+   }
+
+   /**
+    * Unregister the archive names of a file
+    *
+    * @param entry The file
+    */
+   private void unregister(Entry entry)
+   {
+      for (String name : entry.namedArchives.keySet())
+      {
+         List<Entry> l = providers.get(name);
+         if (l != null)
+         {
+            l.remove(entry);
+            if (l.size() == 0)
+            {
+               providers.remove(name);
+            }
+         }
+      }
+   }
+
+   /**
+    * Add the classes of a file to the global provides map, as the scan of the file does
+    *
+    * @param entry The file
+    */
+   private void addProvides(Entry entry)
+   {
+      for (Map.Entry<String, List<Archive>> named : entry.namedArchives.entrySet())
+      {
+         for (Archive archive : named.getValue())
+         {
+            for (String provide : archive.getProvides().keySet())
+            {
+               SortedSet<String> ss = gProvides.get(provide);
+               if (ss == null)
+               {
+                  ss = new TreeSet<String>();
+                  gProvides.put(provide, ss);
+               }
+               ss.add(named.getKey());
+            }
+         }
+      }
+   }
+
+   /**
+    * Remove the classes of a file from the global provides map, unless a registered file of the same
+    * archive name provides them as well
+    *
+    * @param entry The file
+    */
+   private void removeProvides(Entry entry)
+   {
+      for (Map.Entry<String, List<Archive>> named : entry.namedArchives.entrySet())
+      {
+         String name = named.getKey();
+         List<Entry> others = providers.get(name);
+
+         for (Archive archive : named.getValue())
+         {
+            for (String provide : archive.getProvides().keySet())
+            {
+               if (!isProvided(others, name, provide))
+               {
+                  SortedSet<String> ss = gProvides.get(provide);
+                  if (ss != null)
+                  {
+                     ss.remove(name);
+                     if (ss.size() == 0)
+                     {
+                        gProvides.remove(provide);
+                     }
+                  }
+               }
+            }
+         }
+      }
+   }
+
+   /**
+    * Is a class provided by an archive of a given name in one of the files
+    *
+    * @param files   The files; may be <code>null</code>
+    * @param name    The archive name
+    * @param provide The class name
+    * @return True if provided; otherwise false
+    */
+   private boolean isProvided(List<Entry> files, String name, String provide)
+   {
+      if (files != null)
+      {
+         for (Entry entry : files)
+         {
+            for (Archive archive : entry.namedArchives.get(name))
+            {
+               if (archive.getProvides().containsKey(provide))
+               {
+                  return true;
+               }
+            }
+         }
+      }
+
+      return false;
+   }
+
+   /**
+    * Rebuild the archives, and the locations of the changed archives
+    *
+    * @param changed The names of the changed archives
+    */
+   private void updateArchives(Set<String> changed)
+   {
+      SortedSet<Archive> result = new TreeSet<Archive>();
+      Map<String, SortedSet<Location>> locationsMap = new HashMap<String, SortedSet<Location>>();
+
+      for (Entry entry : entries.values())
+      {
+         if (entry.archive != null)
+         {
+            String name = entry.archive.getName();
+
+            if (changed.contains(name))
+            {
+               SortedSet<Location> locations = locationsMap.get(name);
+               if (locations == null)
+               {
+                  locations = new TreeSet<Location>();
+                  locationsMap.put(name, locations);
+               }
+               locations.addAll(entry.locations);
+            }
+
+            if (!result.contains(entry.archive))
+            {
+               result.add(entry.archive);
+            }
+         }
+      }
+
+      for (Archive a : result)
+      {
+         SortedSet<Location> locations = locationsMap.get(a.getName());
+
+         if (locations != null)
+         {
+            // Drop the locations of the files that are gone
+            a.getLocations().retainAll(locations);
+
+            for (Location l : locations)
+            {
+               a.addLocation(l);
+            }
+         }
+      }
+
+      archives = result;
+   }
+
+   /**
+    * A scanned file
+    */
+   private static class Entry
+   {
+      /** The file */
+      private File file;
+
+      /** The time the file was last modified */
+      private long lastModified;
+
+      /** The length of the file */
+      private long length;
+
+      /** The archive; <code>null</code> if the file didn't contain classes */
+      private Archive archive;
+
+      /** The locations of the archive as scanned */
+      private SortedSet<Location> locations;
+
+      /** The archive and its nested archives by name */
+      private Map<String, List<Archive>> namedArchives;
+
+      /** The estimated number of bytes of dependencies that are kept in the heap */
+      private long dependencySize;
+
+      /**
+       * Constructor
+       *
+       * @param file The file
+       */
+      Entry(File file)
+      {
+         this.file = file;
+         this.lastModified = file.lastModified();
+         this.length = file.length();
+         this.archive = null;
+         this.locations = null;
+         this.namedArchives = new HashMap<String, List<Archive>>();
+         this.dependencySize = 0L;
+      }
+   }
+}
@@ -23,6 +23,7 @@
 package org.jboss.tattletale.analyzers;
 
 import org.jboss.tattletale.core.Archive;
+import org.jboss.tattletale.core.ArchiveFacets;
 import org.jboss.tattletale.core.EarArchive;
 import org.jboss.tattletale.core.Location;
 import org.jboss.tattletale.profiles.Profile;
@@ -53,6 +54,22 @@ import java.util.jar.Manifest;
  */
 public class EarScanner extends AbstractScanner
 {
+   /** Constructor */
+   public EarScanner()
+   {
+      super();
+   }
+
+   /**
+    * Constructor
+    *
+    * @param facets The facets to collect
+    */
+   public EarScanner(int facets)
+   {
+      super(facets);
+   }
+
 
    /**
     * Scan a .ear archive
@@ -87,8 +104,12 @@ public class EarScanner extends AbstractScanner
 
       EarArchive earArchive = null;
       List<Archive> subArchiveList = new ArrayList<Archive>();
-      ArchiveScanner jarScanner = new JarScanner();
-      ArchiveScanner warScanner = new WarScanner();
+      JarScanner jarScanner = new JarScanner(getFacets());
+      jarScanner.setCatalog(getCatalog());
+      jarScanner.setMetrics(getMetrics());
+      WarScanner warScanner = new WarScanner(getFacets());
+      warScanner.setCatalog(getCatalog());
+      warScanner.setMetrics(getMetrics());
       JarFile earFile = null;
       String name = ear.getName();
       try
@@ -99,6 +120,7 @@ public class EarScanner extends AbstractScanner
          Integer classVersion = null;
          SortedSet<String> requires = new TreeSet<String>();
          SortedMap<String, Long> provides = new TreeMap<String, Long>();
+         SortedMap<String, String> digests = new TreeMap<String, String>();
          SortedSet<String> profiles = new TreeSet<String>();
          SortedMap<String, SortedSet<String>> classDependencies = new TreeMap<String, SortedSet<String>>();
          SortedMap<String, SortedSet<String>> packageDependencies = new TreeMap<String, SortedSet<String>>();
@@ -119,11 +141,13 @@ public class EarScanner extends AbstractScanner
                {
                   entryStream = earFile.getInputStream(earEntry);
                   classVersion = scanClasses(entryStream, blacklisted, known, classVersion, provides,
-                        requires, profiles, classDependencies, packageDependencies, blacklistedDependencies);
+                        requires, profiles, classDependencies, packageDependencies, blacklistedDependencies,
+                        digests);
                }
                catch (Exception openException)
                {
                   openException.printStackTrace();
+                  classParseFailed(ear, entryName, openException);
                }
                finally
                {
@@ -133,7 +157,8 @@ public class EarScanner extends AbstractScanner
                   }
                }
             }
-            else if (entryName.contains("META-INF") && entryName.endsWith(".SF"))
+            else if (entryName.contains("META-INF") && entryName.endsWith(".SF") &&
+                     isCollected(ArchiveFacets.SIGN))
             {
                InputStream is = null;
                try
@@ -205,7 +230,7 @@ public class EarScanner extends AbstractScanner
             lManifest = super.readManifest(manifest);
          }
 
-         Location location = new Location(canonicalPath, version);
+         Location location = createLocation(canonicalPath, version, ear, digests);
 
          // Obtain the class version if it is null. In other words, if there aren't any .class files in a
          // WEB-INF/classes directory. This would get the class version from the first archive in the list of sub
@@ -219,6 +244,7 @@ public class EarScanner extends AbstractScanner
 
          earArchive = new EarArchive(name, classVersion, lManifest, lSign, requires, provides, classDependencies,
                packageDependencies, blacklistedDependencies, location, subArchiveList);
+         earArchive.setDigests(digests);
          super.addProfilesToArchive(earArchive, profiles);
 
          Iterator<String> it = provides.keySet().iterator();
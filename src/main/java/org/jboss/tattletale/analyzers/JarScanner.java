@@ -22,8 +22,10 @@
 package org.jboss.tattletale.analyzers;
 
 import org.jboss.tattletale.core.Archive;
+import org.jboss.tattletale.core.ArchiveFacets;
 import org.jboss.tattletale.core.JarArchive;
 import org.jboss.tattletale.core.Location;
+import org.jboss.tattletale.core.SignatureVerification;
 import org.jboss.tattletale.profiles.Profile;
 
 import java.io.File;
@@ -53,6 +55,21 @@ import java.util.jar.Manifest;
  */
 public class JarScanner extends AbstractScanner
 {
+   /** Constructor */
+   public JarScanner()
+   {
+      super();
+   }
+
+   /**
+    * Constructor
+    *
+    * @param facets The facets to collect
+    */
+   public JarScanner(int facets)
+   {
+      super(facets);
+   }
 
    /**
     * Scan an archive
@@ -78,19 +95,27 @@ public class JarScanner extends AbstractScanner
    {
       Archive archive = null;
       JarFile jarFile = null;
+      SignatureVerifier verifier = null;
       String name = file.getName();
       try
       {
          String canonicalPath = file.getCanonicalPath();
-         jarFile = new JarFile(file);
+         jarFile = new JarFile(file, false);
          Integer classVersion = null;
          SortedSet<String> requires = new TreeSet<String>();
          SortedMap<String, Long> provides = new TreeMap<String, Long>();
+         SortedMap<String, String> digests = new TreeMap<String, String>();
          SortedSet<String> profiles = new TreeSet<String>();
          SortedMap<String, SortedSet<String>> classDependencies = new TreeMap<String, SortedSet<String>>();
          SortedMap<String, SortedSet<String>> packageDependencies = new TreeMap<String, SortedSet<String>>();
          SortedMap<String, SortedSet<String>> blacklistedDependencies = new TreeMap<String, SortedSet<String>>();
          List<String> lSign = null;
+
+         if (isCollected(ArchiveFacets.SIGN))
+         {
+            verifier = SignatureVerifier.create(jarFile);
+         }
+
          Enumeration<JarEntry> jarEntries = jarFile.entries();
 
          while (jarEntries.hasMoreElements())
@@ -102,13 +127,21 @@ public class JarScanner extends AbstractScanner
             {
                try
                {
-                  entryStream = jarFile.getInputStream(jarEntry);
+                  if (verifier != null)
+                  {
+                     entryStream = verifier.getInputStream(jarFile, jarEntry);
+                  }
+                  else
+                  {
+                     entryStream = jarFile.getInputStream(jarEntry);
+                  }
                   classVersion = scanClasses(entryStream, blacklisted, known, classVersion, provides, requires,
-                        profiles, classDependencies, packageDependencies, blacklistedDependencies);
+                        profiles, classDependencies, packageDependencies, blacklistedDependencies, digests);
                }
                catch (Exception ie)
                {
                   ie.printStackTrace();
+                  classParseFailed(file, entryName, ie);
                }
                finally
                {
@@ -118,7 +151,8 @@ public class JarScanner extends AbstractScanner
                   }
                }
             }
-            else if (entryName.contains("META-INF") && entryName.endsWith(".SF"))
+            else if (entryName.contains("META-INF") && entryName.endsWith(".SF") &&
+                     isCollected(ArchiveFacets.SIGN))
             {
                InputStream is = null;
                try
@@ -159,6 +193,23 @@ public class JarScanner extends AbstractScanner
                   }
                }
             }
+            else if (verifier != null)
+            {
+               try
+               {
+                  verifier.verify(jarFile, jarEntry);
+               }
+               catch (IOException ioe)
+               {
+                  // Ignore
+               }
+            }
+         }
+
+         SignatureVerification signatureVerification = null;
+         if (verifier != null)
+         {
+            signatureVerification = verifier.getResult(file);
          }
 
          if (provides.size() == 0)
@@ -174,13 +225,15 @@ public class JarScanner extends AbstractScanner
             version = versionFromManifest(manifest);
             lManifest = readManifest(manifest);
          }
-         Location location = new Location(canonicalPath, version);
+         Location location = createLocation(canonicalPath, version, file, digests);
 
          if (classVersion == null)
             classVersion = Integer.valueOf(0);
 
          archive = new JarArchive(name, classVersion, lManifest, lSign, requires, provides,
                      classDependencies, packageDependencies, blacklistedDependencies, location);
+         archive.setDigests(digests);
+         archive.setSignatureVerification(signatureVerification);
          addProfilesToArchive(archive, profiles);
 
          Iterator<String> it = provides.keySet().iterator();
@@ -215,6 +268,11 @@ public class JarScanner extends AbstractScanner
       }
       finally
       {
+         if (verifier != null)
+         {
+            verifier.close();
+         }
+
          try
          {
             if (jarFile != null)
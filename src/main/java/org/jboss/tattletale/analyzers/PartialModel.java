@@ -0,0 +1,218 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2009, Red Hat Middleware LLC, and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.tattletale.analyzers;
+
+import org.jboss.tattletale.core.Archive;
+import org.jboss.tattletale.utils.Metrics;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The archives of a shard of the files, as scanned by a worker process.
+ * <p/>
+ * A partial model only holds the archives as scanned. It is merged into an {@link ArchiveModel}, which
+ * builds the global provides map and the locations of the archives from the archives of all the shards
+ * just as if it had scanned the files itself.
+ *
+ * @author Jesper Pedersen <jesper.pedersen@jboss.org>
+ */
+public class PartialModel implements Serializable
+{
+   /** SerialVersionUID */
+   static final long serialVersionUID = 6613823590227128904L;
+
+   /** The settings the scan depends on besides the file itself */
+   private String scanContext;
+
+   /** The metrics of the scan */
+   private Metrics metrics;
+
+   /** The scanned files */
+   private Map<File, ScannedFile> files;
+
+   /**
+    * Constructor
+    *
+    * @param scanContext The settings the scan depends on besides the file itself
+    * @param metrics     The metrics of the scan; may be <code>null</code>
+    */
+   public PartialModel(String scanContext, Metrics metrics)
+   {
+      this.scanContext = scanContext;
+      this.metrics = metrics;
+      this.files = new LinkedHashMap<File, ScannedFile>();
+   }
+
+   /**
+    * Read a partial model
+    *
+    * @param file The file
+    * @return The partial model
+    * @throws IOException If the file can't be read
+    */
+   public static PartialModel read(File file) throws IOException
+   {
+      ObjectInputStream ois = new ObjectInputStream(new BufferedInputStream(new FileInputStream(file)));
+      try
+      {
+         return (PartialModel) ois.readObject();
+      }
+      catch (ClassNotFoundException cnfe)
+      {
+         throw new IOException("Unable to read " + file + ": " + cnfe.getMessage());
+      }
+      finally
+      {
+         ois.close();
+      }
+   }
+
+   /**
+    * Write the partial model
+    *
+    * @param file The file
+    * @throws IOException If the file can't be written
+    */
+   public void write(File file) throws IOException
+   {
+      ObjectOutputStream oos = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+      try
+      {
+         oos.writeObject(this);
+      }
+      finally
+      {
+         oos.close();
+      }
+   }
+
+   /**
+    * Get the settings the scan depends on besides the file itself
+    *
+    * @return The value
+    */
+   public String getScanContext()
+   {
+      return scanContext;
+   }
+
+   /**
+    * Get the metrics of the scan
+    *
+    * @return The value; <code>null</code> if the scan wasn't measured
+    */
+   public Metrics getMetrics()
+   {
+      return metrics;
+   }
+
+   /**
+    * Get the number of scanned files
+    *
+    * @return The value
+    */
+   public int size()
+   {
+      return files.size();
+   }
+
+   /**
+    * Add a scanned file
+    *
+    * @param file         The file
+    * @param lastModified The time the file was last modified when it was scanned
+    * @param length       The length of the file when it was scanned
+    * @param archive      The archive; <code>null</code> if the file didn't contain classes
+    */
+   public void add(File file, long lastModified, long length, Archive archive)
+   {
+      files.put(file, new ScannedFile(lastModified, length, archive));
+   }
+
+   /**
+    * Was a file scanned, and hasn't it changed since
+    *
+    * @param file         The file
+    * @param lastModified The time the file was last modified
+    * @param length       The length of the file
+    * @return True if the archive of the file is held; otherwise false
+    */
+   public boolean contains(File file, long lastModified, long length)
+   {
+      ScannedFile scannedFile = files.get(file);
+      return scannedFile != null && scannedFile.lastModified == lastModified && scannedFile.length == length;
+   }
+
+   /**
+    * Get the archive of a scanned file
+    *
+    * @param file The file
+    * @return The archive; <code>null</code> if the file wasn't scanned or didn't contain classes
+    */
+   public Archive getArchive(File file)
+   {
+      ScannedFile scannedFile = files.get(file);
+      return scannedFile != null ? scannedFile.archive : null;
+   }
+
+   /**
+    * A scanned file
+    */
+   private static class ScannedFile implements Serializable
+   {
+      /** SerialVersionUID */
+      static final long serialVersionUID = -2719561120489387315L;
+
+      /** The time the file was last modified */
+      private long lastModified;
+
+      /** The length of the file */
+      private long length;
+
+      /** The archive; <code>null</code> if the file didn't contain classes */
+      private Archive archive;
+
+      /**
+       * Constructor
+       *
+       * @param lastModified The time the file was last modified
+       * @param length       The length of the file
+       * @param archive      The archive
+       */
+      ScannedFile(long lastModified, long length, Archive archive)
+      {
+         this.lastModified = lastModified;
+         this.length = length;
+         this.archive = archive;
+      }
+   }
+}
@@ -0,0 +1,235 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2009, Red Hat Middleware LLC, and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.tattletale.analyzers;
+
+import org.jboss.tattletale.core.Archive;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * A least recently used cache of scanned archives, which lets a long running process skip the scan of
+ * archives that haven't changed since the last run.
+ * <p/>
+ * The archives are kept serialized, so each run gets its own copy of the model and the size of the cache
+ * is bounded by the number of bytes held.
+ *
+ * @author Jesper Pedersen <jesper.pedersen@jboss.org>
+ */
+public class ScanCache
+{
+   /** The maximum number of bytes held */
+   private long maxSize;
+
+   /** The number of bytes held */
+   private long size;
+
+   /** The entries in access order */
+   private LinkedHashMap<String, byte[]> entries;
+
+   /** The number of hits */
+   private long hits;
+
+   /** The number of misses */
+   private long misses;
+
+   /**
+    * Constructor
+    *
+    * @param maxSize The maximum number of bytes held
+    */
+   public ScanCache(long maxSize)
+   {
+      this.maxSize = maxSize;
+      this.size = 0L;
+      this.entries = new LinkedHashMap<String, byte[]>(16, 0.75f, true);
+      this.hits = 0L;
+      this.misses = 0L;
+   }
+
+   /**
+    * Get the key of a file
+    *
+    * @param file    The file
+    * @param context The settings the scan depends on
+    * @return The key
+    * @throws IOException If the path of the file can't be resolved
+    */
+   public static String getKey(File file, String context) throws IOException
+   {
+      StringBuffer sb = new StringBuffer();
+
+      sb.append(file.getCanonicalPath());
+      sb.append('|');
+      sb.append(file.lastModified());
+      sb.append('|');
+      sb.append(file.length());
+      sb.append('|');
+      sb.append(context);
+
+      return sb.toString();
+   }
+
+   /**
+    * Get an archive
+    *
+    * @param key The key
+    * @return The archive; <code>null</code> if it isn't cached
+    */
+   public synchronized Archive get(String key)
+   {
+      byte[] data = entries.get(key);
+
+      if (data == null)
+      {
+         misses++;
+         return null;
+      }
+
+      try
+      {
+         ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(data));
+         Archive archive = (Archive) ois.readObject();
+         ois.close();
+
+         hits++;
+         return archive;
+      }
+      catch (Exception e)
+      {
+         System.err.println("ScanCache: " + e.getMessage());
+         e.printStackTrace(System.err);
+
+         remove(key);
+         misses++;
+         return null;
+      }
+   }
+
+   /**
+    * Put an archive
+    *
+    * @param key     The key
+    * @param archive The archive
+    */
+   public synchronized void put(String key, Archive archive)
+   {
+      try
+      {
+         ByteArrayOutputStream baos = new ByteArrayOutputStream();
+         ObjectOutputStream oos = new ObjectOutputStream(baos);
+         oos.writeObject(archive);
+         oos.close();
+
+         byte[] data = baos.toByteArray();
+
+         remove(key);
+
+         if (data.length <= maxSize)
+         {
+            entries.put(key, data);
+            size += data.length;
+
+            Iterator<byte[]> it = entries.values().iterator();
+            while (size > maxSize && it.hasNext())
+            {
+               size -= it.next().length;
+               it.remove();
+            }
+         }
+      }
+      catch (IOException ioe)
+      {
+         System.err.println("ScanCache: " + ioe.getMessage());
+         ioe.printStackTrace(System.err);
+      }
+   }
+
+   /**
+    * Clear the cache
+    */
+   public synchronized void clear()
+   {
+      entries.clear();
+      size = 0L;
+   }
+
+   /**
+    * Get the number of archives held
+    *
+    * @return The value
+    */
+   public synchronized int getEntries()
+   {
+      return entries.size();
+   }
+
+   /**
+    * Get the number of bytes held
+    *
+    * @return The value
+    */
+   public synchronized long getSize()
+   {
+      return size;
+   }
+
+   /**
+    * Get the number of hits
+    *
+    * @return The value
+    */
+   public synchronized long getHits()
+   {
+      return hits;
+   }
+
+   /**
+    * Get the number of misses
+    *
+    * @return The value
+    */
+   public synchronized long getMisses()
+   {
+      return misses;
+   }
+
+   /**
+    * Remove an entry
+    *
+    * @param key The key
+    */
+   private void remove(String key)
+   {
+      byte[] data = entries.remove(key);
+      if (data != null)
+      {
+         size -= data.length;
+      }
+   }
+}
@@ -0,0 +1,650 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2009, Red Hat Middleware LLC, and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.tattletale.analyzers;
+
+import org.jboss.tattletale.core.SignatureVerification;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.jar.Attributes;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+
+/**
+ * Verifies the signature of a signed archive.
+ *
+ * The entries are read once, in the same pass as the classes are scanned, and their digests are
+ * computed on a thread pool shared by all the verifiers and compared with the digests in the
+ * manifest. The sections of the manifest are compared with the digests in the signature files,
+ * and the signature block is verified by the platform for a single entry
+ *
+ * @author Jesper Pedersen <jesper.pedersen@jboss.org>
+ */
+public class SignatureVerifier
+{
+   /** The manifest */
+   private static final String MANIFEST = "META-INF/MANIFEST.MF";
+
+   /** The suffix of the digest attributes */
+   private static final String DIGEST = "-Digest";
+
+   /** The suffix of the manifest digest attributes in a signature file */
+   private static final String DIGEST_MANIFEST = "-Digest-Manifest";
+
+   /** Base64 digits */
+   private static final char[] BASE64 =
+      "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".toCharArray();
+
+   /** The thread pool that computes the digests of all the verifiers */
+   private static ExecutorService sharedExecutor;
+
+   /** The manifest */
+   private Manifest manifest;
+
+   /** The entries covered by a signature file */
+   private Set<String> covered;
+
+   /** The entries that don't match their digests */
+   private SortedSet<String> tampered;
+
+   /** The entries that aren't signed */
+   private SortedSet<String> unsigned;
+
+   /** The name of an entry that is verified */
+   private String verified;
+
+   /** The maximum number of pending digests */
+   private int maxPending;
+
+   /** The pending digests */
+   private LinkedList<Future<String>> pending;
+
+   /**
+    * Constructor
+    *
+    * @param manifest The manifest
+    */
+   private SignatureVerifier(Manifest manifest)
+   {
+      int threads = Runtime.getRuntime().availableProcessors();
+
+      this.manifest = manifest;
+      this.covered = new HashSet<String>();
+      this.tampered = new TreeSet<String>();
+      this.unsigned = new TreeSet<String>();
+      this.verified = null;
+      this.maxPending = threads * 4;
+      this.pending = new LinkedList<Future<String>>();
+   }
+
+   /**
+    * Get the thread pool that computes the digests. The pool is bounded by the number of processors, and
+    * its threads are daemon threads, so it never keeps the virtual machine alive
+    *
+    * @return The value
+    */
+   private static synchronized ExecutorService getExecutor()
+   {
+      if (sharedExecutor == null)
+      {
+         ThreadFactory threadFactory = new ThreadFactory()
+         {
+            public Thread newThread(Runnable r)
+            {
+               Thread thread = new Thread(r, "SignatureVerifier");
+               thread.setDaemon(true);
+               return thread;
+            }
+         };
+
+         sharedExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), threadFactory);
+      }
+
+      return sharedExecutor;
+   }
+
+   /**
+    * Create a verifier for an archive
+    *
+    * @param jarFile The archive
+    * @return The verifier; <code>null</code> if the archive isn't signed
+    * @throws IOException If the manifest or the signature files can't be read
+    */
+   public static SignatureVerifier create(JarFile jarFile) throws IOException
+   {
+      JarEntry manifestEntry = jarFile.getJarEntry(MANIFEST);
+      List<JarEntry> signatureFiles = new ArrayList<JarEntry>();
+
+      Enumeration<JarEntry> entries = jarFile.entries();
+      while (entries.hasMoreElements())
+      {
+         JarEntry entry = entries.nextElement();
+         String name = entry.getName().toUpperCase();
+
+         if (name.startsWith("META-INF/") && name.endsWith(".SF") && name.indexOf('/', 9) == -1)
+         {
+            signatureFiles.add(entry);
+         }
+      }
+
+      if (manifestEntry == null || signatureFiles.size() == 0)
+      {
+         return null;
+      }
+
+      byte[] rawManifest = readFully(jarFile.getInputStream(manifestEntry));
+      SignatureVerifier verifier = new SignatureVerifier(new Manifest(new ByteArrayInputStream(rawManifest)));
+      Map<String, byte[]> sections = getSections(rawManifest);
+
+      for (JarEntry signatureFile : signatureFiles)
+      {
+         Manifest sf = new Manifest(jarFile.getInputStream(signatureFile));
+         boolean manifestVerified = false;
+
+         for (Map.Entry<Object, Object> attribute : sf.getMainAttributes().entrySet())
+         {
+            String key = attribute.getKey().toString();
+
+            if (key.endsWith(DIGEST_MANIFEST))
+            {
+               String algorithm = key.substring(0, key.length() - DIGEST_MANIFEST.length());
+               Boolean match = matches(algorithm, rawManifest, attribute.getValue().toString());
+
+               if (match != null && match.booleanValue())
+               {
+                  manifestVerified = true;
+               }
+            }
+         }
+
+         for (Map.Entry<String, Attributes> section : sf.getEntries().entrySet())
+         {
+            String name = section.getKey();
+            boolean sectionVerified = manifestVerified;
+
+            if (!sectionVerified)
+            {
+               byte[] raw = sections.get(name);
+               Boolean match = raw != null ? verifyDigests(section.getValue(), raw) : Boolean.FALSE;
+
+               if (match != null && !match.booleanValue())
+               {
+                  verifier.tampered.add(name);
+               }
+
+               sectionVerified = match != null && match.booleanValue();
+            }
+
+            if (sectionVerified)
+            {
+               verifier.covered.add(name);
+            }
+         }
+      }
+
+      return verifier;
+   }
+
+   /**
+    * Is an entry a part of the signature, and therefore not signed itself
+    *
+    * @param name The name of the entry
+    * @return True if the entry is a part of the signature; otherwise false
+    */
+   public static boolean isSignatureRelated(String name)
+   {
+      String upper = name.toUpperCase();
+
+      if (!upper.startsWith("META-INF/") || upper.indexOf('/', 9) != -1)
+      {
+         return false;
+      }
+
+      return upper.equals(MANIFEST) || upper.endsWith(".SF") || upper.endsWith(".RSA") ||
+         upper.endsWith(".DSA") || upper.endsWith(".EC") || upper.startsWith("META-INF/SIG-");
+   }
+
+   /**
+    * Read an entry, and verify it against its digests on the thread pool
+    *
+    * @param jarFile The archive
+    * @param entry   The entry
+    * @return A stream over the content of the entry
+    * @throws IOException If the entry can't be read
+    */
+   public InputStream getInputStream(JarFile jarFile, JarEntry entry) throws IOException
+   {
+      byte[] data = readFully(jarFile.getInputStream(entry));
+
+      verify(entry.getName(), data);
+
+      return new ByteArrayInputStream(data);
+   }
+
+   /**
+    * Read an entry, and verify it against its digests on the thread pool
+    *
+    * @param jarFile The archive
+    * @param entry   The entry
+    * @throws IOException If the entry can't be read
+    */
+   public void verify(JarFile jarFile, JarEntry entry) throws IOException
+   {
+      if (!entry.isDirectory() && !isSignatureRelated(entry.getName()))
+      {
+         verify(entry.getName(), readFully(jarFile.getInputStream(entry)));
+      }
+   }
+
+   /**
+    * Get the result of the verification, which waits for the pending digests
+    *
+    * @param file The archive file, which is used to verify the signature block
+    * @return The result
+    */
+   public SignatureVerification getResult(File file)
+   {
+      try
+      {
+         while (pending.size() > 0)
+         {
+            complete(pending.removeFirst());
+         }
+      }
+      finally
+      {
+         close();
+      }
+
+      if (tampered.size() == 0 && verified != null)
+      {
+         verifySignatureBlock(file);
+      }
+
+      int status = SignatureVerification.VERIFIED;
+      if (tampered.size() > 0)
+      {
+         status = SignatureVerification.TAMPERED;
+      }
+      else if (unsigned.size() > 0 || verified == null)
+      {
+         status = SignatureVerification.PARTIALLY_SIGNED;
+      }
+
+      return new SignatureVerification(status, tampered, unsigned);
+   }
+
+   /**
+    * Close the verifier, and cancel the digests that are still pending, f.ex. when the scan of the
+    * archive fails
+    */
+   public void close()
+   {
+      while (pending.size() > 0)
+      {
+         pending.removeFirst().cancel(true);
+      }
+   }
+
+   /**
+    * Verify the content of an entry
+    *
+    * @param name The name of the entry
+    * @param data The content
+    */
+   private void verify(final String name, final byte[] data)
+   {
+      final Attributes attributes = manifest.getAttributes(name);
+
+      if (attributes == null || !covered.contains(name))
+      {
+         unsigned.add(name);
+         return;
+      }
+
+      if (pending.size() >= maxPending)
+      {
+         complete(pending.removeFirst());
+      }
+
+      pending.add(getExecutor().submit(new Callable<String>()
+      {
+         public String call()
+         {
+            Boolean match = verifyDigests(attributes, data);
+
+            if (match == null)
+            {
+               return null;
+            }
+
+            return match.booleanValue() ? "" : name;
+         }
+      }));
+
+      if (verified == null)
+      {
+         verified = name;
+      }
+   }
+
+   /**
+    * Complete a pending digest
+    *
+    * @param future The digest
+    */
+   private void complete(Future<String> future)
+   {
+      try
+      {
+         String result = future.get();
+
+         if (result != null && result.length() > 0)
+         {
+            tampered.add(result);
+         }
+      }
+      catch (InterruptedException ie)
+      {
+         Thread.currentThread().interrupt();
+      }
+      catch (ExecutionException ee)
+      {
+         System.err.println("Exception: " + ee.getMessage());
+         ee.printStackTrace(System.err);
+      }
+   }
+
+   /**
+    * Verify the signature block through the platform, by reading a signed entry
+    *
+    * @param file The archive file
+    */
+   private void verifySignatureBlock(File file)
+   {
+      JarFile jarFile = null;
+      try
+      {
+         jarFile = new JarFile(file, true);
+
+         JarEntry entry = jarFile.getJarEntry(verified);
+         readFully(jarFile.getInputStream(entry));
+
+         if (entry.getCodeSigners() == null)
+         {
+            tampered.add(verified);
+         }
+      }
+      catch (SecurityException se)
+      {
+         tampered.add(verified);
+      }
+      catch (IOException ioe)
+      {
+         // Ignore
+      }
+      finally
+      {
+         if (jarFile != null)
+         {
+            try
+            {
+               jarFile.close();
+            }
+            catch (IOException ioe)
+            {
+               // Ignore
+            }
+         }
+      }
+   }
+
+   /**
+    * Verify content against the digests listed in a set of attributes
+    *
+    * @param attributes The attributes
+    * @param data       The content
+    * @return True if all the digests of known algorithms match, false if one doesn't match;
+    *         <code>null</code> if none of the algorithms are known
+    */
+   private static Boolean verifyDigests(Attributes attributes, byte[] data)
+   {
+      Boolean result = null;
+
+      for (Map.Entry<Object, Object> attribute : attributes.entrySet())
+      {
+         String key = attribute.getKey().toString();
+
+         if (key.endsWith(DIGEST))
+         {
+            String algorithm = key.substring(0, key.length() - DIGEST.length());
+            Boolean match = matches(algorithm, data, attribute.getValue().toString());
+
+            if (match != null)
+            {
+               if (!match.booleanValue())
+               {
+                  return Boolean.FALSE;
+               }
+
+               result = Boolean.TRUE;
+            }
+         }
+      }
+
+      return result;
+   }
+
+   /**
+    * Does content match a digest
+    *
+    * @param algorithm The algorithm
+    * @param data      The content
+    * @param expected  The expected digest, Base64 encoded
+    * @return True if the digest matches, false if not; <code>null</code> if the algorithm isn't known
+    */
+   private static Boolean matches(String algorithm, byte[] data, String expected)
+   {
+      try
+      {
+         MessageDigest md = MessageDigest.getInstance(algorithm);
+
+         return Boolean.valueOf(encode(md.digest(data)).equals(expected.trim()));
+      }
+      catch (NoSuchAlgorithmException nsae)
+      {
+         return null;
+      }
+   }
+
+   /**
+    * Split the manifest into its sections, including the blank line that ends each section
+    *
+    * @param raw The manifest
+    * @return The sections, keyed by the name of the entry
+    * @throws UnsupportedEncodingException If UTF-8 isn't supported
+    */
+   private static Map<String, byte[]> getSections(byte[] raw) throws UnsupportedEncodingException
+   {
+      Map<String, byte[]> result = new HashMap<String, byte[]>();
+      ByteArrayOutputStream name = null;
+      boolean inName = false;
+      int start = 0;
+      int pos = 0;
+
+      while (pos <= raw.length)
+      {
+         int lineStart = pos;
+         while (pos < raw.length && raw[pos] != '\r' && raw[pos] != '\n')
+         {
+            pos++;
+         }
+         int lineEnd = pos;
+
+         if (pos < raw.length && raw[pos] == '\r')
+         {
+            pos++;
+         }
+         if (pos < raw.length && raw[pos] == '\n')
+         {
+            pos++;
+         }
+
+         if (lineEnd == lineStart)
+         {
+            if (name != null)
+            {
+               byte[] section = new byte[pos - start];
+               System.arraycopy(raw, start, section, 0, section.length);
+               result.put(name.toString("UTF-8"), section);
+            }
+
+            name = null;
+            inName = false;
+            start = pos;
+
+            if (pos == raw.length)
+            {
+               break;
+            }
+         }
+         else if (lineStart == start && startsWith(raw, lineStart, "Name: "))
+         {
+            name = new ByteArrayOutputStream();
+            name.write(raw, lineStart + 6, lineEnd - lineStart - 6);
+            inName = true;
+         }
+         else if (inName && raw[lineStart] == ' ')
+         {
+            name.write(raw, lineStart + 1, lineEnd - lineStart - 1);
+         }
+         else
+         {
+            inName = false;
+         }
+      }
+
+      return result;
+   }
+
+   /**
+    * Does the content at a position start with a string
+    *
+    * @param raw    The content
+    * @param offset The position
+    * @param prefix The string
+    * @return True if the content starts with the string; otherwise false
+    */
+   private static boolean startsWith(byte[] raw, int offset, String prefix)
+   {
+      if (offset + prefix.length() > raw.length)
+      {
+         return false;
+      }
+
+      for (int i = 0; i < prefix.length(); i++)
+      {
+         if (raw[offset + i] != prefix.charAt(i))
+         {
+            return false;
+         }
+      }
+
+      return true;
+   }
+
+   /**
+    * Read a stream fully, and close it
+    *
+    * @param is The stream
+    * @return The content
+    * @throws IOException If the stream can't be read
+    */
+   private static byte[] readFully(InputStream is) throws IOException
+   {
+      try
+      {
+         ByteArrayOutputStream baos = new ByteArrayOutputStream();
+         byte[] buffer = new byte[8192];
+
+         int n;
+         while ((n = is.read(buffer)) != -1)
+         {
+            baos.write(buffer, 0, n);
+         }
+
+         return baos.toByteArray();
+      }
+      finally
+      {
+         is.close();
+      }
+   }
+
+   /**
+    * Base64 encode a digest
+    *
+    * @param data The digest
+    * @return The encoded value
+    */
+   private static String encode(byte[] data)
+   {
+      StringBuffer sb = new StringBuffer();
+
+      for (int i = 0; i < data.length; i += 3)
+      {
+         int b0 = data[i] & 0xFF;
+         int b1 = i + 1 < data.length ? data[i + 1] & 0xFF : 0;
+         int b2 = i + 2 < data.length ? data[i + 2] & 0xFF : 0;
+
+         sb.append(BASE64[b0 >> 2]);
+         sb.append(BASE64[((b0 & 0x03) << 4) | (b1 >> 4)]);
+         sb.append(i + 1 < data.length ? BASE64[((b1 & 0x0F) << 2) | (b2 >> 6)] : '=');
+         sb.append(i + 2 < data.length ? BASE64[b2 & 0x3F] : '=');
+      }
+
+      return sb.toString();
+   }
+}
@@ -23,6 +23,7 @@
 package org.jboss.tattletale.analyzers;
 
 import org.jboss.tattletale.core.Archive;
+import org.jboss.tattletale.core.ArchiveFacets;
 import org.jboss.tattletale.core.ClassesArchive;
 import org.jboss.tattletale.core.Location;
 import org.jboss.tattletale.core.WarArchive;
@@ -55,6 +56,22 @@ import java.util.jar.Manifest;
 
 public class WarScanner extends AbstractScanner
 {
+   /** Constructor */
+   public WarScanner()
+   {
+      super();
+   }
+
+   /**
+    * Constructor
+    *
+    * @param facets The facets to collect
+    */
+   public WarScanner(int facets)
+   {
+      super(facets);
+   }
+
    /**
     * Scan a .war archive
     * @param war        The file
@@ -82,7 +99,9 @@ public class WarScanner extends AbstractScanner
 
       WarArchive warArchive = null;
       List<Archive> subArchiveList = new ArrayList<Archive>();
-      ArchiveScanner jarScanner = new JarScanner();
+      JarScanner jarScanner = new JarScanner(getFacets());
+      jarScanner.setCatalog(getCatalog());
+      jarScanner.setMetrics(getMetrics());
       JarFile warFile = null;
       String name = war.getName();
       try
@@ -94,6 +113,7 @@ public class WarScanner extends AbstractScanner
          Integer classVersion = null;
          SortedSet<String> requires = new TreeSet<String>();
          SortedMap<String, Long> provides = new TreeMap<String, Long>();
+         SortedMap<String, String> digests = new TreeMap<String, String>();
          SortedSet<String> profiles = new TreeSet<String>();
          SortedMap<String, SortedSet<String>> classDependencies = new TreeMap<String, SortedSet<String>>();
          SortedMap<String, SortedSet<String>> packageDependencies = new TreeMap<String, SortedSet<String>>();
@@ -113,12 +133,14 @@ public class WarScanner extends AbstractScanner
                {
                   entryStream = warFile.getInputStream(warEntry);
                   classVersion = scanClasses(entryStream, blacklisted, known, classVersion, provides,
-                        requires, profiles, classDependencies, packageDependencies, blacklistedDependencies);
+                        requires, profiles, classDependencies, packageDependencies, blacklistedDependencies,
+                        digests);
 
                }
                catch (Exception openException)
                {
                   openException.printStackTrace();
+                  classParseFailed(war, entryName, openException);
                }
                finally
                {
@@ -128,7 +150,8 @@ public class WarScanner extends AbstractScanner
                   }
                }
             }
-            else if (entryName.contains("META-INF") && entryName.endsWith(".SF"))
+            else if (entryName.contains("META-INF") && entryName.endsWith(".SF") &&
+                     isCollected(ArchiveFacets.SIGN))
             {
                InputStream is = null;
                try
@@ -193,7 +216,7 @@ public class WarScanner extends AbstractScanner
             lManifest = super.readManifest(manifest);
          }
 
-         Location location = new Location(canonicalPath, version);
+         Location location = createLocation(canonicalPath, version, war, digests);
 
          if (subArchiveList.size() > 0 && classVersion == null)
          {
@@ -206,11 +229,13 @@ public class WarScanner extends AbstractScanner
          ClassesArchive classesArchive = new ClassesArchive(classesName, classVersion, lManifest, lSign, requires,
                                                             provides, classDependencies, packageDependencies, 
                                                             blacklistedDependencies, location);
+         classesArchive.setDigests(digests);
          subArchiveList.add(classesArchive);
 
          warArchive = new WarArchive(name, classVersion, lManifest, lSign, requires, provides,
                                      classDependencies, packageDependencies, blacklistedDependencies,
                                      location, subArchiveList);
+         warArchive.setDigests(digests);
          super.addProfilesToArchive(warArchive, profiles);
 
          Iterator<String> it = provides.keySet().iterator();
@@ -21,11 +21,16 @@
  */
 package org.jboss.tattletale.core;
 
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
-import java.util.Iterator;
+import java.lang.ref.SoftReference;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.SortedMap;
 import java.util.SortedSet;
+import java.util.TreeMap;
 import java.util.TreeSet;
 
 /**
@@ -38,6 +43,15 @@ public abstract class Archive implements Serializable, Comparable
    /** SerialVersionUID */
    static final long serialVersionUID = 8349128019949046037L;
 
+   /** The index of the class dependencies in the store */
+   private static final int CLASS_MAP = 0;
+
+   /** The index of the package dependencies in the store */
+   private static final int PACKAGE_MAP = 1;
+
+   /** The index of the blacklisted dependencies in the store */
+   private static final int BLACKLISTED_MAP = 2;
+
    /** Archive type */
    private int type;
 
@@ -48,10 +62,13 @@ public abstract class Archive implements Serializable, Comparable
    private int version;
 
    /** Manifest */
-   private List<String> manifest;
+   private CompactText manifest;
+
+   /** The index of the manifest */
+   private transient ManifestIndex manifestIndex;
 
    /** Signing information */
-   private List<String> sign;
+   private CompactText sign;
 
    /** Requires */
    private SortedSet<String> requires;
@@ -59,6 +76,12 @@ public abstract class Archive implements Serializable, Comparable
    /** Provides */
    private SortedMap<String, Long> provides;
 
+   /** Signature verification */
+   private SignatureVerification signatureVerification;
+
+   /** Class digests */
+   private SortedMap<String, String> digests;
+
    /** Profiles */
    private SortedSet<String> profiles;
 
@@ -80,6 +103,15 @@ public abstract class Archive implements Serializable, Comparable
    /** Module identifier */
    private String moduleIdentifier;
 
+   /** The store that the dependencies are spilled to */
+   private transient DependencyStore store;
+
+   /** The position of the dependencies in the store */
+   private transient long storePosition;
+
+   /** The dependencies that are paged in from the store */
+   private transient SoftReference<List<SortedMap<String, SortedSet<String>>>> paged;
+
    /** Parent archive if it is a sub-archive */
    private Archive parentArchive = null;
 
@@ -108,10 +140,13 @@ public abstract class Archive implements Serializable, Comparable
       this.type = type;
       this.name = name;
       this.version = version;
-      this.manifest = manifest;
-      this.sign = sign;
+      this.manifest = CompactText.valueOf(manifest);
+      this.manifestIndex = null;
+      this.sign = CompactText.valueOf(sign);
       this.requires = requires;
       this.provides = provides;
+      this.signatureVerification = null;
+      this.digests = new TreeMap<String, String>();
       this.profiles = new TreeSet<String>();
       this.classDependencies = classDependencies;
       this.packageDependencies = packageDependencies;
@@ -157,13 +192,14 @@ public abstract class Archive implements Serializable, Comparable
    }
 
    /**
-    * Get the manifest
+    * Get the manifest. The lines are created on each call, so callers should keep the result
+    * rather than call this method repeatedly
     *
     * @return The value
     */
    public List<String> getManifest()
    {
-      return manifest;
+      return manifest != null ? manifest.getLines() : null;
    }
 
    /**
@@ -174,18 +210,9 @@ public abstract class Archive implements Serializable, Comparable
     */
    public boolean hasManifestKey(String key)
    {
-      if (manifest != null)
-      {
-         for (String s : manifest)
-         {
-            if (s.startsWith(key))
-            {
-               return true;
-            }
-         }
-      }
+      ManifestIndex index = getManifestIndex();
 
-      return false;
+      return index != null && index.contains(key);
    }
 
    /**
@@ -196,47 +223,65 @@ public abstract class Archive implements Serializable, Comparable
     */
    public String getManifestValue(String key)
    {
-      if (manifest != null)
-      {
-         StringBuffer value = new StringBuffer();
-         boolean found = false;
+      ManifestIndex index = getManifestIndex();
 
-         Iterator<String> it = manifest.iterator();
-         while (it.hasNext())
-         {
-            String s = it.next();
-            if (s.startsWith(key))
-            {
-               int idx = s.indexOf(":");
-               value = value.append(s.substring(idx + 1).trim());
-               found = true;
-            }
-            else if (found)
-            {
-               int idx = s.indexOf(":");
-               if (idx != -1)
-               {
-                  return value.toString().trim();
-               }
-               else
-               {
-                  value = value.append(s.trim());
-               }
-            }
-         }
+      return index != null ? index.getValue(key) : null;
+   }
+
+   /**
+    * Get the index of the manifest, which is created on first use
+    *
+    * @return The value; <code>null</code> if there is no manifest
+    */
+   private ManifestIndex getManifestIndex()
+   {
+      if (manifestIndex == null && manifest != null)
+      {
+         manifestIndex = new ManifestIndex(manifest.getLines());
       }
 
-      return null;
+      return manifestIndex;
    }
 
    /**
-    * Get the signing information
+    * Get the signing information. The lines are created on each call, so callers should keep
+    * the result rather than call this method repeatedly
     *
     * @return The value
     */
    public List<String> getSign()
    {
-      return sign;
+      return sign != null ? sign.getLines() : null;
+   }
+
+   /**
+    * Is the archive signed
+    *
+    * @return True if the archive is signed; otherwise false
+    */
+   public boolean isSigned()
+   {
+      return sign != null;
+   }
+
+   /**
+    * Get the result of verifying the signature
+    *
+    * @return The value; <code>null</code> if the archive isn't signed or the signature wasn't verified
+    */
+   public SignatureVerification getSignatureVerification()
+   {
+      return signatureVerification;
+   }
+
+   /**
+    * Set the result of verifying the signature
+    *
+    * @param signatureVerification The value
+    */
+   public void setSignatureVerification(SignatureVerification signatureVerification)
+   {
+      this.signatureVerification = signatureVerification;
    }
 
    /**
@@ -259,6 +304,37 @@ public abstract class Archive implements Serializable, Comparable
       return provides;
    }
 
+   /**
+    * Get the digests of the provided classes
+    *
+    * @return The value
+    */
+   public SortedMap<String, String> getDigests()
+   {
+      return digests;
+   }
+
+   /**
+    * Set the digests of the provided classes
+    *
+    * @param digests The value
+    */
+   public void setDigests(SortedMap<String, String> digests)
+   {
+      this.digests = digests;
+   }
+
+   /**
+    * Get the digest of a provided class
+    *
+    * @param clz The class
+    * @return The digest; <code>null</code> if not known
+    */
+   public String getDigest(String clz)
+   {
+      return digests != null ? digests.get(clz) : null;
+   }
+
    /**
     * Get the profiles
     *
@@ -286,7 +362,7 @@ public abstract class Archive implements Serializable, Comparable
     */
    public SortedMap<String, SortedSet<String>> getClassDependencies()
    {
-      return classDependencies;
+      return getDependencies(CLASS_MAP);
    }
 
    /**
@@ -296,7 +372,7 @@ public abstract class Archive implements Serializable, Comparable
     */
    public SortedMap<String, SortedSet<String>> getPackageDependencies()
    {
-      return packageDependencies;
+      return getDependencies(PACKAGE_MAP);
    }
 
    /**
@@ -306,7 +382,56 @@ public abstract class Archive implements Serializable, Comparable
     */
    public SortedMap<String, SortedSet<String>> getBlackListedDependencies()
    {
-      return blacklistedDependencies;
+      return getDependencies(BLACKLISTED_MAP);
+   }
+
+   /**
+    * Spill the class, package and blacklisted dependencies to a store. They are paged back in when asked
+    * for, and are held softly, so they can be dropped again under memory pressure
+    *
+    * @param dependencyStore The store
+    * @throws IOException If the dependencies can't be written
+    */
+   public synchronized void spill(DependencyStore dependencyStore) throws IOException
+   {
+      if (store != null)
+      {
+         return;
+      }
+
+      List<SortedMap<String, SortedSet<String>>> maps = new ArrayList<SortedMap<String, SortedSet<String>>>(3);
+      maps.add(classDependencies);
+      maps.add(packageDependencies);
+      maps.add(blacklistedDependencies);
+
+      storePosition = dependencyStore.write(maps);
+      store = dependencyStore;
+      paged = null;
+
+      classDependencies = null;
+      packageDependencies = null;
+      blacklistedDependencies = null;
+   }
+
+   /**
+    * Are the dependencies spilled to a store
+    *
+    * @return True if spilled; otherwise false
+    */
+   public synchronized boolean isSpilled()
+   {
+      return store != null;
+   }
+
+   /**
+    * Estimate the heap size of the dependencies that aren't spilled
+    *
+    * @return The number of bytes
+    */
+   public synchronized long getDependencySize()
+   {
+      return DependencyStore.estimate(classDependencies) + DependencyStore.estimate(packageDependencies) +
+         DependencyStore.estimate(blacklistedDependencies);
    }
 
    /**
@@ -329,6 +454,56 @@ public abstract class Archive implements Serializable, Comparable
       locations.add(value);
    }
 
+   /**
+    * Get the requires of the archive and all its nested archives
+    *
+    * @return An unmodifiable view of the value
+    */
+   public SortedSet<String> getAllRequires()
+   {
+      return Collections.unmodifiableSortedSet(requires);
+   }
+
+   /**
+    * Get the provides of the archive and all its nested archives
+    *
+    * @return An unmodifiable view of the value
+    */
+   public SortedMap<String, Long> getAllProvides()
+   {
+      return Collections.unmodifiableSortedMap(provides);
+   }
+
+   /**
+    * Get the class dependencies of the archive and all its nested archives
+    *
+    * @return An unmodifiable view of the value
+    */
+   public SortedMap<String, SortedSet<String>> getAllClassDependencies()
+   {
+      return Collections.unmodifiableSortedMap(getClassDependencies());
+   }
+
+   /**
+    * Get the blacklisted dependencies of the archive and all its nested archives
+    *
+    * @return An unmodifiable view of the value
+    */
+   public SortedMap<String, SortedSet<String>> getAllBlackListedDependencies()
+   {
+      return Collections.unmodifiableSortedMap(getBlackListedDependencies());
+   }
+
+   /**
+    * Get the locations of the archive, or of all its nested archives if it is a nestable archive
+    *
+    * @return An unmodifiable view of the value
+    */
+   public SortedSet<Location> getAllLocations()
+   {
+      return Collections.unmodifiableSortedSet(locations);
+   }
+
    /**
     * Does the archives provide this class
     *
@@ -448,11 +623,11 @@ public abstract class Archive implements Serializable, Comparable
       sb = sb.append("\n");
 
       sb = sb.append("manifest=");
-      sb = sb.append(manifest);
+      sb = sb.append(getManifest());
       sb = sb.append("\n");
 
       sb = sb.append("sign=");
-      sb = sb.append(sign);
+      sb = sb.append(getSign());
       sb = sb.append("\n");
 
       sb = sb.append("requires=");
@@ -468,15 +643,15 @@ public abstract class Archive implements Serializable, Comparable
       sb = sb.append("\n");
 
       sb = sb.append("classdependencies=");
-      sb = sb.append(classDependencies);
+      sb = sb.append(getClassDependencies());
       sb = sb.append("\n");
 
       sb = sb.append("packagedependencies=");
-      sb = sb.append(packageDependencies);
+      sb = sb.append(getPackageDependencies());
       sb = sb.append("\n");
 
       sb = sb.append("blacklisteddependencies=");
-      sb = sb.append(blacklistedDependencies);
+      sb = sb.append(getBlackListedDependencies());
       sb = sb.append("\n");
 
       sb = sb.append("locations=");
@@ -488,6 +663,73 @@ public abstract class Archive implements Serializable, Comparable
       return sb.toString();
    }
 
+   /**
+    * Get a dependency map, which is paged in from the store if the dependencies are spilled
+    *
+    * @param index The index of the map; class, package or blacklisted dependencies
+    * @return The value
+    */
+   private synchronized SortedMap<String, SortedSet<String>> getDependencies(int index)
+   {
+      if (store == null)
+      {
+         if (index == CLASS_MAP)
+         {
+            return classDependencies;
+         }
+
+         return index == PACKAGE_MAP ? packageDependencies : blacklistedDependencies;
+      }
+
+      List<SortedMap<String, SortedSet<String>>> maps = paged != null ? paged.get() : null;
+
+      if (maps == null)
+      {
+         try
+         {
+            maps = store.read(storePosition);
+         }
+         catch (IOException ioe)
+         {
+            throw new IllegalStateException("Unable to read the dependencies of " + name, ioe);
+         }
+
+         paged = new SoftReference<List<SortedMap<String, SortedSet<String>>>>(maps);
+      }
+
+      return maps.get(index);
+   }
+
+   /**
+    * Write the archive, with the dependencies paged in if they are spilled
+    *
+    * @param out The stream
+    * @throws IOException If the archive can't be written
+    */
+   private synchronized void writeObject(ObjectOutputStream out) throws IOException
+   {
+      if (store == null)
+      {
+         out.defaultWriteObject();
+         return;
+      }
+
+      classDependencies = getDependencies(CLASS_MAP);
+      packageDependencies = getDependencies(PACKAGE_MAP);
+      blacklistedDependencies = getDependencies(BLACKLISTED_MAP);
+
+      try
+      {
+         out.defaultWriteObject();
+      }
+      finally
+      {
+         classDependencies = null;
+         packageDependencies = null;
+         blacklistedDependencies = null;
+      }
+   }
+
    /**
     * Simple getter.
     *
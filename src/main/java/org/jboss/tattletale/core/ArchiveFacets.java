@@ -0,0 +1,73 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2009, Red Hat Middleware LLC, and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.tattletale.core;
+
+/**
+ * The optional facets of an archive model that a scanner can collect.
+ * The values are bit flags and can be combined
+ *
+ * @author Jesper Pedersen <jesper.pedersen@jboss.org>
+ */
+public class ArchiveFacets
+{
+   /** NONE */
+   public static final int NONE = 0;
+
+   /** CLASS_DEPENDENCIES */
+   public static final int CLASS_DEPENDENCIES = 1;
+
+   /** PACKAGE_DEPENDENCIES */
+   public static final int PACKAGE_DEPENDENCIES = 2;
+
+   /** BLACKLISTED_DEPENDENCIES */
+   public static final int BLACKLISTED_DEPENDENCIES = 4;
+
+   /** MANIFEST */
+   public static final int MANIFEST = 8;
+
+   /** SIGN */
+   public static final int SIGN = 16;
+
+   /** CLASS_DIGESTS */
+   public static final int CLASS_DIGESTS = 32;
+
+   /** ALL */
+   public static final int ALL = CLASS_DEPENDENCIES | PACKAGE_DEPENDENCIES | BLACKLISTED_DEPENDENCIES |
+                                 MANIFEST | SIGN | CLASS_DIGESTS;
+
+   /** Constructor */
+   private ArchiveFacets()
+   {
+   }
+
+   /**
+    * Is a facet part of a facet set
+    *
+    * @param facets The facet set
+    * @param facet  The facet
+    * @return True if the facet is included; otherwise false
+    */
+   public static boolean isIncluded(int facets, int facet)
+   {
+      return (facets & facet) == facet;
+   }
+}
@@ -0,0 +1,437 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2009, Red Hat Middleware LLC, and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.tattletale.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * An index of the class dependencies of the archives, which answers which classes a class uses,
+ * and which classes and archives use a class.
+ *
+ * The classes are numbered in name order, and the dependencies and dependants of each class are stored
+ * as sorted int arrays. The index is built in parallel for each archive the first time it is queried.
+ *
+ * @author Jesper Pedersen <jesper.pedersen@jboss.org>
+ */
+public class ClassDependencyIndex
+{
+   /** The archives */
+   private List<Archive> archives;
+
+   /** The class names in name order */
+   private String[] classes;
+
+   /** The offsets of the dependencies of each class */
+   private int[] dependencyOffsets;
+
+   /** The dependencies */
+   private int[] dependencies;
+
+   /** The offsets of the dependant classes of each class */
+   private int[] classOffsets;
+
+   /** The dependant classes */
+   private int[] classDependants;
+
+   /** The offsets of the dependant archives of each class */
+   private int[] archiveOffsets;
+
+   /** The dependant archives */
+   private int[] archiveDependants;
+
+   /**
+    * Constructor
+    *
+    * @param archives The archives
+    */
+   public ClassDependencyIndex(Collection<Archive> archives)
+   {
+      this.archives = new ArrayList<Archive>(archives);
+      this.classes = null;
+   }
+
+   /**
+    * Get the number of classes in the index
+    *
+    * @return The value
+    */
+   public int size()
+   {
+      build();
+      return classes.length;
+   }
+
+   /**
+    * Get the number of distinct class dependencies in the index
+    *
+    * @return The value
+    */
+   public int getEdgeCount()
+   {
+      build();
+      return dependencies.length;
+   }
+
+   /**
+    * Has the index been built
+    *
+    * @return True if it has; otherwise false
+    */
+   public synchronized boolean isBuilt()
+   {
+      return classes != null;
+   }
+
+   /**
+    * Get the id of a class
+    *
+    * @param clz The class name
+    * @return The id; negative if the class isn't part of the index
+    */
+   public int getId(String clz)
+   {
+      build();
+      return Arrays.binarySearch(classes, clz);
+   }
+
+   /**
+    * Get the name of a class
+    *
+    * @param id The id
+    * @return The class name
+    */
+   public String getClassName(int id)
+   {
+      build();
+      return classes[id];
+   }
+
+   /**
+    * Get the classes that a class depends on
+    *
+    * @param id The id of the class
+    * @return The ids of the dependencies in name order
+    */
+   public int[] getDependencies(int id)
+   {
+      build();
+      return slice(dependencies, dependencyOffsets[id], dependencyOffsets[id + 1]);
+   }
+
+   /**
+    * Get the classes that depend on a class
+    *
+    * @param id The id of the class
+    * @return The ids of the dependant classes in name order
+    */
+   public int[] getDependants(int id)
+   {
+      build();
+      return slice(classDependants, classOffsets[id], classOffsets[id + 1]);
+   }
+
+   /**
+    * Get the classes that depend on a class
+    *
+    * @param clz The class name
+    * @return The dependant classes
+    */
+   public SortedSet<String> getDependants(String clz)
+   {
+      SortedSet<String> result = new TreeSet<String>();
+      int id = getId(clz);
+
+      if (id >= 0)
+      {
+         for (int i = classOffsets[id]; i < classOffsets[id + 1]; i++)
+         {
+            result.add(classes[classDependants[i]]);
+         }
+      }
+
+      return result;
+   }
+
+   /**
+    * Get the archives that depend on a class
+    *
+    * @param clz The class name
+    * @return The dependant archives
+    */
+   public SortedSet<Archive> getDependantArchives(String clz)
+   {
+      SortedSet<Archive> result = new TreeSet<Archive>();
+      int id = getId(clz);
+
+      if (id >= 0)
+      {
+         for (int i = archiveOffsets[id]; i < archiveOffsets[id + 1]; i++)
+         {
+            result.add(archives.get(archiveDependants[i]));
+         }
+      }
+
+      return result;
+   }
+
+   /**
+    * Get the offsets of the dependencies of each class, without copying
+    *
+    * @return The offsets into the dependencies
+    */
+   int[] getDependencyOffsets()
+   {
+      build();
+      return dependencyOffsets;
+   }
+
+   /**
+    * Get the dependencies of all classes, without copying
+    *
+    * @return The dependencies
+    */
+   int[] getAllDependencies()
+   {
+      build();
+      return dependencies;
+   }
+
+   /**
+    * Build the index unless it has been built already
+    */
+   public synchronized void build()
+   {
+      if (classes != null)
+      {
+         return;
+      }
+
+      SortedSet<String> names = new TreeSet<String>();
+      for (Archive archive : archives)
+      {
+         for (Map.Entry<String, SortedSet<String>> entry : archive.getAllClassDependencies().entrySet())
+         {
+            names.add(entry.getKey());
+            names.addAll(entry.getValue());
+         }
+      }
+
+      final String[] ids = names.toArray(new String[names.size()]);
+
+      List<Callable<int[]>> tasks = new ArrayList<Callable<int[]>>(archives.size());
+      for (final Archive archive : archives)
+      {
+         tasks.add(new Callable<int[]>()
+         {
+            public int[] call()
+            {
+               return getEdges(archive, ids);
+            }
+         });
+      }
+
+      List<int[]> edges = new ArrayList<int[]>(archives.size());
+
+      if (tasks.size() > 0)
+      {
+         int threads = Math.min(tasks.size(), Runtime.getRuntime().availableProcessors());
+         ExecutorService executor = Executors.newFixedThreadPool(threads);
+         try
+         {
+            for (Future<int[]> future : executor.invokeAll(tasks))
+            {
+               edges.add(future.get());
+            }
+         }
+         catch (Exception e)
+         {
+            throw new IllegalStateException("Unable to build the class dependency index", e);
+         }
+         finally
+         {
+            executor.shutdown();
+         }
+      }
+
+      int[] dependencyCounts = new int[ids.length + 1];
+      int[] classCounts = new int[ids.length + 1];
+      int[] archiveCounts = new int[ids.length + 1];
+
+      for (int a = 0; a < edges.size(); a++)
+      {
+         int[] e = edges.get(a);
+         for (int i = 0; i < e.length; i += 2)
+         {
+            dependencyCounts[e[i + 1]]++;
+            classCounts[e[i]]++;
+            archiveCounts[e[i]]++;
+         }
+      }
+
+      int[] dOffsets = toOffsets(dependencyCounts);
+      int[] cOffsets = toOffsets(classCounts);
+      int[] aOffsets = toOffsets(archiveCounts);
+      int[] dValues = new int[dOffsets[ids.length]];
+      int[] cDependants = new int[cOffsets[ids.length]];
+      int[] aDependants = new int[aOffsets[ids.length]];
+      int[] dFill = new int[ids.length];
+      int[] cFill = new int[ids.length];
+      int[] aFill = new int[ids.length];
+
+      for (int a = 0; a < edges.size(); a++)
+      {
+         int[] e = edges.get(a);
+         for (int i = 0; i < e.length; i += 2)
+         {
+            int to = e[i];
+            int from = e[i + 1];
+            dValues[dOffsets[from] + dFill[from]++] = to;
+            cDependants[cOffsets[to] + cFill[to]++] = e[i + 1];
+            aDependants[aOffsets[to] + aFill[to]++] = a;
+         }
+      }
+
+      dependencies = compact(dValues, dOffsets);
+      dependencyOffsets = dOffsets;
+      classDependants = compact(cDependants, cOffsets);
+      classOffsets = cOffsets;
+      archiveDependants = compact(aDependants, aOffsets);
+      archiveOffsets = aOffsets;
+      classes = ids;
+   }
+
+   /**
+    * Get the dependency edges of an archive
+    *
+    * @param archive The archive
+    * @param ids     The class names in name order
+    * @return Pairs of the id of the class depended on and the id of the dependant class
+    */
+   private static int[] getEdges(Archive archive, String[] ids)
+   {
+      int size = 0;
+      Set<Map.Entry<String, SortedSet<String>>> entries = archive.getAllClassDependencies().entrySet();
+
+      for (Map.Entry<String, SortedSet<String>> entry : entries)
+      {
+         size += entry.getValue().size();
+      }
+
+      int[] result = new int[2 * size];
+      int count = 0;
+
+      for (Map.Entry<String, SortedSet<String>> entry : entries)
+      {
+         String clz = entry.getKey();
+         int from = Arrays.binarySearch(ids, clz);
+
+         for (String dep : entry.getValue())
+         {
+            if (!dep.equals(clz))
+            {
+               result[count++] = Arrays.binarySearch(ids, dep);
+               result[count++] = from;
+            }
+         }
+      }
+
+      return count == result.length ? result : slice(result, 0, count);
+   }
+
+   /**
+    * Turn counts into offsets in place
+    *
+    * @param counts The counts, with room for the total at the end
+    * @return The offsets
+    */
+   private static int[] toOffsets(int[] counts)
+   {
+      int total = 0;
+      for (int i = 0; i < counts.length; i++)
+      {
+         int count = counts[i];
+         counts[i] = total;
+         total += count;
+      }
+      return counts;
+   }
+
+   /**
+    * Sort the values for each class and remove the duplicates; the offsets are updated in place
+    *
+    * @param values  The values
+    * @param offsets The offsets
+    * @return The compacted values
+    */
+   private static int[] compact(int[] values, int[] offsets)
+   {
+      int count = 0;
+      int start = offsets[0];
+
+      for (int id = 0; id < offsets.length - 1; id++)
+      {
+         int end = offsets[id + 1];
+         Arrays.sort(values, start, end);
+
+         offsets[id] = count;
+         for (int i = start; i < end; i++)
+         {
+            if (i == start || values[i] != values[i - 1])
+            {
+               values[count++] = values[i];
+            }
+         }
+
+         start = end;
+      }
+
+      offsets[offsets.length - 1] = count;
+
+      return slice(values, 0, count);
+   }
+
+   /**
+    * Copy a range of an array
+    *
+    * @param values The values
+    * @param from   The start index
+    * @param to     The end index, exclusive
+    * @return The copy
+    */
+   private static int[] slice(int[] values, int from, int to)
+   {
+      int[] result = new int[to - from];
+      System.arraycopy(values, from, result, 0, result.length);
+      return result;
+   }
+}
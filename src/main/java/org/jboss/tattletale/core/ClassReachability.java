@@ -0,0 +1,113 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2009, Red Hat Middleware LLC, and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.tattletale.core;
+
+import java.util.BitSet;
+import java.util.Collection;
+
+/**
+ * Computes the classes that are reachable from a set of entry points by following the
+ * class dependencies across all archives.
+ *
+ * The classes are identified by their id in the {@link ClassDependencyIndex}, and the reachable
+ * classes are computed by a breadth first search over the dependency arrays of the index.
+ *
+ * @author Jesper Pedersen <jesper.pedersen@jboss.org>
+ */
+public class ClassReachability
+{
+   /** The index */
+   private ClassDependencyIndex index;
+
+   /**
+    * Constructor
+    *
+    * @param index The class dependency index
+    */
+   public ClassReachability(ClassDependencyIndex index)
+   {
+      this.index = index;
+   }
+
+   /**
+    * Get the classes that are reachable from the entry points
+    *
+    * @param entryPoints The names of the entry point classes; classes that aren't part of the index are ignored
+    * @return The ids of the reachable classes, including the entry points
+    */
+   public BitSet getReachable(Collection<String> entryPoints)
+   {
+      BitSet entries = new BitSet(index.size());
+
+      for (String clz : entryPoints)
+      {
+         int id = index.getId(clz);
+         if (id >= 0)
+         {
+            entries.set(id);
+         }
+      }
+
+      return getReachable(entries);
+   }
+
+   /**
+    * Get the classes that are reachable from the entry points
+    *
+    * @param entries The ids of the entry point classes
+    * @return The ids of the reachable classes, including the entry points
+    */
+   public BitSet getReachable(BitSet entries)
+   {
+      int[] offsets = index.getDependencyOffsets();
+      int[] dependencies = index.getAllDependencies();
+
+      BitSet result = new BitSet(index.size());
+      int[] queue = new int[index.size()];
+      int head = 0;
+      int tail = 0;
+
+      for (int id = entries.nextSetBit(0); id >= 0; id = entries.nextSetBit(id + 1))
+      {
+         result.set(id);
+         queue[tail++] = id;
+      }
+
+      while (head < tail)
+      {
+         int id = queue[head++];
+
+         for (int i = offsets[id]; i < offsets[id + 1]; i++)
+         {
+            int dependency = dependencies[i];
+
+            if (!result.get(dependency))
+            {
+               result.set(dependency);
+               queue[tail++] = dependency;
+            }
+         }
+      }
+
+      return result;
+   }
+}
@@ -0,0 +1,221 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2009, Red Hat Middleware LLC, and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.tattletale.core;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Serializable;
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compact storage of lines of text, such as a manifest or a signature file. The lines are kept
+ * as UTF-8, deflated if the text is large, and are only turned into strings when asked for
+ *
+ * @author Jesper Pedersen <jesper.pedersen@jboss.org>
+ */
+public class CompactText implements Serializable
+{
+   /** SerialVersionUID */
+   static final long serialVersionUID = 6305297561728340931L;
+
+   /** The size from which the text is deflated */
+   private static final int DEFLATE_THRESHOLD = 1024;
+
+   /** The encoding */
+   private static final String ENCODING = "UTF-8";
+
+   /** The text, with the lines separated by a newline */
+   private byte[] data;
+
+   /** The size of the text */
+   private int size;
+
+   /** Is the text deflated */
+   private boolean deflated;
+
+   /**
+    * Constructor
+    *
+    * @param text The text, with the lines separated by a newline
+    */
+   private CompactText(byte[] text)
+   {
+      this.size = text.length;
+      this.deflated = text.length >= DEFLATE_THRESHOLD;
+      this.data = deflated ? deflate(text) : text;
+   }
+
+   /**
+    * Create compact text from lines
+    *
+    * @param lines The lines
+    * @return The text; <code>null</code> if the lines are <code>null</code>
+    */
+   public static CompactText valueOf(List<String> lines)
+   {
+      if (lines == null)
+      {
+         return null;
+      }
+
+      StringBuffer sb = new StringBuffer();
+      for (int i = 0; i < lines.size(); i++)
+      {
+         if (i > 0)
+         {
+            sb = sb.append('\n');
+         }
+         sb = sb.append(lines.get(i));
+      }
+
+      try
+      {
+         return new CompactText(sb.toString().getBytes(ENCODING));
+      }
+      catch (UnsupportedEncodingException uee)
+      {
+         throw new IllegalStateException(uee.getMessage());
+      }
+   }
+
+   /**
+    * Get the lines
+    *
+    * @return The lines
+    */
+   public List<String> getLines()
+   {
+      List<String> result = new ArrayList<String>();
+
+      try
+      {
+         String text = new String(deflated ? inflate(data, size) : data, ENCODING);
+
+         int start = 0;
+         int end = text.indexOf('\n');
+         while (end != -1)
+         {
+            result.add(text.substring(start, end));
+            start = end + 1;
+            end = text.indexOf('\n', start);
+         }
+
+         if (start > 0 || text.length() > 0)
+         {
+            result.add(text.substring(start));
+         }
+      }
+      catch (UnsupportedEncodingException uee)
+      {
+         throw new IllegalStateException(uee.getMessage());
+      }
+
+      return result;
+   }
+
+   /**
+    * Get the size of the text
+    *
+    * @return The number of bytes
+    */
+   public int getSize()
+   {
+      return size;
+   }
+
+   /**
+    * Get the size of the stored text
+    *
+    * @return The number of bytes
+    */
+   public int getStoredSize()
+   {
+      return data.length;
+   }
+
+   /**
+    * Deflate
+    *
+    * @param text The text
+    * @return The deflated text
+    */
+   private static byte[] deflate(byte[] text)
+   {
+      Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+      try
+      {
+         deflater.setInput(text);
+         deflater.finish();
+
+         ByteArrayOutputStream baos = new ByteArrayOutputStream(text.length / 2);
+         byte[] buffer = new byte[4096];
+         while (!deflater.finished())
+         {
+            int n = deflater.deflate(buffer);
+            baos.write(buffer, 0, n);
+         }
+
+         return baos.toByteArray();
+      }
+      finally
+      {
+         deflater.end();
+      }
+   }
+
+   /**
+    * Inflate
+    *
+    * @param data The deflated text
+    * @param size The size of the text
+    * @return The text
+    */
+   private static byte[] inflate(byte[] data, int size)
+   {
+      Inflater inflater = new Inflater();
+      try
+      {
+         inflater.setInput(data);
+
+         byte[] result = new byte[size];
+         int offset = 0;
+         while (offset < size && !inflater.finished())
+         {
+            offset += inflater.inflate(result, offset, size - offset);
+         }
+
+         return result;
+      }
+      catch (DataFormatException dfe)
+      {
+         throw new IllegalStateException(dfe.getMessage());
+      }
+      finally
+      {
+         inflater.end();
+      }
+   }
+}
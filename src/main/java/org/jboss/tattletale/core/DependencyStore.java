@@ -0,0 +1,416 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2011, Red Hat Middleware LLC, and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.tattletale.core;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * An append only file of dependency maps, which the dependencies of the archives are spilled to once
+ * they exceed the memory budget.
+ *
+ * Each record holds the maps of an archive, where each distinct class or package name is written once
+ * and referred to by its index. The file is memory mapped for reading, so the records are paged in by
+ * the operating system instead of being held in the heap
+ *
+ * @author Jesper Pedersen <jesper.pedersen@jboss.org>
+ */
+public class DependencyStore
+{
+   /** The approximate heap size of an object header and a reference */
+   private static final int OBJECT_SIZE = 16;
+
+   /** The approximate heap size of an entry of a tree map */
+   private static final int ENTRY_SIZE = 40;
+
+   /** The approximate heap size of a tree map or a tree set */
+   private static final int MAP_SIZE = 48;
+
+   /** The file */
+   private File file;
+
+   /** The random access file */
+   private RandomAccessFile raf;
+
+   /** The channel */
+   private FileChannel channel;
+
+   /** The number of bytes written */
+   private long size;
+
+   /** The number of records written */
+   private int records;
+
+   /** The mapping of the file */
+   private MappedByteBuffer mapped;
+
+   /**
+    * Constructor
+    *
+    * @throws IOException If the file can't be created
+    */
+   public DependencyStore() throws IOException
+   {
+      this.file = File.createTempFile("tattletale", ".dependencies");
+      this.file.deleteOnExit();
+      this.raf = new RandomAccessFile(file, "rw");
+      this.channel = raf.getChannel();
+      this.size = 0L;
+      this.records = 0;
+      this.mapped = null;
+   }
+
+   /**
+    * Estimate the heap size of a dependency map
+    *
+    * @param map The map; may be <code>null</code>
+    * @return The number of bytes
+    */
+   public static long estimate(SortedMap<String, SortedSet<String>> map)
+   {
+      if (map == null)
+      {
+         return 0L;
+      }
+
+      long result = MAP_SIZE;
+
+      for (Map.Entry<String, SortedSet<String>> entry : map.entrySet())
+      {
+         result += ENTRY_SIZE + MAP_SIZE + getSize(entry.getKey());
+
+         for (String value : entry.getValue())
+         {
+            result += ENTRY_SIZE + getSize(value);
+         }
+      }
+
+      return result;
+   }
+
+   /**
+    * Write the dependency maps of an archive
+    *
+    * @param maps The maps; a map may be <code>null</code>
+    * @return The position of the record
+    * @throws IOException If the record can't be written
+    */
+   public long write(List<SortedMap<String, SortedSet<String>>> maps) throws IOException
+   {
+      ByteArrayOutputStream baos = new ByteArrayOutputStream();
+      DataOutputStream dos = new DataOutputStream(baos);
+
+      // The length of the record is filled in below
+      dos.writeInt(0);
+
+      Map<String, Integer> indexes = new HashMap<String, Integer>();
+      List<String> names = new ArrayList<String>();
+
+      for (SortedMap<String, SortedSet<String>> map : maps)
+      {
+         if (map != null)
+         {
+            for (Map.Entry<String, SortedSet<String>> entry : map.entrySet())
+            {
+               addName(entry.getKey(), indexes, names);
+
+               for (String value : entry.getValue())
+               {
+                  addName(value, indexes, names);
+               }
+            }
+         }
+      }
+
+      writeVarInt(dos, names.size());
+      for (String name : names)
+      {
+         dos.writeUTF(name);
+      }
+
+      writeVarInt(dos, maps.size());
+      for (SortedMap<String, SortedSet<String>> map : maps)
+      {
+         if (map == null)
+         {
+            dos.writeBoolean(false);
+            continue;
+         }
+
+         dos.writeBoolean(true);
+         writeVarInt(dos, map.size());
+
+         for (Map.Entry<String, SortedSet<String>> entry : map.entrySet())
+         {
+            writeVarInt(dos, indexes.get(entry.getKey()).intValue());
+            writeVarInt(dos, entry.getValue().size());
+
+            for (String value : entry.getValue())
+            {
+               writeVarInt(dos, indexes.get(value).intValue());
+            }
+         }
+      }
+
+      dos.flush();
+
+      ByteBuffer record = ByteBuffer.wrap(baos.toByteArray());
+      record.putInt(0, record.capacity() - 4);
+
+      synchronized (this)
+      {
+         long position = size;
+
+         while (record.hasRemaining())
+         {
+            channel.write(record, position + record.position());
+         }
+
+         size += record.capacity();
+         records++;
+
+         return position;
+      }
+   }
+
+   /**
+    * Read the dependency maps of an archive
+    *
+    * @param position The position of the record
+    * @return The maps, which are unmodifiable
+    * @throws IOException If the record can't be read
+    */
+   public List<SortedMap<String, SortedSet<String>>> read(long position) throws IOException
+   {
+      byte[] data = null;
+
+      synchronized (this)
+      {
+         if (size > Integer.MAX_VALUE)
+         {
+            // Too large to be mapped as a whole
+            ByteBuffer length = ByteBuffer.allocate(4);
+            readFully(length, position);
+
+            ByteBuffer record = ByteBuffer.allocate(length.getInt(0));
+            readFully(record, position + 4);
+            data = record.array();
+         }
+         else
+         {
+            if (mapped == null || mapped.capacity() < size)
+            {
+               mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            }
+
+            ByteBuffer record = mapped.duplicate();
+            record.position((int)position);
+
+            data = new byte[record.getInt()];
+            record.get(data);
+         }
+      }
+
+      DataInputStream dis = new DataInputStream(new ByteArrayInputStream(data));
+
+      String[] names = new String[readVarInt(dis)];
+      for (int i = 0; i < names.length; i++)
+      {
+         names[i] = dis.readUTF();
+      }
+
+      int count = readVarInt(dis);
+      List<SortedMap<String, SortedSet<String>>> result = new ArrayList<SortedMap<String, SortedSet<String>>>(count);
+
+      for (int m = 0; m < count; m++)
+      {
+         if (!dis.readBoolean())
+         {
+            result.add(null);
+            continue;
+         }
+
+         SortedMap<String, SortedSet<String>> map = new TreeMap<String, SortedSet<String>>();
+         int entries = readVarInt(dis);
+
+         for (int e = 0; e < entries; e++)
+         {
+            String key = names[readVarInt(dis)];
+            SortedSet<String> values = new TreeSet<String>();
+
+            int n = readVarInt(dis);
+            for (int v = 0; v < n; v++)
+            {
+               values.add(names[readVarInt(dis)]);
+            }
+
+            map.put(key, Collections.unmodifiableSortedSet(values));
+         }
+
+         result.add(Collections.unmodifiableSortedMap(map));
+      }
+
+      return result;
+   }
+
+   /**
+    * Get the number of bytes written
+    *
+    * @return The value
+    */
+   public synchronized long getSize()
+   {
+      return size;
+   }
+
+   /**
+    * Get the number of records written
+    *
+    * @return The value
+    */
+   public synchronized int getRecords()
+   {
+      return records;
+   }
+
+   /**
+    * Close the store and delete the file. The mapping is released once it is garbage collected
+    */
+   public synchronized void close()
+   {
+      mapped = null;
+
+      try
+      {
+         raf.close();
+      }
+      catch (IOException ioe)
+      {
+         // Ignore
+      }
+
+      file.delete();
+   }
+
+   /**
+    * Read from the channel until a buffer is full
+    *
+    * @param buffer   The buffer
+    * @param position The position
+    * @throws IOException If the channel can't be read
+    */
+   private void readFully(ByteBuffer buffer, long position) throws IOException
+   {
+      while (buffer.hasRemaining())
+      {
+         if (channel.read(buffer, position + buffer.position()) < 0)
+         {
+            throw new IOException("Unexpected end of " + file);
+         }
+      }
+   }
+
+   /**
+    * Add a name to the names of a record
+    *
+    * @param name    The name
+    * @param indexes The indexes of the names
+    * @param names   The names
+    */
+   private static void addName(String name, Map<String, Integer> indexes, List<String> names)
+   {
+      if (!indexes.containsKey(name))
+      {
+         indexes.put(name, Integer.valueOf(names.size()));
+         names.add(name);
+      }
+   }
+
+   /**
+    * Estimate the heap size of a string
+    *
+    * @param s The string
+    * @return The number of bytes
+    */
+   private static long getSize(String s)
+   {
+      return 2 * OBJECT_SIZE + 8 + 2L * s.length();
+   }
+
+   /**
+    * Write a variable length integer
+    *
+    * @param dos The stream
+    * @param v   The value
+    * @throws IOException If the value can't be written
+    */
+   private static void writeVarInt(DataOutputStream dos, int v) throws IOException
+   {
+      while ((v & ~0x7F) != 0)
+      {
+         dos.writeByte((v & 0x7F) | 0x80);
+         v >>>= 7;
+      }
+
+      dos.writeByte(v);
+   }
+
+   /**
+    * Read a variable length integer
+    *
+    * @param dis The stream
+    * @return The value
+    * @throws IOException If the value can't be read
+    */
+   private static int readVarInt(DataInputStream dis) throws IOException
+   {
+      int result = 0;
+      int shift = 0;
+      int b = dis.readByte();
+
+      while ((b & 0x80) != 0)
+      {
+         result |= (b & 0x7F) << shift;
+         shift += 7;
+         b = dis.readByte();
+      }
+
+      return result | (b << shift);
+   }
+}
@@ -0,0 +1,434 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2009, Red Hat Middleware LLC, and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.tattletale.core;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+
+/**
+ * A catalog of library fingerprints, which maps the fingerprint of an archive to the
+ * Maven coordinates (groupId:artifactId:version) of the library that it is a copy of.
+ *
+ * An archive is fingerprinted both by the digest of the file and by the digest of its
+ * class set, which is the sorted class names together with the digests of their bytecode,
+ * such that a renamed or repackaged copy of a library can be identified. The fingerprints
+ * are kept in an open addressing hash table, so a lookup is a constant time operation
+ *
+ * @author Jesper Pedersen <jesper.pedersen@jboss.org>
+ */
+public class LibraryCatalog
+{
+   /** The magic number of a catalog file */
+   private static final int MAGIC = 0x54544341;
+
+   /** The format version of a catalog file */
+   private static final int FORMAT = 1;
+
+   /** The digest algorithm */
+   private static final String DIGEST_ALGORITHM = "SHA-1";
+
+   /** The coordinates */
+   private List<String> coordinates;
+
+   /** The index of each coordinate */
+   private Map<String, Integer> coordinateIndex;
+
+   /** The fingerprints; 0 marks an empty slot */
+   private long[] keys;
+
+   /** The index of the coordinate of each fingerprint */
+   private int[] values;
+
+   /** The number of fingerprints */
+   private int size;
+
+   /** Constructor */
+   public LibraryCatalog()
+   {
+      this.coordinates = new ArrayList<String>();
+      this.coordinateIndex = new HashMap<String, Integer>();
+      this.keys = new long[16];
+      this.values = new int[16];
+      this.size = 0;
+   }
+
+   /**
+    * Load a catalog
+    *
+    * @param file The catalog file
+    * @return The catalog
+    * @throws IOException If the file isn't a catalog
+    */
+   public static LibraryCatalog load(File file) throws IOException
+   {
+      DataInputStream dis = null;
+      try
+      {
+         dis = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+
+         if (dis.readInt() != MAGIC || dis.readInt() != FORMAT)
+         {
+            throw new IOException(file + " isn't a library catalog");
+         }
+
+         LibraryCatalog catalog = new LibraryCatalog();
+
+         int count = dis.readInt();
+         for (int i = 0; i < count; i++)
+         {
+            String coordinate = dis.readUTF();
+            catalog.coordinateIndex.put(coordinate, Integer.valueOf(catalog.coordinates.size()));
+            catalog.coordinates.add(coordinate);
+         }
+
+         int capacity = dis.readInt();
+         catalog.keys = new long[capacity];
+         catalog.values = new int[capacity];
+
+         for (int i = 0; i < capacity; i++)
+         {
+            catalog.keys[i] = dis.readLong();
+            catalog.values[i] = dis.readInt();
+
+            if (catalog.keys[i] != 0L)
+            {
+               catalog.size++;
+            }
+         }
+
+         return catalog;
+      }
+      finally
+      {
+         if (dis != null)
+         {
+            try
+            {
+               dis.close();
+            }
+            catch (IOException ioe)
+            {
+               // Ignore
+            }
+         }
+      }
+   }
+
+   /**
+    * Save the catalog
+    *
+    * @param file The catalog file
+    * @throws IOException If the file can't be written
+    */
+   public void save(File file) throws IOException
+   {
+      DataOutputStream dos = null;
+      try
+      {
+         dos = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+
+         dos.writeInt(MAGIC);
+         dos.writeInt(FORMAT);
+
+         dos.writeInt(coordinates.size());
+         for (String coordinate : coordinates)
+         {
+            dos.writeUTF(coordinate);
+         }
+
+         dos.writeInt(keys.length);
+         for (int i = 0; i < keys.length; i++)
+         {
+            dos.writeLong(keys[i]);
+            dos.writeInt(values[i]);
+         }
+
+         dos.flush();
+      }
+      finally
+      {
+         if (dos != null)
+         {
+            try
+            {
+               dos.close();
+            }
+            catch (IOException ioe)
+            {
+               // Ignore
+            }
+         }
+      }
+   }
+
+   /**
+    * Add a fingerprint. The first coordinate added for a fingerprint is kept
+    *
+    * @param fingerprint The fingerprint
+    * @param coordinate  The coordinate
+    */
+   public void add(long fingerprint, String coordinate)
+   {
+      if (fingerprint == 0L || lookup(fingerprint) != null)
+      {
+         return;
+      }
+
+      if ((size + 1) * 2 > keys.length)
+      {
+         resize(keys.length * 2);
+      }
+
+      Integer index = coordinateIndex.get(coordinate);
+      if (index == null)
+      {
+         index = Integer.valueOf(coordinates.size());
+         coordinateIndex.put(coordinate, index);
+         coordinates.add(coordinate);
+      }
+
+      insert(fingerprint, index.intValue());
+      size++;
+   }
+
+   /**
+    * Look up a fingerprint
+    *
+    * @param fingerprint The fingerprint
+    * @return The coordinate; <code>null</code> if the fingerprint isn't in the catalog
+    */
+   public String lookup(long fingerprint)
+   {
+      int mask = keys.length - 1;
+      int slot = spread(fingerprint) & mask;
+
+      while (keys[slot] != 0L)
+      {
+         if (keys[slot] == fingerprint)
+         {
+            return coordinates.get(values[slot]);
+         }
+
+         slot = (slot + 1) & mask;
+      }
+
+      return null;
+   }
+
+   /**
+    * Get the number of fingerprints
+    *
+    * @return The value
+    */
+   public int size()
+   {
+      return size;
+   }
+
+   /**
+    * Get the version of a coordinate
+    *
+    * @param coordinate The coordinate
+    * @return The version; <code>null</code> if the coordinate doesn't have one
+    */
+   public static String getVersion(String coordinate)
+   {
+      int index = coordinate.lastIndexOf(':');
+
+      return index != -1 && index < coordinate.length() - 1 ? coordinate.substring(index + 1) : null;
+   }
+
+   /**
+    * Get the fingerprint of a file
+    *
+    * @param file The file
+    * @return The fingerprint
+    * @throws IOException If the file can't be read
+    */
+   public static long getFileFingerprint(File file) throws IOException
+   {
+      MessageDigest md = createDigest();
+      InputStream is = null;
+      try
+      {
+         is = new BufferedInputStream(new FileInputStream(file));
+
+         byte[] buffer = new byte[8192];
+         int n;
+         while ((n = is.read(buffer)) != -1)
+         {
+            md.update(buffer, 0, n);
+         }
+      }
+      finally
+      {
+         if (is != null)
+         {
+            try
+            {
+               is.close();
+            }
+            catch (IOException ioe)
+            {
+               // Ignore
+            }
+         }
+      }
+
+      return toFingerprint(md.digest());
+   }
+
+   /**
+    * Get the fingerprint of a class set
+    *
+    * @param digests The digests of the classes, keyed by class name
+    * @return The fingerprint; 0 if the class set is empty
+    */
+   public static long getClassSetFingerprint(SortedMap<String, String> digests)
+   {
+      if (digests == null || digests.size() == 0)
+      {
+         return 0L;
+      }
+
+      MessageDigest md = createDigest();
+      try
+      {
+         for (Map.Entry<String, String> entry : digests.entrySet())
+         {
+            md.update(entry.getKey().getBytes("UTF-8"));
+            md.update((byte) '=');
+            md.update(entry.getValue().getBytes("UTF-8"));
+            md.update((byte) '\n');
+         }
+      }
+      catch (UnsupportedEncodingException uee)
+      {
+         throw new IllegalStateException(uee.getMessage());
+      }
+
+      return toFingerprint(md.digest());
+   }
+
+   /**
+    * Create a message digest
+    *
+    * @return The digest
+    */
+   private static MessageDigest createDigest()
+   {
+      try
+      {
+         return MessageDigest.getInstance(DIGEST_ALGORITHM);
+      }
+      catch (NoSuchAlgorithmException nsae)
+      {
+         throw new IllegalStateException(nsae.getMessage());
+      }
+   }
+
+   /**
+    * Fold the first eight bytes of a digest into a fingerprint
+    *
+    * @param digest The digest
+    * @return The fingerprint, never 0
+    */
+   private static long toFingerprint(byte[] digest)
+   {
+      long result = 0L;
+
+      for (int i = 0; i < 8; i++)
+      {
+         result = (result << 8) | (digest[i] & 0xFF);
+      }
+
+      return result != 0L ? result : 1L;
+   }
+
+   /**
+    * Spread the bits of a fingerprint into a slot hash
+    *
+    * @param fingerprint The fingerprint
+    * @return The hash
+    */
+   private static int spread(long fingerprint)
+   {
+      return (int) (fingerprint ^ (fingerprint >>> 32));
+   }
+
+   /**
+    * Insert a fingerprint into a free slot
+    *
+    * @param fingerprint The fingerprint
+    * @param index       The index of the coordinate
+    */
+   private void insert(long fingerprint, int index)
+   {
+      int mask = keys.length - 1;
+      int slot = spread(fingerprint) & mask;
+
+      while (keys[slot] != 0L)
+      {
+         slot = (slot + 1) & mask;
+      }
+
+      keys[slot] = fingerprint;
+      values[slot] = index;
+   }
+
+   /**
+    * Resize the hash table
+    *
+    * @param capacity The new capacity, a power of two
+    */
+   private void resize(int capacity)
+   {
+      long[] oldKeys = keys;
+      int[] oldValues = values;
+
+      keys = new long[capacity];
+      values = new int[capacity];
+
+      for (int i = 0; i < oldKeys.length; i++)
+      {
+         if (oldKeys[i] != 0L)
+         {
+            insert(oldKeys[i], oldValues[i]);
+         }
+      }
+   }
+}
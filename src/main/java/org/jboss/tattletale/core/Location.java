@@ -39,6 +39,9 @@ public class Location implements Serializable, Comparable
    /** Version */
    private String version;
 
+   /** Coordinate */
+   private String coordinate;
+
    /**
     * Constructor
     *
@@ -46,9 +49,22 @@ public class Location implements Serializable, Comparable
     * @param version  The version
     */
    public Location(String filename, String version)
+   {
+      this(filename, version, null);
+   }
+
+   /**
+    * Constructor
+    *
+    * @param filename   The filename
+    * @param version    The version
+    * @param coordinate The Maven coordinate (groupId:artifactId:version) of the library
+    */
+   public Location(String filename, String version, String coordinate)
    {
       this.filename = filename;
       this.version = version;
+      this.coordinate = coordinate;
    }
 
    /**
@@ -71,6 +87,16 @@ public class Location implements Serializable, Comparable
       return version;
    }
 
+   /**
+    * Get the Maven coordinate of the library, as identified by the library catalog
+    *
+    * @return The value; <code>null</code> if the archive wasn't identified
+    */
+   public String getCoordinate()
+   {
+      return coordinate;
+   }
+
    /**
     * Comparable
     *
@@ -148,6 +174,10 @@ public class Location implements Serializable, Comparable
       sb = sb.append(version);
       sb = sb.append("\n");
 
+      sb = sb.append("coordinate=");
+      sb = sb.append(coordinate);
+      sb = sb.append("\n");
+
       sb = sb.append(")");
 
       return sb.toString();
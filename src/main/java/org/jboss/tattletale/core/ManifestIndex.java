@@ -0,0 +1,116 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2009, Red Hat Middleware LLC, and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.tattletale.core;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * An index of the attributes of a manifest. The names are case insensitive, continuation lines
+ * are joined, and the first occurrence of an attribute wins, with the main section first
+ *
+ * @author Jesper Pedersen <jesper.pedersen@jboss.org>
+ */
+public class ManifestIndex
+{
+   /** The attributes, keyed by the lower case name */
+   private Map<String, String> attributes;
+
+   /**
+    * Constructor
+    *
+    * @param lines The lines of the manifest
+    */
+   public ManifestIndex(List<String> lines)
+   {
+      this.attributes = new HashMap<String, String>();
+
+      String name = null;
+      StringBuffer value = null;
+
+      for (String line : lines)
+      {
+         if (line.startsWith(" ") && name != null)
+         {
+            value = value.append(line.substring(1));
+         }
+         else
+         {
+            add(name, value);
+            name = null;
+            value = null;
+
+            int idx = line.indexOf(':');
+            if (idx > 0)
+            {
+               name = line.substring(0, idx).trim();
+               value = new StringBuffer(line.substring(idx + 1).trim());
+            }
+         }
+      }
+
+      add(name, value);
+   }
+
+   /**
+    * Is an attribute present
+    *
+    * @param name The name of the attribute
+    * @return True if present; otherwise false
+    */
+   public boolean contains(String name)
+   {
+      return attributes.containsKey(name.toLowerCase(Locale.ENGLISH));
+   }
+
+   /**
+    * Get the value of an attribute
+    *
+    * @param name The name of the attribute
+    * @return The value; <code>null</code> if not present
+    */
+   public String getValue(String name)
+   {
+      return attributes.get(name.toLowerCase(Locale.ENGLISH));
+   }
+
+   /**
+    * Add an attribute, unless it is already present
+    *
+    * @param name  The name
+    * @param value The value
+    */
+   private void add(String name, StringBuffer value)
+   {
+      if (name != null)
+      {
+         String key = name.toLowerCase(Locale.ENGLISH);
+
+         if (!attributes.containsKey(key))
+         {
+            attributes.put(key, value.toString().trim());
+         }
+      }
+   }
+}
@@ -21,11 +21,14 @@
  */
 package org.jboss.tattletale.core;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.SortedMap;
 import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
 
 /**
  * Nestable archive
@@ -40,6 +43,21 @@ public abstract class NestableArchive extends Archive
    /** Sub-archives */
    protected List<Archive> subArchives;
 
+   /** All requires */
+   private transient SortedSet<String> allRequires;
+
+   /** All provides */
+   private transient SortedMap<String, Long> allProvides;
+
+   /** All class dependencies */
+   private transient SortedMap<String, SortedSet<String>> allClassDependencies;
+
+   /** All blacklisted dependencies */
+   private transient SortedMap<String, SortedSet<String>> allBlacklistedDependencies;
+
+   /** All locations */
+   private transient SortedSet<Location> allLocations;
+
    /**
     * Constructor
     *
@@ -122,7 +140,204 @@ public abstract class NestableArchive extends Archive
          }
 
          subArchives.add(value);
+         reset();
+      }
+   }
+
+   /**
+    * Add a location
+    *
+    * @param value The value
+    */
+   @Override
+   public void addLocation(Location value)
+   {
+      super.addLocation(value);
+      reset();
+   }
+
+   /**
+    * Get the requires of the archive and all its nested archives
+    *
+    * @return An unmodifiable view of the value
+    */
+   @Override
+   public SortedSet<String> getAllRequires()
+   {
+      flatten();
+      return allRequires;
+   }
+
+   /**
+    * Get the provides of the archive and all its nested archives
+    *
+    * @return An unmodifiable view of the value
+    */
+   @Override
+   public SortedMap<String, Long> getAllProvides()
+   {
+      flatten();
+      return allProvides;
+   }
+
+   /**
+    * Get the class dependencies of the archive and all its nested archives
+    *
+    * @return An unmodifiable view of the value
+    */
+   @Override
+   public SortedMap<String, SortedSet<String>> getAllClassDependencies()
+   {
+      flatten();
+      return allClassDependencies != null ? allClassDependencies : getAllDependencies(false);
+   }
+
+   /**
+    * Get the blacklisted dependencies of the archive and all its nested archives
+    *
+    * @return An unmodifiable view of the value
+    */
+   @Override
+   public SortedMap<String, SortedSet<String>> getAllBlackListedDependencies()
+   {
+      flatten();
+      return allBlacklistedDependencies != null ? allBlacklistedDependencies : getAllDependencies(true);
+   }
+
+   /**
+    * Get the locations of all the nested archives
+    *
+    * @return An unmodifiable view of the value
+    */
+   @Override
+   public SortedSet<Location> getAllLocations()
+   {
+      flatten();
+      return allLocations;
+   }
+
+   /**
+    * Spill the dependencies of the archive and its nested archives to a store
+    *
+    * @param dependencyStore The store
+    * @throws IOException If the dependencies can't be written
+    */
+   @Override
+   public synchronized void spill(DependencyStore dependencyStore) throws IOException
+   {
+      for (Archive sa : getSubArchives())
+      {
+         sa.spill(dependencyStore);
+      }
+
+      super.spill(dependencyStore);
+      reset();
+   }
+
+   /**
+    * Are the dependencies of the archive or one of its nested archives spilled to a store
+    *
+    * @return True if spilled; otherwise false
+    */
+   @Override
+   public synchronized boolean isSpilled()
+   {
+      for (Archive sa : getSubArchives())
+      {
+         if (sa.isSpilled())
+         {
+            return true;
+         }
+      }
+
+      return super.isSpilled();
+   }
+
+   /**
+    * Estimate the heap size of the dependencies of the archive and its nested archives that aren't spilled
+    *
+    * @return The number of bytes
+    */
+   @Override
+   public synchronized long getDependencySize()
+   {
+      long result = super.getDependencySize();
+
+      for (Archive sa : getSubArchives())
+      {
+         result += sa.getDependencySize();
+      }
+
+      return result;
+   }
+
+   /**
+    * Compute the aggregated views of the archive and its nested archives, unless they already are.
+    * The aggregated dependencies aren't kept if the dependencies are spilled, but are computed when asked
+    * for. The nested archives must not change once the archive has been flattened
+    */
+   public synchronized void flatten()
+   {
+      if (allRequires != null)
+      {
+         return;
+      }
+
+      SortedSet<String> requires = new TreeSet<String>();
+      SortedMap<String, Long> provides = new TreeMap<String, Long>();
+      SortedSet<Location> locations = new TreeSet<Location>();
+
+      for (Archive sa : getSubArchives())
+      {
+         requires.addAll(sa.getAllRequires());
+         provides.putAll(sa.getAllProvides());
+         locations.addAll(sa.getAllLocations());
+      }
+
+      requires.addAll(getRequires());
+      provides.putAll(getProvides());
+
+      if (!isSpilled())
+      {
+         allClassDependencies = getAllDependencies(false);
+         allBlacklistedDependencies = getAllDependencies(true);
+      }
+
+      allProvides = Collections.unmodifiableSortedMap(provides);
+      allLocations = Collections.unmodifiableSortedSet(locations);
+      allRequires = Collections.unmodifiableSortedSet(requires);
+   }
+
+   /**
+    * Compute the class or blacklisted dependencies of the archive and all its nested archives
+    *
+    * @param blacklisted Compute the blacklisted dependencies
+    * @return An unmodifiable view of the value
+    */
+   private SortedMap<String, SortedSet<String>> getAllDependencies(boolean blacklisted)
+   {
+      SortedMap<String, SortedSet<String>> result = new TreeMap<String, SortedSet<String>>();
+
+      for (Archive sa : getSubArchives())
+      {
+         result.putAll(blacklisted ? sa.getAllBlackListedDependencies() : sa.getAllClassDependencies());
       }
+
+      result.putAll(blacklisted ? getBlackListedDependencies() : getClassDependencies());
+
+      return Collections.unmodifiableSortedMap(result);
+   }
+
+   /**
+    * Drop the aggregated views
+    */
+   private synchronized void reset()
+   {
+      allRequires = null;
+      allProvides = null;
+      allClassDependencies = null;
+      allBlacklistedDependencies = null;
+      allLocations = null;
    }
 
    private void addParentArchive(List<Archive> subArchives)
@@ -0,0 +1,98 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2009, Red Hat Middleware LLC, and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.tattletale.core;
+
+import java.io.Serializable;
+import java.util.SortedSet;
+
+/**
+ * The result of verifying the signature of an archive
+ *
+ * @author Jesper Pedersen <jesper.pedersen@jboss.org>
+ */
+public class SignatureVerification implements Serializable
+{
+   /** SerialVersionUID */
+   static final long serialVersionUID = 3180475826159738104L;
+
+   /** All entries are signed, and match their digests */
+   public static final int VERIFIED = 0;
+
+   /** Some entries aren't signed */
+   public static final int PARTIALLY_SIGNED = 1;
+
+   /** Some entries don't match their digests, or the signature is invalid */
+   public static final int TAMPERED = 2;
+
+   /** The status */
+   private int status;
+
+   /** The entries that don't match their digests */
+   private SortedSet<String> tampered;
+
+   /** The entries that aren't signed */
+   private SortedSet<String> unsigned;
+
+   /**
+    * Constructor
+    *
+    * @param status   The status
+    * @param tampered The entries that don't match their digests
+    * @param unsigned The entries that aren't signed
+    */
+   public SignatureVerification(int status, SortedSet<String> tampered, SortedSet<String> unsigned)
+   {
+      this.status = status;
+      this.tampered = tampered;
+      this.unsigned = unsigned;
+   }
+
+   /**
+    * Get the status
+    *
+    * @return The value
+    */
+   public int getStatus()
+   {
+      return status;
+   }
+
+   /**
+    * Get the entries that don't match their digests
+    *
+    * @return The value
+    */
+   public SortedSet<String> getTampered()
+   {
+      return tampered;
+   }
+
+   /**
+    * Get the entries that aren't signed
+    *
+    * @return The value
+    */
+   public SortedSet<String> getUnsigned()
+   {
+      return unsigned;
+   }
+}
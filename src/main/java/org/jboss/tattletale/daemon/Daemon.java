@@ -0,0 +1,498 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2009, Red Hat Middleware LLC, and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.tattletale.daemon;
+
+import org.jboss.tattletale.Main;
+import org.jboss.tattletale.analyzers.ScanCache;
+import org.jboss.tattletale.profiles.AbstractProfile;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Properties;
+
+/**
+ * A long running daemon, which keeps the profiles and the scanned archives warm between executions.
+ * <p/>
+ * The daemon only listens on the loopback interface, and handles one request at a time. Each request must
+ * carry the token that the daemon writes to a file in the home directory of its user, which only that user
+ * can read
+ *
+ * @author Jesper Pedersen <jesper.pedersen@jboss.org>
+ */
+public class Daemon
+{
+   /** The default port */
+   public static final int DEFAULT_PORT = 7870;
+
+   /** The default size of the scan cache in megabytes */
+   public static final int DEFAULT_CACHE_SIZE = 256;
+
+   /** The timeout in milliseconds of reading a request */
+   static final int READ_TIMEOUT = 10000;
+
+   /** The loopback address */
+   static final String LOOPBACK = "127.0.0.1";
+
+   /** The token of a request */
+   static final String TOKEN = "token";
+
+   /** The command of a request */
+   static final String COMMAND = "command";
+
+   /** Execute command */
+   static final String EXECUTE = "execute";
+
+   /** Status command */
+   static final String STATUS = "status";
+
+   /** Stop command */
+   static final String STOP = "stop";
+
+   /** The port */
+   private int port;
+
+   /** The cache of scanned archives */
+   private ScanCache scanCache;
+
+   /** The profiles */
+   private AbstractProfile[] profiles;
+
+   /** The server socket */
+   private ServerSocket serverSocket;
+
+   /** Is the daemon running */
+   private volatile boolean running;
+
+   /** The token that the requests must carry */
+   private String token;
+
+   /**
+    * Constructor
+    *
+    * @param port      The port
+    * @param cacheSize The size of the scan cache in megabytes
+    */
+   public Daemon(int port, int cacheSize)
+   {
+      this.port = port;
+      this.scanCache = new ScanCache(cacheSize * 1024L * 1024L);
+      this.profiles = null;
+      this.serverSocket = null;
+      this.running = false;
+      this.token = null;
+   }
+
+   /**
+    * Get the file that holds the token of the daemon on a port
+    *
+    * @param port The port
+    * @return The file
+    */
+   static File getTokenFile(int port)
+   {
+      return new File(new File(System.getProperty("user.home"), ".tattletale"), "daemon-" + port + ".token");
+   }
+
+   /**
+    * Start the daemon
+    *
+    * @throws IOException If the port can't be bound
+    */
+   public void start() throws IOException
+   {
+      profiles = Main.createProfiles();
+
+      serverSocket = new ServerSocket();
+      serverSocket.setReuseAddress(true);
+      serverSocket.bind(new InetSocketAddress(InetAddress.getByName(LOOPBACK), port));
+
+      writeToken();
+
+      running = true;
+   }
+
+   /**
+    * Handle requests until the daemon is stopped
+    */
+   public void run()
+   {
+      while (running)
+      {
+         Socket socket = null;
+         try
+         {
+            socket = serverSocket.accept();
+            socket.setSoTimeout(READ_TIMEOUT);
+            handle(socket);
+         }
+         catch (Throwable t)
+         {
+            // A bad request only fails its own connection
+            if (running)
+            {
+               System.err.println("Daemon: " + t.getMessage());
+               t.printStackTrace(System.err);
+            }
+         }
+         finally
+         {
+            if (socket != null)
+            {
+               try
+               {
+                  socket.close();
+               }
+               catch (IOException ioe)
+               {
+                  // Nothing to do
+               }
+            }
+         }
+      }
+   }
+
+   /**
+    * Stop the daemon
+    */
+   public void stop()
+   {
+      running = false;
+
+      if (token != null)
+      {
+         getTokenFile(port).delete();
+         token = null;
+      }
+
+      if (serverSocket != null)
+      {
+         try
+         {
+            serverSocket.close();
+         }
+         catch (IOException ioe)
+         {
+            // Nothing to do
+         }
+      }
+   }
+
+   /**
+    * Handle a request
+    *
+    * @param socket The socket
+    * @throws IOException If an error occurs
+    */
+   private void handle(Socket socket) throws IOException
+   {
+      DataInputStream dis = new DataInputStream(socket.getInputStream());
+      DataOutputStream dos = new DataOutputStream(socket.getOutputStream());
+
+      Properties request = DaemonClient.readRequest(dis);
+      String command = request.getProperty(COMMAND, EXECUTE);
+
+      boolean success = true;
+      String message = null;
+
+      if (!isAuthorized(request))
+      {
+         success = false;
+         message = "Unauthorized; the token of the request doesn't match " + getTokenFile(port);
+      }
+      else if (STOP.equals(command))
+      {
+         message = "Stopped";
+         stop();
+      }
+      else if (STATUS.equals(command))
+      {
+         message = getStatus();
+      }
+      else
+      {
+         long start = System.currentTimeMillis();
+         System.out.println("Scanning: " + request.getProperty("source"));
+
+         try
+         {
+            checkDestination(request);
+
+            createMain(request).execute();
+            message = "Done";
+         }
+         catch (Throwable t)
+         {
+            success = false;
+            message = t.getMessage() != null ? t.getMessage() : t.toString();
+         }
+
+         System.out.println("Finished in " + (System.currentTimeMillis() - start) + "ms (" + getStatus() + ")");
+      }
+
+      dos.writeBoolean(success);
+      DaemonClient.writeString(dos, message);
+   }
+
+   /**
+    * Check that the destination of a request may be deleted. The working directory of the client is written
+    * into without being deleted, and any other existing directory must be empty or hold the marker of the
+    * output of Tattletale, so a request can't delete other directories
+    *
+    * @param request The request
+    * @throws IOException If the destination may not be deleted
+    */
+   private void checkDestination(Properties request) throws IOException
+   {
+      if (request.getProperty("destination") == null ||
+          !Boolean.valueOf(request.getProperty("deleteOutputDirectory")).booleanValue())
+      {
+         return;
+      }
+
+      File destination = new File(request.getProperty("destination")).getCanonicalFile();
+      String workingDirectory = request.getProperty("workingdirectory");
+
+      if (!destination.exists() ||
+          (workingDirectory != null && destination.equals(new File(workingDirectory).getCanonicalFile())))
+      {
+         return;
+      }
+
+      String[] files = destination.list();
+      if (files != null && files.length > 0 && !new File(destination, Main.OUTPUT_MARKER).isFile())
+      {
+         throw new IOException("Refusing to delete " + destination + ", which doesn't hold the output of Tattletale");
+      }
+   }
+
+   /**
+    * Does a request carry the token of the daemon
+    *
+    * @param request The request
+    * @return True if it does; otherwise false
+    * @throws IOException If the token can't be encoded
+    */
+   private boolean isAuthorized(Properties request) throws IOException
+   {
+      String value = request.getProperty(TOKEN);
+
+      return token != null && value != null &&
+         MessageDigest.isEqual(token.getBytes("UTF-8"), value.getBytes("UTF-8"));
+   }
+
+   /**
+    * Create a random token, and write it to a file that only the user of the daemon can read
+    *
+    * @throws IOException If the file can't be written
+    */
+   private void writeToken() throws IOException
+   {
+      byte[] bytes = new byte[32];
+      new SecureRandom().nextBytes(bytes);
+
+      StringBuffer sb = new StringBuffer();
+      for (byte b : bytes)
+      {
+         sb.append(Integer.toHexString((b & 0xff) | 0x100).substring(1));
+      }
+
+      File file = getTokenFile(port);
+      File directory = file.getParentFile();
+
+      if (!directory.exists() && !directory.mkdirs())
+      {
+         throw new IOException("Unable to create " + directory);
+      }
+      restrict(directory);
+
+      // The file is restricted before the token is written to it
+      if (file.exists() && !file.delete())
+      {
+         throw new IOException("Unable to delete " + file);
+      }
+      if (!file.createNewFile())
+      {
+         throw new IOException("Unable to create " + file);
+      }
+      restrict(file);
+
+      FileOutputStream fos = new FileOutputStream(file);
+      try
+      {
+         fos.write(sb.toString().getBytes("UTF-8"));
+      }
+      finally
+      {
+         fos.close();
+      }
+
+      token = sb.toString();
+   }
+
+   /**
+    * Restrict the access to a file to its owner
+    *
+    * @param file The file
+    */
+   private void restrict(File file)
+   {
+      boolean restricted = file.setReadable(false, false) && file.setReadable(true, true) &&
+         file.setWritable(false, false) && file.setWritable(true, true);
+
+      if (file.isDirectory())
+      {
+         restricted = restricted && file.setExecutable(false, false) && file.setExecutable(true, true);
+      }
+
+      if (!restricted)
+      {
+         System.err.println("Daemon: Unable to restrict the access to " + file);
+      }
+   }
+
+   /**
+    * Create the execution of a request
+    *
+    * @param request The request
+    * @return The execution
+    */
+   private Main createMain(Properties request)
+   {
+      Main main = new Main();
+
+      main.setSource(request.getProperty("source"));
+      main.setDestination(request.getProperty("destination"));
+      main.setWorkingDirectory(request.getProperty("workingdirectory"));
+      main.setConfiguration(request.getProperty("configuration"));
+      main.setFilter(request.getProperty("filter"));
+      main.setClassLoaderStructure(request.getProperty("classloader"));
+      main.setProfiles(request.getProperty("profiles"));
+      main.setExcludes(request.getProperty("excludes"));
+      main.setBlacklisted(request.getProperty("blacklisted"));
+      main.setFailOnInfo(Boolean.valueOf(request.getProperty("failOnInfo")).booleanValue());
+      main.setFailOnWarn(Boolean.valueOf(request.getProperty("failOnWarn")).booleanValue());
+      main.setFailOnError(Boolean.valueOf(request.getProperty("failOnError")).booleanValue());
+      main.setDeleteOutputDirectory(Boolean.valueOf(request.getProperty("deleteOutputDirectory")).booleanValue());
+      main.setReports(request.getProperty("reports"));
+      main.setScan(request.getProperty("scan"));
+      main.setCatalog(request.getProperty("catalog"));
+      main.setMemoryBudget(request.getProperty("memorybudget"));
+      main.setWorkers(request.getProperty("workers"));
+      main.setWorkerOptions(request.getProperty("workeroptions"));
+
+      main.setScanCache(scanCache);
+      main.setAvailableProfiles(profiles);
+
+      return main;
+   }
+
+   /**
+    * Get the status
+    *
+    * @return The status
+    */
+   private String getStatus()
+   {
+      StringBuffer sb = new StringBuffer();
+
+      sb.append("archives=").append(scanCache.getEntries());
+      sb.append(", size=").append(scanCache.getSize());
+      sb.append(", hits=").append(scanCache.getHits());
+      sb.append(", misses=").append(scanCache.getMisses());
+
+      return sb.toString();
+   }
+
+   /** The usage method */
+   private static void usage()
+   {
+      System.out.println("Usage: Daemon [-port=<port>] [-cache=<megabytes>]");
+      System.out.println("       Daemon -status|-stop [[<host>:]<port>]");
+   }
+
+   /**
+    * The main method
+    *
+    * @param args The arguments
+    */
+   public static void main(String[] args)
+   {
+      try
+      {
+         if (args.length > 0 && ("-status".equals(args[0]) || "-stop".equals(args[0])))
+         {
+            String address = args.length > 1 ? args[1] : Integer.toString(DEFAULT_PORT);
+
+            if ("-status".equals(args[0]))
+            {
+               System.out.println(DaemonClient.status(address));
+            }
+            else
+            {
+               DaemonClient.stop(address);
+            }
+            return;
+         }
+
+         int port = DEFAULT_PORT;
+         int cacheSize = DEFAULT_CACHE_SIZE;
+
+         for (String arg : args)
+         {
+            if (arg.startsWith("-port="))
+            {
+               port = Integer.parseInt(arg.substring(arg.indexOf("=") + 1));
+            }
+            else if (arg.startsWith("-cache="))
+            {
+               cacheSize = Integer.parseInt(arg.substring(arg.indexOf("=") + 1));
+            }
+            else
+            {
+               usage();
+               return;
+            }
+         }
+
+         Daemon daemon = new Daemon(port, cacheSize);
+         daemon.start();
+
+         System.out.println("Listening on " + LOOPBACK + ":" + port);
+
+         daemon.run();
+      }
+      catch (Exception e)
+      {
+         System.err.println("Exception: " + e.getMessage());
+         e.printStackTrace(System.err);
+      }
+   }
+}
@@ -0,0 +1,266 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2009, Red Hat Middleware LLC, and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.tattletale.daemon;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.Properties;
+
+/**
+ * Client of the daemon, which forwards an execution to it. The requests carry the token of the daemon,
+ * which is read from the file the daemon wrote in the home directory of the user
+ *
+ * @author Jesper Pedersen <jesper.pedersen@jboss.org>
+ */
+public class DaemonClient
+{
+   /** The connect timeout in milliseconds */
+   private static final int CONNECT_TIMEOUT = 5000;
+
+   /** The maximum number of bytes of a request or a reply */
+   static final int MAX_FRAME_SIZE = 1024 * 1024;
+
+   /** Constructor */
+   private DaemonClient()
+   {
+   }
+
+   /**
+    * Forward an execution to the daemon
+    *
+    * @param address The port, or host:port, of the daemon
+    * @param request The settings of the execution
+    * @throws Exception Thrown if the execution fails
+    */
+   public static void execute(String address, Properties request) throws Exception
+   {
+      request.setProperty(Daemon.COMMAND, Daemon.EXECUTE);
+      send(address, request);
+   }
+
+   /**
+    * Get the status of the daemon
+    *
+    * @param address The port, or host:port, of the daemon
+    * @return The status
+    * @throws Exception Thrown if the daemon can't be reached
+    */
+   public static String status(String address) throws Exception
+   {
+      Properties request = new Properties();
+      request.setProperty(Daemon.COMMAND, Daemon.STATUS);
+      return send(address, request);
+   }
+
+   /**
+    * Stop the daemon
+    *
+    * @param address The port, or host:port, of the daemon
+    * @throws Exception Thrown if the daemon can't be reached
+    */
+   public static void stop(String address) throws Exception
+   {
+      Properties request = new Properties();
+      request.setProperty(Daemon.COMMAND, Daemon.STOP);
+      send(address, request);
+   }
+
+   /**
+    * Send a request to the daemon
+    *
+    * @param address The port, or host:port, of the daemon
+    * @param request The request
+    * @return The message of the reply
+    * @throws Exception Thrown if the request fails
+    */
+   private static String send(String address, Properties request) throws Exception
+   {
+      String host = Daemon.LOOPBACK;
+      String port = address;
+
+      int index = address.lastIndexOf(':');
+      if (index != -1)
+      {
+         host = address.substring(0, index);
+         port = address.substring(index + 1);
+      }
+
+      request.setProperty(Daemon.TOKEN, readToken(Integer.parseInt(port)));
+
+      Socket socket = new Socket();
+      try
+      {
+         socket.connect(new InetSocketAddress(host, Integer.parseInt(port)), CONNECT_TIMEOUT);
+
+         DataOutputStream dos = new DataOutputStream(socket.getOutputStream());
+         writeRequest(dos, request);
+
+         DataInputStream dis = new DataInputStream(socket.getInputStream());
+         boolean success = dis.readBoolean();
+         String message = readString(dis);
+
+         if (!success)
+         {
+            throw new Exception(message);
+         }
+
+         return message;
+      }
+      finally
+      {
+         try
+         {
+            socket.close();
+         }
+         catch (IOException ioe)
+         {
+            // Nothing to do
+         }
+      }
+   }
+
+   /**
+    * Read the token of the daemon on a port
+    *
+    * @param port The port
+    * @return The token
+    * @throws IOException If the token can't be read
+    */
+   private static String readToken(int port) throws IOException
+   {
+      File file = Daemon.getTokenFile(port);
+
+      if (!file.exists())
+      {
+         throw new IOException("No daemon of this user is running on port " + port + " (" + file + " is missing)");
+      }
+
+      byte[] data = new byte[(int) Math.min(file.length(), MAX_FRAME_SIZE)];
+      FileInputStream fis = new FileInputStream(file);
+      try
+      {
+         DataInputStream dis = new DataInputStream(fis);
+         dis.readFully(data);
+      }
+      finally
+      {
+         fis.close();
+      }
+
+      return new String(data, "UTF-8").trim();
+   }
+
+   /**
+    * Write a request
+    *
+    * @param dos     The stream
+    * @param request The request
+    * @throws IOException If an error occurs
+    */
+   static void writeRequest(DataOutputStream dos, Properties request) throws IOException
+   {
+      ByteArrayOutputStream baos = new ByteArrayOutputStream();
+      request.store(baos, null);
+
+      byte[] data = baos.toByteArray();
+      dos.writeInt(data.length);
+      dos.write(data);
+      dos.flush();
+   }
+
+   /**
+    * Read a request
+    *
+    * @param dis The stream
+    * @return The request
+    * @throws IOException If an error occurs
+    */
+   static Properties readRequest(DataInputStream dis) throws IOException
+   {
+      byte[] data = readFrame(dis);
+
+      Properties request = new Properties();
+      request.load(new ByteArrayInputStream(data));
+      return request;
+   }
+
+   /**
+    * Write a string
+    *
+    * @param dos The stream
+    * @param s   The string
+    * @throws IOException If an error occurs
+    */
+   static void writeString(DataOutputStream dos, String s) throws IOException
+   {
+      byte[] data = s.getBytes("UTF-8");
+
+      // A long message is cut to fit in a frame; a character takes at most 3 bytes
+      if (data.length > MAX_FRAME_SIZE)
+      {
+         data = s.substring(0, MAX_FRAME_SIZE / 3).getBytes("UTF-8");
+      }
+      dos.writeInt(data.length);
+      dos.write(data);
+      dos.flush();
+   }
+
+   /**
+    * Read a string
+    *
+    * @param dis The stream
+    * @return The string
+    * @throws IOException If an error occurs
+    */
+   static String readString(DataInputStream dis) throws IOException
+   {
+      return new String(readFrame(dis), "UTF-8");
+   }
+
+   /**
+    * Read a frame, which is prefixed by its length
+    *
+    * @param dis The stream
+    * @return The data of the frame
+    * @throws IOException If an error occurs, or the length is out of bounds
+    */
+   private static byte[] readFrame(DataInputStream dis) throws IOException
+   {
+      int length = dis.readInt();
+
+      if (length < 0 || length > MAX_FRAME_SIZE)
+      {
+         throw new IOException("Invalid frame length: " + length);
+      }
+
+      byte[] data = new byte[length];
+      dis.readFully(data);
+      return data;
+   }
+}
@@ -63,6 +63,21 @@ public class ReportMojo extends TattletaleMojo
    /** Scan */
    private String scan;
 
+   /** Library catalog */
+   private String catalog;
+
+   /** Memory budget of the dependencies */
+   private String memoryBudget;
+
+   /** Worker processes */
+   private String workers;
+
+   /** Options of the worker processes */
+   private String workerOptions;
+
+   /** Daemon */
+   private String daemon;
+
    /** Constructor */
    public ReportMojo()
    {
@@ -76,6 +91,11 @@ public class ReportMojo extends TattletaleMojo
       this.deleteOutputDirectory = true;
       this.reports = null;
       this.scan = null;
+      this.catalog = null;
+      this.memoryBudget = null;
+      this.workers = null;
+      this.workerOptions = null;
+      this.daemon = null;
    }
 
    /**
@@ -278,6 +298,106 @@ public class ReportMojo extends TattletaleMojo
       this.scan = scan;
    }
 
+   /**
+    * Get the library catalog
+    *
+    * @return The value
+    */
+   public String getCatalog()
+   {
+      return catalog;
+   }
+
+   /**
+    * Set the library catalog
+    *
+    * @param catalog The value
+    */
+   public void setCatalog(String catalog)
+   {
+      this.catalog = catalog;
+   }
+
+   /**
+    * Get the memory budget of the dependencies
+    *
+    * @return The value in megabytes
+    */
+   public String getMemoryBudget()
+   {
+      return memoryBudget;
+   }
+
+   /**
+    * Set the memory budget of the dependencies
+    *
+    * @param memoryBudget The value in megabytes
+    */
+   public void setMemoryBudget(String memoryBudget)
+   {
+      this.memoryBudget = memoryBudget;
+   }
+
+   /**
+    * Get the number of worker processes that scan the archives
+    *
+    * @return The value
+    */
+   public String getWorkers()
+   {
+      return workers;
+   }
+
+   /**
+    * Set the number of worker processes that scan the archives
+    *
+    * @param workers The value
+    */
+   public void setWorkers(String workers)
+   {
+      this.workers = workers;
+   }
+
+   /**
+    * Get the options of the Java virtual machines of the worker processes
+    *
+    * @return The value
+    */
+   public String getWorkerOptions()
+   {
+      return workerOptions;
+   }
+
+   /**
+    * Set the options of the Java virtual machines of the worker processes
+    *
+    * @param workerOptions The value
+    */
+   public void setWorkerOptions(String workerOptions)
+   {
+      this.workerOptions = workerOptions;
+   }
+
+   /**
+    * Get the daemon the execution is forwarded to
+    *
+    * @return The value
+    */
+   public String getDaemon()
+   {
+      return daemon;
+   }
+
+   /**
+    * Set the daemon the execution is forwarded to
+    *
+    * @param daemon The value; the port, or host:port, of the daemon
+    */
+   public void setDaemon(String daemon)
+   {
+      this.daemon = daemon;
+   }
+
    /**
     * Execute
     *
@@ -368,10 +488,28 @@ public class ReportMojo extends TattletaleMojo
          main.setDeleteOutputDirectory(getDeleteOutputDirectory());
 
          main.setScan(getScan());
+         main.setCatalog(getCatalog());
+         main.setMemoryBudget(getMemoryBudget());
+         main.setWorkers(getWorkers());
+         main.setWorkerOptions(getWorkerOptions());
+         main.setDaemon(getDaemon());
 
          getLog().info("Scanning: " + getSource().getAbsolutePath());
 
-         main.execute();
+         try
+         {
+            main.execute();
+         }
+         finally
+         {
+            if (main.getMetrics() != null)
+            {
+               for (String line : main.getMetrics().getSummary())
+               {
+                  getLog().info(line);
+               }
+            }
+         }
       }
       catch (Throwable t)
       {
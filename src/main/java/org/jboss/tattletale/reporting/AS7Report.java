@@ -23,17 +23,15 @@
 package org.jboss.tattletale.reporting;
 
 import org.jboss.tattletale.core.Archive;
-import org.jboss.tattletale.core.NestableArchive;
+import org.jboss.tattletale.core.ArchiveFacets;
 import org.jboss.tattletale.profiles.ExtendedProfile;
 import org.jboss.tattletale.profiles.JBossAS7Profile;
 import org.jboss.tattletale.profiles.Profile;
 
 import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.util.HashSet;
-import java.util.List;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
@@ -58,6 +56,17 @@ public class AS7Report extends CLSReport
       super(NAME, ReportSeverity.INFO, NAME, DIRECTORY);
    }
 
+   /**
+    * The facets of the archive model that the report reads
+    *
+    * @return The required facets
+    */
+   @Override
+   public int getRequiredFacets()
+   {
+      return ArchiveFacets.NONE;
+   }
+
 
    /**
     * Build the header of the html file.
@@ -95,9 +104,8 @@ public class AS7Report extends CLSReport
       boolean odd = true;
       for (Archive archive : archives)
       {
-         Set<String> provides = getProvides(archive);
-         Set<String> requires = getRequires(archive);
-         requires.removeAll(provides);
+         Set<String> requires = new HashSet<String>(archive.getAllRequires());
+         requires.removeAll(archive.getAllProvides().keySet());
          String archiveName = archive.getName();
          int finalDot = archiveName.lastIndexOf(".");
          String extension = archiveName.substring(finalDot + 1);
@@ -123,55 +131,11 @@ public class AS7Report extends CLSReport
       bw.write("</table>" + Dump.newLine());
    }
 
-   private Set<String> getProvides(Archive a)
-   {
-      Set<String> provides = new HashSet<String>();
-      if (a instanceof NestableArchive)
-      {
-         NestableArchive na = (NestableArchive) a;
-         List<Archive> subArchives = na.getSubArchives();
-         provides.addAll(na.getProvides().keySet());
-
-         for (Archive sa : subArchives)
-         {
-            provides.addAll(getProvides(sa));
-         }
-      }
-      else
-      {
-         provides.addAll(a.getProvides().keySet());
-      }
-      return provides;
-   }
-
-   private Set<String> getRequires(Archive a)
-   {
-      Set<String> requires = new HashSet<String>();
-      if (a instanceof NestableArchive)
-      {
-         NestableArchive na = (NestableArchive) a;
-         List<Archive> subArchives = na.getSubArchives();
-         requires.addAll(na.getRequires());
-
-         for (Archive sa : subArchives)
-         {
-            requires.addAll(getRequires(sa));
-         }
-      }
-      else
-      {
-         requires.addAll(a.getRequires());
-      }
-      return requires;
-   }
-
    private File buildDeploymentXml(Set<String> requires, String archiveName) throws IOException
    {
-      File deployedDir = new File(getOutputDirectory(), archiveName);
-      deployedDir.mkdirs();
+      File deployedDir = createDirectory(archiveName);
       File outputXml = new File(deployedDir.getAbsolutePath() + File.separator + "jboss-deployment-structure.xml");
-      FileWriter fw = new FileWriter(outputXml);
-      BufferedWriter bw = new BufferedWriter(fw, 8192);
+      BufferedWriter bw = getBufferedWriter(outputXml);
 
       bw.write("<?xml version=\"1.0\"?>" + Dump.newLine());
       bw.write("<jboss-deployment-structure>" + Dump.newLine());
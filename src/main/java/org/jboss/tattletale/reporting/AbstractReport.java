@@ -23,11 +23,13 @@ package org.jboss.tattletale.reporting;
 
 import org.jboss.tattletale.Version;
 import org.jboss.tattletale.core.Archive;
+import org.jboss.tattletale.core.ArchiveFacets;
 
 import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.Writer;
 import java.util.SortedSet;
 
 /**
@@ -66,6 +68,9 @@ public abstract class AbstractReport implements Report
    /** Filter implementation */
    private Filter filterImpl;
 
+   /** Is the output of the report written */
+   private boolean rendering;
+
    /** output filename */
    protected static final String INDEX_HTML = "index.html";
 
@@ -82,6 +87,7 @@ public abstract class AbstractReport implements Report
       this.status = ReportStatus.GREEN;
       this.filter = null;
       this.filterImpl = null;
+      this.rendering = true;
    }
 
    /**
@@ -191,6 +197,17 @@ public abstract class AbstractReport implements Report
       return INDEX_HTML;
    }
 
+   /**
+    * The facets of the archive model that the report reads. All facets are required by default,
+    * reports that read less should override this method.
+    *
+    * @return The required facets
+    */
+   public int getRequiredFacets()
+   {
+      return ArchiveFacets.ALL;
+   }
+
    /**
     * Generate the report(s)
     *
@@ -221,6 +238,45 @@ public abstract class AbstractReport implements Report
       }
    }
 
+   /**
+    * Evaluate the report, which computes the status of the report without writing any output
+    */
+   public void evaluate()
+   {
+      rendering = false;
+      outputDirectory = null;
+
+      try
+      {
+         BufferedWriter bw = new BufferedWriter(new DiscardWriter(), 8192);
+
+         writeHtmlHead(bw);
+
+         writeHtmlBodyHeader(bw);
+         writeHtmlBodyContent(bw);
+         writeHtmlBodyFooter(bw);
+
+         writeHtmlFooter(bw);
+
+         bw.close();
+      }
+      catch (Exception e)
+      {
+         System.err.println(getName() + " Report: " + e.getMessage());
+         e.printStackTrace(System.err);
+      }
+   }
+
+   /**
+    * Is the output of the report written, or is the report only evaluated
+    *
+    * @return True if the output is written; otherwise false
+    */
+   public boolean isRendering()
+   {
+      return rendering;
+   }
+
    /**
     * create the output directory
     *
@@ -252,10 +308,50 @@ public abstract class AbstractReport implements Report
     */
    public BufferedWriter getBufferedWriter(String filename) throws IOException
    {
+      if (!rendering)
+      {
+         return new BufferedWriter(new DiscardWriter(), 8192);
+      }
+
       FileWriter fw = new FileWriter(getOutputDirectory().getAbsolutePath() + File.separator + filename);
       return new BufferedWriter(fw, 8192);
    }
 
+   /**
+    * get a writer for a file anywhere in the output directory.
+    *
+    * @param file the file
+    * @return a buffered writer, which discards the output when the report is only evaluated
+    * @throws IOException if an error occurs
+    */
+   public BufferedWriter getBufferedWriter(File file) throws IOException
+   {
+      if (!rendering)
+      {
+         return new BufferedWriter(new DiscardWriter(), 8192);
+      }
+
+      return new BufferedWriter(new FileWriter(file), 8192);
+   }
+
+   /**
+    * create a sub directory of the output directory, unless the report is only evaluated.
+    *
+    * @param name the name of the sub directory
+    * @return the directory
+    */
+   File createDirectory(String name)
+   {
+      File directory = new File(getOutputDirectory(), name);
+
+      if (rendering)
+      {
+         directory.mkdirs();
+      }
+
+      return directory;
+   }
+
    /**
     * Set the archives to be represented by this report
     *
@@ -266,6 +362,20 @@ public abstract class AbstractReport implements Report
       this.archives = archives;
    }
 
+   /**
+    * Get the link to the report of an archive
+    *
+    * @param archive The archive
+    * @return The link
+    */
+   protected String getArchiveLink(Archive archive)
+   {
+      String name = archive.getName();
+      String extension = name.substring(name.lastIndexOf(".") + 1);
+
+      return "<a href=\"../" + extension + "/" + name + ".html\">" + name + "</a>";
+   }
+
    /**
     * write the header of a html file.
     *
@@ -437,4 +547,55 @@ public abstract class AbstractReport implements Report
 
       return false;
    }
+
+   /**
+    * A writer that discards its output
+    */
+   private static class DiscardWriter extends Writer
+   {
+      /** Constructor */
+      DiscardWriter()
+      {
+      }
+
+      /**
+       * Write
+       *
+       * @param cbuf The characters
+       * @param off  The offset
+       * @param len  The length
+       */
+      @Override
+      public void write(char[] cbuf, int off, int len)
+      {
+      }
+
+      /**
+       * Write
+       *
+       * @param str The string
+       * @param off The offset
+       * @param len The length
+       */
+      @Override
+      public void write(String str, int off, int len)
+      {
+      }
+
+      /**
+       * Flush
+       */
+      @Override
+      public void flush()
+      {
+      }
+
+      /**
+       * Close
+       */
+      @Override
+      public void close()
+      {
+      }
+   }
 }
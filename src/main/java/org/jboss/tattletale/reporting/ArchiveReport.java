@@ -22,6 +22,7 @@
 package org.jboss.tattletale.reporting;
 
 import org.jboss.tattletale.core.Archive;
+import org.jboss.tattletale.core.ArchiveFacets;
 
 /**
  * Represents an archive report (JAR, WAR, EAR, ...)
@@ -46,6 +47,17 @@ public abstract class ArchiveReport extends AbstractReport
       this.archive = archive;
    }
 
+   /**
+    * The facets of the archive model that the report reads
+    *
+    * @return The required facets
+    */
+   @Override
+   public int getRequiredFacets()
+   {
+      return ArchiveFacets.MANIFEST | ArchiveFacets.SIGN;
+   }
+
    /**
     * Get the name of the report
     *
@@ -22,15 +22,13 @@
 package org.jboss.tattletale.reporting;
 
 import org.jboss.tattletale.core.Archive;
-import org.jboss.tattletale.core.NestableArchive;
+import org.jboss.tattletale.core.ArchiveFacets;
 
 import java.io.BufferedWriter;
 import java.io.IOException;
-import java.util.List;
 import java.util.Map;
 import java.util.SortedMap;
 import java.util.SortedSet;
-import java.util.TreeMap;
 
 /**
  * Blacklisted report
@@ -52,6 +50,17 @@ public class BlackListedReport extends AbstractReport
       super(DIRECTORY, ReportSeverity.ERROR, NAME, DIRECTORY);
    }
 
+   /**
+    * The facets of the archive model that the report reads
+    *
+    * @return The required facets
+    */
+   @Override
+   public int getRequiredFacets()
+   {
+      return ArchiveFacets.BLACKLISTED_DEPENDENCIES;
+   }
+
    /**
     * write out the report's content
     *
@@ -75,7 +84,7 @@ public class BlackListedReport extends AbstractReport
          int finalDot = archiveName.lastIndexOf(".");
          String extension = archiveName.substring(finalDot + 1);
 
-         SortedMap<String, SortedSet<String>> blacklisted = getBlackListedDeps(archive);
+         SortedMap<String, SortedSet<String>> blacklisted = archive.getAllBlackListedDependencies();
          boolean include = false;
          boolean filtered = isFiltered(archive.getName());
 
@@ -149,26 +158,6 @@ public class BlackListedReport extends AbstractReport
       }
    }
 
-   private SortedMap<String, SortedSet<String>> getBlackListedDeps(Archive a)
-   {
-      SortedMap<String, SortedSet<String>> deps = new TreeMap<String, SortedSet<String>>();
-      if (a instanceof NestableArchive)
-      {
-         NestableArchive na = (NestableArchive) a;
-         List<Archive> subArchives = na.getSubArchives();
-
-         for (Archive sa : subArchives)
-         {
-            deps.putAll(getBlackListedDeps(sa));
-         }
-      }
-      else
-      {
-         deps.putAll(a.getBlackListedDependencies());
-      }
-      return deps;
-   }
-
    /**
     * write out the header of the report's content
     *
@@ -21,10 +21,20 @@
  */
 package org.jboss.tattletale.reporting;
 
+import org.jboss.tattletale.core.Archive;
 import org.jboss.tattletale.profiles.Profile;
 import org.jboss.tattletale.reporting.classloader.ClassLoaderStructure;
+import org.jboss.tattletale.reporting.classloader.ImpactAnalyzer;
+import org.jboss.tattletale.reporting.classloader.RemovalImpact;
+import org.jboss.tattletale.reporting.classloader.VisibilityIndex;
+import org.jboss.tattletale.utils.EventListener;
+import org.jboss.tattletale.utils.Metrics;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Abstract base class for all CLS based reports.
@@ -39,6 +49,12 @@ public abstract class CLSReport extends AbstractReport
    /** the CLS */
    private ClassLoaderStructure cls = null;
 
+   /** The metrics */
+   private Metrics metrics = null;
+
+   /** The providers of the classes and the views of the archives */
+   private VisibilityIndex visibilityIndex = null;
+
    /**
     * Constructor
     *
@@ -89,6 +105,63 @@ public abstract class CLSReport extends AbstractReport
       }
    }
 
+   /**
+    * Set the providers of the classes and the views of the archives, which are shared between the
+    * reports. The index must be built for the archives and the classloader structure of the report
+    *
+    * @param visibilityIndex The value
+    */
+   public void setVisibilityIndex(VisibilityIndex visibilityIndex)
+   {
+      this.visibilityIndex = visibilityIndex;
+   }
+
+   /**
+    * Get the providers of the classes and the views of the archives. Without a shared index the report
+    * builds its own
+    *
+    * @return The value
+    */
+   VisibilityIndex getVisibilityIndex()
+   {
+      if (visibilityIndex == null)
+      {
+         visibilityIndex = new VisibilityIndex(archives, cls, getEventListener());
+      }
+
+      return visibilityIndex;
+   }
+
+   /**
+    * Get the metrics
+    *
+    * @return The value; <code>null</code> if the report isn't measured
+    */
+   Metrics getMetrics()
+   {
+      return metrics;
+   }
+
+   /**
+    * Set the metrics that the work of the report is measured in
+    *
+    * @param metrics The value
+    */
+   public void setMetrics(Metrics metrics)
+   {
+      this.metrics = metrics;
+   }
+
+   /**
+    * Get the event listener
+    *
+    * @return The value; <code>null</code> if no events are fired
+    */
+   EventListener getEventListener()
+   {
+      return metrics != null ? metrics.getListener() : null;
+   }
+
    /**
     * Set the known archives
     *
@@ -108,4 +181,71 @@ public abstract class CLSReport extends AbstractReport
    {
       return known;
    }
+
+   /**
+    * Write a table with the archives that can't resolve all their classes any more when
+    * each of the candidates is removed
+    *
+    * @param bw         the writer to use
+    * @param candidates The candidates for removal
+    * @throws IOException if an error occurs
+    */
+   protected void writeRemovalImpact(BufferedWriter bw, List<Archive> candidates) throws IOException
+   {
+      ImpactAnalyzer analyzer = new ImpactAnalyzer(getVisibilityIndex(), known);
+
+      bw.write(Dump.newLine());
+      bw.write("<p>" + Dump.newLine());
+
+      bw.write("<table>" + Dump.newLine());
+
+      bw.write("  <tr>" + Dump.newLine());
+      bw.write("     <th>Archive</th>" + Dump.newLine());
+      bw.write("     <th>Impact of removal</th>" + Dump.newLine());
+      bw.write("  </tr>" + Dump.newLine());
+
+      boolean odd = true;
+
+      for (Map.Entry<Archive, RemovalImpact> entry : analyzer.evaluateRemovals(candidates).entrySet())
+      {
+         RemovalImpact impact = entry.getValue();
+
+         if (odd)
+         {
+            bw.write("  <tr class=\"rowodd\">" + Dump.newLine());
+         }
+         else
+         {
+            bw.write("  <tr class=\"roweven\">" + Dump.newLine());
+         }
+         bw.write("     <td>" + getArchiveLink(entry.getKey()) + "</td>" + Dump.newLine());
+         bw.write("     <td>");
+
+         if (impact.isEmpty())
+         {
+            bw.write("<i>None</i>");
+         }
+         else
+         {
+            Iterator<Archive> it = impact.getArchives().iterator();
+            while (it.hasNext())
+            {
+               Archive archive = it.next();
+               bw.write(getArchiveLink(archive) + " (" + impact.getUnresolved(archive).size() + ")");
+
+               if (it.hasNext())
+               {
+                  bw.write(", ");
+               }
+            }
+         }
+
+         bw.write("</td>" + Dump.newLine());
+         bw.write("  </tr>" + Dump.newLine());
+
+         odd = !odd;
+      }
+
+      bw.write("</table>" + Dump.newLine());
+   }
 }
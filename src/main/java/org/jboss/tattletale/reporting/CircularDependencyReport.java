@@ -22,6 +22,7 @@
 package org.jboss.tattletale.reporting;
 
 import org.jboss.tattletale.core.Archive;
+import org.jboss.tattletale.core.ArchiveFacets;
 import org.jboss.tattletale.core.ArchiveTypes;
 import org.jboss.tattletale.core.NestableArchive;
 
@@ -54,6 +55,17 @@ public class CircularDependencyReport extends CLSReport
       super(DIRECTORY, ReportSeverity.ERROR, NAME, DIRECTORY);
    }
 
+   /**
+    * The facets of the archive model that the report reads
+    *
+    * @return The required facets
+    */
+   @Override
+   public int getRequiredFacets()
+   {
+      return ArchiveFacets.NONE;
+   }
+
    /**
     * write out the report's content
     *
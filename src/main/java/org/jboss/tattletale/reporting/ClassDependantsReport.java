@@ -22,19 +22,12 @@
 
 package org.jboss.tattletale.reporting;
 
-import org.jboss.tattletale.core.Archive;
-import org.jboss.tattletale.core.NestableArchive;
+import org.jboss.tattletale.core.ArchiveFacets;
+import org.jboss.tattletale.core.ClassDependencyIndex;
 import org.jboss.tattletale.profiles.Profile;
 
 import java.io.BufferedWriter;
 import java.io.IOException;
-import java.util.Iterator;
-import java.util.List;
-import java.util.Map;
-import java.util.SortedMap;
-import java.util.SortedSet;
-import java.util.TreeMap;
-import java.util.TreeSet;
 
 /**
  * Class level Dependants report
@@ -50,12 +43,36 @@ public class ClassDependantsReport extends CLSReport
    private static final String DIRECTORY = "classdependants";
 
 
+   /** The class dependency index */
+   private ClassDependencyIndex classDependencyIndex;
+
    /** Constructor */
    public ClassDependantsReport()
    {
       super(DIRECTORY, ReportSeverity.INFO, NAME, DIRECTORY);
    }
 
+   /**
+    * The facets of the archive model that the report reads
+    *
+    * @return The required facets
+    */
+   @Override
+   public int getRequiredFacets()
+   {
+      return ArchiveFacets.CLASS_DEPENDENCIES;
+   }
+
+
+   /**
+    * Set the class dependency index
+    *
+    * @param classDependencyIndex The index; <code>null</code> if the report should build its own
+    */
+   public void setClassDependencyIndex(ClassDependencyIndex classDependencyIndex)
+   {
+      this.classDependencyIndex = classDependencyIndex;
+   }
 
    /**
     * write out the report's content
@@ -72,68 +89,19 @@ public class ClassDependantsReport extends CLSReport
       bw.write("     <th>Dependants</th>" + Dump.newLine());
       bw.write("  </tr>" + Dump.newLine());
 
-      SortedMap<String, SortedSet<String>> result = new TreeMap<String, SortedSet<String>>();
-
-      boolean odd = true;
-
-      for (Archive archive : archives)
+      ClassDependencyIndex index = classDependencyIndex;
+      if (index == null)
       {
-         SortedMap<String, SortedSet<String>> classDependencies = getClassDependencies(archive);
-
-         Iterator<Map.Entry<String, SortedSet<String>>> dit = classDependencies.entrySet().iterator();
-         while (dit.hasNext())
-         {
-            Map.Entry<String, SortedSet<String>> entry = dit.next();
-            String clz = entry.getKey();
-            SortedSet<String> clzDeps = entry.getValue();
-
-            Iterator<String> sit = clzDeps.iterator();
-            while (sit.hasNext())
-            {
-               String dep = sit.next();
-
-               if (!dep.equals(clz))
-               {
-                  boolean include = true;
-
-                  Iterator<Profile> kit = getKnown().iterator();
-                  while (include && kit.hasNext())
-                  {
-                     Profile profile = kit.next();
-
-                     if (profile.doesProvide(dep))
-                     {
-                        include = false;
-                     }
-                  }
-
-                  if (include)
-                  {
-                     SortedSet<String> deps = result.get(dep);
-
-                     if (deps == null)
-                     {
-                        deps = new TreeSet<String>();
-                     }
-
-                     deps.add(clz);
-
-                     result.put(dep, deps);
-                  }
-               }
-            }
-         }
+         index = new ClassDependencyIndex(archives);
       }
 
-      Iterator<Map.Entry<String, SortedSet<String>>> rit = result.entrySet().iterator();
+      boolean odd = true;
 
-      while (rit.hasNext())
+      for (int id = 0; id < index.size(); id++)
       {
-         Map.Entry<String, SortedSet<String>> entry = rit.next();
-         String clz = entry.getKey();
-         SortedSet<String> deps = entry.getValue();
+         int[] deps = index.getDependants(id);
 
-         if (deps != null && deps.size() > 0)
+         if (deps.length > 0 && !isKnown(index.getClassName(id)))
          {
             if (odd)
             {
@@ -143,16 +111,14 @@ public class ClassDependantsReport extends CLSReport
             {
                bw.write("  <tr class=\"roweven\">" + Dump.newLine());
             }
-            bw.write("     <td>" + clz + "</a></td>" + Dump.newLine());
+            bw.write("     <td>" + index.getClassName(id) + "</a></td>" + Dump.newLine());
             bw.write("     <td>");
 
-            Iterator<String> sit = deps.iterator();
-            while (sit.hasNext())
+            for (int i = 0; i < deps.length; i++)
             {
-               String dep = sit.next();
-               bw.write(dep);
+               bw.write(index.getClassName(deps[i]));
 
-               if (sit.hasNext())
+               if (i < deps.length - 1)
                {
                   bw.write(", ");
                }
@@ -168,27 +134,23 @@ public class ClassDependantsReport extends CLSReport
       bw.write("</table>" + Dump.newLine());
    }
 
-   private SortedMap<String, SortedSet<String>> getClassDependencies(Archive archive)
+   /**
+    * Is a class provided by one of the known profiles
+    *
+    * @param clz The class
+    * @return True if provided; otherwise false
+    */
+   private boolean isKnown(String clz)
    {
-      SortedMap<String, SortedSet<String>> classDeps = new TreeMap<String, SortedSet<String>>();
-
-      if (archive instanceof NestableArchive)
+      for (Profile profile : getKnown())
       {
-         NestableArchive nestableArchive = (NestableArchive) archive;
-         List<Archive> subArchives = nestableArchive.getSubArchives();
-
-         for (Archive sa : subArchives)
+         if (profile.doesProvide(clz))
          {
-            classDeps.putAll(getClassDependencies(sa));
+            return true;
          }
-
-         classDeps.putAll(nestableArchive.getClassDependencies());
       }
-      else
-      {
-         classDeps.putAll(archive.getClassDependencies());
-      }
-      return classDeps;
+
+      return false;
    }
 
    /**
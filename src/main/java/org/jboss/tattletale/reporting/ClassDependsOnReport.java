@@ -23,12 +23,11 @@
 package org.jboss.tattletale.reporting;
 
 import org.jboss.tattletale.core.Archive;
-import org.jboss.tattletale.core.NestableArchive;
+import org.jboss.tattletale.core.ArchiveFacets;
 
 import java.io.BufferedWriter;
 import java.io.IOException;
 import java.util.Iterator;
-import java.util.List;
 import java.util.Map;
 import java.util.SortedMap;
 import java.util.SortedSet;
@@ -55,6 +54,17 @@ public class ClassDependsOnReport extends CLSReport
       super(DIRECTORY, ReportSeverity.INFO, NAME, DIRECTORY);
    }
 
+   /**
+    * The facets of the archive model that the report reads
+    *
+    * @return The required facets
+    */
+   @Override
+   public int getRequiredFacets()
+   {
+      return ArchiveFacets.CLASS_DEPENDENCIES;
+   }
+
 
    /**
     * write out the report's content
@@ -75,7 +85,7 @@ public class ClassDependsOnReport extends CLSReport
 
       for (Archive archive : archives)
       {
-         SortedMap<String, SortedSet<String>> classDependencies = getClassDependencies(archive);
+         SortedMap<String, SortedSet<String>> classDependencies = archive.getAllClassDependencies();
 
          Iterator<Map.Entry<String, SortedSet<String>>> dit = classDependencies.entrySet().iterator();
          while (dit.hasNext())
@@ -139,29 +149,6 @@ public class ClassDependsOnReport extends CLSReport
       bw.write("</table>" + Dump.newLine());
    }
 
-   private SortedMap<String, SortedSet<String>> getClassDependencies(Archive archive)
-   {
-      SortedMap<String, SortedSet<String>> classDeps = new TreeMap<String, SortedSet<String>>();
-
-      if (archive instanceof NestableArchive)
-      {
-         NestableArchive nestableArchive = (NestableArchive) archive;
-         List<Archive> subArchives = nestableArchive.getSubArchives();
-
-         for (Archive sa : subArchives)
-         {
-            classDeps.putAll(getClassDependencies(sa));
-         }
-
-         classDeps.putAll(nestableArchive.getClassDependencies());
-      }
-      else
-      {
-         classDeps.putAll(archive.getClassDependencies());
-      }
-      return classDeps;
-   }
-
 
    /**
     * write out the header of the report's content
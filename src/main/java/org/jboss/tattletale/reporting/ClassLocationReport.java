@@ -21,6 +21,8 @@
  */
 package org.jboss.tattletale.reporting;
 
+import org.jboss.tattletale.core.ArchiveFacets;
+
 import java.io.BufferedWriter;
 import java.io.IOException;
 import java.util.Iterator;
@@ -51,6 +53,17 @@ public class ClassLocationReport extends AbstractReport
       super(DIRECTORY, ReportSeverity.INFO, NAME, DIRECTORY);
    }
 
+   /**
+    * The facets of the archive model that the report reads
+    *
+    * @return The required facets
+    */
+   @Override
+   public int getRequiredFacets()
+   {
+      return ArchiveFacets.CLASS_DIGESTS;
+   }
+
    /**
     * Set the globally provides map to be used in generating this report
     *
@@ -78,16 +91,17 @@ public class ClassLocationReport extends AbstractReport
       bw.write("  </tr>" + Dump.newLine());
 
       boolean odd = true;
+      DigestGroups digestGroups = new DigestGroups(archives, gProvides);
 
       for (Map.Entry<String, SortedSet<String>> entry : gProvides.entrySet())
       {
-         String clz = (String) ((Map.Entry) entry).getKey();
-         SortedSet archives = (SortedSet) ((Map.Entry) entry).getValue();
+         String clz = entry.getKey();
+         SortedSet<String> locations = entry.getValue();
          boolean filtered = isFiltered(clz);
 
          if (!filtered)
          {
-            if (archives.size() > 1)
+            if (locations.size() > 1)
             {
                status = ReportStatus.YELLOW;
             }
@@ -111,18 +125,27 @@ public class ClassLocationReport extends AbstractReport
             bw.write("        <td style=\"text-decoration: line-through;\">");
          }
 
-         Iterator sit = archives.iterator();
-         while (sit.hasNext())
+         Iterator<SortedSet<String>> git = digestGroups.getGroups(clz, locations).iterator();
+         while (git.hasNext())
          {
-            String archive = (String) sit.next();
-            int finalDot = archive.lastIndexOf(".");
-            String extension = archive.substring(finalDot + 1);
+            Iterator<String> sit = git.next().iterator();
+            while (sit.hasNext())
+            {
+               String archive = sit.next();
+               int finalDot = archive.lastIndexOf(".");
+               String extension = archive.substring(finalDot + 1);
 
-            bw.write("<a href=\"../" + extension + "/" + archive + ".html\">" + archive + "</a>" + Dump.newLine());
+               bw.write("<a href=\"../" + extension + "/" + archive + ".html\">" + archive + "</a>" + Dump.newLine());
+
+               if (sit.hasNext())
+               {
+                  bw.write(", ");
+               }
+            }
 
-            if (sit.hasNext())
+            if (git.hasNext())
             {
-               bw.write(", ");
+               bw.write("<br>" + Dump.newLine());
             }
          }
 
@@ -22,12 +22,11 @@
 package org.jboss.tattletale.reporting;
 
 import org.jboss.tattletale.core.Archive;
-import org.jboss.tattletale.core.NestableArchive;
+import org.jboss.tattletale.core.ArchiveFacets;
 
 import java.io.BufferedWriter;
 import java.io.IOException;
 import java.util.Iterator;
-import java.util.List;
 import java.util.SortedSet;
 import java.util.TreeSet;
 
@@ -53,6 +52,17 @@ public class DependantsReport extends CLSReport
       super(DIRECTORY, ReportSeverity.INFO, NAME, DIRECTORY);
    }
 
+   /**
+    * The facets of the archive model that the report reads
+    *
+    * @return The required facets
+    */
+   @Override
+   public int getRequiredFacets()
+   {
+      return ArchiveFacets.NONE;
+   }
+
    /**
     * write out the report's content
     *
@@ -93,7 +103,7 @@ public class DependantsReport extends CLSReport
          for (Archive a : archives)
          {
 
-            for (String require : getRequires(archive))
+            for (String require : archive.getAllRequires())
             {
 
                if (archive.doesProvide(require) && (getCLS() == null || getCLS().isVisible(a, archive)))
@@ -139,26 +149,6 @@ public class DependantsReport extends CLSReport
       bw.write("</table>" + Dump.newLine());
    }
 
-   private SortedSet<String> getRequires(Archive archive)
-   {
-      SortedSet<String> requires = new TreeSet<String>();
-      if (archive instanceof NestableArchive)
-      {
-         NestableArchive nestableArchive = (NestableArchive) archive;
-         List<Archive> subArchives = nestableArchive.getSubArchives();
-         requires.addAll(nestableArchive.getRequires());
-         for (Archive sa : subArchives)
-         {
-            requires.addAll(getRequires(sa));
-         }
-      }
-      else
-      {
-         requires.addAll(archive.getRequires());
-      }
-      return requires;
-   }
-
    /**
     * write out the header of the report's content
     *
@@ -23,13 +23,12 @@
 package org.jboss.tattletale.reporting;
 
 import org.jboss.tattletale.core.Archive;
-import org.jboss.tattletale.core.NestableArchive;
+import org.jboss.tattletale.core.ArchiveFacets;
 import org.jboss.tattletale.profiles.Profile;
 
 import java.io.BufferedWriter;
 import java.io.IOException;
 import java.util.Iterator;
-import java.util.List;
 import java.util.SortedSet;
 import java.util.TreeSet;
 
@@ -54,6 +53,17 @@ public class DependsOnReport extends CLSReport
       super(DIRECTORY, ReportSeverity.INFO, NAME, DIRECTORY);
    }
 
+   /**
+    * The facets of the archive model that the report reads
+    *
+    * @return The required facets
+    */
+   @Override
+   public int getRequiredFacets()
+   {
+      return ArchiveFacets.NONE;
+   }
+
 
    /**
     * write out the report's content
@@ -92,7 +102,7 @@ public class DependsOnReport extends CLSReport
 
          SortedSet<String> result = new TreeSet<String>();
 
-         for (String require : getRequires(archive))
+         for (String require : archive.getAllRequires())
          {
 
             boolean found = false;
@@ -172,27 +182,6 @@ public class DependsOnReport extends CLSReport
       bw.write("</table>" + Dump.newLine());
    }
 
-   private SortedSet<String> getRequires(Archive archive)
-   {
-      SortedSet<String> requires = new TreeSet<String>();
-      if (archive instanceof NestableArchive)
-      {
-         NestableArchive nestableArchive = (NestableArchive) archive;
-         List<Archive> subArchives = nestableArchive.getSubArchives();
-         for (Archive sa : subArchives)
-         {
-            requires.addAll(getRequires(sa));
-         }
-
-         requires.addAll(nestableArchive.getRequires());
-      }
-      else
-      {
-         requires.addAll(archive.getRequires());
-      }
-      return requires;
-   }
-
    /**
     * write out the header of the report's content
     *
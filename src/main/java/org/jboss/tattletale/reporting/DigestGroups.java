@@ -0,0 +1,136 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2009, Red Hat Middleware LLC, and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.tattletale.reporting;
+
+import org.jboss.tattletale.core.Archive;
+import org.jboss.tattletale.core.NestableArchive;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * Groups the copies of a class located in multiple archives by the digest of their bytecode,
+ * such that identical copies can be told apart from divergent ones
+ *
+ * @author Jesper Pedersen <jesper.pedersen@jboss.org>
+ */
+public class DigestGroups
+{
+   /** The digests of the classes located in multiple archives; class name to archive name to digest */
+   private Map<String, Map<String, String>> digests;
+
+   /**
+    * Constructor
+    *
+    * @param archives  The archives
+    * @param gProvides The globally provides map
+    */
+   public DigestGroups(Collection<Archive> archives, SortedMap<String, SortedSet<String>> gProvides)
+   {
+      this.digests = new HashMap<String, Map<String, String>>();
+
+      if (archives != null && gProvides != null)
+      {
+         for (Archive archive : archives)
+         {
+            addDigests(archive, gProvides);
+         }
+      }
+   }
+
+   /**
+    * Add the digests of an archive and its sub-archives
+    *
+    * @param archive   The archive
+    * @param gProvides The globally provides map
+    */
+   private void addDigests(Archive archive, SortedMap<String, SortedSet<String>> gProvides)
+   {
+      for (Map.Entry<String, String> entry : archive.getDigests().entrySet())
+      {
+         SortedSet<String> providers = gProvides.get(entry.getKey());
+
+         if (providers != null && providers.size() > 1)
+         {
+            Map<String, String> archiveDigests = digests.get(entry.getKey());
+
+            if (archiveDigests == null)
+            {
+               archiveDigests = new HashMap<String, String>();
+               digests.put(entry.getKey(), archiveDigests);
+            }
+
+            archiveDigests.put(archive.getName(), entry.getValue());
+         }
+      }
+
+      if (archive instanceof NestableArchive)
+      {
+         for (Archive subArchive : ((NestableArchive) archive).getSubArchives())
+         {
+            addDigests(subArchive, gProvides);
+         }
+      }
+   }
+
+   /**
+    * Get the groups of identical copies of a class. An archive for which no digest
+    * is known forms a group of its own
+    *
+    * @param clz          The class name
+    * @param archiveNames The names of the archives containing the class
+    * @return The groups, ordered by their first archive name
+    */
+   public List<SortedSet<String>> getGroups(String clz, Collection<String> archiveNames)
+   {
+      List<SortedSet<String>> result = new ArrayList<SortedSet<String>>();
+      Map<String, SortedSet<String>> byDigest = new HashMap<String, SortedSet<String>>();
+      Map<String, String> archiveDigests = digests.get(clz);
+
+      for (String archiveName : archiveNames)
+      {
+         String digest = archiveDigests != null ? archiveDigests.get(archiveName) : null;
+         SortedSet<String> group = digest != null ? byDigest.get(digest) : null;
+
+         if (group == null)
+         {
+            group = new TreeSet<String>();
+            result.add(group);
+
+            if (digest != null)
+            {
+               byDigest.put(digest, group);
+            }
+         }
+
+         group.add(archiveName);
+      }
+
+      return result;
+   }
+}
@@ -22,15 +22,15 @@
 package org.jboss.tattletale.reporting;
 
 import org.jboss.tattletale.core.Archive;
+import org.jboss.tattletale.core.ArchiveFacets;
 import org.jboss.tattletale.core.Location;
-import org.jboss.tattletale.core.NestableArchive;
 
 import java.io.BufferedWriter;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.SortedSet;
-import java.util.TreeSet;
 
 /**
  * Eliminate JAR files with multiple versions
@@ -38,7 +38,7 @@ import java.util.TreeSet;
  * @author Jesper Pedersen <jesper.pedersen@jboss.org>
  * @author <a href="mailto:torben.jaeger@jit-consulting.de">Torben Jaeger</a>
  */
-public class EliminateJarsReport extends AbstractReport
+public class EliminateJarsReport extends CLSReport
 {
    /** NAME */
    private static final String NAME = "Eliminate Jar files with different versions";
@@ -52,6 +52,17 @@ public class EliminateJarsReport extends AbstractReport
       super(DIRECTORY, ReportSeverity.WARNING, NAME, DIRECTORY);
    }
 
+   /**
+    * The facets of the archive model that the report reads
+    *
+    * @return The required facets
+    */
+   @Override
+   public int getRequiredFacets()
+   {
+      return ArchiveFacets.NONE;
+   }
+
    /**
     * write out the report's content
     *
@@ -68,6 +79,7 @@ public class EliminateJarsReport extends AbstractReport
       bw.write("  </tr>" + Dump.newLine());
 
       boolean odd = true;
+      List<Archive> candidates = new ArrayList<Archive>();
 
       for (Archive archive : archives)
       {
@@ -75,7 +87,7 @@ public class EliminateJarsReport extends AbstractReport
          int finalDot = archiveName.lastIndexOf(".");
          String extension = archiveName.substring(finalDot + 1);
 
-         SortedSet<Location> locations = getLocations(archive);
+         SortedSet<Location> locations = archive.getAllLocations();
          Iterator<Location> lit = locations.iterator();
 
          Location location = lit.next();
@@ -106,6 +118,8 @@ public class EliminateJarsReport extends AbstractReport
 
          if (include)
          {
+            candidates.add(archive);
+
             if (odd)
             {
                bw.write("  <tr class=\"rowodd\">" + Dump.newLine());
@@ -160,29 +174,14 @@ public class EliminateJarsReport extends AbstractReport
       }
 
       bw.write("</table>" + Dump.newLine());
-   }
 
-
-   private SortedSet<Location> getLocations(Archive archive)
-   {
-      SortedSet<Location> locations = new TreeSet<Location>();
-      if (archive instanceof NestableArchive)
-      {
-         NestableArchive nestableArchive = (NestableArchive) archive;
-         List<Archive> subArchives = nestableArchive.getSubArchives();
-
-         for (Archive sa : subArchives)
-         {
-            locations.addAll(getLocations(sa));
-         }
-      }
-      else
+      if (candidates.size() > 0)
       {
-         locations.addAll(archive.getLocations());
+         writeRemovalImpact(bw, candidates);
       }
-      return locations;
    }
 
+
    /**
     * write out the header of the report's content
     *
@@ -0,0 +1,203 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2009, Red Hat Middleware LLC, and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.tattletale.reporting;
+
+/**
+ * A trie of the values of a filter, which answers if any of the values is a prefix of a query
+ * in a single pass over the query
+ *
+ * @author Jesper Pedersen <jesper.pedersen@jboss.org>
+ */
+public class FilterTrie
+{
+   /** The root node */
+   private Node root;
+
+   /** Constructor */
+   public FilterTrie()
+   {
+      root = new Node();
+   }
+
+   /**
+    * Normalize a filter value
+    *
+    * @param value The value as written in the filter definition
+    * @return The normalized value
+    */
+   public static String normalizeValue(String value)
+   {
+      boolean includeAll = false;
+
+      if (value.endsWith(".class"))
+      {
+         value = value.substring(0, value.indexOf(".class"));
+      }
+
+      if (value.endsWith(".jar"))
+      {
+         value = value.substring(0, value.indexOf(".jar"));
+      }
+
+      if (value.endsWith(".*"))
+      {
+         value = value.substring(0, value.indexOf(".*"));
+         includeAll = true;
+      }
+
+      value = value.replace('.', '/');
+
+      if (includeAll)
+      {
+         value = value + '/';
+      }
+
+      return value;
+   }
+
+   /**
+    * Normalize a query
+    *
+    * @param query The query
+    * @return The normalized query
+    */
+   public static String normalizeQuery(String query)
+   {
+      if (query.endsWith(".class"))
+      {
+         query = query.substring(0, query.indexOf(".class"));
+      }
+
+      if (query.endsWith(".jar"))
+      {
+         query = query.substring(0, query.indexOf(".jar"));
+      }
+
+      if (query.endsWith(".*"))
+      {
+         query = query.substring(0, query.indexOf(".*"));
+      }
+
+      return query.replace('.', '/');
+   }
+
+   /**
+    * Add a normalized value
+    *
+    * @param value The value
+    */
+   public void add(String value)
+   {
+      Node node = root;
+
+      for (int i = 0; i < value.length(); i++)
+      {
+         node = node.getChild(value.charAt(i), true);
+      }
+
+      node.terminal = true;
+   }
+
+   /**
+    * Is any of the values a prefix of a normalized query
+    *
+    * @param query The query
+    * @return True if a value matches; otherwise false
+    */
+   public boolean matches(String query)
+   {
+      Node node = root;
+
+      for (int i = 0; !node.terminal && i < query.length(); i++)
+      {
+         node = node.getChild(query.charAt(i), false);
+
+         if (node == null)
+         {
+            return false;
+         }
+      }
+
+      return node.terminal;
+   }
+
+   /**
+    * A node of the trie
+    */
+   private static class Node
+   {
+      /** Is a value ending here */
+      private boolean terminal;
+
+      /** The characters of the children */
+      private char[] keys;
+
+      /** The children */
+      private Node[] children;
+
+      /** Constructor */
+      Node()
+      {
+         terminal = false;
+         keys = new char[0];
+         children = new Node[0];
+      }
+
+      /**
+       * Get a child
+       *
+       * @param c      The character
+       * @param create Create the child if it doesn't exist
+       * @return The child; <code>null</code> if it doesn't exist
+       */
+      Node getChild(char c, boolean create)
+      {
+         for (int i = 0; i < keys.length; i++)
+         {
+            if (keys[i] == c)
+            {
+               return children[i];
+            }
+         }
+
+         if (!create)
+         {
+            return null;
+         }
+
+         char[] newKeys = new char[keys.length + 1];
+         Node[] newChildren = new Node[children.length + 1];
+
+         System.arraycopy(keys, 0, newKeys, 0, keys.length);
+         System.arraycopy(children, 0, newChildren, 0, children.length);
+
+         Node child = new Node();
+         newKeys[keys.length] = c;
+         newChildren[children.length] = child;
+
+         keys = newKeys;
+         children = newChildren;
+
+         return child;
+      }
+   }
+}
@@ -22,17 +22,16 @@
 package org.jboss.tattletale.reporting;
 
 import org.jboss.tattletale.core.Archive;
-import org.jboss.tattletale.core.ClassesArchive;
-import org.jboss.tattletale.core.NestableArchive;
+import org.jboss.tattletale.core.ArchiveFacets;
+import org.jboss.tattletale.utils.EventListener;
+import org.jboss.tattletale.utils.Metrics;
 
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.util.Iterator;
-import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.SortedSet;
@@ -67,6 +66,17 @@ public class GraphvizReport extends CLSReport
       this.graphvizDot = "dot";
    }
 
+   /**
+    * The facets of the archive model that the report reads
+    *
+    * @return The required facets
+    */
+   @Override
+   public int getRequiredFacets()
+   {
+      return ArchiveFacets.PACKAGE_DEPENDENCIES;
+   }
+
    /**
     * Set the configuration properties to use in generating the report
     *
@@ -96,15 +106,13 @@ public class GraphvizReport extends CLSReport
       bw.write("  </tr>" + Dump.newLine());
 
 
-      FileWriter alldotfw = new FileWriter
-      (getOutputDirectory().getAbsolutePath() + File.separator + "dependencies.dot");
-      BufferedWriter alldotw = new BufferedWriter(alldotfw, 8192);
+      BufferedWriter alldotw = getBufferedWriter("dependencies.dot");
 
       alldotw.write("digraph dependencies {" + Dump.newLine());
       alldotw.write("  node [shape = box, fontsize=10.0];" + Dump.newLine());
 
       boolean odd = true;
-      boolean hasDot = testDot();
+      boolean hasDot = isRendering() && testDot();
 
       for (Archive archive : archives)
       {
@@ -128,7 +136,7 @@ public class GraphvizReport extends CLSReport
 
          SortedSet<String> result = new TreeSet<String>();
 
-         for (String require : getRequires(archive))
+         for (String require : archive.getAllRequires())
          {
 
             boolean found = false;
@@ -158,14 +166,12 @@ public class GraphvizReport extends CLSReport
                bw.write("<a href=\"" + archiveName + "/" + archiveName + ".png\">.png</a>");
             }
 
-            File doutput = new File(getOutputDirectory(), archiveName);
-            doutput.mkdirs();
+            File doutput = createDirectory(archiveName);
 
             String dotName = doutput.getAbsolutePath() + File.separator + archiveName + ".dot";
             String pngName = doutput.getAbsolutePath() + File.separator + archiveName + ".png";
 
-            FileWriter dotfw = new FileWriter(dotName);
-            BufferedWriter dotw = new BufferedWriter(dotfw, 8192);
+            BufferedWriter dotw = getBufferedWriter(new File(dotName));
 
             dotw.write("digraph " + dotName(archiveName) + "_dependencies {" + Dump.newLine());
             dotw.write("  node [shape = box, fontsize=10.0];" + Dump.newLine());
@@ -206,14 +212,12 @@ public class GraphvizReport extends CLSReport
                bw.write("<a href=\"" + archiveName + "/" + archiveName + "-package.png\">.png</a>");
             }
 
-            File doutput = new File(getOutputDirectory(), archiveName);
-            doutput.mkdirs();
+            File doutput = createDirectory(archiveName);
 
             String dotName = doutput.getAbsolutePath() + File.separator + archiveName + "-package.dot";
             String pngName = doutput.getAbsolutePath() + File.separator + archiveName + "-package.png";
 
-            FileWriter dotfw = new FileWriter(dotName);
-            BufferedWriter dotw = new BufferedWriter(dotfw, 8192);
+            BufferedWriter dotw = getBufferedWriter(new File(dotName));
 
             dotw.write("digraph " + dotName(archiveName) + "_package_dependencies {" + Dump.newLine());
             dotw.write("  node [shape = box, fontsize=10.0];" + Dump.newLine());
@@ -257,32 +261,6 @@ public class GraphvizReport extends CLSReport
       bw.write("</table>" + Dump.newLine());
    }
 
-   private SortedSet<String> getRequires(Archive archive)
-   {
-      SortedSet<String> requires = new TreeSet<String>();
-
-      if (archive instanceof NestableArchive)
-      {
-         NestableArchive nestableArchive = (NestableArchive) archive;
-         List<Archive> subArchives = nestableArchive.getSubArchives();
-
-         for (Archive sa : subArchives)
-         {
-            requires.addAll(getRequires(sa));
-         }
-         requires.addAll(nestableArchive.getRequires());
-      }
-      else if (archive instanceof ClassesArchive)
-      {
-         // No op
-      }
-      else
-      {
-         requires.addAll(archive.getRequires());
-      }
-      return requires;
-   }
-
    /**
     * write out the header of the report's content
     *
@@ -360,6 +338,10 @@ public class GraphvizReport extends CLSReport
     */
    private boolean generatePicture(String dotName, String pngName, File directory)
    {
+      Metrics metrics = getMetrics();
+      long start = metrics != null ? metrics.start() : 0;
+      int exitValue = -1;
+
       try
       {
          ProcessBuilder pb = new ProcessBuilder();
@@ -385,8 +367,9 @@ public class GraphvizReport extends CLSReport
          */
 
          proc.waitFor();
+         exitValue = proc.exitValue();
 
-         if (proc.exitValue() != 0)
+         if (exitValue != 0)
          {
             return false;
          }
@@ -401,6 +384,19 @@ public class GraphvizReport extends CLSReport
       {
          System.err.println(ioe.getMessage());
       }
+      finally
+      {
+         if (metrics != null)
+         {
+            long duration = metrics.stop(Metrics.GRAPHVIZ, start);
+
+            EventListener listener = metrics.getListener();
+            if (listener != null)
+            {
+               listener.dotInvoked(dotName, exitValue, duration);
+            }
+         }
+      }
 
       return false;
    }
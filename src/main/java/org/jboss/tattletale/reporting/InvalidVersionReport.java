@@ -22,15 +22,13 @@
 package org.jboss.tattletale.reporting;
 
 import org.jboss.tattletale.core.Archive;
+import org.jboss.tattletale.core.ArchiveFacets;
 import org.jboss.tattletale.core.Location;
-import org.jboss.tattletale.core.NestableArchive;
 
 import java.io.BufferedWriter;
 import java.io.IOException;
 import java.util.Iterator;
-import java.util.List;
 import java.util.SortedSet;
-import java.util.TreeSet;
 
 /**
  * Multiple locations report
@@ -52,6 +50,17 @@ public class InvalidVersionReport extends AbstractReport
       super(DIRECTORY, ReportSeverity.WARNING, NAME, DIRECTORY);
    }
 
+   /**
+    * The facets of the archive model that the report reads
+    *
+    * @return The required facets
+    */
+   @Override
+   public int getRequiredFacets()
+   {
+      return ArchiveFacets.NONE;
+   }
+
    /**
     * write out the report's content
     *
@@ -76,7 +85,7 @@ public class InvalidVersionReport extends AbstractReport
          int finalDot = archiveName.lastIndexOf(".");
          String extension = archiveName.substring(finalDot + 1);
 
-         SortedSet<Location> locations = getLocations(archive);
+         SortedSet<Location> locations = archive.getAllLocations();
          Iterator<Location> lit = locations.iterator();
 
          Location location = lit.next();
@@ -147,26 +156,6 @@ public class InvalidVersionReport extends AbstractReport
    }
 
 
-   private SortedSet<Location> getLocations(Archive archive)
-   {
-      SortedSet<Location> locations = new TreeSet<Location>();
-      if (archive instanceof NestableArchive)
-      {
-         NestableArchive nestableArchive = (NestableArchive) archive;
-         List<Archive> subArchives = nestableArchive.getSubArchives();
-
-         for (Archive sa : subArchives)
-         {
-            locations.addAll(getLocations(sa));
-         }
-      }
-      else
-      {
-         locations.addAll(archive.getLocations());
-      }
-      return locations;
-   }
-
    /**
     * write out the header of the report's content
     *
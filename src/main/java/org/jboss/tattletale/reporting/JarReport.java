@@ -28,6 +28,7 @@ import org.jboss.tattletale.core.Location;
 import java.io.BufferedWriter;
 import java.io.IOException;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 
 import javassist.bytecode.ClassFile;
@@ -202,6 +203,11 @@ public class JarReport extends ArchiveReport
          }
          bw.write("</td>" + Dump.newLine());
 
+         if (location.getCoordinate() != null)
+         {
+            bw.write("        <td>" + location.getCoordinate() + "</td>" + Dump.newLine());
+         }
+
          bw.write("      </tr>" + Dump.newLine());
       }
 
@@ -234,9 +240,10 @@ public class JarReport extends ArchiveReport
       bw.write("     <td>Manifest</td>" + Dump.newLine());
       bw.write("     <td>");
 
-      if (archive.getManifest() != null)
+      List<String> manifest = archive.getManifest();
+      if (manifest != null)
       {
-         Iterator<String> mit = archive.getManifest().iterator();
+         Iterator<String> mit = manifest.iterator();
          while (mit.hasNext())
          {
             String m = mit.next();
@@ -257,9 +264,10 @@ public class JarReport extends ArchiveReport
       bw.write("     <td>Signing information</td>" + Dump.newLine());
       bw.write("     <td>");
 
-      if (archive.getSign() != null)
+      List<String> sign = archive.getSign();
+      if (sign != null)
       {
-         Iterator<String> sit = archive.getSign().iterator();
+         Iterator<String> sit = sign.iterator();
          while (sit.hasNext())
          {
             String s = sit.next();
@@ -21,10 +21,9 @@
  */
 package org.jboss.tattletale.reporting;
 
-import java.util.Iterator;
-import java.util.SortedSet;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.StringTokenizer;
-import java.util.TreeSet;
 
 /**
  * Represents a key filter
@@ -34,12 +33,16 @@ import java.util.TreeSet;
 public class KeyFilter implements Filter
 {
    /** Key Filters */
-   private SortedSet<String> keyFilters;
+   private FilterTrie keyFilters;
+
+   /** The results of the queries so far */
+   private Map<String, Boolean> results;
 
    /** Constructor */
    public KeyFilter()
    {
-      keyFilters = new TreeSet<String>(new SizeComparator());
+      keyFilters = new FilterTrie();
+      results = new HashMap<String, Boolean>();
    }
 
    /**
@@ -60,35 +63,15 @@ public class KeyFilter implements Filter
     */
    public boolean isFiltered(String archive)
    {
-      if (archive.endsWith(".class"))
-      {
-         archive = archive.substring(0, archive.indexOf(".class"));
-      }
-
-      if (archive.endsWith(".jar"))
-      {
-         archive = archive.substring(0, archive.indexOf(".jar"));
-      }
+      Boolean result = results.get(archive);
 
-      if (archive.endsWith(".*"))
+      if (result == null)
       {
-         archive = archive.substring(0, archive.indexOf(".*"));
+         result = Boolean.valueOf(keyFilters.matches(FilterTrie.normalizeQuery(archive)));
+         results.put(archive, result);
       }
 
-      archive = archive.replace('.', '/');
-
-      Iterator<String> it = keyFilters.iterator();
-      while (it.hasNext())
-      {
-         String v = it.next();
-
-         if (archive.startsWith(v))
-         {
-            return true;
-         }
-      }
-
-      return false;
+      return result.booleanValue();
    }
 
    /**
@@ -115,35 +98,10 @@ public class KeyFilter implements Filter
          StringTokenizer vt = new StringTokenizer(filter, ",");
          while (vt.hasMoreTokens())
          {
-            String value = vt.nextToken();
-
-            boolean includeAll = false;
-
-            if (value.endsWith(".class"))
-            {
-               value = value.substring(0, value.indexOf(".class"));
-            }
-
-            if (value.endsWith(".jar"))
-            {
-               value = value.substring(0, value.indexOf(".jar"));
-            }
-
-            if (value.endsWith(".*"))
-            {
-               value = value.substring(0, value.indexOf(".*"));
-               includeAll = true;
-            }
-
-            value = value.replace('.', '/');
-
-            if (includeAll)
-            {
-               value = value + '/';
-            }
-
-            keyFilters.add(value);
+            keyFilters.add(FilterTrie.normalizeValue(vt.nextToken()));
          }
+
+         results.clear();
       }
    }
 }
@@ -22,11 +22,8 @@
 package org.jboss.tattletale.reporting;
 
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.Map;
-import java.util.SortedSet;
 import java.util.StringTokenizer;
-import java.util.TreeSet;
 
 /**
  * Represents a key/value filter
@@ -36,12 +33,16 @@ import java.util.TreeSet;
 public class KeyValueFilter implements Filter
 {
    /** KeyValue Filters */
-   private Map<String, SortedSet<String>> keyValueFilters;
+   private Map<String, FilterTrie> keyValueFilters;
+
+   /** The results of the queries so far for each key */
+   private Map<String, Map<String, Boolean>> results;
 
    /** Constructor */
    public KeyValueFilter()
    {
-      keyValueFilters = new HashMap<String, SortedSet<String>>();
+      keyValueFilters = new HashMap<String, FilterTrie>();
+      results = new HashMap<String, Map<String, Boolean>>();
    }
 
    /**
@@ -74,37 +75,27 @@ public class KeyValueFilter implements Filter
     */
    public boolean isFiltered(String archive, String query)
    {
-      SortedSet<String> ss = keyValueFilters.get(archive);
+      FilterTrie trie = keyValueFilters.get(archive);
 
-      if (ss != null)
+      if (trie != null)
       {
-         if (query.endsWith(".class"))
-         {
-            query = query.substring(0, query.indexOf(".class"));
-         }
+         Map<String, Boolean> archiveResults = results.get(archive);
 
-         if (query.endsWith(".jar"))
+         if (archiveResults == null)
          {
-            query = query.substring(0, query.indexOf(".jar"));
+            archiveResults = new HashMap<String, Boolean>();
+            results.put(archive, archiveResults);
          }
 
-         if (query.endsWith(".*"))
-         {
-            query = query.substring(0, query.indexOf(".*"));
-         }
+         Boolean result = archiveResults.get(query);
 
-         query = query.replace('.', '/');
-
-         Iterator<String> it = ss.iterator();
-         while (it.hasNext())
+         if (result == null)
          {
-            String v = it.next();
-
-            if (query.startsWith(v))
-            {
-               return true;
-            }
+            result = Boolean.valueOf(trie.matches(FilterTrie.normalizeQuery(query)));
+            archiveResults.put(query, result);
          }
+
+         return result.booleanValue();
       }
 
       return false;
@@ -129,43 +120,18 @@ public class KeyValueFilter implements Filter
             String key = token.substring(0, equal);
             String values = token.substring(equal + 1);
 
-            SortedSet<String> v = new TreeSet<String>(new SizeComparator());
+            FilterTrie v = new FilterTrie();
 
             StringTokenizer vt = new StringTokenizer(values, ",");
             while (vt.hasMoreTokens())
             {
-               String value = vt.nextToken();
-
-               boolean includeAll = false;
-
-               if (value.endsWith(".class"))
-               {
-                  value = value.substring(0, value.indexOf(".class"));
-               }
-
-               if (value.endsWith(".jar"))
-               {
-                  value = value.substring(0, value.indexOf(".jar"));
-               }
-
-               if (value.endsWith(".*"))
-               {
-                  value = value.substring(0, value.indexOf(".*"));
-                  includeAll = true;
-               }
-
-               value = value.replace('.', '/');
-
-               if (includeAll)
-               {
-                  value = value + '/';
-               }
-
-               v.add(value);
+               v.add(FilterTrie.normalizeValue(vt.nextToken()));
             }
 
             keyValueFilters.put(key, v);
          }
+
+         results.clear();
       }
    }
 }
@@ -0,0 +1,256 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2009, Red Hat Middleware LLC, and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.tattletale.reporting;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * An index of MinHash signatures of feature sets, which uses locality-sensitive hashing
+ * to find the pairs of sets that are likely to be similar without comparing all pairs.
+ * The signature is split into bands of rows; two sets become a candidate pair if all rows
+ * of at least one band are equal, which happens with a probability of 1 - (1 - s^rows)^bands
+ * for a Jaccard similarity of s
+ *
+ * @author Jesper Pedersen <jesper.pedersen@jboss.org>
+ */
+public class MinHashIndex
+{
+   /** The default number of bands */
+   public static final int DEFAULT_BANDS = 16;
+
+   /** The default number of rows per band */
+   public static final int DEFAULT_ROWS = 4;
+
+   /** The seed of the hash functions, fixed such that the reports are reproducible */
+   private static final long SEED = 0x7A771E7A1EL;
+
+   /** The number of bands */
+   private int bands;
+
+   /** The number of rows per band */
+   private int rows;
+
+   /** The seeds of the hash functions */
+   private long[] seeds;
+
+   /** The signatures */
+   private List<int[]> signatures;
+
+   /** The buckets of each band */
+   private List<Map<Long, List<Integer>>> buckets;
+
+   /** Constructor */
+   public MinHashIndex()
+   {
+      this(DEFAULT_BANDS, DEFAULT_ROWS);
+   }
+
+   /**
+    * Constructor
+    *
+    * @param bands The number of bands
+    * @param rows  The number of rows per band
+    */
+   public MinHashIndex(int bands, int rows)
+   {
+      this.bands = bands;
+      this.rows = rows;
+      this.seeds = new long[bands * rows];
+      this.signatures = new ArrayList<int[]>();
+      this.buckets = new ArrayList<Map<Long, List<Integer>>>(bands);
+
+      Random random = new Random(SEED);
+      for (int i = 0; i < seeds.length; i++)
+      {
+         seeds[i] = random.nextLong();
+      }
+
+      for (int i = 0; i < bands; i++)
+      {
+         buckets.add(new HashMap<Long, List<Integer>>());
+      }
+   }
+
+   /**
+    * Add a feature set
+    *
+    * @param features The features
+    * @return The identifier of the set, which is the number of sets added before it
+    */
+   public int add(Collection<String> features)
+   {
+      int[] signature = new int[seeds.length];
+
+      for (int i = 0; i < signature.length; i++)
+      {
+         signature[i] = Integer.MAX_VALUE;
+      }
+
+      for (String feature : features)
+      {
+         long hash = hash(feature);
+
+         for (int i = 0; i < signature.length; i++)
+         {
+            int value = (int) (mix(hash ^ seeds[i]) >>> 33);
+
+            if (value < signature[i])
+            {
+               signature[i] = value;
+            }
+         }
+      }
+
+      int id = signatures.size();
+      signatures.add(signature);
+
+      for (int band = 0; band < bands; band++)
+      {
+         long key = band;
+
+         for (int row = band * rows; row < (band + 1) * rows; row++)
+         {
+            key = mix(key ^ signature[row]);
+         }
+
+         Map<Long, List<Integer>> bandBuckets = buckets.get(band);
+         List<Integer> bucket = bandBuckets.get(Long.valueOf(key));
+
+         if (bucket == null)
+         {
+            bucket = new ArrayList<Integer>(2);
+            bandBuckets.put(Long.valueOf(key), bucket);
+         }
+
+         bucket.add(Integer.valueOf(id));
+      }
+
+      return id;
+   }
+
+   /**
+    * Get the number of sets
+    *
+    * @return The value
+    */
+   public int size()
+   {
+      return signatures.size();
+   }
+
+   /**
+    * Estimate the Jaccard similarity of two sets from their signatures
+    *
+    * @param first  The identifier of the first set
+    * @param second The identifier of the second set
+    * @return The estimated similarity
+    */
+   public double getSimilarity(int first, int second)
+   {
+      int[] a = signatures.get(first);
+      int[] b = signatures.get(second);
+      int equal = 0;
+
+      for (int i = 0; i < a.length; i++)
+      {
+         if (a[i] == b[i])
+         {
+            equal++;
+         }
+      }
+
+      return (double) equal / a.length;
+   }
+
+   /**
+    * Get the candidate pairs, which are the pairs of sets that share a bucket in at least one band
+    *
+    * @return The pairs, each encoded as the lower identifier in the upper 32 bits and
+    *         the higher identifier in the lower 32 bits, in ascending order
+    */
+   public SortedSet<Long> getCandidates()
+   {
+      TreeSet<Long> result = new TreeSet<Long>();
+
+      for (Map<Long, List<Integer>> bandBuckets : buckets)
+      {
+         for (List<Integer> bucket : bandBuckets.values())
+         {
+            for (int i = 0; i < bucket.size(); i++)
+            {
+               for (int j = i + 1; j < bucket.size(); j++)
+               {
+                  long first = bucket.get(i).longValue();
+                  long second = bucket.get(j).longValue();
+
+                  result.add(Long.valueOf((first << 32) | second));
+               }
+            }
+         }
+      }
+
+      return result;
+   }
+
+   /**
+    * Hash a feature
+    *
+    * @param feature The feature
+    * @return The hash
+    */
+   private static long hash(String feature)
+   {
+      long hash = 0xcbf29ce484222325L;
+
+      for (int i = 0; i < feature.length(); i++)
+      {
+         hash ^= feature.charAt(i);
+         hash *= 0x100000001b3L;
+      }
+
+      return hash;
+   }
+
+   /**
+    * Mix the bits of a value
+    *
+    * @param value The value
+    * @return The mixed value
+    */
+   private static long mix(long value)
+   {
+      value ^= value >>> 33;
+      value *= 0xff51afd7ed558ccdL;
+      value ^= value >>> 33;
+      value *= 0xc4ceb9fe1a85ec53L;
+      value ^= value >>> 33;
+
+      return value;
+   }
+}
@@ -21,9 +21,12 @@
  */
 package org.jboss.tattletale.reporting;
 
+import org.jboss.tattletale.core.ArchiveFacets;
+
 import java.io.BufferedWriter;
 import java.io.IOException;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.SortedMap;
 import java.util.SortedSet;
@@ -51,6 +54,17 @@ public class MultipleJarsReport extends AbstractReport
       super(DIRECTORY, ReportSeverity.WARNING, NAME, DIRECTORY);
    }
 
+   /**
+    * The facets of the archive model that the report reads
+    *
+    * @return The required facets
+    */
+   @Override
+   public int getRequiredFacets()
+   {
+      return ArchiveFacets.CLASS_DIGESTS;
+   }
+
    /**
     * Set the globally provides map to be used in generating this report
     *
@@ -78,19 +92,28 @@ public class MultipleJarsReport extends AbstractReport
       bw.write("  </tr>" + Dump.newLine());
 
       boolean odd = true;
+      DigestGroups digestGroups = new DigestGroups(archives, gProvides);
 
       for (Map.Entry<String, SortedSet<String>> entry : gProvides.entrySet())
       {
 
          String clz = entry.getKey();
-         SortedSet archives = entry.getValue();
+         SortedSet<String> locations = entry.getValue();
 
-         if (archives.size() > 1)
+         if (locations.size() > 1)
          {
+            List<SortedSet<String>> groups = digestGroups.getGroups(clz, locations);
             boolean filtered = isFiltered(clz);
             if (!filtered)
             {
-               status = ReportStatus.RED;
+               if (groups.size() > 1)
+               {
+                  status = ReportStatus.RED;
+               }
+               else if (status != ReportStatus.RED)
+               {
+                  status = ReportStatus.YELLOW;
+               }
             }
 
             if (odd)
@@ -111,15 +134,24 @@ public class MultipleJarsReport extends AbstractReport
                bw.write("     <td style=\"text-decoration: line-through;\">");
             }
 
-            Iterator sit = archives.iterator();
-            while (sit.hasNext())
+            Iterator<SortedSet<String>> git = groups.iterator();
+            while (git.hasNext())
             {
-               String archive = (String) sit.next();
-               bw.write("<a href=\"../jar/" + archive + ".html\">" + archive + "</a>" + Dump.newLine());
+               Iterator<String> sit = git.next().iterator();
+               while (sit.hasNext())
+               {
+                  String archive = sit.next();
+                  bw.write("<a href=\"../jar/" + archive + ".html\">" + archive + "</a>" + Dump.newLine());
+
+                  if (sit.hasNext())
+                  {
+                     bw.write(", ");
+                  }
+               }
 
-               if (sit.hasNext())
+               if (git.hasNext())
                {
-                  bw.write(", ");
+                  bw.write("<br>" + Dump.newLine());
                }
             }
 
@@ -30,6 +30,7 @@ import org.jboss.tattletale.core.NestableArchive;
 import java.io.BufferedWriter;
 import java.io.IOException;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 
 import javassist.bytecode.ClassFile;
@@ -122,6 +123,11 @@ public abstract class NestableReport extends ArchiveReport
          }
          bw.write("</td>" + Dump.newLine());
 
+         if (location.getCoordinate() != null)
+         {
+            bw.write("        <td>" + location.getCoordinate() + "</td>" + Dump.newLine());
+         }
+
          bw.write("      </tr>" + Dump.newLine());
       }
 
@@ -154,9 +160,10 @@ public abstract class NestableReport extends ArchiveReport
       bw.write("     <td>Manifest</td>" + Dump.newLine());
       bw.write("     <td>");
 
-      if (nestableArchive.getManifest() != null)
+      List<String> manifest = nestableArchive.getManifest();
+      if (manifest != null)
       {
-         Iterator<String> mit = nestableArchive.getManifest().iterator();
+         Iterator<String> mit = manifest.iterator();
          while (mit.hasNext())
          {
             String m = mit.next();
@@ -177,9 +184,10 @@ public abstract class NestableReport extends ArchiveReport
       bw.write("     <td>Signing information</td>" + Dump.newLine());
       bw.write("     <td>");
 
-      if (nestableArchive.getSign() != null)
+      List<String> sign = nestableArchive.getSign();
+      if (sign != null)
       {
-         Iterator<String> sit = nestableArchive.getSign().iterator();
+         Iterator<String> sit = sign.iterator();
          while (sit.hasNext())
          {
             String s = sit.next();
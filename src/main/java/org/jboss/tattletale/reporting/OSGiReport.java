@@ -23,6 +23,7 @@ package org.jboss.tattletale.reporting;
 
 import org.jboss.tattletale.Version;
 import org.jboss.tattletale.core.Archive;
+import org.jboss.tattletale.core.ArchiveFacets;
 import org.jboss.tattletale.core.Location;
 
 import java.io.BufferedWriter;
@@ -57,6 +58,17 @@ public class OSGiReport extends AbstractReport
       super(DIRECTORY, ReportSeverity.INFO, NAME, DIRECTORY);
    }
 
+   /**
+    * The facets of the archive model that the report reads
+    *
+    * @return The required facets
+    */
+   @Override
+   public int getRequiredFacets()
+   {
+      return ArchiveFacets.MANIFEST | ArchiveFacets.PACKAGE_DEPENDENCIES;
+   }
+
    /**
     * Generate the report(s)
     *
@@ -92,9 +104,10 @@ public class OSGiReport extends AbstractReport
       FileWriter mfw = new FileWriter(archiveOutput.getAbsolutePath() + File.separator + "MANIFEST.MF");
       BufferedWriter mbw = new BufferedWriter(mfw, 8192);
 
-      if (archive.getManifest() != null)
+      List<String> manifest = archive.getManifest();
+      if (manifest != null)
       {
-         for (String s : archive.getManifest())
+         for (String s : manifest)
          {
             mbw.write(s);
             mbw.write(Dump.newLine());
@@ -187,9 +200,10 @@ public class OSGiReport extends AbstractReport
       rbw.write("     <td>Manifest</td>" + Dump.newLine());
       rbw.write("     <td><pre>");
 
-      if (archive.getManifest() != null)
+      List<String> manifest = archive.getManifest();
+      if (manifest != null)
       {
-         for (String s : archive.getManifest())
+         for (String s : manifest)
          {
             rbw.write(s);
             rbw.write("<br>");
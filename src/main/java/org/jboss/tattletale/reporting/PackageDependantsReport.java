@@ -23,6 +23,7 @@
 package org.jboss.tattletale.reporting;
 
 import org.jboss.tattletale.core.Archive;
+import org.jboss.tattletale.core.ArchiveFacets;
 import org.jboss.tattletale.core.NestableArchive;
 import org.jboss.tattletale.profiles.Profile;
 
@@ -59,6 +60,17 @@ public class PackageDependantsReport extends CLSReport
       super(DIRECTORY, ReportSeverity.INFO, NAME, DIRECTORY);
    }
 
+   /**
+    * The facets of the archive model that the report reads
+    *
+    * @return The required facets
+    */
+   @Override
+   public int getRequiredFacets()
+   {
+      return ArchiveFacets.PACKAGE_DEPENDENCIES;
+   }
+
 
    /**
     * write out the report's content
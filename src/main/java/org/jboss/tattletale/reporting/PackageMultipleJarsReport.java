@@ -21,6 +21,8 @@
  */
 package org.jboss.tattletale.reporting;
 
+import org.jboss.tattletale.core.ArchiveFacets;
+
 import java.io.BufferedWriter;
 import java.io.IOException;
 import java.util.Iterator;
@@ -53,6 +55,17 @@ public class PackageMultipleJarsReport extends AbstractReport
       super(DIRECTORY, ReportSeverity.WARNING, NAME, DIRECTORY);
    }
 
+   /**
+    * The facets of the archive model that the report reads
+    *
+    * @return The required facets
+    */
+   @Override
+   public int getRequiredFacets()
+   {
+      return ArchiveFacets.NONE;
+   }
+
 
    /**
     * Set the globally provides map to be used in generating this report
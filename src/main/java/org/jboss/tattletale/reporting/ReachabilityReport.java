@@ -0,0 +1,391 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2009, Red Hat Middleware LLC, and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.tattletale.reporting;
+
+import org.jboss.tattletale.core.Archive;
+import org.jboss.tattletale.core.ArchiveFacets;
+import org.jboss.tattletale.core.ClassDependencyIndex;
+import org.jboss.tattletale.core.ClassReachability;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Properties;
+import java.util.SortedSet;
+import java.util.StringTokenizer;
+import java.util.TreeSet;
+
+/**
+ * Reachability report, which lists the classes that can't be reached from the entry points
+ * and the archives that are needed to run the entry points
+ *
+ * @author Jesper Pedersen <jesper.pedersen@jboss.org>
+ */
+public class ReachabilityReport extends AbstractReport
+{
+   /** NAME */
+   private static final String NAME = "Reachability";
+
+   /** DIRECTORY */
+   private static final String DIRECTORY = "reachability";
+
+   /** The types that make the classes referring to them entry points */
+   private static final String[] ENTRY_POINT_TYPES = {
+      "javax.servlet.Servlet", "javax.servlet.GenericServlet", "javax.servlet.http.HttpServlet",
+      "javax.servlet.Filter", "javax.servlet.ServletContextListener", "javax.servlet.http.HttpSessionListener",
+      "javax.ejb.SessionBean", "javax.ejb.MessageDrivenBean", "javax.ejb.EntityBean",
+      "javax.ejb.Stateless", "javax.ejb.Stateful", "javax.ejb.Singleton", "javax.ejb.MessageDriven",
+      "javax.jms.MessageListener"};
+
+   /** The class dependency index */
+   private ClassDependencyIndex classDependencyIndex;
+
+   /** The configured entry points */
+   private List<String> entryPoints;
+
+   /** Constructor */
+   public ReachabilityReport()
+   {
+      super(DIRECTORY, ReportSeverity.INFO, NAME, DIRECTORY);
+
+      this.entryPoints = new ArrayList<String>();
+   }
+
+   /**
+    * The facets of the archive model that the report reads
+    *
+    * @return The required facets
+    */
+   @Override
+   public int getRequiredFacets()
+   {
+      return ArchiveFacets.CLASS_DEPENDENCIES | ArchiveFacets.MANIFEST;
+   }
+
+   /**
+    * Set the class dependency index
+    *
+    * @param classDependencyIndex The index; <code>null</code> if the report should build its own
+    */
+   public void setClassDependencyIndex(ClassDependencyIndex classDependencyIndex)
+   {
+      this.classDependencyIndex = classDependencyIndex;
+   }
+
+   /**
+    * Set the configuration properties to use in generating the report
+    *
+    * @param config The configuration properties
+    */
+   public void setConfig(Properties config)
+   {
+      String value = config.getProperty("entrypoints");
+
+      if (value != null)
+      {
+         StringTokenizer st = new StringTokenizer(value, ",");
+         while (st.hasMoreTokens())
+         {
+            String token = st.nextToken().trim();
+            if (token.length() > 0)
+            {
+               entryPoints.add(token);
+            }
+         }
+      }
+   }
+
+   /**
+    * write out the report's content
+    *
+    * @param bw the writer to use
+    * @throws IOException if an error occurs
+    */
+   public void writeHtmlBodyContent(BufferedWriter bw) throws IOException
+   {
+      ClassDependencyIndex index = classDependencyIndex;
+      if (index == null)
+      {
+         index = new ClassDependencyIndex(archives);
+      }
+
+      BitSet entries = getEntryPoints(index);
+      BitSet reachable = new ClassReachability(index).getReachable(entries);
+
+      List<Archive> archiveList = new ArrayList<Archive>(archives);
+      List<BitSet> coverage = new ArrayList<BitSet>(archiveList.size());
+      BitSet uncovered = new BitSet(index.size());
+
+      for (Archive archive : archiveList)
+      {
+         BitSet covers = new BitSet(index.size());
+
+         for (String clz : archive.getAllProvides().keySet())
+         {
+            int id = index.getId(clz);
+            if (id >= 0 && reachable.get(id))
+            {
+               covers.set(id);
+            }
+         }
+
+         coverage.add(covers);
+         uncovered.or(covers);
+      }
+
+      // Greedy set cover of the reachable classes
+      boolean[] needed = new boolean[archiveList.size()];
+      while (!uncovered.isEmpty())
+      {
+         int best = -1;
+         int bestCount = 0;
+
+         for (int i = 0; i < archiveList.size(); i++)
+         {
+            if (!needed[i])
+            {
+               BitSet covers = (BitSet) coverage.get(i).clone();
+               covers.and(uncovered);
+
+               if (covers.cardinality() > bestCount)
+               {
+                  best = i;
+                  bestCount = covers.cardinality();
+               }
+            }
+         }
+
+         needed[best] = true;
+         uncovered.andNot(coverage.get(best));
+      }
+
+      bw.write("<table>" + Dump.newLine());
+
+      bw.write("  <tr>" + Dump.newLine());
+      bw.write("     <th>Entry points</th>" + Dump.newLine());
+      bw.write("     <th>Reachable classes</th>" + Dump.newLine());
+      bw.write("  </tr>" + Dump.newLine());
+
+      bw.write("  <tr class=\"rowodd\">" + Dump.newLine());
+      bw.write("     <td>" + entries.cardinality() + "</td>" + Dump.newLine());
+      bw.write("     <td>" + reachable.cardinality() + "</td>" + Dump.newLine());
+      bw.write("  </tr>" + Dump.newLine());
+
+      bw.write("</table>" + Dump.newLine());
+
+      bw.write(Dump.newLine());
+      bw.write("<p>" + Dump.newLine());
+
+      bw.write("<table>" + Dump.newLine());
+
+      bw.write("  <tr>" + Dump.newLine());
+      bw.write("     <th>Archive</th>" + Dump.newLine());
+      bw.write("     <th>Classes</th>" + Dump.newLine());
+      bw.write("     <th>Reachable</th>" + Dump.newLine());
+      bw.write("     <th>Needed</th>" + Dump.newLine());
+      bw.write("     <th>Dead classes</th>" + Dump.newLine());
+      bw.write("  </tr>" + Dump.newLine());
+
+      boolean odd = true;
+
+      for (int i = 0; i < archiveList.size(); i++)
+      {
+         Archive archive = archiveList.get(i);
+         String archiveName = archive.getName();
+         int finalDot = archiveName.lastIndexOf(".");
+         String extension = archiveName.substring(finalDot + 1);
+
+         SortedSet<String> dead = new TreeSet<String>();
+         for (String clz : archive.getAllProvides().keySet())
+         {
+            int id = index.getId(clz);
+            if (id < 0 || !reachable.get(id))
+            {
+               dead.add(clz);
+            }
+         }
+
+         if (odd)
+         {
+            bw.write("  <tr class=\"rowodd\">" + Dump.newLine());
+         }
+         else
+         {
+            bw.write("  <tr class=\"roweven\">" + Dump.newLine());
+         }
+         bw.write("     <td><a href=\"../" + extension + "/" + archiveName + ".html\">" +
+                  archiveName + "</a></td>" + Dump.newLine());
+         bw.write("     <td>" + archive.getAllProvides().size() + "</td>" + Dump.newLine());
+         bw.write("     <td>" + coverage.get(i).cardinality() + "</td>" + Dump.newLine());
+
+         if (needed[i])
+         {
+            bw.write("     <td style=\"color: green;\">Yes</td>" + Dump.newLine());
+         }
+         else if (!isFiltered(archiveName))
+         {
+            status = ReportStatus.YELLOW;
+            bw.write("     <td style=\"color: red;\">No</td>" + Dump.newLine());
+         }
+         else
+         {
+            bw.write("     <td style=\"color: red; text-decoration: line-through;\">No</td>" + Dump.newLine());
+         }
+
+         bw.write("     <td>");
+
+         if (dead.size() == 0)
+         {
+            bw.write("&nbsp;");
+         }
+         else
+         {
+            Iterator<String> it = dead.iterator();
+            while (it.hasNext())
+            {
+               bw.write(it.next());
+
+               if (it.hasNext())
+               {
+                  bw.write(", ");
+               }
+            }
+         }
+
+         bw.write("</td>" + Dump.newLine());
+         bw.write("  </tr>" + Dump.newLine());
+
+         odd = !odd;
+      }
+
+      bw.write("</table>" + Dump.newLine());
+   }
+
+   /**
+    * write out the header of the report's content
+    *
+    * @param bw the writer to use
+    * @throws IOException if an error occurs
+    */
+   public void writeHtmlBodyHeader(BufferedWriter bw) throws IOException
+   {
+      bw.write("<body>" + Dump.newLine());
+      bw.write(Dump.newLine());
+
+      bw.write("<h1>" + NAME + "</h1>" + Dump.newLine());
+
+      bw.write("<a href=\"../index.html\">Main</a>" + Dump.newLine());
+      bw.write("<p>" + Dump.newLine());
+   }
+
+   /**
+    * Create filter
+    *
+    * @return The filter
+    */
+   @Override
+   protected Filter createFilter()
+   {
+      return new KeyFilter();
+   }
+
+   /**
+    * Get the entry points: the configured classes and packages, the main classes of the archives
+    * and the classes that refer to the servlet, EJB and message listener types
+    *
+    * @param index The class dependency index
+    * @return The ids of the entry points
+    */
+   private BitSet getEntryPoints(ClassDependencyIndex index)
+   {
+      BitSet result = new BitSet(index.size());
+
+      for (String entryPoint : entryPoints)
+      {
+         if (entryPoint.endsWith(".*"))
+         {
+            String prefix = entryPoint.substring(0, entryPoint.length() - 1);
+            int id = index.getId(prefix);
+
+            if (id < 0)
+            {
+               id = -(id + 1);
+            }
+
+            while (id < index.size() && index.getClassName(id).startsWith(prefix))
+            {
+               result.set(id);
+               id++;
+            }
+         }
+         else
+         {
+            setId(result, index, entryPoint);
+         }
+      }
+
+      for (Archive archive : archives)
+      {
+         String mainClass = archive.getManifestValue("Main-Class");
+
+         if (mainClass != null)
+         {
+            setId(result, index, mainClass);
+         }
+      }
+
+      for (String type : ENTRY_POINT_TYPES)
+      {
+         int id = index.getId(type);
+
+         if (id >= 0)
+         {
+            for (int dependant : index.getDependants(id))
+            {
+               result.set(dependant);
+            }
+         }
+      }
+
+      return result;
+   }
+
+   /**
+    * Add a class to a set of ids if it is part of the index
+    *
+    * @param ids   The ids
+    * @param index The class dependency index
+    * @param clz   The class
+    */
+   private void setId(BitSet ids, ClassDependencyIndex index, String clz)
+   {
+      int id = index.getId(clz);
+
+      if (id >= 0)
+      {
+         ids.set(id);
+      }
+   }
+}
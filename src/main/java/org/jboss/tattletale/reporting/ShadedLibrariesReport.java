@@ -0,0 +1,497 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2009, Red Hat Middleware LLC, and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.tattletale.reporting;
+
+import org.jboss.tattletale.core.Archive;
+import org.jboss.tattletale.core.ArchiveFacets;
+import org.jboss.tattletale.core.NestableArchive;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Shaded libraries report, which finds packages that are relocated copies of packages in other
+ * archives, and archives that are near-duplicates of each other.
+ *
+ * Each package is fingerprinted by the names of its classes without the package prefix, such that
+ * a relocated copy has the same fingerprint as the original. The candidate pairs are found through
+ * MinHash signatures with locality-sensitive hashing, and verified by comparing the class names.
+ *
+ * @author Jesper Pedersen <jesper.pedersen@jboss.org>
+ */
+public class ShadedLibrariesReport extends AbstractReport
+{
+   /** NAME */
+   private static final String NAME = "Shaded libraries";
+
+   /** DIRECTORY */
+   private static final String DIRECTORY = "shadedlibraries";
+
+   /** The minimum number of classes in a package for it to be fingerprinted */
+   private static final int MIN_CLASSES = 3;
+
+   /** The minimum similarity of two packages or archives */
+   private static final double THRESHOLD = 0.8;
+
+   /** Constructor */
+   public ShadedLibrariesReport()
+   {
+      super(DIRECTORY, ReportSeverity.WARNING, NAME, DIRECTORY);
+   }
+
+   /**
+    * The facets of the archive model that the report reads
+    *
+    * @return The required facets
+    */
+   @Override
+   public int getRequiredFacets()
+   {
+      return ArchiveFacets.CLASS_DIGESTS;
+   }
+
+   /**
+    * write out the report's content
+    *
+    * @param bw the writer to use
+    * @throws IOException if an error occurs
+    */
+   public void writeHtmlBodyContent(BufferedWriter bw) throws IOException
+   {
+      List<Archive> leaves = new ArrayList<Archive>();
+      for (Archive archive : archives)
+      {
+         addLeaves(leaves, archive);
+      }
+
+      MinHashIndex index = new MinHashIndex();
+      List<Fingerprint> fingerprints = new ArrayList<Fingerprint>();
+      Map<Archive, Integer> sizes = new HashMap<Archive, Integer>();
+
+      for (Archive archive : leaves)
+      {
+         Map<String, SortedSet<String>> packages = new TreeMap<String, SortedSet<String>>();
+
+         for (String clz : archive.getProvides().keySet())
+         {
+            int dot = clz.lastIndexOf('.');
+            String pkg = dot != -1 ? clz.substring(0, dot) : "";
+
+            SortedSet<String> names = packages.get(pkg);
+            if (names == null)
+            {
+               names = new TreeSet<String>();
+               packages.put(pkg, names);
+            }
+
+            names.add(clz.substring(dot + 1));
+         }
+
+         sizes.put(archive, Integer.valueOf(archive.getProvides().size()));
+
+         for (Map.Entry<String, SortedSet<String>> entry : packages.entrySet())
+         {
+            if (entry.getValue().size() >= MIN_CLASSES)
+            {
+               index.add(entry.getValue());
+               fingerprints.add(new Fingerprint(archive, entry.getKey(), entry.getValue()));
+            }
+         }
+      }
+
+      SortedSet<Relocation> relocations = new TreeSet<Relocation>();
+      Map<Archive, Map<Archive, int[]>> shared = new TreeMap<Archive, Map<Archive, int[]>>();
+
+      for (Long candidate : index.getCandidates())
+      {
+         Fingerprint first = fingerprints.get((int) (candidate.longValue() >>> 32));
+         Fingerprint second = fingerprints.get((int) (candidate.longValue() & 0xFFFFFFFFL));
+
+         if (first.archive.compareTo(second.archive) == 0)
+         {
+            continue;
+         }
+
+         int[] counts = first.compare(second);
+         double similarity = (double) counts[0] / (first.names.length + second.names.length - counts[0]);
+
+         if (similarity >= THRESHOLD)
+         {
+            if (!first.pkg.equals(second.pkg))
+            {
+               if (isCopy(first.pkg, second.pkg))
+               {
+                  relocations.add(new Relocation(first, second, similarity));
+               }
+               else
+               {
+                  relocations.add(new Relocation(second, first, similarity));
+               }
+            }
+
+            boolean ordered = first.archive.compareTo(second.archive) < 0;
+            Archive key = ordered ? first.archive : second.archive;
+            Archive other = ordered ? second.archive : first.archive;
+
+            Map<Archive, int[]> pairs = shared.get(key);
+            if (pairs == null)
+            {
+               pairs = new TreeMap<Archive, int[]>();
+               shared.put(key, pairs);
+            }
+
+            int[] total = pairs.get(other);
+            if (total == null)
+            {
+               total = new int[2];
+               pairs.put(other, total);
+            }
+
+            total[0] += counts[0];
+            total[1] += counts[1];
+         }
+      }
+
+      bw.write("<h2>Relocated packages</h2>" + Dump.newLine());
+      bw.write("<table>" + Dump.newLine());
+
+      bw.write("  <tr>" + Dump.newLine());
+      bw.write("     <th>Package</th>" + Dump.newLine());
+      bw.write("     <th>Archive</th>" + Dump.newLine());
+      bw.write("     <th>Copy of</th>" + Dump.newLine());
+      bw.write("     <th>Archive</th>" + Dump.newLine());
+      bw.write("     <th>Similarity</th>" + Dump.newLine());
+      bw.write("  </tr>" + Dump.newLine());
+
+      boolean odd = true;
+
+      for (Relocation relocation : relocations)
+      {
+         boolean filtered = isFiltered(relocation.copy.pkg);
+         if (!filtered)
+         {
+            status = ReportStatus.YELLOW;
+         }
+
+         if (odd)
+         {
+            bw.write("  <tr class=\"rowodd\">" + Dump.newLine());
+         }
+         else
+         {
+            bw.write("  <tr class=\"roweven\">" + Dump.newLine());
+         }
+
+         if (!filtered)
+         {
+            bw.write("     <td>" + relocation.copy.pkg + "</td>" + Dump.newLine());
+         }
+         else
+         {
+            bw.write("     <td style=\"text-decoration: line-through;\">" + relocation.copy.pkg + "</td>" +
+                     Dump.newLine());
+         }
+
+         bw.write("     <td>" + getArchiveLink(relocation.copy.archive) + "</td>" + Dump.newLine());
+         bw.write("     <td>" + relocation.original.pkg + "</td>" + Dump.newLine());
+         bw.write("     <td>" + getArchiveLink(relocation.original.archive) + "</td>" + Dump.newLine());
+         bw.write("     <td>" + Math.round(relocation.similarity * 100) + "%</td>" + Dump.newLine());
+         bw.write("  </tr>" + Dump.newLine());
+
+         odd = !odd;
+      }
+
+      bw.write("</table>" + Dump.newLine());
+
+      bw.write(Dump.newLine());
+      bw.write("<h2>Near-duplicate archives</h2>" + Dump.newLine());
+      bw.write("<table>" + Dump.newLine());
+
+      bw.write("  <tr>" + Dump.newLine());
+      bw.write("     <th>Archive</th>" + Dump.newLine());
+      bw.write("     <th>Archive</th>" + Dump.newLine());
+      bw.write("     <th>Similarity</th>" + Dump.newLine());
+      bw.write("     <th>Identical classes</th>" + Dump.newLine());
+      bw.write("  </tr>" + Dump.newLine());
+
+      odd = true;
+
+      for (Map.Entry<Archive, Map<Archive, int[]>> entry : shared.entrySet())
+      {
+         Archive archive = entry.getKey();
+
+         for (Map.Entry<Archive, int[]> pair : entry.getValue().entrySet())
+         {
+            Archive other = pair.getKey();
+            int[] total = pair.getValue();
+            int union = sizes.get(archive).intValue() + sizes.get(other).intValue() - total[0];
+            double similarity = (double) total[0] / union;
+
+            if (similarity >= THRESHOLD)
+            {
+               status = ReportStatus.YELLOW;
+
+               if (odd)
+               {
+                  bw.write("  <tr class=\"rowodd\">" + Dump.newLine());
+               }
+               else
+               {
+                  bw.write("  <tr class=\"roweven\">" + Dump.newLine());
+               }
+
+               bw.write("     <td>" + getArchiveLink(archive) + "</td>" + Dump.newLine());
+               bw.write("     <td>" + getArchiveLink(other) + "</td>" + Dump.newLine());
+               bw.write("     <td>" + Math.round(similarity * 100) + "%</td>" + Dump.newLine());
+               bw.write("     <td>" + total[1] + "</td>" + Dump.newLine());
+               bw.write("  </tr>" + Dump.newLine());
+
+               odd = !odd;
+            }
+         }
+      }
+
+      bw.write("</table>" + Dump.newLine());
+   }
+
+   /**
+    * write out the header of the report's content
+    *
+    * @param bw the writer to use
+    * @throws IOException if an error occurs
+    */
+   public void writeHtmlBodyHeader(BufferedWriter bw) throws IOException
+   {
+      bw.write("<body>" + Dump.newLine());
+      bw.write(Dump.newLine());
+
+      bw.write("<h1>" + NAME + "</h1>" + Dump.newLine());
+
+      bw.write("<a href=\"../index.html\">Main</a>" + Dump.newLine());
+      bw.write("<p>" + Dump.newLine());
+   }
+
+   /**
+    * Create filter
+    *
+    * @return The filter
+    */
+   @Override
+   protected Filter createFilter()
+   {
+      return new KeyFilter();
+   }
+
+   /**
+    * Add the archives that hold the classes of an archive
+    *
+    * @param leaves  The archives
+    * @param archive The archive
+    */
+   private void addLeaves(List<Archive> leaves, Archive archive)
+   {
+      if (archive instanceof NestableArchive && ((NestableArchive) archive).getSubArchives().size() > 0)
+      {
+         for (Archive subArchive : ((NestableArchive) archive).getSubArchives())
+         {
+            addLeaves(leaves, subArchive);
+         }
+      }
+      else
+      {
+         leaves.add(archive);
+      }
+   }
+
+   /**
+    * Is a package a relocated copy of another package
+    *
+    * @param pkg   The package
+    * @param other The other package
+    * @return True if the package is the copy; otherwise false
+    */
+   private boolean isCopy(String pkg, String other)
+   {
+      if (pkg.endsWith("." + other))
+      {
+         return true;
+      }
+
+      if (other.endsWith("." + pkg))
+      {
+         return false;
+      }
+
+      if (pkg.length() != other.length())
+      {
+         return pkg.length() > other.length();
+      }
+
+      return pkg.compareTo(other) > 0;
+   }
+
+   /**
+    * The fingerprint of a package in an archive
+    */
+   private static class Fingerprint
+   {
+      /** The archive */
+      private Archive archive;
+
+      /** The package */
+      private String pkg;
+
+      /** The sorted class names without the package */
+      private String[] names;
+
+      /**
+       * Constructor
+       *
+       * @param archive The archive
+       * @param pkg     The package
+       * @param names   The class names without the package
+       */
+      Fingerprint(Archive archive, String pkg, SortedSet<String> names)
+      {
+         this.archive = archive;
+         this.pkg = pkg;
+         this.names = names.toArray(new String[names.size()]);
+      }
+
+      /**
+       * Compare the classes with the classes of another package
+       *
+       * @param other The other fingerprint
+       * @return The number of shared class names, and the number of those with identical bytecode
+       */
+      int[] compare(Fingerprint other)
+      {
+         int[] result = new int[2];
+         int i = 0;
+         int j = 0;
+
+         while (i < names.length && j < other.names.length)
+         {
+            int c = names[i].compareTo(other.names[j]);
+
+            if (c < 0)
+            {
+               i++;
+            }
+            else if (c > 0)
+            {
+               j++;
+            }
+            else
+            {
+               result[0]++;
+
+               String digest = archive.getDigest(getClassName(names[i]));
+               if (digest != null && digest.equals(other.archive.getDigest(other.getClassName(names[i]))))
+               {
+                  result[1]++;
+               }
+
+               i++;
+               j++;
+            }
+         }
+
+         return result;
+      }
+
+      /**
+       * Get the fully qualified name of a class
+       *
+       * @param name The class name without the package
+       * @return The value
+       */
+      String getClassName(String name)
+      {
+         return pkg.length() > 0 ? pkg + "." + name : name;
+      }
+   }
+
+   /**
+    * A package that is a relocated copy of another package
+    */
+   private static class Relocation implements Comparable<Relocation>
+   {
+      /** The copy */
+      private Fingerprint copy;
+
+      /** The original */
+      private Fingerprint original;
+
+      /** The similarity */
+      private double similarity;
+
+      /**
+       * Constructor
+       *
+       * @param copy       The copy
+       * @param original   The original
+       * @param similarity The similarity
+       */
+      Relocation(Fingerprint copy, Fingerprint original, double similarity)
+      {
+         this.copy = copy;
+         this.original = original;
+         this.similarity = similarity;
+      }
+
+      /**
+       * Compare to another relocation
+       *
+       * @param other The other relocation
+       * @return The result
+       */
+      public int compareTo(Relocation other)
+      {
+         int result = copy.pkg.compareTo(other.copy.pkg);
+
+         if (result == 0)
+         {
+            result = copy.archive.compareTo(other.copy.archive);
+         }
+
+         if (result == 0)
+         {
+            result = original.pkg.compareTo(other.original.pkg);
+         }
+
+         if (result == 0)
+         {
+            result = original.archive.compareTo(other.original.archive);
+         }
+
+         return result;
+      }
+   }
+}
@@ -0,0 +1,227 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2009, Red Hat Middleware LLC, and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.tattletale.reporting;
+
+import org.jboss.tattletale.core.Archive;
+import org.jboss.tattletale.core.ArchiveFacets;
+import org.jboss.tattletale.profiles.Profile;
+import org.jboss.tattletale.reporting.classloader.ClassResolver;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * Shadowed classes report
+ *
+ * @author Jesper Pedersen <jesper.pedersen@jboss.org>
+ */
+public class ShadowedClassesReport extends CLSReport
+{
+   /** NAME */
+   private static final String NAME = "Shadowed classes";
+
+   /** DIRECTORY */
+   private static final String DIRECTORY = "shadowedclasses";
+
+   /** Constructor */
+   public ShadowedClassesReport()
+   {
+      super(DIRECTORY, ReportSeverity.WARNING, NAME, DIRECTORY);
+   }
+
+   /**
+    * The facets of the archive model that the report reads
+    *
+    * @return The required facets
+    */
+   @Override
+   public int getRequiredFacets()
+   {
+      return ArchiveFacets.NONE;
+   }
+
+   /**
+    * write out the report's content
+    *
+    * @param bw the writer to use
+    * @throws IOException if an error occurs
+    */
+   public void writeHtmlBodyContent(BufferedWriter bw) throws IOException
+   {
+      bw.write("<table>" + Dump.newLine());
+
+      bw.write("  <tr>" + Dump.newLine());
+      bw.write("     <th>Class</th>" + Dump.newLine());
+      bw.write("     <th>Archive</th>" + Dump.newLine());
+      bw.write("     <th>Loaded from</th>" + Dump.newLine());
+      bw.write("     <th>Shadowed</th>" + Dump.newLine());
+      bw.write("  </tr>" + Dump.newLine());
+
+      ClassResolver resolver = new ClassResolver(getVisibilityIndex(), getKnown());
+      SortedSet<String> conflicts = resolver.getConflicts();
+
+      Map<String, SortedSet<Archive>> users = new HashMap<String, SortedSet<Archive>>();
+      for (Archive archive : archives)
+      {
+         addUser(users, conflicts, archive, archive.getAllRequires());
+         addUser(users, conflicts, archive, archive.getAllProvides().keySet());
+      }
+
+      boolean odd = true;
+
+      for (String clz : conflicts)
+      {
+         SortedSet<Archive> clzUsers = users.get(clz);
+
+         if (clzUsers != null)
+         {
+            for (Archive archive : clzUsers)
+            {
+               List<Archive> shadowed = resolver.getShadowed(archive, clz);
+
+               if (shadowed.size() > 0)
+               {
+                  boolean filtered = isFiltered(clz);
+                  if (!filtered)
+                  {
+                     status = ReportStatus.YELLOW;
+                  }
+
+                  if (odd)
+                  {
+                     bw.write("  <tr class=\"rowodd\">" + Dump.newLine());
+                  }
+                  else
+                  {
+                     bw.write("  <tr class=\"roweven\">" + Dump.newLine());
+                  }
+
+                  if (!filtered)
+                  {
+                     bw.write("     <td>" + clz + "</td>" + Dump.newLine());
+                  }
+                  else
+                  {
+                     bw.write("     <td style=\"text-decoration: line-through;\">" + clz + "</td>" + Dump.newLine());
+                  }
+
+                  bw.write("     <td>" + getArchiveLink(archive) + "</td>" + Dump.newLine());
+
+                  Archive provider = resolver.getProvider(archive, clz);
+                  if (provider != null)
+                  {
+                     bw.write("     <td>" + getArchiveLink(provider) + "</td>" + Dump.newLine());
+                  }
+                  else
+                  {
+                     Profile profile = resolver.getProfile(clz);
+                     bw.write("     <td><i>" + (profile != null ? profile.getName() : "&nbsp;") + "</i></td>" +
+                              Dump.newLine());
+                  }
+
+                  bw.write("     <td>");
+
+                  Iterator<Archive> it = shadowed.iterator();
+                  while (it.hasNext())
+                  {
+                     bw.write(getArchiveLink(it.next()));
+
+                     if (it.hasNext())
+                     {
+                        bw.write(", ");
+                     }
+                  }
+
+                  bw.write("</td>" + Dump.newLine());
+                  bw.write("  </tr>" + Dump.newLine());
+
+                  odd = !odd;
+               }
+            }
+         }
+      }
+
+      bw.write("</table>" + Dump.newLine());
+   }
+
+   /**
+    * write out the header of the report's content
+    *
+    * @param bw the writer to use
+    * @throws IOException if an error occurs
+    */
+   public void writeHtmlBodyHeader(BufferedWriter bw) throws IOException
+   {
+      bw.write("<body>" + Dump.newLine());
+      bw.write(Dump.newLine());
+
+      bw.write("<h1>" + NAME + "</h1>" + Dump.newLine());
+
+      bw.write("<a href=\"../index.html\">Main</a>" + Dump.newLine());
+      bw.write("<p>" + Dump.newLine());
+   }
+
+   /**
+    * Create filter
+    *
+    * @return The filter
+    */
+   @Override
+   protected Filter createFilter()
+   {
+      return new KeyFilter();
+   }
+
+   /**
+    * Register an archive as a user of the conflicting classes that it requires or provides
+    *
+    * @param users     The users of each class
+    * @param conflicts The conflicting classes
+    * @param archive   The archive
+    * @param classes   The classes required or provided by the archive
+    */
+   private void addUser(Map<String, SortedSet<Archive>> users, SortedSet<String> conflicts,
+                        Archive archive, Iterable<String> classes)
+   {
+      for (String clz : classes)
+      {
+         if (conflicts.contains(clz))
+         {
+            SortedSet<Archive> clzUsers = users.get(clz);
+
+            if (clzUsers == null)
+            {
+               clzUsers = new TreeSet<Archive>();
+               users.put(clz, clzUsers);
+            }
+
+            clzUsers.add(archive);
+         }
+      }
+   }
+}
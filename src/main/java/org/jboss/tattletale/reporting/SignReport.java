@@ -22,9 +22,12 @@
 package org.jboss.tattletale.reporting;
 
 import org.jboss.tattletale.core.Archive;
+import org.jboss.tattletale.core.ArchiveFacets;
+import org.jboss.tattletale.core.SignatureVerification;
 
 import java.io.BufferedWriter;
 import java.io.IOException;
+import java.util.Iterator;
 
 /**
  * Signing information report
@@ -46,6 +49,17 @@ public class SignReport extends AbstractReport
       super(DIRECTORY, ReportSeverity.INFO, NAME, DIRECTORY);
    }
 
+   /**
+    * The facets of the archive model that the report reads
+    *
+    * @return The required facets
+    */
+   @Override
+   public int getRequiredFacets()
+   {
+      return ArchiveFacets.SIGN;
+   }
+
    /**
     * write out the report's content
     *
@@ -65,6 +79,8 @@ public class SignReport extends AbstractReport
 
       int signed = 0;
       int unsigned = 0;
+      int partiallySigned = 0;
+      int tampered = 0;
 
       for (Archive archive : archives)
       {
@@ -83,7 +99,36 @@ public class SignReport extends AbstractReport
          }
          bw.write("     <td><a href=\"../" + extension + "/" + archiveName +
                   ".html\">" + archive.getName() + "</a></td>" + Dump.newLine());
-         if (archive.getSign() != null)
+         SignatureVerification verification = archive.getSignatureVerification();
+         if (archive.isSigned() && verification != null &&
+             verification.getStatus() == SignatureVerification.TAMPERED)
+         {
+            bw.write("     <td style=\"color: red; font-weight: bold;\">Tampered: ");
+
+            Iterator<String> it = verification.getTampered().iterator();
+            while (it.hasNext())
+            {
+               bw.write(it.next());
+
+               if (it.hasNext())
+               {
+                  bw.write(", ");
+               }
+            }
+
+            bw.write("</td>" + Dump.newLine());
+            signed++;
+            tampered++;
+         }
+         else if (archive.isSigned() && verification != null &&
+                  verification.getStatus() == SignatureVerification.PARTIALLY_SIGNED)
+         {
+            bw.write("     <td style=\"color: red;\">Partially signed (" + verification.getUnsigned().size() +
+                     " unsigned entries)</td>" + Dump.newLine());
+            signed++;
+            partiallySigned++;
+         }
+         else if (archive.isSigned())
          {
             bw.write("     <td style=\"color: red;\">Signed</td>" + Dump.newLine());
             signed++;
@@ -101,11 +146,16 @@ public class SignReport extends AbstractReport
       bw.write("</table>" + Dump.newLine());
 
       boolean filtered = isFiltered();
-      if (signed > 0 && unsigned > 0 && !filtered)
+      if (((signed > 0 && unsigned > 0) || partiallySigned > 0) && !filtered)
       {
          status = ReportStatus.YELLOW;
       }
 
+      if (tampered > 0 && !filtered)
+      {
+         status = ReportStatus.RED;
+      }
+
       bw.write(Dump.newLine());
       bw.write("<p>" + Dump.newLine());
 
@@ -141,6 +191,32 @@ public class SignReport extends AbstractReport
       }
       bw.write("  </tr>" + Dump.newLine());
 
+      bw.write("  <tr class=\"rowodd\">" + Dump.newLine());
+      bw.write("     <td>Partially signed</td>" + Dump.newLine());
+      if (!filtered)
+      {
+         bw.write("     <td style=\"color: red;\">" + partiallySigned + "</td>" + Dump.newLine());
+      }
+      else
+      {
+         bw.write("     <td style=\"color: red; text-decoration: line-through;\">"
+                  + partiallySigned + "</td>" + Dump.newLine());
+      }
+      bw.write("  </tr>" + Dump.newLine());
+
+      bw.write("  <tr class=\"roweven\">" + Dump.newLine());
+      bw.write("     <td>Tampered</td>" + Dump.newLine());
+      if (!filtered)
+      {
+         bw.write("     <td style=\"color: red;\">" + tampered + "</td>" + Dump.newLine());
+      }
+      else
+      {
+         bw.write("     <td style=\"color: red; text-decoration: line-through;\">"
+                  + tampered + "</td>" + Dump.newLine());
+      }
+      bw.write("  </tr>" + Dump.newLine());
+
       bw.write("</table>" + Dump.newLine());
    }
 
@@ -22,16 +22,13 @@
 package org.jboss.tattletale.reporting;
 
 import org.jboss.tattletale.core.Archive;
+import org.jboss.tattletale.core.ArchiveFacets;
 import org.jboss.tattletale.core.ArchiveTypes;
-import org.jboss.tattletale.core.NestableArchive;
 
 import java.io.BufferedWriter;
 import java.io.IOException;
-import java.util.HashSet;
 import java.util.Iterator;
-import java.util.List;
 import java.util.Map;
-import java.util.Set;
 import java.util.SortedMap;
 import java.util.SortedSet;
 import java.util.TreeMap;
@@ -58,6 +55,17 @@ public class TransitiveDependantsReport extends CLSReport
       super(DIRECTORY, ReportSeverity.INFO, NAME, DIRECTORY);
    }
 
+   /**
+    * The facets of the archive model that the report reads
+    *
+    * @return The required facets
+    */
+   @Override
+   public int getRequiredFacets()
+   {
+      return ArchiveFacets.NONE;
+   }
+
    /**
     * write out the report's content
     *
@@ -84,7 +92,7 @@ public class TransitiveDependantsReport extends CLSReport
 
             if (a.getType() == ArchiveTypes.JAR)
             {
-               for (String require : getRequires(a))
+               for (String require : a.getAllRequires())
                {
 
                   if (archive.doesProvide(require) && (getCLS() == null || getCLS().isVisible(a, archive)))
@@ -178,27 +186,6 @@ public class TransitiveDependantsReport extends CLSReport
       bw.write("</table>" + Dump.newLine());
    }
 
-   private Set<String> getRequires(Archive a)
-   {
-      Set<String> requires = new HashSet<String>();
-      if (a instanceof NestableArchive)
-      {
-         NestableArchive na = (NestableArchive) a;
-         List<Archive> subArchives = na.getSubArchives();
-         requires.addAll(na.getRequires());
-
-         for (Archive sa : subArchives)
-         {
-            requires.addAll(getRequires(sa));
-         }
-      }
-      else
-      {
-         requires.addAll(a.getRequires());
-      }
-      return requires;
-   }
-
 
    /**
     * write out the header of the report's content
@@ -22,16 +22,13 @@
 package org.jboss.tattletale.reporting;
 
 import org.jboss.tattletale.core.Archive;
+import org.jboss.tattletale.core.ArchiveFacets;
 import org.jboss.tattletale.core.ArchiveTypes;
-import org.jboss.tattletale.core.NestableArchive;
 
 import java.io.BufferedWriter;
 import java.io.IOException;
-import java.util.HashSet;
 import java.util.Iterator;
-import java.util.List;
 import java.util.Map;
-import java.util.Set;
 import java.util.SortedMap;
 import java.util.SortedSet;
 import java.util.TreeMap;
@@ -57,6 +54,17 @@ public class TransitiveDependsOnReport extends CLSReport
       super(DIRECTORY, ReportSeverity.INFO, NAME, DIRECTORY);
    }
 
+   /**
+    * The facets of the archive model that the report reads
+    *
+    * @return The required facets
+    */
+   @Override
+   public int getRequiredFacets()
+   {
+      return ArchiveFacets.NONE;
+   }
+
    /**
     * write out the report's content
     *
@@ -83,7 +91,7 @@ public class TransitiveDependsOnReport extends CLSReport
 
             if (a.getType() == ArchiveTypes.JAR)
             {
-               for (String require : getRequires(a))
+               for (String require : a.getAllRequires())
                {
 
                   if (archive.doesProvide(require) && (getCLS() == null || getCLS().isVisible(a, archive)))
@@ -184,26 +192,6 @@ public class TransitiveDependsOnReport extends CLSReport
       bw.write("</table>" + Dump.newLine());
    }
 
-   private Set<String> getRequires(Archive a)
-   {
-      Set<String> requires = new HashSet<String>();
-      if (a instanceof NestableArchive)
-      {
-         NestableArchive na = (NestableArchive) a;
-         List<Archive> subArchives = na.getSubArchives();
-         requires.addAll(na.getRequires());
-
-         for (Archive sa : subArchives)
-         {
-            requires.addAll(getRequires(sa));
-         }
-      }
-      else
-      {
-         requires.addAll(a.getRequires());
-      }
-      return requires;
-   }
    /**
     * write out the header of the report's content
     *
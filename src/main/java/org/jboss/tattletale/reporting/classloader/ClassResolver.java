@@ -0,0 +1,264 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2009, Red Hat Middleware LLC, and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.tattletale.reporting.classloader;
+
+import org.jboss.tattletale.core.Archive;
+import org.jboss.tattletale.profiles.Profile;
+import org.jboss.tattletale.utils.EventListener;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * Simulates how the classloaders resolve classes, in order to find the copy of a class that actually
+ * gets loaded by an archive.
+ *
+ * The candidates for a class are the archives that provide it and that the archive can see. The known
+ * profiles, like the JDK, are asked first. The other candidates are asked in parent first order: a
+ * candidate that can see fewer of the other candidates is closer to the root of the classloader tree;
+ * candidates on the same level are asked in archive order.
+ *
+ * Archives that see the same archives share a domain, and a class is only resolved once per domain.
+ * The providers of the classes and the views of the archives are read from a {@link VisibilityIndex}.
+ *
+ * @author Jesper Pedersen <jesper.pedersen@jboss.org>
+ */
+public class ClassResolver
+{
+   /** Resolved by a known profile */
+   private static final int PROFILE = -1;
+
+   /** Not resolved */
+   private static final int UNRESOLVED = -2;
+
+   /** The providers of the classes and the views of the archives */
+   private VisibilityIndex index;
+
+   /** The known profiles */
+   private List<Profile> known;
+
+   /** The resolved classes of each domain */
+   private Map<BitSet, Map<String, Integer>> domains;
+
+   /** The profile of each class asked for */
+   private Map<String, Profile> profiles;
+
+   /**
+    * Constructor
+    *
+    * @param archives The archives
+    * @param known    The known profiles
+    * @param cls      The classloader structure; <code>null</code> if all archives can see each other
+    */
+   public ClassResolver(Collection<Archive> archives, List<Profile> known, ClassLoaderStructure cls)
+   {
+      this(archives, known, cls, null);
+   }
+
+   /**
+    * Constructor
+    *
+    * @param archives The archives
+    * @param known    The known profiles
+    * @param cls      The classloader structure; <code>null</code> if all archives can see each other
+    * @param listener The listener that is told when the view of an archive is computed; <code>null</code>
+    *                 to not fire events
+    */
+   public ClassResolver(Collection<Archive> archives, List<Profile> known, ClassLoaderStructure cls,
+             EventListener listener)
+   {
+      this(new VisibilityIndex(archives, cls, listener), known);
+   }
+
+   /**
+    * Constructor
+    *
+    * @param index The providers of the classes and the views of the archives
+    * @param known The known profiles
+    */
+   public ClassResolver(VisibilityIndex index, List<Profile> known)
+   {
+      this.index = index;
+      this.known = known != null ? known : new ArrayList<Profile>();
+      this.domains = new HashMap<BitSet, Map<String, Integer>>();
+      this.profiles = new HashMap<String, Profile>();
+   }
+
+   /**
+    * Get the classes that are provided more than once, where a known profile counts as a provider
+    *
+    * @return The classes
+    */
+   public SortedSet<String> getConflicts()
+   {
+      SortedSet<String> result = new TreeSet<String>();
+
+      for (String clz : index.getClasses())
+      {
+         if (index.getProviders(clz).length > 1 || getProfile(clz) != null)
+         {
+            result.add(clz);
+         }
+      }
+
+      return result;
+   }
+
+   /**
+    * Get the archive that a class is loaded from for an archive
+    *
+    * @param from The archive
+    * @param clz  The class
+    * @return The archive; <code>null</code> if the class is loaded from a known profile or not found
+    */
+   public Archive getProvider(Archive from, String clz)
+   {
+      int winner = resolve(from, clz);
+      return winner >= 0 ? index.getArchive(winner) : null;
+   }
+
+   /**
+    * Get the known profile that provides a class
+    *
+    * @param clz The class
+    * @return The profile; <code>null</code> if none of the known profiles provides the class
+    */
+   public Profile getProfile(String clz)
+   {
+      if (profiles.containsKey(clz))
+      {
+         return profiles.get(clz);
+      }
+
+      Profile result = null;
+      for (int i = 0; result == null && i < known.size(); i++)
+      {
+         if (known.get(i).doesProvide(clz))
+         {
+            result = known.get(i);
+         }
+      }
+
+      profiles.put(clz, result);
+
+      return result;
+   }
+
+   /**
+    * Get the copies of a class that an archive can see, but that are never loaded by it
+    *
+    * @param from The archive
+    * @param clz  The class
+    * @return The archives
+    */
+   public List<Archive> getShadowed(Archive from, String clz)
+   {
+      List<Archive> result = new ArrayList<Archive>();
+      int[] candidates = index.getProviders(clz);
+
+      if (candidates != null)
+      {
+         int winner = resolve(from, clz);
+         BitSet view = index.getView(from);
+
+         for (int candidate : candidates)
+         {
+            if (candidate != winner && view.get(candidate))
+            {
+               result.add(index.getArchive(candidate));
+            }
+         }
+      }
+
+      return result;
+   }
+
+   /**
+    * Resolve a class for an archive
+    *
+    * @param from The archive
+    * @param clz  The class
+    * @return The index of the archive; PROFILE or UNRESOLVED
+    */
+   private int resolve(Archive from, String clz)
+   {
+      BitSet view = index.getView(from);
+      Map<String, Integer> resolved = domains.get(view);
+
+      if (resolved == null)
+      {
+         resolved = new HashMap<String, Integer>();
+         domains.put(view, resolved);
+      }
+
+      Integer result = resolved.get(clz);
+
+      if (result == null)
+      {
+         int winner = UNRESOLVED;
+
+         if (getProfile(clz) != null)
+         {
+            winner = PROFILE;
+         }
+         else if (index.getProviders(clz) != null)
+         {
+            int[] candidates = index.getProviders(clz);
+            int rank = Integer.MAX_VALUE;
+
+            for (int candidate : candidates)
+            {
+               if (view.get(candidate))
+               {
+                  int r = 0;
+                  BitSet candidateView = index.getView(candidate);
+
+                  for (int other : candidates)
+                  {
+                     if (other != candidate && view.get(other) && candidateView.get(other))
+                     {
+                        r++;
+                     }
+                  }
+
+                  if (r < rank)
+                  {
+                     rank = r;
+                     winner = candidate;
+                  }
+               }
+            }
+         }
+
+         result = Integer.valueOf(winner);
+         resolved.put(clz, result);
+      }
+
+      return result.intValue();
+   }
+}
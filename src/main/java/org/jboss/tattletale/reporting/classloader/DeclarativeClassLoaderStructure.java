@@ -0,0 +1,347 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2009, Red Hat Middleware LLC, and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.tattletale.reporting.classloader;
+
+import org.jboss.tattletale.core.Archive;
+import org.jboss.tattletale.core.Location;
+import org.jboss.tattletale.utils.Configuration;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.StringTokenizer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A classloader structure that is defined by a properties file instead of code.
+ *
+ * The definition lists the domains in matching order, and for each domain the path patterns
+ * of its archives and the domains that it can see:
+ * <pre>
+ * domains=webapp, common, bootstrap
+ * domain.webapp.patterns=webapps/*, webapps/&#42;/**
+ * domain.webapp.isolated=true
+ * domain.webapp.visible=common
+ * domain.common.patterns=lib/*.jar
+ * domain.common.visible=bootstrap
+ * domain.bootstrap.patterns=bin/*.jar
+ * default=common
+ * </pre>
+ *
+ * A pattern matches the end of the path of an archive unless it starts with a slash; <code>*</code>
+ * matches within a directory, <code>**</code> across directories. A location belongs to the first domain
+ * that has a matching pattern, otherwise to the default domain if there is one. Visibility is transitive and
+ * a domain can always see itself. The archives of an isolated domain are grouped into instances named by the
+ * first <code>*</code> of the matching pattern, and two isolated domains can only see each other for the same
+ * instance.
+ *
+ * The definition is compiled into a reachability table when the structure is created, so a visibility query
+ * doesn't do any path matching.
+ *
+ * @author Jesper Pedersen <jesper.pedersen@jboss.org>
+ */
+public class DeclarativeClassLoaderStructure extends DomainClassLoaderStructure
+{
+   /** The default definition */
+   private static final String DEFINITION = "jboss-tattletale-cls.properties";
+
+   /** The domain names in matching order */
+   private String[] names;
+
+   /** The path patterns of each domain */
+   private Pattern[][] patterns;
+
+   /** Is a domain isolated */
+   private boolean[] isolated;
+
+   /** The domains that each domain can see */
+   private BitSet[] reachable;
+
+   /** The default domain; -1 if none */
+   private int defaultDomain;
+
+   /** The declared domain of each domain instance */
+   private Map<String, Integer> declared;
+
+   /** The instance name of each domain instance */
+   private Map<String, String> instances;
+
+   /**
+    * Constructor, which loads the definition from <code>jboss-tattletale-cls.properties</code>
+    */
+   public DeclarativeClassLoaderStructure()
+   {
+      this(Configuration.load(DEFINITION));
+   }
+
+   /**
+    * Constructor
+    *
+    * @param definition The definition
+    */
+   public DeclarativeClassLoaderStructure(Properties definition)
+   {
+      this.declared = new HashMap<String, Integer>();
+      this.instances = new HashMap<String, String>();
+
+      compile(definition);
+   }
+
+   /**
+    * Get the domain of a location of an archive
+    *
+    * @param archive  The archive
+    * @param location The location
+    * @return The domain; <code>null</code> if the location doesn't belong to any domain
+    */
+   protected String getDomain(Archive archive, Location location)
+   {
+      String path = location.getFilename().replace(File.separatorChar, '/');
+
+      for (int i = 0; i < names.length; i++)
+      {
+         for (Pattern pattern : patterns[i])
+         {
+            Matcher m = pattern.matcher(path);
+            if (m.matches())
+            {
+               String instance = "";
+
+               if (isolated[i] && m.groupCount() > 0 && m.group(1) != null)
+               {
+                  instance = m.group(1);
+               }
+
+               return getDomain(i, instance);
+            }
+         }
+      }
+
+      if (defaultDomain != -1)
+      {
+         return getDomain(defaultDomain, "");
+      }
+
+      return null;
+   }
+
+   /**
+    * Can one domain see the other
+    *
+    * @param from The from domain
+    * @param to   The to domain
+    * @return True if from can see to; otherwise false
+    */
+   protected boolean isDomainVisible(String from, String to)
+   {
+      int f = declared.get(from).intValue();
+      int t = declared.get(to).intValue();
+
+      if (!reachable[f].get(t))
+      {
+         return false;
+      }
+
+      if (isolated[f] && isolated[t])
+      {
+         return instances.get(from).equals(instances.get(to));
+      }
+
+      return true;
+   }
+
+   /**
+    * Get the name of a domain instance
+    *
+    * @param domain   The declared domain
+    * @param instance The instance name
+    * @return The name
+    */
+   private String getDomain(int domain, String instance)
+   {
+      String result = isolated[domain] ? names[domain] + ":" + instance : names[domain];
+
+      if (!declared.containsKey(result))
+      {
+         declared.put(result, Integer.valueOf(domain));
+         instances.put(result, instance);
+      }
+
+      return result;
+   }
+
+   /**
+    * Compile the definition
+    *
+    * @param definition The definition
+    */
+   private void compile(Properties definition)
+   {
+      List<String> domains = split(definition.getProperty("domains"));
+
+      if (domains.size() == 0)
+      {
+         System.err.println("No classloader domains defined");
+      }
+
+      names = domains.toArray(new String[domains.size()]);
+      patterns = new Pattern[names.length][];
+      isolated = new boolean[names.length];
+      reachable = new BitSet[names.length];
+      defaultDomain = domains.indexOf(definition.getProperty("default", "").trim());
+
+      for (int i = 0; i < names.length; i++)
+      {
+         String prefix = "domain." + names[i] + ".";
+
+         List<String> globs = split(definition.getProperty(prefix + "patterns"));
+         patterns[i] = new Pattern[globs.size()];
+         for (int j = 0; j < globs.size(); j++)
+         {
+            patterns[i][j] = compilePattern(globs.get(j));
+         }
+
+         isolated[i] = Boolean.valueOf(definition.getProperty(prefix + "isolated", "false").trim()).booleanValue();
+
+         reachable[i] = new BitSet(names.length);
+         reachable[i].set(i);
+
+         for (String visible : split(definition.getProperty(prefix + "visible")))
+         {
+            int idx = domains.indexOf(visible);
+            if (idx != -1)
+            {
+               reachable[i].set(idx);
+            }
+            else
+            {
+               System.err.println("Unknown classloader domain: " + visible);
+            }
+         }
+      }
+
+      // Transitive closure
+      boolean changed = true;
+      while (changed)
+      {
+         changed = false;
+
+         for (int i = 0; i < names.length; i++)
+         {
+            int before = reachable[i].cardinality();
+
+            for (int j = reachable[i].nextSetBit(0); j >= 0; j = reachable[i].nextSetBit(j + 1))
+            {
+               if (j != i)
+               {
+                  reachable[i].or(reachable[j]);
+               }
+            }
+
+            if (reachable[i].cardinality() != before)
+            {
+               changed = true;
+            }
+         }
+      }
+   }
+
+   /**
+    * Compile a path pattern into a regular expression
+    *
+    * @param glob The path pattern
+    * @return The regular expression
+    */
+   private Pattern compilePattern(String glob)
+   {
+      StringBuffer sb = new StringBuffer();
+
+      if (!glob.startsWith("/"))
+      {
+         sb.append("(?:.*/)?");
+      }
+
+      for (int i = 0; i < glob.length(); i++)
+      {
+         char c = glob.charAt(i);
+
+         if (c == '*')
+         {
+            if (i + 1 < glob.length() && glob.charAt(i + 1) == '*')
+            {
+               sb.append(".*");
+               i++;
+            }
+            else
+            {
+               sb.append("([^/]*)");
+            }
+         }
+         else if (c == '?')
+         {
+            sb.append("[^/]");
+         }
+         else if ("\\.[]{}()+-^$|".indexOf(c) != -1)
+         {
+            sb.append('\\');
+            sb.append(c);
+         }
+         else
+         {
+            sb.append(c);
+         }
+      }
+
+      return Pattern.compile(sb.toString());
+   }
+
+   /**
+    * Split a comma separated value
+    *
+    * @param value The value
+    * @return The tokens
+    */
+   private List<String> split(String value)
+   {
+      List<String> result = new ArrayList<String>();
+
+      if (value != null)
+      {
+         StringTokenizer st = new StringTokenizer(value, ",");
+         while (st.hasMoreTokens())
+         {
+            String token = st.nextToken().trim();
+            if (token.length() > 0)
+            {
+               result.add(token);
+            }
+         }
+      }
+
+      return result;
+   }
+}
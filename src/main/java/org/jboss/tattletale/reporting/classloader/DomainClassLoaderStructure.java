@@ -0,0 +1,187 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2009, Red Hat Middleware LLC, and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.tattletale.reporting.classloader;
+
+import org.jboss.tattletale.core.Archive;
+import org.jboss.tattletale.core.ArchiveFacets;
+import org.jboss.tattletale.core.Location;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A classloader structure where each location of an archive belongs to a classloader domain.
+ *
+ * Each archive is assigned its domain ids the first time it is queried, and the visibility between
+ * two domains is only computed once, so a visibility query is a couple of bit set lookups.
+ *
+ * @author Jesper Pedersen <jesper.pedersen@jboss.org>
+ */
+public abstract class DomainClassLoaderStructure implements ClassLoaderStructure
+{
+   /** The domain ids */
+   private Map<String, Integer> domainIds;
+
+   /** The domain names */
+   private List<String> domains;
+
+   /** The visibility matrix: the domains that each domain can see */
+   private List<BitSet> visibility;
+
+   /** The domains of the archives */
+   private Map<Archive, BitSet> archiveDomains;
+
+   /** Constructor */
+   public DomainClassLoaderStructure()
+   {
+      this.domainIds = new HashMap<String, Integer>();
+      this.domains = new ArrayList<String>();
+      this.visibility = new ArrayList<BitSet>();
+      this.archiveDomains = new IdentityHashMap<Archive, BitSet>();
+   }
+
+   /**
+    * The facets of the archive model that the classloader structure reads. Structures that read a facet
+    * of the archives, f.ex. their manifest, should override this method
+    *
+    * @return The required facets, see {@link ArchiveFacets}
+    */
+   public int getRequiredFacets()
+   {
+      return ArchiveFacets.NONE;
+   }
+
+   /**
+    * Can one archive see the other
+    *
+    * @param from The from archive
+    * @param to   The to archive
+    * @return True if from can see to; otherwise false
+    */
+   public boolean isVisible(Archive from, Archive to)
+   {
+      BitSet fromDomains = getDomains(from);
+      BitSet toDomains = getDomains(to);
+
+      for (int i = fromDomains.nextSetBit(0); i >= 0; i = fromDomains.nextSetBit(i + 1))
+      {
+         if (visibility.get(i).intersects(toDomains))
+         {
+            return true;
+         }
+      }
+
+      return false;
+   }
+
+   /**
+    * Get the domain ids of an archive, assigning them if the archive hasn't been seen before
+    *
+    * @param archive The archive
+    * @return The domain ids
+    */
+   protected BitSet getDomains(Archive archive)
+   {
+      BitSet result = archiveDomains.get(archive);
+
+      if (result == null)
+      {
+         result = new BitSet();
+
+         for (Location location : archive.getLocations())
+         {
+            String domain = getDomain(archive, location);
+
+            if (domain != null)
+            {
+               result.set(getDomainId(domain));
+            }
+         }
+
+         archiveDomains.put(archive, result);
+      }
+
+      return result;
+   }
+
+   /**
+    * Get the id of a domain, and extend the visibility matrix if the domain is new
+    *
+    * @param domain The domain
+    * @return The id
+    */
+   protected int getDomainId(String domain)
+   {
+      Integer id = domainIds.get(domain);
+
+      if (id == null)
+      {
+         int newId = domains.size();
+         BitSet row = new BitSet();
+
+         domains.add(domain);
+         visibility.add(row);
+
+         for (int i = 0; i <= newId; i++)
+         {
+            String other = domains.get(i);
+
+            if (isDomainVisible(domain, other))
+            {
+               row.set(i);
+            }
+
+            if (i != newId && isDomainVisible(other, domain))
+            {
+               visibility.get(i).set(newId);
+            }
+         }
+
+         id = Integer.valueOf(newId);
+         domainIds.put(domain, id);
+      }
+
+      return id.intValue();
+   }
+
+   /**
+    * Get the domain of a location of an archive
+    *
+    * @param archive  The archive
+    * @param location The location
+    * @return The domain; <code>null</code> if the location doesn't belong to any domain
+    */
+   protected abstract String getDomain(Archive archive, Location location);
+
+   /**
+    * Can one domain see the other
+    *
+    * @param from The from domain
+    * @param to   The to domain
+    * @return True if from can see to; otherwise false
+    */
+   protected abstract boolean isDomainVisible(String from, String to);
+}
@@ -0,0 +1,356 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2009, Red Hat Middleware LLC, and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.tattletale.reporting.classloader;
+
+import org.jboss.tattletale.core.Archive;
+import org.jboss.tattletale.profiles.Profile;
+import org.jboss.tattletale.utils.EventListener;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Evaluates what breaks when archives are removed or replaced, without scanning again.
+ *
+ * For every archive the classes it requires are matched against the archives that provide them and
+ * that the archive can see, taking the classloader structure into account. Each provider keeps the list
+ * of requirements that it can satisfy, so removing an archive only has to look at the requirements
+ * of that archive instead of the whole dependency graph. The providers of the classes and the views of
+ * the archives are read from a {@link VisibilityIndex}.
+ *
+ * @author Jesper Pedersen <jesper.pedersen@jboss.org>
+ */
+public class ImpactAnalyzer
+{
+   /** The providers of the classes and the views of the archives */
+   private VisibilityIndex index;
+
+   /** The known profiles */
+   private List<Profile> known;
+
+   /** The required classes */
+   private List<String> requires;
+
+   /** The requirements satisfied by each archive: pairs of the requiring archive and the class */
+   private int[][] users;
+
+   /** The number of values in users for each archive */
+   private int[] userCounts;
+
+   /** Is a class provided by a known profile */
+   private Map<String, Boolean> profileClasses;
+
+   /**
+    * Constructor
+    *
+    * @param archives The archives
+    * @param known    The known profiles
+    * @param cls      The classloader structure; <code>null</code> if all archives can see each other
+    */
+   public ImpactAnalyzer(Collection<Archive> archives, List<Profile> known, ClassLoaderStructure cls)
+   {
+      this(archives, known, cls, null);
+   }
+
+   /**
+    * Constructor
+    *
+    * @param archives The archives
+    * @param known    The known profiles
+    * @param cls      The classloader structure; <code>null</code> if all archives can see each other
+    * @param listener The listener that is told when the view of an archive is computed; <code>null</code>
+    *                 to not fire events
+    */
+   public ImpactAnalyzer(Collection<Archive> archives, List<Profile> known, ClassLoaderStructure cls,
+             EventListener listener)
+   {
+      this(new VisibilityIndex(archives, cls, listener), known);
+   }
+
+   /**
+    * Constructor
+    *
+    * @param index The providers of the classes and the views of the archives
+    * @param known The known profiles
+    */
+   public ImpactAnalyzer(VisibilityIndex index, List<Profile> known)
+   {
+      this.index = index;
+      this.known = known != null ? known : new ArrayList<Profile>();
+      this.requires = new ArrayList<String>();
+      this.users = new int[index.size()][];
+      this.userCounts = new int[index.size()];
+      this.profileClasses = new HashMap<String, Boolean>();
+
+      build();
+   }
+
+   /**
+    * Evaluate the removal of an archive
+    *
+    * @param archive The archive
+    * @return The impact
+    */
+   public RemovalImpact evaluateRemoval(Archive archive)
+   {
+      List<Archive> removed = new ArrayList<Archive>(1);
+      removed.add(archive);
+
+      return evaluateRemoval(removed);
+   }
+
+   /**
+    * Evaluate the removal of archives
+    *
+    * @param removed The archives
+    * @return The impact
+    */
+   public RemovalImpact evaluateRemoval(Collection<Archive> removed)
+   {
+      BitSet removedIds = new BitSet(index.size());
+      for (Archive archive : removed)
+      {
+         int id = index.getId(archive);
+         if (id != -1)
+         {
+            removedIds.set(id);
+         }
+      }
+
+      RemovalImpact result = new RemovalImpact();
+      Set<Long> checked = new HashSet<Long>();
+
+      for (int p = removedIds.nextSetBit(0); p >= 0; p = removedIds.nextSetBit(p + 1))
+      {
+         int[] pairs = users[p];
+
+         for (int i = 0; i < userCounts[p]; i += 2)
+         {
+            int consumer = pairs[i];
+            int require = pairs[i + 1];
+
+            if (!removedIds.get(consumer) && checked.add(Long.valueOf(((long) consumer << 32) | require)))
+            {
+               if (!isSatisfied(consumer, requires.get(require), removedIds))
+               {
+                  result.addUnresolved(index.getArchive(consumer), requires.get(require));
+               }
+            }
+         }
+      }
+
+      return result;
+   }
+
+   /**
+    * Evaluate the replacement of an archive by another archive in the same place, for example
+    * a different version of it
+    *
+    * @param original    The archive
+    * @param replacement The replacement
+    * @return The impact
+    */
+   public RemovalImpact evaluateReplacement(Archive original, Archive replacement)
+   {
+      RemovalImpact removal = evaluateRemoval(original);
+      RemovalImpact result = new RemovalImpact();
+
+      for (Archive archive : removal.getArchives())
+      {
+         for (String clz : removal.getUnresolved(archive))
+         {
+            if (!replacement.getAllProvides().containsKey(clz))
+            {
+               result.addUnresolved(archive, clz);
+            }
+         }
+      }
+
+      int id = index.getId(original);
+      if (id != -1)
+      {
+         BitSet removedIds = new BitSet(index.size());
+         removedIds.set(id);
+
+         for (String clz : replacement.getAllRequires())
+         {
+            if (!original.getAllRequires().contains(clz) && !replacement.getAllProvides().containsKey(clz) &&
+                !isSatisfied(id, clz, removedIds))
+            {
+               result.addUnresolved(replacement, clz);
+            }
+         }
+      }
+
+      return result;
+   }
+
+   /**
+    * Evaluate the removal of each of the archives on its own
+    *
+    * @param candidates The archives
+    * @return The impact for each archive
+    */
+   public SortedMap<Archive, RemovalImpact> evaluateRemovals(Collection<Archive> candidates)
+   {
+      SortedMap<Archive, RemovalImpact> result = new TreeMap<Archive, RemovalImpact>();
+
+      for (Archive archive : candidates)
+      {
+         result.put(archive, evaluateRemoval(archive));
+      }
+
+      return result;
+   }
+
+   /**
+    * Can an archive still resolve a class when archives are removed
+    *
+    * @param consumer The index of the archive
+    * @param clz      The class
+    * @param removed  The indexes of the removed archives
+    * @return True if resolved; otherwise false
+    */
+   private boolean isSatisfied(int consumer, String clz, BitSet removed)
+   {
+      if (isKnown(clz))
+      {
+         return true;
+      }
+
+      int[] candidates = index.getProviders(clz);
+      if (candidates != null)
+      {
+         BitSet view = index.getView(consumer);
+
+         for (int candidate : candidates)
+         {
+            if (!removed.get(candidate) && view.get(candidate))
+            {
+               return true;
+            }
+         }
+      }
+
+      return false;
+   }
+
+   /**
+    * Build the requirements that each archive satisfies
+    */
+   private void build()
+   {
+      Map<String, Integer> requireIds = new HashMap<String, Integer>();
+
+      for (int i = 0; i < index.size(); i++)
+      {
+         BitSet view = index.getView(i);
+
+         for (String clz : index.getArchive(i).getAllRequires())
+         {
+            int[] candidates = index.getProviders(clz);
+
+            if (candidates != null && !isKnown(clz))
+            {
+               Integer require = requireIds.get(clz);
+               if (require == null)
+               {
+                  require = Integer.valueOf(requires.size());
+                  requires.add(clz);
+                  requireIds.put(clz, require);
+               }
+
+               for (int candidate : candidates)
+               {
+                  if (view.get(candidate))
+                  {
+                     addUser(candidate, i, require.intValue());
+                  }
+               }
+            }
+         }
+      }
+   }
+
+   /**
+    * Register that an archive satisfies a requirement of another archive
+    *
+    * @param provider The index of the providing archive
+    * @param consumer The index of the requiring archive
+    * @param require  The index of the class
+    */
+   private void addUser(int provider, int consumer, int require)
+   {
+      int[] pairs = users[provider];
+
+      if (pairs == null)
+      {
+         pairs = new int[8];
+         users[provider] = pairs;
+      }
+      else if (userCounts[provider] == pairs.length)
+      {
+         int[] extended = new int[2 * pairs.length];
+         System.arraycopy(pairs, 0, extended, 0, pairs.length);
+         pairs = extended;
+         users[provider] = pairs;
+      }
+
+      pairs[userCounts[provider]++] = consumer;
+      pairs[userCounts[provider]++] = require;
+   }
+
+   /**
+    * Is a class provided by one of the known profiles
+    *
+    * @param clz The class
+    * @return True if provided; otherwise false
+    */
+   private boolean isKnown(String clz)
+   {
+      Boolean result = profileClasses.get(clz);
+
+      if (result == null)
+      {
+         result = Boolean.FALSE;
+         for (int i = 0; !result.booleanValue() && i < known.size(); i++)
+         {
+            if (known.get(i).doesProvide(clz))
+            {
+               result = Boolean.TRUE;
+            }
+         }
+
+         profileClasses.put(clz, result);
+      }
+
+      return result.booleanValue();
+   }
+}
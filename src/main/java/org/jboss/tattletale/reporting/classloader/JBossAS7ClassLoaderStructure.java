@@ -0,0 +1,462 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2009, Red Hat Middleware LLC, and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.tattletale.reporting.classloader;
+
+import org.jboss.tattletale.core.Archive;
+import org.jboss.tattletale.core.ArchiveFacets;
+import org.jboss.tattletale.core.Location;
+import org.jboss.tattletale.tools.as7.ModuleDefinition;
+import org.jboss.tattletale.tools.as7.ModuleDependency;
+import org.jboss.tattletale.tools.as7.ModuleXml;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.StringTokenizer;
+import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+
+/**
+ * A classloader structure class that represents the module graph of the JBoss Application Server 7.x
+ * and WildFly.
+ *
+ * The module.xml files of the server are read into a module graph the first time an archive of the server
+ * is seen, and the modules that each module can see are precomputed as bit sets: a module sees its own
+ * resources, its dependencies and everything that its dependencies export. Optional dependencies are
+ * included when the module is installed.
+ *
+ * A deployment sees itself, the implicit modules and the modules listed in the Dependencies manifest header
+ * of the deployment. The header is read from the top-level archive of the deployment, or from the deployment
+ * on disk if an archive nested in it is seen first or the deployment is exploded. Deployments can't see each
+ * other.
+ *
+ * @author Jesper Pedersen <jesper.pedersen@jboss.org>
+ */
+public class JBossAS7ClassLoaderStructure extends DomainClassLoaderStructure
+{
+   /** The implicit module dependencies of a deployment */
+   private static final String[] IMPLICIT = {"javax.api", "sun.jdk", "javaee.api", "org.jboss.logging",
+                                             "org.apache.commons.logging", "org.apache.log4j", "org.slf4j"};
+
+   /** The module directory */
+   private static final String MODULES = "modules";
+
+   /** The deployment directory */
+   private static final String DEPLOYMENTS = "/deployments/";
+
+   /** The root of the module repository; <code>null</code> if not found yet */
+   private File root;
+
+   /** The module definitions */
+   private List<ModuleDefinition> modules;
+
+   /** The module indexes */
+   private Map<String, Integer> moduleIds;
+
+   /** The module indexes of the module directories */
+   private Map<String, Integer> moduleDirectories;
+
+   /** The modules that each module exports, including itself */
+   private BitSet[] exported;
+
+   /** The modules that each module can see */
+   private BitSet[] visible;
+
+   /** The modules that each domain can see */
+   private Map<String, BitSet> domainModules;
+
+   /** The module of each module domain */
+   private Map<String, Integer> domainModule;
+
+   /** Constructor */
+   public JBossAS7ClassLoaderStructure()
+   {
+      this.root = null;
+      this.modules = new ArrayList<ModuleDefinition>();
+      this.moduleIds = new HashMap<String, Integer>();
+      this.moduleDirectories = new HashMap<String, Integer>();
+      this.exported = new BitSet[0];
+      this.visible = new BitSet[0];
+      this.domainModules = new HashMap<String, BitSet>();
+      this.domainModule = new HashMap<String, Integer>();
+   }
+
+   /**
+    * The facets of the archive model that the classloader structure reads
+    *
+    * @return The manifest, which holds the Dependencies header of a deployment
+    */
+   public int getRequiredFacets()
+   {
+      return ArchiveFacets.MANIFEST;
+   }
+
+   /**
+    * Get the domain of a location of an archive
+    *
+    * @param archive  The archive
+    * @param location The location
+    * @return The domain; <code>null</code> if the location doesn't belong to any domain
+    */
+   protected String getDomain(Archive archive, Location location)
+   {
+      File file = new File(location.getFilename());
+      File directory = file.getParentFile();
+
+      if (directory != null && new File(directory, "module.xml").exists())
+      {
+         if (root == null)
+         {
+            loadModules(getModuleRoot(directory));
+         }
+
+         Integer id = moduleDirectories.get(directory.getPath());
+         if (id != null)
+         {
+            String domain = "module:" + modules.get(id.intValue()).getIdentifier();
+
+            if (!domainModule.containsKey(domain))
+            {
+               domainModule.put(domain, id);
+               domainModules.put(domain, visible[id.intValue()]);
+            }
+
+            return domain;
+         }
+      }
+
+      String path = location.getFilename().replace(File.separatorChar, '/');
+      int idx = path.indexOf(DEPLOYMENTS);
+
+      if (idx != -1)
+      {
+         if (root == null)
+         {
+            File home = new File(path.substring(0, idx)).getParentFile();
+            if (home != null && new File(home, MODULES).isDirectory())
+            {
+               loadModules(new File(home, MODULES));
+            }
+         }
+
+         String deployment = path.substring(idx + DEPLOYMENTS.length());
+         boolean topLevel = deployment.indexOf('/') == -1 && deployment.equals(archive.getName());
+         if (deployment.indexOf('/') != -1)
+         {
+            deployment = deployment.substring(0, deployment.indexOf('/'));
+         }
+
+         String domain = "deployment:" + deployment;
+
+         if (!domainModules.containsKey(domain))
+         {
+            String header = topLevel ? archive.getManifestValue("Dependencies") :
+               getDependencies(new File(path.substring(0, idx + DEPLOYMENTS.length()) + deployment));
+
+            domainModules.put(domain, getDeploymentModules(header));
+         }
+
+         return domain;
+      }
+
+      return null;
+   }
+
+   /**
+    * Can one domain see the other
+    *
+    * @param from The from domain
+    * @param to   The to domain
+    * @return True if from can see to; otherwise false
+    */
+   protected boolean isDomainVisible(String from, String to)
+   {
+      if (from.equals(to))
+      {
+         return true;
+      }
+
+      Integer module = domainModule.get(to);
+      if (module == null)
+      {
+         return false;
+      }
+
+      return domainModules.get(from).get(module.intValue());
+   }
+
+   /**
+    * Read the Dependencies manifest header of a deployment on disk
+    *
+    * @param deployment The deployment; an archive or an exploded directory
+    * @return The value; <code>null</code> if there is none
+    */
+   private String getDependencies(File deployment)
+   {
+      Manifest manifest = null;
+
+      try
+      {
+         if (deployment.isDirectory())
+         {
+            File file = new File(deployment, JarFile.MANIFEST_NAME);
+            if (file.isFile())
+            {
+               InputStream is = new FileInputStream(file);
+               try
+               {
+                  manifest = new Manifest(is);
+               }
+               finally
+               {
+                  is.close();
+               }
+            }
+         }
+         else if (deployment.isFile())
+         {
+            JarFile jarFile = new JarFile(deployment);
+            try
+            {
+               manifest = jarFile.getManifest();
+            }
+            finally
+            {
+               jarFile.close();
+            }
+         }
+      }
+      catch (IOException ioe)
+      {
+         System.err.println("Unable to read the manifest of " + deployment + ": " + ioe.getMessage());
+      }
+
+      return manifest != null ? manifest.getMainAttributes().getValue("Dependencies") : null;
+   }
+
+   /**
+    * Get the modules that a deployment can see
+    *
+    * @param header The Dependencies manifest header of the deployment; <code>null</code> if none
+    * @return The modules
+    */
+   private BitSet getDeploymentModules(String header)
+   {
+      BitSet result = new BitSet(modules.size());
+      List<String> dependencies = new ArrayList<String>(Arrays.asList(IMPLICIT));
+
+      if (header != null)
+      {
+         StringTokenizer st = new StringTokenizer(header, ",");
+         while (st.hasMoreTokens())
+         {
+            String dependency = st.nextToken().trim();
+
+            if (dependency.indexOf(' ') != -1)
+            {
+               dependency = dependency.substring(0, dependency.indexOf(' '));
+            }
+
+            if (dependency.length() > 0)
+            {
+               dependencies.add(dependency);
+            }
+         }
+      }
+
+      for (String dependency : dependencies)
+      {
+         String identifier = dependency;
+         if (identifier.indexOf(':') == -1)
+         {
+            identifier = ModuleDefinition.getIdentifier(dependency, null);
+         }
+
+         Integer id = moduleIds.get(identifier);
+
+         if (id != null)
+         {
+            result.or(exported[id.intValue()]);
+         }
+      }
+
+      return result;
+   }
+
+   /**
+    * Get the root of the module repository of a module
+    *
+    * @param directory The module directory
+    * @return The root
+    */
+   private File getModuleRoot(File directory)
+   {
+      File f = directory;
+      while (f != null)
+      {
+         if (MODULES.equals(f.getName()))
+         {
+            return f;
+         }
+
+         f = f.getParentFile();
+      }
+
+      // Outside of a modules directory: strip the module name and slot from the path
+      ModuleDefinition module = ModuleXml.getModule(new File(directory, "module.xml"));
+      f = directory;
+
+      if (module != null)
+      {
+         f = f.getParentFile();
+         StringTokenizer st = new StringTokenizer(module.getName(), ".");
+         while (st.hasMoreTokens() && f != null)
+         {
+            st.nextToken();
+            f = f.getParentFile();
+         }
+      }
+
+      return f != null ? f : directory;
+   }
+
+   /**
+    * Load the module graph of a module repository, and precompute the visibility between the modules
+    *
+    * @param repository The root of the module repository
+    */
+   private void loadModules(File repository)
+   {
+      root = repository;
+
+      List<File> files = new ArrayList<File>();
+      findModuleXml(repository, files);
+
+      for (File f : files)
+      {
+         ModuleDefinition module = ModuleXml.getModule(f);
+
+         if (module != null && !moduleIds.containsKey(module.getIdentifier()))
+         {
+            Integer id = Integer.valueOf(modules.size());
+
+            modules.add(module);
+            moduleIds.put(module.getIdentifier(), id);
+            moduleDirectories.put(f.getParentFile().getPath(), id);
+         }
+      }
+
+      int size = modules.size();
+      exported = new BitSet[size];
+      visible = new BitSet[size];
+
+      for (int i = 0; i < size; i++)
+      {
+         exported[i] = new BitSet(size);
+         exported[i].set(i);
+
+         for (ModuleDependency dependency : modules.get(i).getDependencies())
+         {
+            Integer id = moduleIds.get(dependency.getIdentifier());
+            if (id != null && dependency.isExport())
+            {
+               exported[i].set(id.intValue());
+            }
+         }
+      }
+
+      // Exports are transitive
+      boolean changed = true;
+      while (changed)
+      {
+         changed = false;
+
+         for (int i = 0; i < size; i++)
+         {
+            int before = exported[i].cardinality();
+
+            for (int j = exported[i].nextSetBit(0); j >= 0; j = exported[i].nextSetBit(j + 1))
+            {
+               if (j != i)
+               {
+                  exported[i].or(exported[j]);
+               }
+            }
+
+            if (exported[i].cardinality() != before)
+            {
+               changed = true;
+            }
+         }
+      }
+
+      for (int i = 0; i < size; i++)
+      {
+         visible[i] = new BitSet(size);
+         visible[i].set(i);
+
+         for (ModuleDependency dependency : modules.get(i).getDependencies())
+         {
+            Integer id = moduleIds.get(dependency.getIdentifier());
+            if (id != null)
+            {
+               visible[i].or(exported[id.intValue()]);
+            }
+         }
+      }
+   }
+
+   /**
+    * Find the module.xml files of a module repository in a stable order
+    *
+    * @param directory The directory
+    * @param result    The module.xml files
+    */
+   private void findModuleXml(File directory, List<File> result)
+   {
+      File[] files = directory.listFiles();
+
+      if (files != null)
+      {
+         Arrays.sort(files);
+
+         for (File f : files)
+         {
+            if (f.isDirectory())
+            {
+               findModuleXml(f, result);
+            }
+            else if ("module.xml".equals(f.getName()))
+            {
+               result.add(f);
+            }
+         }
+      }
+   }
+}
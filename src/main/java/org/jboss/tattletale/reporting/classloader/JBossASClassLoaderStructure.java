@@ -21,15 +21,47 @@
  */
 package org.jboss.tattletale.reporting.classloader;
 
+import org.jboss.tattletale.core.Archive;
+import org.jboss.tattletale.core.Location;
+
 /**
  * A classloader structure class that represents the JBoss Application Server
  *
  * @author Jesper Pedersen <jesper.pedersen@jboss.org>
  */
-public abstract class JBossASClassLoaderStructure implements ClassLoaderStructure
+public abstract class JBossASClassLoaderStructure extends DomainClassLoaderStructure
 {
    /** Constructor */
    public JBossASClassLoaderStructure()
    {
    }
+
+   /**
+    * Get the domain of a location of an archive, which is the directory of the archive
+    * relative to the root of the installation
+    *
+    * @param archive  The archive
+    * @param location The location
+    * @return The domain
+    */
+   protected String getDomain(Archive archive, Location location)
+   {
+      String path = location.getFilename();
+
+      int idx = path.indexOf(archive.getName());
+      if (idx != -1)
+      {
+         path = path.substring(0, idx);
+      }
+
+      return stripPrefix(path);
+   }
+
+   /**
+    * Strip prefix
+    *
+    * @param input The input string
+    * @return The result
+    */
+   protected abstract String stripPrefix(String input);
 }
@@ -0,0 +1,116 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2009, Red Hat Middleware LLC, and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.tattletale.reporting.classloader;
+
+import org.jboss.tattletale.core.Archive;
+
+import java.util.Collections;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * The impact of removing or replacing archives: the archives that would have classes that
+ * can't be resolved any more
+ *
+ * @author Jesper Pedersen <jesper.pedersen@jboss.org>
+ */
+public class RemovalImpact
+{
+   /** The unresolved classes of each archive */
+   private SortedMap<Archive, SortedSet<String>> unresolved;
+
+   /** Constructor */
+   public RemovalImpact()
+   {
+      unresolved = new TreeMap<Archive, SortedSet<String>>();
+   }
+
+   /**
+    * Add a class that an archive can't resolve any more
+    *
+    * @param archive The archive
+    * @param clz     The class
+    */
+   public void addUnresolved(Archive archive, String clz)
+   {
+      SortedSet<String> classes = unresolved.get(archive);
+
+      if (classes == null)
+      {
+         classes = new TreeSet<String>();
+         unresolved.put(archive, classes);
+      }
+
+      classes.add(clz);
+   }
+
+   /**
+    * Is there no impact
+    *
+    * @return True if no archive is affected; otherwise false
+    */
+   public boolean isEmpty()
+   {
+      return unresolved.isEmpty();
+   }
+
+   /**
+    * Get the affected archives
+    *
+    * @return The archives
+    */
+   public SortedSet<Archive> getArchives()
+   {
+      return Collections.unmodifiableSortedSet(new TreeSet<Archive>(unresolved.keySet()));
+   }
+
+   /**
+    * Get the classes that an archive can't resolve any more
+    *
+    * @param archive The archive
+    * @return The classes
+    */
+   public SortedSet<String> getUnresolved(Archive archive)
+   {
+      SortedSet<String> classes = unresolved.get(archive);
+
+      if (classes == null)
+      {
+         return Collections.unmodifiableSortedSet(new TreeSet<String>());
+      }
+
+      return Collections.unmodifiableSortedSet(classes);
+   }
+
+   /**
+    * String representation
+    *
+    * @return The string
+    */
+   @Override
+   public String toString()
+   {
+      return unresolved.toString();
+   }
+}
@@ -0,0 +1,240 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2009, Red Hat Middleware LLC, and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.tattletale.reporting.classloader;
+
+import org.jboss.tattletale.core.Archive;
+import org.jboss.tattletale.utils.EventListener;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An index of the archives that provide each class, and of the archives that each archive can see through
+ * a classloader structure.
+ *
+ * The index is built once for the archives of a run and shared by the reports, so the providers are only
+ * collected once and the view of each archive is only computed once. The providers are collected the first
+ * time they are queried, and the view of an archive the first time it is asked for.
+ *
+ * @author Jesper Pedersen <jesper.pedersen@jboss.org>
+ */
+public class VisibilityIndex
+{
+   /** The archives */
+   private List<Archive> archives;
+
+   /** The archive indexes */
+   private Map<Archive, Integer> archiveIds;
+
+   /** The archives that provide each class; <code>null</code> until first queried */
+   private Map<String, int[]> providers;
+
+   /** The classloader structure; <code>null</code> if all archives can see each other */
+   private ClassLoaderStructure cls;
+
+   /** The archives that each archive can see */
+   private BitSet[] views;
+
+   /** The event listener */
+   private EventListener listener;
+
+   /**
+    * Constructor
+    *
+    * @param archives The archives
+    * @param cls      The classloader structure; <code>null</code> if all archives can see each other
+    * @param listener The listener that is told when the view of an archive is computed; <code>null</code>
+    *                 to not fire events
+    */
+   public VisibilityIndex(Collection<Archive> archives, ClassLoaderStructure cls, EventListener listener)
+   {
+      this.archives = new ArrayList<Archive>(archives);
+      this.archiveIds = new HashMap<Archive, Integer>();
+      this.providers = null;
+      this.cls = cls;
+      this.listener = listener;
+      this.views = new BitSet[this.archives.size()];
+
+      for (int i = 0; i < this.archives.size(); i++)
+      {
+         archiveIds.put(this.archives.get(i), Integer.valueOf(i));
+      }
+   }
+
+   /**
+    * Get the number of archives
+    *
+    * @return The value
+    */
+   public int size()
+   {
+      return archives.size();
+   }
+
+   /**
+    * Get an archive
+    *
+    * @param id The index of the archive
+    * @return The archive
+    */
+   public Archive getArchive(int id)
+   {
+      return archives.get(id);
+   }
+
+   /**
+    * Get the index of an archive
+    *
+    * @param archive The archive
+    * @return The value; -1 if the archive isn't part of the index
+    */
+   public int getId(Archive archive)
+   {
+      Integer id = archiveIds.get(archive);
+      return id != null ? id.intValue() : -1;
+   }
+
+   /**
+    * Get the classes that are provided by the archives
+    *
+    * @return The classes
+    */
+   public Set<String> getClasses()
+   {
+      return Collections.unmodifiableSet(getProviderMap().keySet());
+   }
+
+   /**
+    * Get the archives that provide a class
+    *
+    * @param clz The class
+    * @return The indexes of the archives in archive order; <code>null</code> if no archive provides it
+    */
+   public int[] getProviders(String clz)
+   {
+      return getProviderMap().get(clz);
+   }
+
+   /**
+    * Get the archives that an archive can see. An archive that isn't part of the index is asked
+    * for every time
+    *
+    * @param archive The archive
+    * @return The archives
+    */
+   public BitSet getView(Archive archive)
+   {
+      Integer id = archiveIds.get(archive);
+
+      if (id == null)
+      {
+         BitSet result = new BitSet(archives.size());
+
+         for (int i = 0; i < archives.size(); i++)
+         {
+            if (cls == null || cls.isVisible(archive, archives.get(i)))
+            {
+               result.set(i);
+            }
+         }
+
+         return result;
+      }
+
+      return getView(id.intValue());
+   }
+
+   /**
+    * Get the archives that an archive can see
+    *
+    * @param id The index of the archive
+    * @return The archives
+    */
+   public synchronized BitSet getView(int id)
+   {
+      if (views[id] == null)
+      {
+         long start = listener != null ? System.nanoTime() : 0;
+         BitSet result = new BitSet(archives.size());
+         Archive archive = archives.get(id);
+
+         for (int i = 0; i < archives.size(); i++)
+         {
+            if (i == id || cls == null || cls.isVisible(archive, archives.get(i)))
+            {
+               result.set(i);
+            }
+         }
+
+         views[id] = result;
+
+         if (listener != null && cls != null)
+         {
+            listener.visibilityComputed(cls.getClass().getName(), archive.getName(), result.cardinality(),
+                                        System.nanoTime() - start);
+         }
+      }
+
+      return views[id];
+   }
+
+   /**
+    * Get the archives that provide each class, and collect them the first time
+    *
+    * @return The providers
+    */
+   private synchronized Map<String, int[]> getProviderMap()
+   {
+      if (providers == null)
+      {
+         providers = new HashMap<String, int[]>();
+
+         for (int i = 0; i < archives.size(); i++)
+         {
+            for (String clz : archives.get(i).getAllProvides().keySet())
+            {
+               int[] current = providers.get(clz);
+
+               if (current == null)
+               {
+                  providers.put(clz, new int[] {i});
+               }
+               else
+               {
+                  int[] extended = new int[current.length + 1];
+                  System.arraycopy(current, 0, extended, 0, current.length);
+                  extended[current.length] = i;
+                  providers.put(clz, extended);
+               }
+            }
+         }
+      }
+
+      return providers;
+   }
+}
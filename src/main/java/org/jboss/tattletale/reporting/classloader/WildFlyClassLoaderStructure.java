@@ -0,0 +1,41 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2009, Red Hat Middleware LLC, and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.tattletale.reporting.classloader;
+
+import org.jboss.tattletale.utils.Configuration;
+
+/**
+ * Classloader structure for the WildFly application server, where deployments are isolated
+ * from each other and can see the modules.
+ *
+ * The structure is defined by <code>wildfly-cls.properties</code>
+ *
+ * @author Jesper Pedersen <jesper.pedersen@jboss.org>
+ */
+public class WildFlyClassLoaderStructure extends DeclarativeClassLoaderStructure
+{
+   /** Constructor */
+   public WildFlyClassLoaderStructure()
+   {
+      super(Configuration.load("wildfly-cls.properties"));
+   }
+}
@@ -0,0 +1,474 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2009, Red Hat Middleware LLC, and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.tattletale.shard;
+
+import org.jboss.tattletale.analyzers.PartialModel;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.security.CodeSource;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.StringTokenizer;
+
+import javassist.bytecode.ClassFile;
+
+/**
+ * Splits the scan of a list of files into shards, which are scanned in parallel by worker processes on the
+ * local machine.
+ * <p/>
+ * The files are balanced over the shards by their length. Each worker writes the archives of its shard as
+ * a partial model, which the caller merges into its archive model.
+ * <p/>
+ * The workers are started with the given options of the Java virtual machine. Without a maximum heap size in
+ * the options the maximum heap of the caller is divided between the workers.
+ *
+ * @author Jesper Pedersen <jesper.pedersen@jboss.org>
+ */
+public class ShardCoordinator
+{
+   /** The smallest maximum heap that is derived for a worker process */
+   private static final long MIN_WORKER_HEAP = 64L * 1024L * 1024L;
+
+   /** The number of worker processes */
+   private int workers;
+
+   /** The options of the Java virtual machines of the worker processes */
+   private String options;
+
+   /**
+    * Constructor
+    *
+    * @param workers The number of worker processes
+    * @param options The options of the Java virtual machines of the worker processes, separated by spaces;
+    *                <code>null</code> for none
+    */
+   public ShardCoordinator(int workers, String options)
+   {
+      this.workers = workers;
+      this.options = options;
+   }
+
+   /**
+    * Scan a list of files by the worker processes
+    *
+    * @param files   The files
+    * @param request The settings of the scan, as forwarded to the daemon
+    * @return The partial models of the shards
+    * @throws Exception If a worker process fails
+    */
+   public List<PartialModel> scan(List<File> files, Properties request) throws Exception
+   {
+      List<List<File>> shards = split(files, workers);
+      List<Process> processes = new ArrayList<Process>(shards.size());
+      List<File> outputs = new ArrayList<File>(shards.size());
+      File directory = createDirectory();
+
+      try
+      {
+         File requestFile = new File(directory, "request.properties");
+         FileOutputStream fos = new FileOutputStream(requestFile);
+         try
+         {
+            request.store(fos, null);
+         }
+         finally
+         {
+            fos.close();
+         }
+
+         String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+         String classPath = getClassPath();
+         List<String> jvmOptions = getOptions(shards.size());
+
+         for (int i = 0; i < shards.size(); i++)
+         {
+            File filesFile = new File(directory, "shard" + i + ".files");
+            File output = new File(directory, "shard" + i + ".model");
+            writeFiles(filesFile, shards.get(i));
+
+            List<String> command = new ArrayList<String>();
+            command.add(java);
+            command.addAll(jvmOptions);
+            command.add("-cp");
+            command.add(classPath);
+            command.add(ShardWorker.class.getName());
+            command.add(requestFile.getAbsolutePath());
+            command.add(filesFile.getAbsolutePath());
+            command.add(output.getAbsolutePath());
+
+            Process process = new ProcessBuilder(command).start();
+            process.getOutputStream().close();
+            new Pump(process.getInputStream(), System.out, "Shard " + i + ": ").start();
+            new Pump(process.getErrorStream(), System.err, "Shard " + i + ": ").start();
+
+            processes.add(process);
+            outputs.add(output);
+         }
+
+         String failure = null;
+
+         for (int i = 0; i < processes.size(); i++)
+         {
+            int exitValue = processes.get(i).waitFor();
+
+            if (exitValue != 0 && failure == null)
+            {
+               failure = "Shard " + i + " failed with exit code " + exitValue;
+            }
+         }
+
+         if (failure != null)
+         {
+            throw new Exception(failure);
+         }
+
+         List<PartialModel> result = new ArrayList<PartialModel>(outputs.size());
+
+         for (File output : outputs)
+         {
+            result.add(PartialModel.read(output));
+         }
+
+         return result;
+      }
+      finally
+      {
+         for (Process process : processes)
+         {
+            process.destroy();
+         }
+
+         delete(directory);
+      }
+   }
+
+   /**
+    * Get the options of the Java virtual machines of the worker processes. Without a maximum heap size in
+    * the options each worker gets an equal part of the maximum heap of this process
+    *
+    * @param processes The number of worker processes
+    * @return The options
+    */
+   private List<String> getOptions(int processes)
+   {
+      List<String> result = new ArrayList<String>();
+      boolean maxHeap = false;
+
+      if (options != null)
+      {
+         StringTokenizer st = new StringTokenizer(options, " \t");
+         while (st.hasMoreTokens())
+         {
+            String option = st.nextToken();
+            if (option.startsWith("-Xmx") || option.startsWith("-XX:MaxHeapSize="))
+            {
+               maxHeap = true;
+            }
+            result.add(option);
+         }
+      }
+
+      long max = Runtime.getRuntime().maxMemory();
+      if (!maxHeap && max != Long.MAX_VALUE)
+      {
+         long heap = Math.max(MIN_WORKER_HEAP, max / Math.max(1, processes));
+         result.add(0, "-Xmx" + (heap / (1024L * 1024L)) + "m");
+      }
+
+      return result;
+   }
+
+   /**
+    * Split a list of files into shards. The largest files are assigned first, each to the shard with
+    * the fewest bytes
+    *
+    * @param files  The files
+    * @param shards The number of shards
+    * @return The shards, in list order within each shard; no shard is empty
+    */
+   public static List<List<File>> split(List<File> files, int shards)
+   {
+      final Map<File, Long> sizes = new HashMap<File, Long>();
+      for (File file : files)
+      {
+         sizes.put(file, Long.valueOf(file.length()));
+      }
+
+      List<File> sorted = new ArrayList<File>(sizes.keySet());
+      Collections.sort(sorted, new Comparator<File>()
+      {
+         public int compare(File f1, File f2)
+         {
+            int result = sizes.get(f2).compareTo(sizes.get(f1));
+            return result != 0 ? result : f1.compareTo(f2);
+         }
+      });
+
+      int count = Math.max(1, Math.min(shards, sorted.size()));
+      long[] bytes = new long[count];
+      Map<File, Integer> assigned = new HashMap<File, Integer>();
+
+      for (File file : sorted)
+      {
+         int shard = 0;
+         for (int i = 1; i < count; i++)
+         {
+            if (bytes[i] < bytes[shard])
+            {
+               shard = i;
+            }
+         }
+
+         bytes[shard] += sizes.get(file).longValue();
+         assigned.put(file, Integer.valueOf(shard));
+      }
+
+      List<List<File>> result = new ArrayList<List<File>>(count);
+      for (int i = 0; i < count; i++)
+      {
+         result.add(new ArrayList<File>());
+      }
+
+      for (File file : files)
+      {
+         Integer shard = assigned.remove(file);
+         if (shard != null)
+         {
+            result.get(shard.intValue()).add(file);
+         }
+      }
+
+      return result;
+   }
+
+   /**
+    * Get the class path of the worker processes; the locations of Tattletale and Javassist, the class path
+    * of the class loaders and the class path of the virtual machine
+    *
+    * @return The value
+    */
+   private String getClassPath()
+   {
+      Set<String> entries = new LinkedHashSet<String>();
+
+      addLocation(entries, ShardWorker.class);
+      addLocation(entries, ClassFile.class);
+
+      ClassLoader cl = ShardCoordinator.class.getClassLoader();
+      while (cl != null)
+      {
+         if (cl instanceof URLClassLoader)
+         {
+            for (URL url : ((URLClassLoader) cl).getURLs())
+            {
+               addURL(entries, url);
+            }
+         }
+         cl = cl.getParent();
+      }
+
+      StringTokenizer st = new StringTokenizer(System.getProperty("java.class.path", ""), File.pathSeparator);
+      while (st.hasMoreTokens())
+      {
+         entries.add(st.nextToken());
+      }
+
+      StringBuffer sb = new StringBuffer();
+      for (String entry : entries)
+      {
+         if (sb.length() > 0)
+         {
+            sb.append(File.pathSeparatorChar);
+         }
+         sb.append(entry);
+      }
+
+      return sb.toString();
+   }
+
+   /**
+    * Add the location a class is loaded from to the class path
+    *
+    * @param entries The class path
+    * @param clazz   The class
+    */
+   private void addLocation(Set<String> entries, Class clazz)
+   {
+      CodeSource codeSource = clazz.getProtectionDomain().getCodeSource();
+
+      if (codeSource != null && codeSource.getLocation() != null)
+      {
+         addURL(entries, codeSource.getLocation());
+      }
+   }
+
+   /**
+    * Add a local URL to the class path
+    *
+    * @param entries The class path
+    * @param url     The URL
+    */
+   private void addURL(Set<String> entries, URL url)
+   {
+      if ("file".equals(url.getProtocol()))
+      {
+         try
+         {
+            entries.add(new File(url.toURI()).getPath());
+         }
+         catch (URISyntaxException use)
+         {
+            entries.add(new File(url.getPath()).getPath());
+         }
+      }
+   }
+
+   /**
+    * Write the files of a shard, one path a line
+    *
+    * @param file  The file
+    * @param files The files of the shard
+    * @throws IOException If the file can't be written
+    */
+   private void writeFiles(File file, List<File> files) throws IOException
+   {
+      BufferedWriter bw = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"));
+      try
+      {
+         for (File f : files)
+         {
+            bw.write(f.getPath());
+            bw.newLine();
+         }
+      }
+      finally
+      {
+         bw.close();
+      }
+   }
+
+   /**
+    * Create the directory that the shards are exchanged in
+    *
+    * @return The directory
+    * @throws IOException If the directory can't be created
+    */
+   private File createDirectory() throws IOException
+   {
+      File directory = File.createTempFile("tattletale", ".shards");
+
+      if (!directory.delete() || !directory.mkdir())
+      {
+         throw new IOException("Unable to create " + directory);
+      }
+
+      return directory;
+   }
+
+   /**
+    * Delete the directory that the shards were exchanged in
+    *
+    * @param directory The directory
+    */
+   private void delete(File directory)
+   {
+      File[] files = directory.listFiles();
+      if (files != null)
+      {
+         for (File f : files)
+         {
+            f.delete();
+         }
+      }
+      directory.delete();
+   }
+
+   /**
+    * Copies the output of a worker process, line by line
+    */
+   private static class Pump extends Thread
+   {
+      /** The output of the worker process */
+      private InputStream in;
+
+      /** The stream the output is copied to */
+      private PrintStream out;
+
+      /** The prefix of the lines */
+      private String prefix;
+
+      /**
+       * Constructor
+       *
+       * @param in     The output of the worker process
+       * @param out    The stream the output is copied to
+       * @param prefix The prefix of the lines
+       */
+      Pump(InputStream in, PrintStream out, String prefix)
+      {
+         this.in = in;
+         this.out = out;
+         this.prefix = prefix;
+         setDaemon(true);
+      }
+
+      /**
+       * Copy the output
+       */
+      public void run()
+      {
+         try
+         {
+            BufferedReader br = new BufferedReader(new InputStreamReader(in));
+            String line = br.readLine();
+            while (line != null)
+            {
+               out.println(prefix + line);
+               line = br.readLine();
+            }
+            br.close();
+         }
+         catch (IOException ioe)
+         {
+            // The worker process is gone
+         }
+      }
+   }
+}
@@ -0,0 +1,146 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2009, Red Hat Middleware LLC, and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.tattletale.shard;
+
+import org.jboss.tattletale.Main;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * A worker process, which scans a shard of the files and writes the archives as a partial model
+ *
+ * @author Jesper Pedersen <jesper.pedersen@jboss.org>
+ */
+public class ShardWorker
+{
+   /** Constructor */
+   private ShardWorker()
+   {
+   }
+
+   /**
+    * Create the execution of a shard
+    *
+    * @param request The settings of the scan
+    * @param files   The files of the shard
+    * @param output  The file that the partial model is written to
+    * @return The execution
+    */
+   private static Main createMain(Properties request, List<File> files, File output)
+   {
+      Main main = new Main();
+
+      main.setSource(request.getProperty("source"));
+      main.setConfiguration(request.getProperty("configuration"));
+      main.setProfiles(request.getProperty("profiles"));
+      main.setBlacklisted(request.getProperty("blacklisted"));
+      main.setReports(request.getProperty("reports"));
+      main.setScan(request.getProperty("scan"));
+      main.setCatalog(request.getProperty("catalog"));
+
+      // The archives are handed over as a whole, so the memory budget only applies to the coordinator
+      main.setMemoryBudget("");
+
+      main.setShard(files, output);
+
+      return main;
+   }
+
+   /**
+    * Read the files of a shard, one path a line
+    *
+    * @param file The file
+    * @return The files
+    * @throws Exception If the file can't be read
+    */
+   private static List<File> readFiles(File file) throws Exception
+   {
+      List<File> result = new ArrayList<File>();
+      BufferedReader br = new BufferedReader(new InputStreamReader(new FileInputStream(file), "UTF-8"));
+      try
+      {
+         String line = br.readLine();
+         while (line != null)
+         {
+            if (!line.equals(""))
+            {
+               result.add(new File(line));
+            }
+            line = br.readLine();
+         }
+      }
+      finally
+      {
+         br.close();
+      }
+
+      return result;
+   }
+
+   /** The usage method */
+   private static void usage()
+   {
+      System.out.println("Usage: ShardWorker <request> <files> <partial-model>");
+   }
+
+   /**
+    * The main method
+    *
+    * @param args The arguments
+    */
+   public static void main(String[] args)
+   {
+      if (args.length != 3)
+      {
+         usage();
+         System.exit(1);
+      }
+
+      try
+      {
+         Properties request = new Properties();
+         FileInputStream fis = new FileInputStream(args[0]);
+         try
+         {
+            request.load(fis);
+         }
+         finally
+         {
+            fis.close();
+         }
+
+         createMain(request, readFiles(new File(args[1])), new File(args[2])).execute();
+      }
+      catch (Throwable t)
+      {
+         System.err.println("Exception: " + t.getMessage());
+         t.printStackTrace(System.err);
+         System.exit(1);
+      }
+   }
+}
@@ -0,0 +1,156 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2009, Red Hat Middleware LLC, and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.tattletale.tools.as7;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The definition of a module from a module.xml file
+ *
+ * @author Jesper Pedersen <jesper.pedersen@jboss.org>
+ */
+public class ModuleDefinition
+{
+   /** The default slot */
+   public static final String DEFAULT_SLOT = "main";
+
+   /** The name */
+   private String name;
+
+   /** The slot */
+   private String slot;
+
+   /** The resource roots */
+   private List<String> resources;
+
+   /** The dependencies */
+   private List<ModuleDependency> dependencies;
+
+   /**
+    * Constructor
+    *
+    * @param name The name
+    * @param slot The slot; <code>null</code> for the default slot
+    */
+   public ModuleDefinition(String name, String slot)
+   {
+      this.name = name;
+      this.slot = slot != null ? slot : DEFAULT_SLOT;
+      this.resources = new ArrayList<String>();
+      this.dependencies = new ArrayList<ModuleDependency>();
+   }
+
+   /**
+    * Get the identifier of a module
+    *
+    * @param name The name
+    * @param slot The slot; <code>null</code> for the default slot
+    * @return The identifier
+    */
+   public static String getIdentifier(String name, String slot)
+   {
+      return name + ":" + (slot != null ? slot : DEFAULT_SLOT);
+   }
+
+   /**
+    * Get the identifier
+    *
+    * @return The value
+    */
+   public String getIdentifier()
+   {
+      return getIdentifier(name, slot);
+   }
+
+   /**
+    * Get the name
+    *
+    * @return The value
+    */
+   public String getName()
+   {
+      return name;
+   }
+
+   /**
+    * Get the slot
+    *
+    * @return The value
+    */
+   public String getSlot()
+   {
+      return slot;
+   }
+
+   /**
+    * Get the resource roots
+    *
+    * @return The value
+    */
+   public List<String> getResources()
+   {
+      return Collections.unmodifiableList(resources);
+   }
+
+   /**
+    * Add a resource root
+    *
+    * @param path The path relative to the module directory
+    */
+   public void addResource(String path)
+   {
+      resources.add(path);
+   }
+
+   /**
+    * Get the dependencies
+    *
+    * @return The value
+    */
+   public List<ModuleDependency> getDependencies()
+   {
+      return Collections.unmodifiableList(dependencies);
+   }
+
+   /**
+    * Add a dependency
+    *
+    * @param dependency The dependency
+    */
+   public void addDependency(ModuleDependency dependency)
+   {
+      dependencies.add(dependency);
+   }
+
+   /**
+    * String representation
+    *
+    * @return The string
+    */
+   @Override
+   public String toString()
+   {
+      return getIdentifier() + " " + dependencies;
+   }
+}
@@ -0,0 +1,94 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2009, Red Hat Middleware LLC, and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.tattletale.tools.as7;
+
+/**
+ * A dependency of a module
+ *
+ * @author Jesper Pedersen <jesper.pedersen@jboss.org>
+ */
+public class ModuleDependency
+{
+   /** The module identifier */
+   private String identifier;
+
+   /** Is the dependency exported */
+   private boolean export;
+
+   /** Is the dependency optional */
+   private boolean optional;
+
+   /**
+    * Constructor
+    *
+    * @param identifier The module identifier
+    * @param export     Is the dependency exported
+    * @param optional   Is the dependency optional
+    */
+   public ModuleDependency(String identifier, boolean export, boolean optional)
+   {
+      this.identifier = identifier;
+      this.export = export;
+      this.optional = optional;
+   }
+
+   /**
+    * Get the module identifier
+    *
+    * @return The value
+    */
+   public String getIdentifier()
+   {
+      return identifier;
+   }
+
+   /**
+    * Is the dependency exported to the modules that depend on this module
+    *
+    * @return The value
+    */
+   public boolean isExport()
+   {
+      return export;
+   }
+
+   /**
+    * Is the dependency optional
+    *
+    * @return The value
+    */
+   public boolean isOptional()
+   {
+      return optional;
+   }
+
+   /**
+    * String representation
+    *
+    * @return The string
+    */
+   @Override
+   public String toString()
+   {
+      return identifier + (export ? " (export)" : "") + (optional ? " (optional)" : "");
+   }
+}
@@ -98,6 +98,130 @@ public class ModuleXml
       return null;
    }
 
+   /**
+    * Get the module definition from the specified file.
+    *
+    * A module alias is defined as a module with an exported dependency on its target
+    * @param f The file
+    * @return The value; <code>null</code> if the file couldn't be read
+    */
+   public static ModuleDefinition getModule(File f)
+   {
+      FileReader fr = null;
+      try
+      {
+         fr = new FileReader(f);
+
+         XMLInputFactory xmlInputFactory = XMLInputFactory.newInstance();
+         XMLStreamReader xmlStreamReader = xmlInputFactory.createXMLStreamReader(fr);
+
+         ModuleDefinition result = null;
+         boolean inDependencies = false;
+
+         while (xmlStreamReader.hasNext())
+         {
+            int eventCode = xmlStreamReader.next();
+
+            switch (eventCode)
+            {
+               case XMLStreamReader.START_ELEMENT :
+
+                  String element = xmlStreamReader.getLocalName();
+
+                  if (result == null && "module".equals(element))
+                  {
+                     result = new ModuleDefinition(getAttribute(xmlStreamReader, "name"),
+                                                   getAttribute(xmlStreamReader, "slot"));
+                  }
+                  else if (result == null && "module-alias".equals(element))
+                  {
+                     result = new ModuleDefinition(getAttribute(xmlStreamReader, "name"),
+                                                   getAttribute(xmlStreamReader, "slot"));
+                     String target = ModuleDefinition.getIdentifier(getAttribute(xmlStreamReader, "target-name"),
+                                                                    getAttribute(xmlStreamReader, "target-slot"));
+                     result.addDependency(new ModuleDependency(target, true, false));
+                  }
+                  else if (result != null && "resource-root".equals(element))
+                  {
+                     String path = getAttribute(xmlStreamReader, "path");
+                     if (path != null)
+                     {
+                        result.addResource(path);
+                     }
+                  }
+                  else if (result != null && "dependencies".equals(element))
+                  {
+                     inDependencies = true;
+                  }
+                  else if (inDependencies && "module".equals(element))
+                  {
+                     String dependency = ModuleDefinition.getIdentifier(getAttribute(xmlStreamReader, "name"),
+                                                                        getAttribute(xmlStreamReader, "slot"));
+                     boolean export = "true".equals(getAttribute(xmlStreamReader, "export"));
+                     boolean optional = "true".equals(getAttribute(xmlStreamReader, "optional"));
+
+                     result.addDependency(new ModuleDependency(dependency, export, optional));
+                  }
+
+                  break;
+               case XMLStreamReader.END_ELEMENT :
+
+                  if ("dependencies".equals(xmlStreamReader.getLocalName()))
+                  {
+                     inDependencies = false;
+                  }
+
+                  break;
+               default :
+            }
+         }
+
+         if (result != null && result.getName() != null)
+         {
+            return result;
+         }
+      }
+      catch (Throwable t)
+      {
+         // Nothing to do
+      }
+      finally
+      {
+         if (fr != null)
+         {
+            try
+            {
+               fr.close();
+            }
+            catch (IOException ioe)
+            {
+               // Ignore
+            }
+         }
+      }
+
+      return null;
+   }
+
+   /**
+    * Get the value of an attribute of the current element
+    * @param xmlStreamReader The XML stream
+    * @param name The name of the attribute
+    * @return The value; <code>null</code> if not defined
+    */
+   private static String getAttribute(XMLStreamReader xmlStreamReader, String name)
+   {
+      for (int i = 0; i < xmlStreamReader.getAttributeCount(); i++)
+      {
+         if (name.equals(xmlStreamReader.getAttributeLocalName(i)))
+         {
+            return xmlStreamReader.getAttributeValue(i);
+         }
+      }
+
+      return null;
+   }
+
    /**
     * Read a string
     * @param xmlStreamReader The XML stream
@@ -0,0 +1,165 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2009, Red Hat Middleware LLC, and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.tattletale.tools.catalog;
+
+import org.jboss.tattletale.analyzers.JarScanner;
+import org.jboss.tattletale.core.Archive;
+import org.jboss.tattletale.core.ArchiveFacets;
+import org.jboss.tattletale.core.LibraryCatalog;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Tool to build a library catalog from a local Maven repository
+ *
+ * @author Jesper Pedersen <jesper.pedersen@jboss.org>
+ */
+public class Main
+{
+   /**
+    * Constructor
+    */
+   private Main()
+   {
+   }
+
+   /**
+    * main
+    * @param args The arguments
+    */
+   public static void main(String[] args)
+   {
+      if (args != null && args.length == 2)
+      {
+         try
+         {
+            File root = new File(args[0]).getCanonicalFile();
+            File outputFile = new File(args[1]);
+
+            LibraryCatalog catalog = new LibraryCatalog();
+            JarScanner scanner = new JarScanner(ArchiveFacets.CLASS_DIGESTS);
+
+            List<File> jars = getFileListing(root);
+
+            for (File f : jars)
+            {
+               String coordinate = getCoordinate(root, f);
+
+               if (coordinate != null)
+               {
+                  catalog.add(LibraryCatalog.getFileFingerprint(f), coordinate);
+
+                  Archive archive = scanner.scan(f);
+                  if (archive != null)
+                  {
+                     catalog.add(LibraryCatalog.getClassSetFingerprint(archive.getDigests()), coordinate);
+                  }
+               }
+            }
+
+            catalog.save(outputFile);
+
+            System.out.println("Indexed " + jars.size() + " archives into " + catalog.size() + " fingerprints");
+         }
+         catch (Throwable t)
+         {
+            t.printStackTrace(System.out);
+         }
+      }
+      else
+      {
+         System.out.println("Usage: Main <maven-repository> <file>");
+      }
+   }
+
+   /**
+    * Get the coordinate of an archive from its location in the repository, which is
+    * <code>groupId/artifactId/version/artifactId-version[-classifier].jar</code> with
+    * the dots of the groupId replaced by directories
+    *
+    * @param root The root of the repository
+    * @param file The archive
+    * @return The coordinate; <code>null</code> if the archive isn't located in the layout of a repository
+    */
+   private static String getCoordinate(File root, File file)
+   {
+      File versionDir = file.getParentFile();
+      File artifactDir = versionDir != null ? versionDir.getParentFile() : null;
+      File groupDir = artifactDir != null ? artifactDir.getParentFile() : null;
+
+      if (groupDir == null || groupDir.equals(root) || !groupDir.getPath().startsWith(root.getPath()) ||
+          !file.getName().startsWith(artifactDir.getName() + "-" + versionDir.getName()))
+      {
+         return null;
+      }
+
+      String group = groupDir.getPath().substring(root.getPath().length() + 1);
+
+      return group.replace(File.separatorChar, '.') + ":" + artifactDir.getName() + ":" + versionDir.getName();
+   }
+
+   /**
+    * Recursively walk a directory tree and return a List of all
+    * Files found; the List is sorted using File.compareTo().
+    *
+    * @param aStartingDir is a valid directory, which can be read.
+    */
+   private static List<File> getFileListing(File aStartingDir) throws Exception
+   {
+      List<File> result = getFileListingNoSort(aStartingDir);
+      Collections.sort(result);
+      return result;
+   }
+
+   private static List<File> getFileListingNoSort(File aStartingDir) throws Exception
+   {
+      List<File> result = new ArrayList<File>();
+
+      File[] filesAndDirs = aStartingDir.listFiles();
+
+      List<File> filesDirs = Arrays.asList(filesAndDirs);
+
+      for (File file : filesDirs)
+      {
+         if (file.isFile())
+         {
+            String name = file.getName();
+
+            if (name.endsWith(".jar") && !name.endsWith("-sources.jar") && !name.endsWith("-javadoc.jar"))
+            {
+               result.add(file);
+            }
+         }
+         else if (file.isDirectory())
+         {
+            List<File> deeperList = getFileListingNoSort(file);
+            result.addAll(deeperList);
+         }
+      }
+
+      return result;
+   }
+}
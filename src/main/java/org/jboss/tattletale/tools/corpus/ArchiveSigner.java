@@ -0,0 +1,390 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2009, Red Hat Middleware LLC, and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.tattletale.tools.corpus;
+
+import java.io.ByteArrayOutputStream;
+import java.io.UnsupportedEncodingException;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.MessageDigest;
+import java.security.PrivateKey;
+import java.security.SecureRandom;
+import java.security.Signature;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.StringTokenizer;
+
+/**
+ * Signs archives the way jarsigner does, with a self-signed certificate whose key is generated from a seed.
+ *
+ * The manifest lists the SHA-256 digest of each entry, the signature file lists the digest of the manifest
+ * and of each of its sections, and the signature block is a PKCS#7 SignedData of the signature file.
+ * Nothing depends on the time, so an archive signed twice from the same seed is the same
+ *
+ * @author Jesper Pedersen <jesper.pedersen@jboss.org>
+ */
+public class ArchiveSigner
+{
+   /** The name of the signer */
+   private static final String SIGNER = "CORPUS";
+
+   /** The digest algorithm */
+   private static final String DIGEST = "SHA-256";
+
+   /** The signature algorithm */
+   private static final String SIGNATURE = "SHA256withRSA";
+
+   /** The distinguished name of the certificate */
+   private static final String COMMON_NAME = "JBoss Tattletale Corpus";
+
+   /** The maximum length of a manifest line */
+   private static final int LINE_LENGTH = 72;
+
+   /** The line separator of manifests */
+   private static final String CRLF = "\r\n";
+
+   /** Base64 digits */
+   private static final char[] BASE64 =
+      "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".toCharArray();
+
+   /** The private key */
+   private PrivateKey privateKey;
+
+   /** The encoded issuer */
+   private byte[] issuer;
+
+   /** The encoded certificate */
+   private byte[] certificate;
+
+   /**
+    * Constructor
+    *
+    * @param seed The seed of the key
+    * @throws GeneralSecurityException If the key or the certificate can't be created
+    */
+   public ArchiveSigner(long seed) throws GeneralSecurityException
+   {
+      SecureRandom random = SecureRandom.getInstance("SHA1PRNG");
+      random.setSeed(seed);
+
+      KeyPairGenerator kpg = KeyPairGenerator.getInstance("RSA");
+      kpg.initialize(2048, random);
+      KeyPair keyPair = kpg.generateKeyPair();
+
+      privateKey = keyPair.getPrivate();
+      issuer = sequence(set(sequence(oid("2.5.4.3"), der(0x0C, utf8(COMMON_NAME)))));
+
+      byte[] tbs = sequence(der(0xA0, integer(2)),
+                            integer(1),
+                            algorithm("1.2.840.113549.1.1.11"),
+                            issuer,
+                            sequence(der(0x17, utf8("000101000000Z")), der(0x17, utf8("491231235959Z"))),
+                            issuer,
+                            keyPair.getPublic().getEncoded());
+
+      certificate = sequence(tbs, algorithm("1.2.840.113549.1.1.11"), bitString(sign(tbs)));
+   }
+
+   /**
+    * Create the signature related entries of an archive
+    *
+    * @param main    The main section of the manifest, without the trailing empty line
+    * @param entries The entries of the archive
+    * @return The manifest, the signature file and the signature block, by their names
+    * @throws GeneralSecurityException If the entries can't be signed
+    */
+   public Map<String, byte[]> sign(String main, Map<String, byte[]> entries) throws GeneralSecurityException
+   {
+      Map<String, byte[]> result = new LinkedHashMap<String, byte[]>();
+      MessageDigest md = MessageDigest.getInstance(DIGEST);
+
+      StringBuffer manifest = new StringBuffer(main);
+      manifest.append(CRLF);
+
+      StringBuffer sf = new StringBuffer();
+      appendAttribute(sf, "Signature-Version", "1.0");
+
+      StringBuffer sections = new StringBuffer();
+      for (Map.Entry<String, byte[]> entry : entries.entrySet())
+      {
+         StringBuffer section = new StringBuffer();
+         appendAttribute(section, "Name", entry.getKey());
+         appendAttribute(section, DIGEST + "-Digest", encode(md.digest(entry.getValue())));
+         section.append(CRLF);
+
+         manifest.append(section);
+
+         appendAttribute(sections, "Name", entry.getKey());
+         appendAttribute(sections, DIGEST + "-Digest", encode(md.digest(utf8(section.toString()))));
+         sections.append(CRLF);
+      }
+
+      byte[] rawManifest = utf8(manifest.toString());
+
+      appendAttribute(sf, DIGEST + "-Digest-Manifest", encode(md.digest(rawManifest)));
+      appendAttribute(sf, "Created-By", COMMON_NAME);
+      sf.append(CRLF);
+      sf.append(sections);
+
+      byte[] rawSf = utf8(sf.toString());
+
+      byte[] signerInfo = sequence(integer(1),
+                                   sequence(issuer, integer(1)),
+                                   algorithm("2.16.840.1.101.3.4.2.1"),
+                                   algorithm("1.2.840.113549.1.1.1"),
+                                   der(0x04, sign(rawSf)));
+
+      byte[] signedData = sequence(integer(1),
+                                   set(algorithm("2.16.840.1.101.3.4.2.1")),
+                                   sequence(oid("1.2.840.113549.1.7.1")),
+                                   der(0xA0, certificate),
+                                   set(signerInfo));
+
+      result.put("META-INF/MANIFEST.MF", rawManifest);
+      result.put("META-INF/" + SIGNER + ".SF", rawSf);
+      result.put("META-INF/" + SIGNER + ".RSA", sequence(oid("1.2.840.113549.1.7.2"), der(0xA0, signedData)));
+
+      return result;
+   }
+
+   /**
+    * Append an attribute to a manifest section, wrapping the line at 72 bytes
+    *
+    * @param sb    The section
+    * @param name  The name of the attribute
+    * @param value The value
+    */
+   public static void appendAttribute(StringBuffer sb, String name, String value)
+   {
+      String line = name + ": " + value;
+
+      sb.append(line.substring(0, Math.min(LINE_LENGTH, line.length())));
+      sb.append(CRLF);
+
+      for (int i = LINE_LENGTH; i < line.length(); i += LINE_LENGTH - 1)
+      {
+         sb.append(' ');
+         sb.append(line.substring(i, Math.min(i + LINE_LENGTH - 1, line.length())));
+         sb.append(CRLF);
+      }
+   }
+
+   /**
+    * Sign data with the private key
+    *
+    * @param data The data
+    * @return The signature
+    * @throws GeneralSecurityException If the data can't be signed
+    */
+   private byte[] sign(byte[] data) throws GeneralSecurityException
+   {
+      Signature signature = Signature.getInstance(SIGNATURE);
+      signature.initSign(privateKey);
+      signature.update(data);
+      return signature.sign();
+   }
+
+   /**
+    * Encode a DER value
+    *
+    * @param tag   The tag
+    * @param parts The parts of the content
+    * @return The value
+    */
+   private static byte[] der(int tag, byte[]... parts)
+   {
+      int length = 0;
+      for (byte[] part : parts)
+      {
+         length += part.length;
+      }
+
+      ByteArrayOutputStream baos = new ByteArrayOutputStream(length + 6);
+      baos.write(tag);
+
+      if (length < 0x80)
+      {
+         baos.write(length);
+      }
+      else
+      {
+         int bytes = 0;
+         for (int l = length; l > 0; l >>>= 8)
+         {
+            bytes++;
+         }
+
+         baos.write(0x80 | bytes);
+         for (int i = bytes - 1; i >= 0; i--)
+         {
+            baos.write(length >>> (8 * i));
+         }
+      }
+
+      for (byte[] part : parts)
+      {
+         baos.write(part, 0, part.length);
+      }
+
+      return baos.toByteArray();
+   }
+
+   /**
+    * Encode a DER sequence
+    *
+    * @param parts The elements
+    * @return The value
+    */
+   private static byte[] sequence(byte[]... parts)
+   {
+      return der(0x30, parts);
+   }
+
+   /**
+    * Encode a DER set
+    *
+    * @param parts The elements
+    * @return The value
+    */
+   private static byte[] set(byte[]... parts)
+   {
+      return der(0x31, parts);
+   }
+
+   /**
+    * Encode a small DER integer
+    *
+    * @param value The value
+    * @return The value
+    */
+   private static byte[] integer(int value)
+   {
+      return der(0x02, new byte[] {(byte)value});
+   }
+
+   /**
+    * Encode a DER bit string without unused bits
+    *
+    * @param data The bits
+    * @return The value
+    */
+   private static byte[] bitString(byte[] data)
+   {
+      return der(0x03, new byte[] {0}, data);
+   }
+
+   /**
+    * Encode an algorithm identifier without parameters
+    *
+    * @param oid The object identifier of the algorithm
+    * @return The value
+    */
+   private static byte[] algorithm(String oid)
+   {
+      return sequence(oid(oid), new byte[] {0x05, 0x00});
+   }
+
+   /**
+    * Encode a DER object identifier
+    *
+    * @param oid The dotted object identifier
+    * @return The value
+    */
+   private static byte[] oid(String oid)
+   {
+      ByteArrayOutputStream baos = new ByteArrayOutputStream();
+      StringTokenizer st = new StringTokenizer(oid, ".");
+
+      int first = Integer.parseInt(st.nextToken());
+      int second = Integer.parseInt(st.nextToken());
+      baos.write(40 * first + second);
+
+      while (st.hasMoreTokens())
+      {
+         int component = Integer.parseInt(st.nextToken());
+
+         int shift = 28;
+         while (shift > 0 && (component >>> shift) == 0)
+         {
+            shift -= 7;
+         }
+
+         for (; shift > 0; shift -= 7)
+         {
+            baos.write(0x80 | ((component >>> shift) & 0x7F));
+         }
+         baos.write(component & 0x7F);
+      }
+
+      return der(0x06, baos.toByteArray());
+   }
+
+   /**
+    * Get the UTF-8 bytes of a string
+    *
+    * @param s The string
+    * @return The bytes
+    */
+   private static byte[] utf8(String s)
+   {
+      try
+      {
+         return s.getBytes("UTF-8");
+      }
+      catch (UnsupportedEncodingException uee)
+      {
+         throw new IllegalStateException(uee);
+      }
+   }
+
+   /**
+    * Base64 encode data
+    *
+    * @param data The data
+    * @return The encoded data
+    */
+   private static String encode(byte[] data)
+   {
+      StringBuffer sb = new StringBuffer(((data.length + 2) / 3) * 4);
+
+      for (int i = 0; i < data.length; i += 3)
+      {
+         int b = (data[i] & 0xFF) << 16;
+         if (i + 1 < data.length)
+         {
+            b |= (data[i + 1] & 0xFF) << 8;
+         }
+         if (i + 2 < data.length)
+         {
+            b |= data[i + 2] & 0xFF;
+         }
+
+         sb.append(BASE64[(b >>> 18) & 0x3F]);
+         sb.append(BASE64[(b >>> 12) & 0x3F]);
+         sb.append(i + 1 < data.length ? BASE64[(b >>> 6) & 0x3F] : '=');
+         sb.append(i + 2 < data.length ? BASE64[b & 0x3F] : '=');
+      }
+
+      return sb.toString();
+   }
+}
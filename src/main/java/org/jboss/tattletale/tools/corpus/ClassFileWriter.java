@@ -0,0 +1,95 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2009, Red Hat Middleware LLC, and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.tattletale.tools.corpus;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes minimal class files, which only consist of a constant pool that refers to other classes
+ *
+ * @author Jesper Pedersen <jesper.pedersen@jboss.org>
+ */
+public class ClassFileWriter
+{
+   /** The class file version; Java 5 */
+   private static final int MAJOR_VERSION = 49;
+
+   /** Constructor */
+   private ClassFileWriter()
+   {
+   }
+
+   /**
+    * Create a class file without members, whose constant pool refers to a list of classes
+    *
+    * @param name The internal name of the class
+    * @param refs The internal names of the classes it refers to
+    * @return The class file
+    * @throws IOException If the class can't be written
+    */
+   public static byte[] write(String name, List<String> refs) throws IOException
+   {
+      ByteArrayOutputStream baos = new ByteArrayOutputStream();
+      DataOutputStream dos = new DataOutputStream(baos);
+
+      // Each class is a UTF-8 entry followed by a class entry; this class first, then java/lang/Object
+      List<String> classes = new ArrayList<String>();
+      classes.add(name);
+      classes.add("java/lang/Object");
+      for (String ref : refs)
+      {
+         if (!classes.contains(ref))
+         {
+            classes.add(ref);
+         }
+      }
+
+      dos.writeInt(0xCAFEBABE);
+      dos.writeShort(0);
+      dos.writeShort(MAJOR_VERSION);
+      dos.writeShort(1 + 2 * classes.size());
+
+      for (int i = 0; i < classes.size(); i++)
+      {
+         dos.writeByte(1);
+         dos.writeUTF(classes.get(i));
+         dos.writeByte(7);
+         dos.writeShort(2 * i + 1);
+      }
+
+      // public super, this class, super class, no interfaces, fields, methods or attributes
+      dos.writeShort(0x0021);
+      dos.writeShort(2);
+      dos.writeShort(4);
+      dos.writeShort(0);
+      dos.writeShort(0);
+      dos.writeShort(0);
+      dos.writeShort(0);
+      dos.flush();
+
+      return baos.toByteArray();
+   }
+}
@@ -0,0 +1,729 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2009, Red Hat Middleware LLC, and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.tattletale.tools.corpus;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+/**
+ * Generates a synthetic deployment of JAR, WAR and EAR archives.
+ *
+ * Archive i holds the classes of the package org.example.lib&lt;i&gt;, and each of its classes refers to
+ * the next class of the archive, to a class of each archive that the archive depends on and to a couple
+ * of JDK classes. The dependencies follow the shape of the graph:
+ * <ul>
+ * <li>layered: an archive only depends on archives of lower layers</li>
+ * <li>random: an archive depends on any other archive</li>
+ * <li>cyclic: layered, where groups of consecutive archives also depend on each other in a ring</li>
+ * </ul>
+ * Everything is drawn from a random generator with a fixed seed, and the entries have a fixed
+ * timestamp, so the same settings always generate the same files
+ *
+ * @author Jesper Pedersen <jesper.pedersen@jboss.org>
+ */
+public class CorpusGenerator
+{
+   /** Layered graph */
+   public static final String LAYERED = "layered";
+
+   /** Random graph */
+   public static final String RANDOM = "random";
+
+   /** Cyclic graph */
+   public static final String CYCLIC = "cyclic";
+
+   /** Archives in a lib directory */
+   public static final String FLAT = "flat";
+
+   /** JBoss Application Server 5 directories */
+   public static final String AS5 = "as5";
+
+   /** JBoss Application Server 7 modules */
+   public static final String AS7 = "as7";
+
+   /** The number of layers of a layered graph */
+   private static final int LAYERS = 8;
+
+   /** The number of archives of a ring of a cyclic graph */
+   private static final int RING = 4;
+
+   /** The JDK classes that each class refers to */
+   private static final String[] JDK = {"java/lang/Object", "java/lang/String", "java/util/List"};
+
+   /** The directories of the JBoss Application Server 5 layout */
+   private static final String[] AS5_DIRECTORIES = {"lib", "common/lib", "server/default/lib",
+                                                    "server/default/deploy"};
+
+   /** The timestamp of the entries */
+   private static final long TIME = new GregorianCalendar(2011, Calendar.JANUARY, 1).getTimeInMillis();
+
+   /** The number of archives */
+   private int archives;
+
+   /** The average number of classes of an archive */
+   private int classes;
+
+   /** The shape of the dependency graph */
+   private String shape;
+
+   /** The number of dependencies of an archive */
+   private int dependencies;
+
+   /** The rate of archives that bundle the classes of another archive */
+   private double duplicates;
+
+   /** The rate of signed archives */
+   private double signed;
+
+   /** The directory layout */
+   private String layout;
+
+   /** The number of EAR deployments */
+   private int deployments;
+
+   /** The rate of archives that are packaged in a deployment */
+   private double deployed;
+
+   /** The seed */
+   private long seed;
+
+   /** The number of classes of each archive */
+   private int[] counts;
+
+   /** The dependencies of each archive */
+   private int[][] graph;
+
+   /** The archive whose classes each archive bundles; -1 if none */
+   private int[] bundles;
+
+   /** The version of each archive */
+   private String[] versions;
+
+   /** Is each archive signed */
+   private boolean[] signs;
+
+   /** The deployment of each archive; -1 if none */
+   private int[] targets;
+
+   /** Is each deployed archive packaged in the WAR of its deployment */
+   private boolean[] webs;
+
+   /** The directory of each archive that isn't deployed */
+   private String[] directories;
+
+   /** The signer */
+   private ArchiveSigner signer;
+
+   /** The number of archive files written, including the nested archives */
+   private int archiveCount;
+
+   /** The number of class files written */
+   private int classCount;
+
+   /** Constructor */
+   public CorpusGenerator()
+   {
+      archives = 100;
+      classes = 20;
+      shape = LAYERED;
+      dependencies = 3;
+      duplicates = 0.0;
+      signed = 0.0;
+      layout = FLAT;
+      deployments = 0;
+      deployed = 0.2;
+      seed = 0L;
+   }
+
+   /**
+    * Set the number of archives
+    *
+    * @param v The value
+    */
+   public void setArchives(int v)
+   {
+      if (v < 1)
+      {
+         throw new IllegalArgumentException("archives: " + v);
+      }
+
+      archives = v;
+   }
+
+   /**
+    * Set the average number of classes of an archive
+    *
+    * @param v The value
+    */
+   public void setClasses(int v)
+   {
+      if (v < 1)
+      {
+         throw new IllegalArgumentException("classes: " + v);
+      }
+
+      classes = v;
+   }
+
+   /**
+    * Set the shape of the dependency graph
+    *
+    * @param v The value; layered, random or cyclic
+    */
+   public void setShape(String v)
+   {
+      if (!LAYERED.equals(v) && !RANDOM.equals(v) && !CYCLIC.equals(v))
+      {
+         throw new IllegalArgumentException("shape: " + v);
+      }
+
+      shape = v;
+   }
+
+   /**
+    * Set the number of dependencies of an archive
+    *
+    * @param v The value
+    */
+   public void setDependencies(int v)
+   {
+      if (v < 0)
+      {
+         throw new IllegalArgumentException("dependencies: " + v);
+      }
+
+      dependencies = v;
+   }
+
+   /**
+    * Set the rate of archives that bundle the classes of another archive
+    *
+    * @param v The value between 0 and 1
+    */
+   public void setDuplicates(double v)
+   {
+      duplicates = getRate("duplicates", v);
+   }
+
+   /**
+    * Set the rate of signed archives
+    *
+    * @param v The value between 0 and 1
+    */
+   public void setSigned(double v)
+   {
+      signed = getRate("signed", v);
+   }
+
+   /**
+    * Set the directory layout
+    *
+    * @param v The value; flat, as5 or as7
+    */
+   public void setLayout(String v)
+   {
+      if (!FLAT.equals(v) && !AS5.equals(v) && !AS7.equals(v))
+      {
+         throw new IllegalArgumentException("layout: " + v);
+      }
+
+      layout = v;
+   }
+
+   /**
+    * Set the number of EAR deployments
+    *
+    * @param v The value
+    */
+   public void setDeployments(int v)
+   {
+      if (v < 0)
+      {
+         throw new IllegalArgumentException("deployments: " + v);
+      }
+
+      deployments = v;
+   }
+
+   /**
+    * Set the rate of archives that are packaged in a deployment
+    *
+    * @param v The value between 0 and 1
+    */
+   public void setDeployed(double v)
+   {
+      deployed = getRate("deployed", v);
+   }
+
+   /**
+    * Set the seed
+    *
+    * @param v The value
+    */
+   public void setSeed(long v)
+   {
+      seed = v;
+   }
+
+   /**
+    * Get the number of archive files written, including the nested archives
+    *
+    * @return The value
+    */
+   public int getArchiveCount()
+   {
+      return archiveCount;
+   }
+
+   /**
+    * Get the number of class files written
+    *
+    * @return The value
+    */
+   public int getClassCount()
+   {
+      return classCount;
+   }
+
+   /**
+    * Generate the deployment
+    *
+    * @param root The root directory
+    * @throws Exception If the deployment can't be generated
+    */
+   public void generate(File root) throws Exception
+   {
+      plan();
+
+      archiveCount = 0;
+      classCount = 0;
+      signer = signed > 0.0 ? new ArchiveSigner(seed) : null;
+
+      for (int i = 0; i < archives; i++)
+      {
+         if (targets[i] == -1)
+         {
+            File dir = new File(root, directories[i]);
+            dir.mkdirs();
+
+            write(new File(dir, getArchiveName(i)), createJar(i));
+            archiveCount++;
+
+            if (AS7.equals(layout))
+            {
+               write(new File(dir, "module.xml"), getModuleXml(i).getBytes("UTF-8"));
+            }
+         }
+      }
+
+      if (deployments > 0)
+      {
+         File dir = new File(root, FLAT.equals(layout) ? "deploy" :
+                             (AS5.equals(layout) ? "server/default/deploy" : "standalone/deployments"));
+         dir.mkdirs();
+
+         for (int d = 0; d < deployments; d++)
+         {
+            write(new File(dir, "app" + d + ".ear"), createEar(d));
+            archiveCount++;
+         }
+      }
+   }
+
+   /**
+    * Draw the archives, their dependencies and their locations from the seed
+    */
+   private void plan()
+   {
+      Random random = new Random(seed);
+
+      counts = new int[archives];
+      graph = new int[archives][];
+      bundles = new int[archives];
+      versions = new String[archives];
+      signs = new boolean[archives];
+      targets = new int[archives];
+      webs = new boolean[archives];
+      directories = new String[archives];
+
+      int layers = Math.min(LAYERS, archives);
+
+      for (int i = 0; i < archives; i++)
+      {
+         counts[i] = Math.max(1, classes / 2 + random.nextInt(classes + 1));
+         versions[i] = "1." + random.nextInt(10) + "." + random.nextInt(5);
+
+         // The archives of the lower layers are the archives before the first archive of the layer
+         List<Integer> deps = new ArrayList<Integer>();
+         int bound = RANDOM.equals(shape) ? archives : (i * layers / archives) * archives / layers;
+         int wanted = Math.min(dependencies, RANDOM.equals(shape) ? archives - 1 : bound);
+
+         while (deps.size() < wanted)
+         {
+            int dep = random.nextInt(bound);
+            if (dep != i && !deps.contains(Integer.valueOf(dep)))
+            {
+               deps.add(Integer.valueOf(dep));
+            }
+         }
+
+         if (CYCLIC.equals(shape))
+         {
+            int start = i - i % RING;
+            int next = i + 1 < Math.min(start + RING, archives) ? i + 1 : start;
+            if (next != i && !deps.contains(Integer.valueOf(next)))
+            {
+               deps.add(Integer.valueOf(next));
+            }
+         }
+
+         graph[i] = new int[deps.size()];
+         for (int j = 0; j < deps.size(); j++)
+         {
+            graph[i][j] = deps.get(j).intValue();
+         }
+
+         bundles[i] = -1;
+         if (archives > 1 && random.nextDouble() < duplicates)
+         {
+            bundles[i] = graph[i].length > 0 ? graph[i][random.nextInt(graph[i].length)] : (i + 1) % archives;
+         }
+
+         signs[i] = random.nextDouble() < signed;
+
+         targets[i] = -1;
+         if (deployments > 0 && random.nextDouble() < deployed)
+         {
+            targets[i] = random.nextInt(deployments);
+            webs[i] = random.nextBoolean();
+         }
+
+         if (AS5.equals(layout))
+         {
+            directories[i] = AS5_DIRECTORIES[random.nextInt(AS5_DIRECTORIES.length)];
+         }
+         else if (AS7.equals(layout))
+         {
+            directories[i] = "modules/org/example/lib" + i + "/main";
+         }
+         else
+         {
+            directories[i] = "lib";
+         }
+      }
+   }
+
+   /**
+    * Create an archive
+    *
+    * @param archive The number of the archive
+    * @return The archive
+    * @throws Exception If the archive can't be created
+    */
+   private byte[] createJar(int archive) throws Exception
+   {
+      Map<String, byte[]> entries = new LinkedHashMap<String, byte[]>();
+
+      for (int c = 0; c < counts[archive]; c++)
+      {
+         entries.put(getClassName(archive, c) + ".class", createClass(archive, c));
+      }
+
+      if (bundles[archive] != -1)
+      {
+         for (int c = 0; c < counts[bundles[archive]]; c++)
+         {
+            entries.put(getClassName(bundles[archive], c) + ".class", createClass(bundles[archive], c));
+         }
+      }
+
+      classCount += entries.size();
+
+      StringBuffer main = new StringBuffer();
+      ArchiveSigner.appendAttribute(main, "Manifest-Version", "1.0");
+      ArchiveSigner.appendAttribute(main, "Implementation-Title", "lib" + archive);
+      ArchiveSigner.appendAttribute(main, "Implementation-Vendor", "org.example");
+      ArchiveSigner.appendAttribute(main, "Implementation-Version", versions[archive]);
+
+      return createArchive(main, entries, signs[archive]);
+   }
+
+   /**
+    * Create an EAR deployment, which holds a WAR and the deployed archives
+    *
+    * @param deployment The number of the deployment
+    * @return The archive
+    * @throws Exception If the archive can't be created
+    */
+   private byte[] createEar(int deployment) throws Exception
+   {
+      Map<String, byte[]> war = new LinkedHashMap<String, byte[]>();
+      Map<String, byte[]> ear = new LinkedHashMap<String, byte[]>();
+
+      String web = "<web-app xmlns=\"http://java.sun.com/xml/ns/javaee\" version=\"2.5\"/>\n";
+      war.put("WEB-INF/web.xml", web.getBytes("UTF-8"));
+
+      // The servlets refer to the archives of the deployment, and to the archive of the top layer
+      List<String> refs = new ArrayList<String>();
+      for (int i = 0; i < archives; i++)
+      {
+         if (targets[i] == deployment)
+         {
+            refs.add(getClassName(i, 0));
+         }
+      }
+
+      refs.add(getClassName(archives - 1, 0));
+
+      for (String ref : JDK)
+      {
+         refs.add(ref);
+      }
+
+      for (int c = 0; c < classes; c++)
+      {
+         String name = "org/example/app" + deployment + "/Servlet" + c;
+         war.put("WEB-INF/classes/" + name + ".class", ClassFileWriter.write(name, refs));
+         classCount++;
+      }
+
+      String application = "<application xmlns=\"http://java.sun.com/xml/ns/javaee\" version=\"5\">\n" +
+         "  <module>\n" +
+         "    <web>\n" +
+         "      <web-uri>app" + deployment + ".war</web-uri>\n" +
+         "      <context-root>/app" + deployment + "</context-root>\n" +
+         "    </web>\n" +
+         "  </module>\n" +
+         "</application>\n";
+      ear.put("META-INF/application.xml", application.getBytes("UTF-8"));
+
+      for (int i = 0; i < archives; i++)
+      {
+         if (targets[i] == deployment)
+         {
+            if (webs[i])
+            {
+               war.put("WEB-INF/lib/" + getArchiveName(i), createJar(i));
+            }
+            else
+            {
+               ear.put("lib/" + getArchiveName(i), createJar(i));
+            }
+            archiveCount++;
+         }
+      }
+
+      StringBuffer main = new StringBuffer();
+      ArchiveSigner.appendAttribute(main, "Manifest-Version", "1.0");
+
+      ear.put("app" + deployment + ".war", createArchive(main, war, false));
+      archiveCount++;
+
+      return createArchive(main, ear, false);
+   }
+
+   /**
+    * Create an archive from its entries
+    *
+    * @param main    The main section of the manifest
+    * @param entries The entries
+    * @param sign    Sign the archive
+    * @return The archive
+    * @throws Exception If the archive can't be created
+    */
+   private byte[] createArchive(StringBuffer main, Map<String, byte[]> entries, boolean sign) throws Exception
+   {
+      Map<String, byte[]> meta = null;
+
+      if (sign)
+      {
+         meta = signer.sign(main.toString(), entries);
+      }
+      else
+      {
+         meta = new LinkedHashMap<String, byte[]>();
+         meta.put("META-INF/MANIFEST.MF", (main.toString() + "\r\n").getBytes("UTF-8"));
+      }
+
+      ByteArrayOutputStream baos = new ByteArrayOutputStream();
+      JarOutputStream jos = new JarOutputStream(baos);
+      try
+      {
+         putEntries(jos, meta);
+         putEntries(jos, entries);
+      }
+      finally
+      {
+         jos.close();
+      }
+
+      return baos.toByteArray();
+   }
+
+   /**
+    * Put entries into an archive
+    *
+    * @param jos     The archive
+    * @param entries The entries
+    * @throws IOException If an entry can't be written
+    */
+   private void putEntries(JarOutputStream jos, Map<String, byte[]> entries) throws IOException
+   {
+      for (Map.Entry<String, byte[]> entry : entries.entrySet())
+      {
+         JarEntry je = new JarEntry(entry.getKey());
+         je.setTime(TIME);
+
+         jos.putNextEntry(je);
+         jos.write(entry.getValue());
+         jos.closeEntry();
+      }
+   }
+
+   /**
+    * Create a class of an archive
+    *
+    * @param archive The number of the archive
+    * @param clz     The number of the class
+    * @return The class file
+    * @throws IOException If the class can't be written
+    */
+   private byte[] createClass(int archive, int clz) throws IOException
+   {
+      List<String> refs = new ArrayList<String>();
+      refs.add(getClassName(archive, (clz + 1) % counts[archive]));
+
+      for (int dep : graph[archive])
+      {
+         refs.add(getClassName(dep, clz % counts[dep]));
+      }
+
+      for (String ref : JDK)
+      {
+         refs.add(ref);
+      }
+
+      return ClassFileWriter.write(getClassName(archive, clz), refs);
+   }
+
+   /**
+    * Get the module.xml of an archive in the JBoss Application Server 7 layout
+    *
+    * @param archive The number of the archive
+    * @return The module.xml
+    */
+   private String getModuleXml(int archive)
+   {
+      StringBuffer sb = new StringBuffer();
+
+      sb.append("<module xmlns=\"urn:jboss:module:1.1\" name=\"org.example.lib" + archive + "\">\n");
+      sb.append("  <resources>\n");
+      sb.append("    <resource-root path=\"" + getArchiveName(archive) + "\"/>\n");
+      sb.append("  </resources>\n");
+      sb.append("  <dependencies>\n");
+
+      for (int dep : graph[archive])
+      {
+         if (targets[dep] == -1)
+         {
+            sb.append("    <module name=\"org.example.lib" + dep + "\"/>\n");
+         }
+      }
+
+      sb.append("  </dependencies>\n");
+      sb.append("</module>\n");
+
+      return sb.toString();
+   }
+
+   /**
+    * Write a file
+    *
+    * @param file The file
+    * @param data The content
+    * @throws IOException If the file can't be written
+    */
+   private void write(File file, byte[] data) throws IOException
+   {
+      OutputStream os = new FileOutputStream(file);
+      try
+      {
+         os.write(data);
+      }
+      finally
+      {
+         os.close();
+      }
+   }
+
+   /**
+    * Get the file name of an archive
+    *
+    * @param archive The number of the archive
+    * @return The name
+    */
+   private static String getArchiveName(int archive)
+   {
+      return "lib" + archive + ".jar";
+   }
+
+   /**
+    * Get the internal name of a class
+    *
+    * @param archive The number of the archive
+    * @param clz     The number of the class
+    * @return The name
+    */
+   private static String getClassName(int archive, int clz)
+   {
+      return "org/example/lib" + archive + "/C" + clz;
+   }
+
+   /**
+    * Check a rate
+    *
+    * @param name The name of the setting
+    * @param v    The value
+    * @return The value
+    */
+   private static double getRate(String name, double v)
+   {
+      if (v < 0.0 || v > 1.0)
+      {
+         throw new IllegalArgumentException(name + ": " + v);
+      }
+
+      return v;
+   }
+}
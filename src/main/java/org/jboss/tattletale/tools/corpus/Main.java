@@ -0,0 +1,142 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2011, Red Hat Middleware LLC, and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.tattletale.tools.corpus;
+
+import java.io.File;
+
+/**
+ * Tool to generate a synthetic deployment for scale testing
+ *
+ * @author Jesper Pedersen <jesper.pedersen@jboss.org>
+ */
+public class Main
+{
+   /**
+    * Constructor
+    */
+   private Main()
+   {
+   }
+
+   /**
+    * main
+    * @param args The arguments
+    */
+   public static void main(String[] args)
+   {
+      CorpusGenerator generator = new CorpusGenerator();
+      File root = null;
+
+      try
+      {
+         for (int i = 0; args != null && i < args.length; i++)
+         {
+            String arg = args[i];
+
+            if (arg.startsWith("-") && i + 1 < args.length)
+            {
+               String value = args[++i];
+
+               if ("-archives".equals(arg))
+               {
+                  generator.setArchives(Integer.parseInt(value));
+               }
+               else if ("-classes".equals(arg))
+               {
+                  generator.setClasses(Integer.parseInt(value));
+               }
+               else if ("-shape".equals(arg))
+               {
+                  generator.setShape(value);
+               }
+               else if ("-dependencies".equals(arg))
+               {
+                  generator.setDependencies(Integer.parseInt(value));
+               }
+               else if ("-duplicates".equals(arg))
+               {
+                  generator.setDuplicates(Double.parseDouble(value));
+               }
+               else if ("-signed".equals(arg))
+               {
+                  generator.setSigned(Double.parseDouble(value));
+               }
+               else if ("-layout".equals(arg))
+               {
+                  generator.setLayout(value);
+               }
+               else if ("-deployments".equals(arg))
+               {
+                  generator.setDeployments(Integer.parseInt(value));
+               }
+               else if ("-deployed".equals(arg))
+               {
+                  generator.setDeployed(Double.parseDouble(value));
+               }
+               else if ("-seed".equals(arg))
+               {
+                  generator.setSeed(Long.parseLong(value));
+               }
+               else
+               {
+                  throw new IllegalArgumentException(arg);
+               }
+            }
+            else if (root == null && !arg.startsWith("-"))
+            {
+               root = new File(arg);
+            }
+            else
+            {
+               throw new IllegalArgumentException(arg);
+            }
+         }
+      }
+      catch (IllegalArgumentException iae)
+      {
+         System.out.println("Invalid argument: " + iae.getMessage());
+         root = null;
+      }
+
+      if (root != null)
+      {
+         try
+         {
+            generator.generate(root);
+
+            System.out.println("Generated " + generator.getArchiveCount() + " archives with " +
+                               generator.getClassCount() + " classes into " + root);
+         }
+         catch (Throwable t)
+         {
+            t.printStackTrace(System.out);
+         }
+      }
+      else
+      {
+         System.out.println("Usage: Main [-archives <n>] [-classes <n>] [-shape layered|random|cyclic]");
+         System.out.println("            [-dependencies <n>] [-duplicates <rate>] [-signed <rate>]");
+         System.out.println("            [-layout flat|as5|as7] [-deployments <n>] [-deployed <rate>]");
+         System.out.println("            [-seed <n>] <directory>");
+      }
+   }
+}
@@ -0,0 +1,517 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2011, Red Hat Middleware LLC, and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.tattletale.tools.perf;
+
+import org.jboss.tattletale.tools.corpus.CorpusGenerator;
+import org.jboss.tattletale.utils.Metrics;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+
+/**
+ * Tool to run the scan and the reports on a synthetic deployment, and compare the throughput, the wall
+ * time and the peak heap against a baseline.
+ *
+ * The baseline is a properties file, which holds the settings of the synthetic deployment and the
+ * measures of the baseline run. The best measure of a number of runs after the warmup runs is compared,
+ * and the tool exits with 1 if a measure is worse than the baseline by more than the threshold.
+ *
+ * Each run also times a fixed calibration workload in the same JVM, which doesn't use Tattletale. The
+ * times and the throughputs of the baseline are scaled by the ratio of the calibration times before
+ * they are compared, so the baseline can be compared on a different machine. The peak heap depends on
+ * the JVM and its collector, so it is only reported
+ *
+ * @author Jesper Pedersen <jesper.pedersen@jboss.org>
+ */
+public class Main
+{
+   /** Archives per second over the wall time */
+   private static final String ARCHIVES_PER_SECOND = "archivespersecond";
+
+   /** Classes per second over the scan time */
+   private static final String CLASSES_PER_SECOND = "classespersecond";
+
+   /** Wall time in milliseconds */
+   private static final String WALL_TIME = "walltime";
+
+   /** Peak heap in megabytes */
+   private static final String PEAK_HEAP = "peakheap";
+
+   /** Time of the calibration workload in milliseconds */
+   private static final String CALIBRATION = "calibration";
+
+   /** The measures */
+   private static final String[] MEASURES = {ARCHIVES_PER_SECOND, CLASSES_PER_SECOND, WALL_TIME, PEAK_HEAP,
+                                             CALIBRATION};
+
+   /** The settings of the synthetic deployment */
+   private static final String[] SETTINGS = {"archives", "classes", "shape", "dependencies", "duplicates",
+                                             "signed", "layout", "deployments", "seed"};
+
+   /**
+    * Constructor
+    */
+   private Main()
+   {
+   }
+
+   /**
+    * main
+    * @param args The arguments
+    */
+   public static void main(String[] args)
+   {
+      File directory = null;
+      File baselineFile = null;
+      int threshold = 20;
+      int runs = 3;
+      int warmups = 1;
+      boolean update = false;
+
+      try
+      {
+         for (int i = 0; args != null && i < args.length; i++)
+         {
+            if ("-threshold".equals(args[i]) && i + 1 < args.length)
+            {
+               threshold = Integer.parseInt(args[++i]);
+            }
+            else if ("-runs".equals(args[i]) && i + 1 < args.length)
+            {
+               runs = Math.max(1, Integer.parseInt(args[++i]));
+            }
+            else if ("-warmup".equals(args[i]) && i + 1 < args.length)
+            {
+               warmups = Math.max(0, Integer.parseInt(args[++i]));
+            }
+            else if ("-update".equals(args[i]))
+            {
+               update = true;
+            }
+            else if (directory == null && !args[i].startsWith("-"))
+            {
+               directory = new File(args[i]);
+            }
+            else if (baselineFile == null && !args[i].startsWith("-"))
+            {
+               baselineFile = new File(args[i]);
+            }
+            else
+            {
+               throw new IllegalArgumentException(args[i]);
+            }
+         }
+      }
+      catch (IllegalArgumentException iae)
+      {
+         System.out.println("Invalid argument: " + iae.getMessage());
+         baselineFile = null;
+      }
+
+      if (baselineFile == null)
+      {
+         System.out.println("Usage: Main [-threshold <percent>] [-runs <n>] [-warmup <n>] [-update] " +
+                            "<directory> <baseline>");
+         return;
+      }
+
+      boolean regression = false;
+      try
+      {
+         Properties baseline = load(baselineFile);
+         File corpus = new File(directory, "corpus");
+
+         CorpusGenerator generator = createGenerator(baseline);
+
+         delete(corpus);
+         generator.generate(corpus);
+
+         System.out.println("Generated " + generator.getArchiveCount() + " archives with " +
+                            generator.getClassCount() + " classes");
+
+         // The warmup runs compile the hot paths, and aren't measured
+         Properties best = null;
+         for (int run = 0; run < warmups + runs; run++)
+         {
+            System.gc();
+
+            org.jboss.tattletale.Main main = new org.jboss.tattletale.Main();
+            main.setSource(corpus.getPath());
+            main.setDestination(new File(directory, "report").getPath());
+            main.execute();
+
+            Properties measures = getMeasures(main.getMetrics());
+            measures.setProperty(CALIBRATION, format(calibrate()));
+
+            if (run < warmups)
+            {
+               System.out.println("Warmup " + (run + 1) + ": " + measures);
+            }
+            else
+            {
+               System.out.println("Run " + (run - warmups + 1) + ": " + measures);
+               best = best == null ? measures : getBest(best, measures);
+            }
+         }
+
+         if (update)
+         {
+            for (String measure : MEASURES)
+            {
+               baseline.setProperty(measure, best.getProperty(measure));
+            }
+
+            store(baseline, baselineFile);
+            System.out.println("Updated " + baselineFile);
+         }
+         else
+         {
+            store(best, new File(directory, "perf.properties"));
+            regression = compare(baseline, best, threshold);
+         }
+      }
+      catch (Throwable t)
+      {
+         t.printStackTrace(System.out);
+         regression = true;
+      }
+
+      if (regression)
+      {
+         System.exit(1);
+      }
+   }
+
+   /**
+    * Create the generator of the synthetic deployment from the settings of the baseline
+    *
+    * @param baseline The baseline
+    * @return The generator
+    */
+   private static CorpusGenerator createGenerator(Properties baseline)
+   {
+      CorpusGenerator generator = new CorpusGenerator();
+
+      generator.setArchives(Integer.parseInt(baseline.getProperty("archives", "1000")));
+      generator.setClasses(Integer.parseInt(baseline.getProperty("classes", "20")));
+      generator.setShape(baseline.getProperty("shape", CorpusGenerator.LAYERED));
+      generator.setDependencies(Integer.parseInt(baseline.getProperty("dependencies", "3")));
+      generator.setDuplicates(Double.parseDouble(baseline.getProperty("duplicates", "0")));
+      generator.setSigned(Double.parseDouble(baseline.getProperty("signed", "0")));
+      generator.setLayout(baseline.getProperty("layout", CorpusGenerator.FLAT));
+      generator.setDeployments(Integer.parseInt(baseline.getProperty("deployments", "0")));
+      generator.setSeed(Long.parseLong(baseline.getProperty("seed", "0")));
+
+      return generator;
+   }
+
+   /**
+    * Get the measures of a run
+    *
+    * @param metrics The metrics of the run
+    * @return The measures
+    */
+   private static Properties getMeasures(Metrics metrics)
+   {
+      Properties result = new Properties();
+
+      double wall = Math.max(1L, metrics.getTime(Metrics.TOTAL));
+      double scan = Math.max(1L, metrics.getTime(Metrics.SCAN));
+
+      result.setProperty(ARCHIVES_PER_SECOND, format(metrics.getCounter(Metrics.ARCHIVES) * 1000.0 / wall));
+      result.setProperty(CLASSES_PER_SECOND, format(metrics.getCounter(Metrics.CLASSES) * 1000.0 / scan));
+      result.setProperty(WALL_TIME, format(wall));
+      result.setProperty(PEAK_HEAP, format(metrics.getPeakHeap() / (1024.0 * 1024.0)));
+
+      return result;
+   }
+
+   /**
+    * Get the best of each measure of two runs
+    *
+    * @param a The measures of a run
+    * @param b The measures of another run
+    * @return The best measures
+    */
+   private static Properties getBest(Properties a, Properties b)
+   {
+      Properties result = new Properties();
+
+      for (String measure : MEASURES)
+      {
+         double va = Double.parseDouble(a.getProperty(measure));
+         double vb = Double.parseDouble(b.getProperty(measure));
+
+         result.setProperty(measure, format(isThroughput(measure) ? Math.max(va, vb) : Math.min(va, vb)));
+      }
+
+      return result;
+   }
+
+   /**
+    * Compare the measures of a run against the baseline
+    *
+    * @param baseline  The baseline
+    * @param measures  The measures
+    * @param threshold The threshold in percent
+    * @return True if a measure regressed by more than the threshold; otherwise false
+    */
+   private static boolean compare(Properties baseline, Properties measures, int threshold)
+   {
+      boolean result = false;
+      String format = "%-20s %12s %12s %8s  %s";
+
+      // How much slower this machine is than the machine of the baseline
+      double scale = 1.0;
+      String calibration = baseline.getProperty(CALIBRATION);
+      if (calibration != null && Double.parseDouble(calibration.trim()) > 0.0)
+      {
+         scale = Double.parseDouble(measures.getProperty(CALIBRATION)) / Double.parseDouble(calibration.trim());
+         System.out.println("Calibration: " + format(scale) + "x the time of the baseline");
+      }
+      else
+      {
+         System.out.println("Calibration: none in the baseline, the measures are compared as recorded");
+      }
+
+      System.out.println(String.format(format, "Measure", "Baseline", "Current", "Change", ""));
+
+      for (String measure : MEASURES)
+      {
+         if (CALIBRATION.equals(measure))
+         {
+            continue;
+         }
+
+         String current = measures.getProperty(measure);
+         String value = baseline.getProperty(measure);
+
+         if (value == null)
+         {
+            System.out.println(String.format(format, measure, "-", current, "-", ""));
+            continue;
+         }
+
+         double expected = Double.parseDouble(value.trim());
+         double actual = Double.parseDouble(current);
+
+         if (isThroughput(measure))
+         {
+            expected = expected / scale;
+         }
+         else if (WALL_TIME.equals(measure))
+         {
+            expected = expected * scale;
+         }
+
+         // The change in percent, where a positive change is worse than the baseline
+         double change = 0.0;
+         if (expected > 0.0)
+         {
+            change = (isThroughput(measure) ? expected - actual : actual - expected) * 100.0 / expected;
+         }
+
+         // The peak heap doesn't fail the gate
+         boolean regressed = change > threshold;
+         String status = "OK";
+         if (regressed && PEAK_HEAP.equals(measure))
+         {
+            status = "WARNING";
+         }
+         else if (regressed)
+         {
+            status = "REGRESSION";
+            result = true;
+         }
+
+         System.out.println(String.format(format, measure, format(expected), current,
+                                          (change > 0.0 ? "-" : "+") + Math.round(Math.abs(change)) + "%",
+                                          status));
+      }
+
+      return result;
+   }
+
+   /**
+    * Time a fixed workload of digests, string building and sorting, which doesn't depend on Tattletale.
+    * The best of five repetitions is used, which keeps the collector and the JIT out of the time
+    *
+    * @return The time in milliseconds
+    * @throws Exception If the digest isn't available
+    */
+   private static double calibrate() throws Exception
+   {
+      double best = Double.MAX_VALUE;
+
+      for (int repetition = 0; repetition < 5; repetition++)
+      {
+         System.gc();
+         long start = System.nanoTime();
+
+         MessageDigest digest = MessageDigest.getInstance("SHA-1");
+         byte[] data = new byte[64 * 1024];
+         for (int i = 0; i < data.length; i++)
+         {
+            data[i] = (byte)i;
+         }
+
+         for (int i = 0; i < 256; i++)
+         {
+            digest.update(data);
+         }
+         byte[] hash = digest.digest();
+
+         List<String> names = new ArrayList<String>(100000);
+         for (int i = 0; i < 100000; i++)
+         {
+            StringBuffer sb = new StringBuffer();
+            sb.append("org.jboss.calibration.p");
+            sb.append((i * 7919) % 1000);
+            sb.append(".Class");
+            sb.append(i ^ hash[i % hash.length]);
+            names.add(sb.toString());
+         }
+         Collections.sort(names);
+
+         best = Math.min(best, (System.nanoTime() - start) / 1000000.0);
+      }
+
+      return best;
+   }
+
+   /**
+    * Format a measure with one decimal
+    *
+    * @param v The value
+    * @return The formatted value
+    */
+   private static String format(double v)
+   {
+      return String.format(Locale.US, "%.1f", Double.valueOf(v));
+   }
+
+   /**
+    * Is a measure a throughput, where a higher value is better
+    *
+    * @param measure The measure
+    * @return True if a higher value is better; otherwise false
+    */
+   private static boolean isThroughput(String measure)
+   {
+      return ARCHIVES_PER_SECOND.equals(measure) || CLASSES_PER_SECOND.equals(measure);
+   }
+
+   /**
+    * Load a properties file
+    *
+    * @param file The file
+    * @return The properties
+    * @throws IOException If the file can't be read
+    */
+   private static Properties load(File file) throws IOException
+   {
+      Properties properties = new Properties();
+
+      FileInputStream fis = new FileInputStream(file);
+      try
+      {
+         properties.load(fis);
+      }
+      finally
+      {
+         fis.close();
+      }
+
+      return properties;
+   }
+
+   /**
+    * Store the settings and the measures in a properties file, without the time stamp of Properties.store
+    *
+    * @param properties The properties
+    * @param file       The file
+    * @throws IOException If the file can't be written
+    */
+   private static void store(Properties properties, File file) throws IOException
+   {
+      Writer w = new OutputStreamWriter(new FileOutputStream(file), "ISO-8859-1");
+      try
+      {
+         w.write("# Performance baseline of JBoss Tattletale; see the perf target of build.xml\n");
+         w.write("\n");
+         w.write("# The synthetic deployment\n");
+
+         for (String setting : SETTINGS)
+         {
+            if (properties.getProperty(setting) != null)
+            {
+               w.write(setting + "=" + properties.getProperty(setting) + "\n");
+            }
+         }
+
+         w.write("\n");
+         w.write("# Archives per second, classes per second, wall time (ms), peak heap (MB) and the time of\n");
+         w.write("# the calibration workload (ms), which scales the measures on another machine\n");
+
+         for (String measure : MEASURES)
+         {
+            if (properties.getProperty(measure) != null)
+            {
+               w.write(measure + "=" + properties.getProperty(measure) + "\n");
+            }
+         }
+      }
+      finally
+      {
+         w.close();
+      }
+   }
+
+   /**
+    * Delete a file or a directory
+    *
+    * @param file The file
+    */
+   private static void delete(File file)
+   {
+      File[] files = file.listFiles();
+      if (files != null)
+      {
+         for (File f : files)
+         {
+            delete(f);
+         }
+      }
+
+      file.delete();
+   }
+}
@@ -0,0 +1,82 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2009, Red Hat Middleware LLC, and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.tattletale.utils;
+
+import java.io.File;
+
+/**
+ * A listener for the events of a run, f.ex. to forward them to a profiler. No events are fired unless a
+ * listener is set, see {@link Metrics#setListener(EventListener)}.
+ * <p/>
+ * The durations are in nanoseconds, see {@link System#nanoTime()}, and the events are fired on the thread
+ * doing the work.
+ *
+ * @author Jesper Pedersen <jesper.pedersen@jboss.org>
+ */
+public interface EventListener
+{
+   /**
+    * An archive was scanned
+    *
+    * @param file     The file
+    * @param size     The size in bytes
+    * @param classes  The number of classes parsed
+    * @param duration The duration
+    */
+   public void archiveScanned(File file, long size, long classes, long duration);
+
+   /**
+    * A class of an archive couldn't be parsed
+    *
+    * @param file  The file of the archive
+    * @param entry The entry of the class
+    * @param cause The cause
+    */
+   public void classParseFailed(File file, String entry, Exception cause);
+
+   /**
+    * The archives that an archive can see were computed from the classloader structure
+    *
+    * @param structure The classloader structure
+    * @param archive   The archive name
+    * @param visible   The number of archives it can see
+    * @param duration  The duration
+    */
+   public void visibilityComputed(String structure, String archive, int visible, long duration);
+
+   /**
+    * A report was generated
+    *
+    * @param id       The report id
+    * @param duration The duration
+    */
+   public void reportGenerated(String id, long duration);
+
+   /**
+    * The dot application was invoked
+    *
+    * @param dotName   The .dot file name
+    * @param exitValue The exit value; -1 if it couldn't be run
+    * @param duration  The duration
+    */
+   public void dotInvoked(String dotName, int exitValue, long duration);
+}
@@ -0,0 +1,464 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2009, Red Hat Middleware LLC, and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.tattletale.utils;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * A registry of the counters and the phase timers of a run
+ *
+ * @author Jesper Pedersen <jesper.pedersen@jboss.org>
+ */
+public class Metrics implements Serializable
+{
+   /** SerialVersionUID */
+   static final long serialVersionUID = 4107751562207416212L;
+
+   /** The archives of the model */
+   public static final String ARCHIVES = "archives";
+
+   /** The classes parsed */
+   public static final String CLASSES = "classes";
+
+   /** The bytes of the archives read */
+   public static final String BYTES = "bytes";
+
+   /** The edges of the class dependency index */
+   public static final String EDGES = "edges";
+
+   /** The lookups of a class in the profiles */
+   public static final String PROFILE_LOOKUPS = "profilelookups";
+
+   /** The archives taken from the scan cache */
+   public static final String CACHE_HITS = "cachehits";
+
+   /** The archives not found in the scan cache */
+   public static final String CACHE_MISSES = "cachemisses";
+
+   /** The archives whose dependencies are spilled to disk */
+   public static final String SPILLED = "spilledarchives";
+
+   /** The bytes of dependencies spilled to disk */
+   public static final String SPILLED_BYTES = "spilledbytes";
+
+   /** The discovery of the archive files */
+   public static final String DISCOVERY = "discovery";
+
+   /** The scan of an archive */
+   public static final String SCAN = "scan";
+
+   /** The scan of a shard of the archives by a worker process */
+   public static final String SHARD = "shard";
+
+   /** The prefix of the generation of a report */
+   public static final String REPORT = "report.";
+
+   /** The rendering of a Graphviz picture */
+   public static final String GRAPHVIZ = "graphviz";
+
+   /** The writing of the index */
+   public static final String INDEX = "index";
+
+   /** The whole run */
+   public static final String TOTAL = "total";
+
+   /** Nanoseconds per millisecond */
+   private static final long NANOS_PER_MILLI = 1000000L;
+
+   /** The counters */
+   private SortedMap<String, Long> counters;
+
+   /** The timers; the count, the total and the maximum nanoseconds */
+   private SortedMap<String, long[]> timers;
+
+   /** The start of the run */
+   private long start;
+
+   /** The peak of the used heap, sampled when the timers start and stop */
+   private long peakHeap;
+
+   /** The event listener */
+   private transient volatile EventListener listener;
+
+   /** Constructor */
+   public Metrics()
+   {
+      counters = new TreeMap<String, Long>();
+      timers = new TreeMap<String, long[]>();
+      listener = null;
+      reset();
+   }
+
+   /**
+    * Clear the counters and the timers, and start a new run
+    */
+   public synchronized void reset()
+   {
+      counters.clear();
+      timers.clear();
+      start = System.nanoTime();
+      peakHeap = 0;
+   }
+
+   /**
+    * Get the event listener
+    *
+    * @return The value; <code>null</code> if no events are fired
+    */
+   public EventListener getListener()
+   {
+      return listener;
+   }
+
+   /**
+    * Set the event listener, which is kept when the metrics are reset
+    *
+    * @param listener The value; <code>null</code> to not fire events
+    */
+   public void setListener(EventListener listener)
+   {
+      this.listener = listener;
+   }
+
+   /**
+    * Get the start of the run
+    *
+    * @return The value, see {@link System#nanoTime()}
+    */
+   public synchronized long getStart()
+   {
+      return start;
+   }
+
+   /**
+    * Add to a counter
+    *
+    * @param counter The counter
+    * @param value   The value
+    */
+   public synchronized void add(String counter, long value)
+   {
+      Long current = counters.get(counter);
+      counters.put(counter, Long.valueOf(current != null ? current.longValue() + value : value));
+   }
+
+   /**
+    * Set a counter
+    *
+    * @param counter The counter
+    * @param value   The value
+    */
+   public synchronized void set(String counter, long value)
+   {
+      counters.put(counter, Long.valueOf(value));
+   }
+
+   /**
+    * Get a counter
+    *
+    * @param counter The counter
+    * @return The value
+    */
+   public synchronized long getCounter(String counter)
+   {
+      Long value = counters.get(counter);
+      return value != null ? value.longValue() : 0;
+   }
+
+   /**
+    * Add the counters and the timers of another run, f.ex. of a worker process
+    *
+    * @param metrics The metrics
+    */
+   public void merge(Metrics metrics)
+   {
+      SortedMap<String, Long> otherCounters;
+      SortedMap<String, long[]> otherTimers;
+
+      synchronized (metrics)
+      {
+         otherCounters = new TreeMap<String, Long>(metrics.counters);
+         otherTimers = new TreeMap<String, long[]>();
+
+         for (Map.Entry<String, long[]> entry : metrics.timers.entrySet())
+         {
+            otherTimers.put(entry.getKey(), entry.getValue().clone());
+         }
+      }
+
+      synchronized (this)
+      {
+         for (Map.Entry<String, Long> entry : otherCounters.entrySet())
+         {
+            add(entry.getKey(), entry.getValue().longValue());
+         }
+
+         for (Map.Entry<String, long[]> entry : otherTimers.entrySet())
+         {
+            long[] values = timers.get(entry.getKey());
+            if (values == null)
+            {
+               values = new long[3];
+               timers.put(entry.getKey(), values);
+            }
+
+            values[0] += entry.getValue()[0];
+            values[1] += entry.getValue()[1];
+            values[2] = Math.max(values[2], entry.getValue()[2]);
+         }
+      }
+   }
+
+   /**
+    * Start a timer
+    *
+    * @return The start, which is handed to {@link #stop(String, long)}
+    */
+   public long start()
+   {
+      sampleHeap();
+      return System.nanoTime();
+   }
+
+   /**
+    * Stop a timer
+    *
+    * @param timer The timer
+    * @param start The start
+    * @return The elapsed time in nanoseconds
+    */
+   public long stop(String timer, long start)
+   {
+      long elapsed = System.nanoTime() - start;
+      long used = getUsedHeap();
+
+      synchronized (this)
+      {
+         long[] values = timers.get(timer);
+         if (values == null)
+         {
+            values = new long[3];
+            timers.put(timer, values);
+         }
+
+         values[0]++;
+         values[1] += elapsed;
+         values[2] = Math.max(values[2], elapsed);
+
+         peakHeap = Math.max(peakHeap, used);
+      }
+
+      return elapsed;
+   }
+
+   /**
+    * Get the number of times a timer was stopped
+    *
+    * @param timer The timer
+    * @return The value
+    */
+   public synchronized long getCount(String timer)
+   {
+      long[] values = timers.get(timer);
+      return values != null ? values[0] : 0;
+   }
+
+   /**
+    * Get the total time of a timer
+    *
+    * @param timer The timer
+    * @return The value in milliseconds
+    */
+   public synchronized long getTime(String timer)
+   {
+      long[] values = timers.get(timer);
+      return values != null ? values[1] / NANOS_PER_MILLI : 0;
+   }
+
+   /**
+    * Get the peak heap usage of the run. The used heap of the whole JVM is sampled when the timers
+    * start and stop, so the value is a lower bound of the real peak
+    *
+    * @return The value in bytes
+    */
+   public synchronized long getPeakHeap()
+   {
+      return Math.max(peakHeap, getUsedHeap());
+   }
+
+   /**
+    * Sample the used heap
+    */
+   private void sampleHeap()
+   {
+      long used = getUsedHeap();
+
+      synchronized (this)
+      {
+         peakHeap = Math.max(peakHeap, used);
+      }
+   }
+
+   /**
+    * Get the used heap of the JVM
+    *
+    * @return The value in bytes
+    */
+   private static long getUsedHeap()
+   {
+      Runtime runtime = Runtime.getRuntime();
+      return runtime.totalMemory() - runtime.freeMemory();
+   }
+
+   /**
+    * Get the metrics as JSON
+    *
+    * @return The value
+    */
+   public synchronized String toJSON()
+   {
+      StringBuffer sb = new StringBuffer();
+
+      sb.append("{\n");
+      sb.append("  \"peakHeap\": ").append(getPeakHeap()).append(",\n");
+
+      sb.append("  \"counters\": {");
+      boolean first = true;
+      for (Map.Entry<String, Long> entry : counters.entrySet())
+      {
+         sb.append(first ? "\n" : ",\n");
+         sb.append("    \"").append(escape(entry.getKey())).append("\": ").append(entry.getValue());
+         first = false;
+      }
+      sb.append(first ? "},\n" : "\n  },\n");
+
+      sb.append("  \"timers\": {");
+      first = true;
+      for (Map.Entry<String, long[]> entry : timers.entrySet())
+      {
+         long[] values = entry.getValue();
+
+         sb.append(first ? "\n" : ",\n");
+         sb.append("    \"").append(escape(entry.getKey())).append("\": {");
+         sb.append("\"count\": ").append(values[0]);
+         sb.append(", \"time\": ").append(values[1] / NANOS_PER_MILLI);
+         sb.append(", \"max\": ").append(values[2] / NANOS_PER_MILLI);
+         sb.append("}");
+         first = false;
+      }
+      sb.append(first ? "}\n" : "\n  }\n");
+
+      sb.append("}\n");
+
+      return sb.toString();
+   }
+
+   /**
+    * Get a summary table of the metrics
+    *
+    * @return The lines of the table
+    */
+   public synchronized List<String> getSummary()
+   {
+      List<String> result = new ArrayList<String>();
+      String format = "%-40s %10s %12s";
+
+      result.add(String.format(format, "Phase", "Count", "Time (ms)"));
+      for (Map.Entry<String, long[]> entry : timers.entrySet())
+      {
+         long[] values = entry.getValue();
+         result.add(String.format(format, entry.getKey(), Long.valueOf(values[0]),
+                                  Long.valueOf(values[1] / NANOS_PER_MILLI)));
+      }
+
+      format = "%-40s %10s";
+
+      result.add(String.format(format, "Counter", "Value"));
+      for (Map.Entry<String, Long> entry : counters.entrySet())
+      {
+         result.add(String.format(format, entry.getKey(), entry.getValue()));
+      }
+      result.add(String.format(format, "peak heap (MB)", Long.valueOf(getPeakHeap() / (1024 * 1024))));
+
+      return result;
+   }
+
+   /**
+    * Write the metrics as JSON
+    *
+    * @param file The file
+    * @throws IOException If the file can't be written
+    */
+   public void write(File file) throws IOException
+   {
+      BufferedWriter bw = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"));
+      try
+      {
+         bw.write(toJSON());
+      }
+      finally
+      {
+         bw.close();
+      }
+   }
+
+   /**
+    * Escape a JSON string
+    *
+    * @param s The string
+    * @return The escaped string
+    */
+   private static String escape(String s)
+   {
+      StringBuffer sb = new StringBuffer(s.length());
+
+      for (int i = 0; i < s.length(); i++)
+      {
+         char c = s.charAt(i);
+
+         if (c == '"' || c == '\\')
+         {
+            sb.append('\\').append(c);
+         }
+         else if (c < ' ')
+         {
+            sb.append(String.format("\\u%04x", Integer.valueOf(c)));
+         }
+         else
+         {
+            sb.append(c);
+         }
+      }
+
+      return sb.toString();
+   }
+}
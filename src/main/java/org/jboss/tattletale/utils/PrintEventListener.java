@@ -0,0 +1,145 @@
+/*
+ * JBoss, Home of Professional Open Source.
+ * Copyright 2009, Red Hat Middleware LLC, and individual contributors
+ * as indicated by the @author tags. See the copyright.txt file in the
+ * distribution for a full listing of individual contributors.
+ *
+ * This is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation; either version 2.1 of
+ * the License, or (at your option) any later version.
+ *
+ * This software is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public
+ * License along with this software; if not, write to the Free
+ * Software Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA
+ * 02110-1301 USA, or see the FSF site: http://www.fsf.org.
+ */
+package org.jboss.tattletale.utils;
+
+import java.io.File;
+import java.io.PrintStream;
+
+/**
+ * An event listener that prints one line per event with a time stamp, so the events can be correlated
+ * with f.ex. a garbage collection log
+ *
+ * @author Jesper Pedersen <jesper.pedersen@jboss.org>
+ */
+public class PrintEventListener implements EventListener
+{
+   /** The stream */
+   private PrintStream out;
+
+   /** Constructor */
+   public PrintEventListener()
+   {
+      this(System.out);
+   }
+
+   /**
+    * Constructor
+    *
+    * @param out The stream
+    */
+   public PrintEventListener(PrintStream out)
+   {
+      this.out = out;
+   }
+
+   /**
+    * An archive was scanned
+    *
+    * @param file     The file
+    * @param size     The size in bytes
+    * @param classes  The number of classes parsed
+    * @param duration The duration
+    */
+   public void archiveScanned(File file, long size, long classes, long duration)
+   {
+      print("archiveScanned", "path=" + file.getPath() + " size=" + size + " classes=" + classes, duration);
+   }
+
+   /**
+    * A class of an archive couldn't be parsed
+    *
+    * @param file  The file of the archive
+    * @param entry The entry of the class
+    * @param cause The cause
+    */
+   public void classParseFailed(File file, String entry, Exception cause)
+   {
+      print("classParseFailed", "path=" + file.getPath() + " entry=" + entry + " cause=" + cause, -1);
+   }
+
+   /**
+    * The archives that an archive can see were computed from the classloader structure
+    *
+    * @param structure The classloader structure
+    * @param archive   The archive name
+    * @param visible   The number of archives it can see
+    * @param duration  The duration
+    */
+   public void visibilityComputed(String structure, String archive, int visible, long duration)
+   {
+      print("visibilityComputed", "structure=" + structure + " archive=" + archive + " visible=" + visible,
+            duration);
+   }
+
+   /**
+    * A report was generated
+    *
+    * @param id       The report id
+    * @param duration The duration
+    */
+   public void reportGenerated(String id, long duration)
+   {
+      print("reportGenerated", "id=" + id, duration);
+   }
+
+   /**
+    * The dot application was invoked
+    *
+    * @param dotName   The .dot file name
+    * @param exitValue The exit value; -1 if it couldn't be run
+    * @param duration  The duration
+    */
+   public void dotInvoked(String dotName, int exitValue, long duration)
+   {
+      print("dotInvoked", "file=" + dotName + " exit=" + exitValue, duration);
+   }
+
+   /**
+    * Print an event
+    *
+    * @param event    The event
+    * @param fields   The fields
+    * @param duration The duration; negative if the event has none
+    */
+   private void print(String event, String fields, long duration)
+   {
+      StringBuffer sb = new StringBuffer();
+
+      sb.append(System.currentTimeMillis());
+      sb.append(" [");
+      sb.append(event);
+      sb.append("] ");
+      sb.append(fields);
+
+      if (duration >= 0)
+      {
+         sb.append(" duration=");
+         sb.append(duration / 1000000L);
+         sb.append("ms");
+      }
+
+      synchronized (out)
+      {
+         out.println(sb.toString());
+      }
+   }
+}